@@ -6,19 +6,41 @@ plugins {
 group = "cn.lnkdoc.expand"
 version = "2021.0"
 
+//基准测试源码目录：src/jmh/java
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+configurations["jmhImplementation"].extendsFrom(configurations.implementation.get())
+configurations["jmhRuntimeOnly"].extendsFrom(configurations.runtimeOnly.get())
+
 dependencies {
     // https://mvnrepository.com/artifact/com.wgzhao.datax/datax-common
     implementation("com.alibaba.datax:datax-common:0.0.1-SNAPSHOT")
-    // https://mvnrepository.com/artifact/net.sourceforge.javacsv/javacsv
-    implementation("net.sourceforge.javacsv:javacsv:2.0")
     // https://mvnrepository.com/artifact/com.google.guava/guava
     implementation("com.google.guava:guava:23.0")
+    // CloseShieldOutputStream.wrap需2.9及以上版本
+    // https://mvnrepository.com/artifact/commons-io/commons-io
+    implementation("commons-io:commons-io:2.15.1")
     // https://mvnrepository.com/artifact/org.apache.commons/commons-compress
     implementation("org.apache.commons:commons-compress:1.21")
-
-
-    // https://mvnrepository.com/artifact/javacsv/javacsv
-    //implementation("javacsv:javacsv:1.0")
+    // https://mvnrepository.com/artifact/com.github.luben/zstd-jni
+    implementation("com.github.luben:zstd-jni:1.5.0-4")
+    // https://mvnrepository.com/artifact/org.lz4/lz4-java
+    implementation("org.lz4:lz4-java:1.8.0")
+    // https://mvnrepository.com/artifact/org.xerial.snappy/snappy-java
+    implementation("org.xerial.snappy:snappy-java:1.1.8.4")
+    // https://mvnrepository.com/artifact/org.apache.parquet/parquet-hadoop
+    implementation("org.apache.parquet:parquet-hadoop:1.12.3")
+    // https://mvnrepository.com/artifact/org.apache.orc/orc-core
+    implementation("org.apache.orc:orc-core:1.7.10")
+    // parquet、orc依赖的hadoop类：使用shaded客户端, 避免引入hadoop的传递依赖
+    // https://mvnrepository.com/artifact/org.apache.hadoop/hadoop-client-api
+    implementation("org.apache.hadoop:hadoop-client-api:3.3.4")
+    // hadoop Configuration依赖其中重定位的woodstox等类; DataX按插件目录隔离加载, 框架不提供hadoop, 须随插件发布
+    // 仅写出parquet、orc时加载, 只写txt、csv的部署可从插件libs中删除hadoop-client-*
+    // https://mvnrepository.com/artifact/org.apache.hadoop/hadoop-client-runtime
+    runtimeOnly("org.apache.hadoop:hadoop-client-runtime:3.3.4")
 
 
     // https://mvnrepository.com/artifact/org.slf4j/slf4j-api
@@ -31,7 +53,15 @@ dependencies {
 
 
     testImplementation("org.junit.jupiter:junit-jupiter-api:5.8.0")
+    //csv读回校验使用的独立解析器
+    // https://mvnrepository.com/artifact/net.sourceforge.javacsv/javacsv
+    testImplementation("net.sourceforge.javacsv:javacsv:2.0")
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine:5.8.0")
+
+    // https://mvnrepository.com/artifact/org.openjdk.jmh/jmh-core
+    "jmhImplementation"("org.openjdk.jmh:jmh-core:1.33")
+    "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:1.33")
+    "jmhRuntimeOnly"("ch.qos.logback:logback-classic:1.2.6")
 }
 
 //仓库配置
@@ -87,4 +117,13 @@ publishing {
 
 tasks.getByName<Test>("test") {
     useJUnitPlatform()
-}
\ No newline at end of file
+}
+
+//运行基准测试：./gradlew jmh -PjmhArgs="-prof gc TextWriterBenchmark"
+tasks.register<JavaExec>("jmh") {
+    group = "verification"
+    description = "Runs the JMH benchmarks in src/jmh/java"
+    classpath = jmh.runtimeClasspath
+    mainClass.set("org.openjdk.jmh.Main")
+    args = (project.findProperty("jmhArgs") as String? ?: "-prof gc").split(" ")
+}
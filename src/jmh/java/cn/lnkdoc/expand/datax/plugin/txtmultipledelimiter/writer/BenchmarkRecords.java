@@ -0,0 +1,124 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.BoolColumn;
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.DateColumn;
+import com.alibaba.datax.common.element.DoubleColumn;
+import com.alibaba.datax.common.element.LongColumn;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.element.StringColumn;
+import com.alibaba.datax.common.exception.DataXException;
+
+import java.util.Random;
+
+/**
+ * 基准测试数据生成：固定随机种子，保证各次运行数据一致
+ *
+ * @author langkye
+ */
+public final class BenchmarkRecords {
+    /**字符串列*/
+    public static final String STRING = "string";
+    /**整数列*/
+    public static final String LONG = "long";
+    /**浮点列*/
+    public static final String DOUBLE = "double";
+    /**日期列*/
+    public static final String DATE = "date";
+    /**混合类型列（含空值）*/
+    public static final String MIXED = "mixed";
+
+    /**日期列输出格式*/
+    public static final String DATE_FORMAT = "yyyy-MM-dd HH:mm:ss";
+
+    /**预生成的记录条数：循环使用*/
+    public static final int POOL_SIZE = 1024;
+
+    private BenchmarkRecords() {
+    }
+
+    /**
+     * 生成记录
+     *
+     * @param count 记录条数
+     * @param columnNumber 列数
+     * @param valueType 列值类型
+     * @return 记录
+     */
+    public static Record[] generate(int count, int columnNumber, String valueType) {
+        Random random = new Random(20211018L);
+        Record[] records = new Record[count];
+        for (int i = 0; i < count; i++) {
+            Record record = new SyntheticRecord(columnNumber);
+            for (int j = 0; j < columnNumber; j++) {
+                record.addColumn(column(random, valueType, j));
+            }
+            records[i] = record;
+        }
+        return records;
+    }
+
+    /**
+     * 生成一列
+     *
+     * @param random 随机数
+     * @param valueType 列值类型
+     * @param index 列下标
+     * @return 列
+     */
+    private static Column column(Random random, String valueType, int index) {
+        switch (valueType) {
+            case STRING:
+                return new StringColumn(string(random));
+            case LONG:
+                return new LongColumn(random.nextLong());
+            case DOUBLE:
+                return new DoubleColumn(random.nextDouble() * 1000000);
+            case DATE:
+                return new DateColumn(1600000000000L + (long) random.nextInt(Integer.MAX_VALUE) * 1000);
+            case MIXED:
+                //每种类型约占1/6，其中约1/10为空值
+                if (0 == random.nextInt(10)) {
+                    return new StringColumn(null);
+                }
+                switch (index % 6) {
+                    case 0:
+                        return new LongColumn(random.nextLong());
+                    case 1:
+                        return new DoubleColumn(random.nextDouble() * 1000000);
+                    case 2:
+                        return new DateColumn(1600000000000L + (long) random.nextInt(Integer.MAX_VALUE) * 1000);
+                    case 3:
+                        return new BoolColumn(random.nextBoolean());
+                    default:
+                        return new StringColumn(string(random));
+                }
+            default:
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("不支持的列值类型: [%s]", valueType));
+        }
+    }
+
+    /**
+     * 生成4~32个字符的字符串，包含少量中文与需要csv转义的字符
+     *
+     * @param random 随机数
+     * @return 字符串
+     */
+    private static String string(Random random) {
+        int length = 4 + random.nextInt(29);
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            int kind = random.nextInt(100);
+            if (kind < 2) {
+                builder.append('中');
+            } else if (kind < 3) {
+                builder.append(',');
+            } else if (kind < 4) {
+                builder.append('"');
+            } else {
+                builder.append((char) ('a' + random.nextInt(26)));
+            }
+        }
+        return builder.toString();
+    }
+}
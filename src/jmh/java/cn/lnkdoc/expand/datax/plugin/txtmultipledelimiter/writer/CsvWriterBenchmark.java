@@ -0,0 +1,65 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import org.apache.commons.io.output.NullWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CsvWriterImpl单条与批量记录序列化基准：结果为每秒写出的行数
+ *
+ * @author langkye
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class CsvWriterBenchmark {
+    @Param({"8", "32", "128"})
+    private int columns;
+
+    @Param({BenchmarkRecords.STRING, BenchmarkRecords.LONG, BenchmarkRecords.DOUBLE, BenchmarkRecords.DATE, BenchmarkRecords.MIXED})
+    private String valueType;
+
+    @Param({",", "\t", "|@|"})
+    private String delimiter;
+
+    private Record[] records;
+    private UnstructuredWriter writer;
+    private ColumnFormatter formatter;
+    private int next;
+    private final NoopTaskPluginCollector collector = new NoopTaskPluginCollector();
+
+    @Setup
+    public void setup() {
+        this.records = BenchmarkRecords.generate(BenchmarkRecords.POOL_SIZE, this.columns, this.valueType);
+        this.writer = TextCsvWriterManager.produceUnstructuredWriter(Constant.FILE_FORMAT_CSV, this.delimiter, new NullWriter());
+        this.formatter = new DefaultColumnFormatter(null, CachedDateFormatter.of(BenchmarkRecords.DATE_FORMAT));
+    }
+
+    @Benchmark
+    public void writeRecord() throws IOException {
+        this.writer.writeRecord(this.records[this.next++ & (BenchmarkRecords.POOL_SIZE - 1)], this.formatter);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BenchmarkRecords.POOL_SIZE)
+    public int writeBatch() throws IOException {
+        return this.writer.writeBatch(this.records, BenchmarkRecords.POOL_SIZE, this.formatter, this.collector);
+    }
+}
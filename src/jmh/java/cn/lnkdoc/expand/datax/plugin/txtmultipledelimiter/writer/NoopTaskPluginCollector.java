@@ -0,0 +1,32 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.plugin.TaskPluginCollector;
+
+/**
+ * 基准测试用脏数据收集器：只计数
+ *
+ * @author langkye
+ */
+public class NoopTaskPluginCollector extends TaskPluginCollector {
+    /**脏数据条数*/
+    private long dirtyRecords;
+
+    @Override
+    public void collectDirtyRecord(Record dirtyRecord, Throwable t, String errorMessage) {
+        this.dirtyRecords++;
+    }
+
+    @Override
+    public void collectMessage(String key, String value) {
+    }
+
+    /**
+     * 获取脏数据条数
+     *
+     * @return 脏数据条数
+     */
+    public long getDirtyRecords() {
+        return this.dirtyRecords;
+    }
+}
@@ -0,0 +1,65 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.Record;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基准测试用记录：不依赖DataX引擎
+ *
+ * @author langkye
+ */
+public class SyntheticRecord implements Record {
+    /**列*/
+    private final List<Column> columns;
+
+    /**
+     * 通过列数构建记录
+     *
+     * @param columnNumber 列数
+     */
+    public SyntheticRecord(int columnNumber) {
+        this.columns = new ArrayList<>(columnNumber);
+    }
+
+    @Override
+    public void addColumn(Column column) {
+        this.columns.add(column);
+    }
+
+    @Override
+    public void setColumn(int i, Column column) {
+        this.columns.set(i, column);
+    }
+
+    @Override
+    public Column getColumn(int i) {
+        return this.columns.get(i);
+    }
+
+    @Override
+    public int getColumnNumber() {
+        return this.columns.size();
+    }
+
+    @Override
+    public int getByteSize() {
+        int byteSize = 0;
+        for (Column column : this.columns) {
+            byteSize += column.getByteSize();
+        }
+        return byteSize;
+    }
+
+    @Override
+    public int getMemorySize() {
+        return this.getByteSize();
+    }
+
+    @Override
+    public String toString() {
+        return this.columns.toString();
+    }
+}
@@ -0,0 +1,48 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.plugin.RecordReceiver;
+
+/**
+ * 基准测试用记录接收器：循环返回预生成的记录，不依赖DataX引擎
+ *
+ * @author langkye
+ */
+public class SyntheticRecordReceiver implements RecordReceiver {
+    /**预生成的记录*/
+    private final Record[] records;
+    /**每轮返回的记录条数*/
+    private final int rows;
+    /**已返回的记录条数*/
+    private int position;
+
+    /**
+     * 通过记录、每轮条数构建接收器
+     *
+     * @param records 预生成的记录
+     * @param rows 每轮返回的记录条数
+     */
+    public SyntheticRecordReceiver(Record[] records, int rows) {
+        this.records = records;
+        this.rows = rows;
+    }
+
+    /**
+     * 重新开始一轮
+     */
+    public void reset() {
+        this.position = 0;
+    }
+
+    @Override
+    public Record getFromReader() {
+        if (this.position >= this.rows) {
+            return null;
+        }
+        return this.records[this.position++ % this.records.length];
+    }
+
+    @Override
+    public void shutdown() {
+    }
+}
@@ -0,0 +1,65 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import org.apache.commons.io.output.NullWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * transportOneRecord基准：包含脏数据处理, 并对比配置了nullFormat的列格式化器
+ *
+ * @author langkye
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TransportOneRecordBenchmark {
+    @Param({"8", "32"})
+    private int columns;
+
+    @Param({BenchmarkRecords.STRING, BenchmarkRecords.MIXED})
+    private String valueType;
+
+    @Param({Constant.FILE_FORMAT_TEXT, Constant.FILE_FORMAT_CSV})
+    private String fileFormat;
+
+    private Record[] records;
+    private UnstructuredWriter writer;
+    private ColumnFormatter formatter;
+    private ColumnFormatter nullFormatFormatter;
+    private NoopTaskPluginCollector collector;
+    private int next;
+
+    @Setup
+    public void setup() {
+        this.records = BenchmarkRecords.generate(BenchmarkRecords.POOL_SIZE, this.columns, this.valueType);
+        this.writer = TextCsvWriterManager.produceUnstructuredWriter(this.fileFormat, Constant.DEFAULT_FIELD_DELIMITER, new NullWriter());
+        this.formatter = new DefaultColumnFormatter(null, CachedDateFormatter.of(BenchmarkRecords.DATE_FORMAT));
+        this.nullFormatFormatter = new DefaultColumnFormatter("\\N", CachedDateFormatter.of(BenchmarkRecords.DATE_FORMAT));
+        this.collector = new NoopTaskPluginCollector();
+    }
+
+    @Benchmark
+    public boolean transportOneRecord() {
+        return UnstructuredStorageWriterUtil.transportOneRecord(this.records[this.next++ & (BenchmarkRecords.POOL_SIZE - 1)], this.formatter, this.collector, this.writer);
+    }
+
+    @Benchmark
+    public boolean transportOneRecordWithNullFormat() {
+        return UnstructuredStorageWriterUtil.transportOneRecord(this.records[this.next++ & (BenchmarkRecords.POOL_SIZE - 1)], this.nullFormatFormatter, this.collector, this.writer);
+    }
+}
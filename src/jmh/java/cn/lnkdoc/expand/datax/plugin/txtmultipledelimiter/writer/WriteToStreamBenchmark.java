@@ -0,0 +1,76 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.util.Configuration;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * writeToStream端到端基准：序列化、编码、压缩，输出丢弃；结果为每秒写出的行数
+ * <span>矩阵较大，可通过-p参数收窄，例如 -p compress=zstd -p encoding=UTF-8</span>
+ *
+ * @author langkye
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@State(Scope.Thread)
+public class WriteToStreamBenchmark {
+    /**每次调用写出的行数*/
+    private static final int ROWS = 100000;
+    /**不压缩*/
+    private static final String NONE = "none";
+
+    @Param({"8", "32"})
+    private int columns;
+
+    @Param({BenchmarkRecords.STRING, BenchmarkRecords.MIXED})
+    private String valueType;
+
+    @Param({",", "|@|"})
+    private String delimiter;
+
+    @Param({"UTF-8", "GBK", "UTF-16"})
+    private String encoding;
+
+    @Param({NONE, UnstructuredStorageWriterUtil.GZIP, UnstructuredStorageWriterUtil.BZIP2, UnstructuredStorageWriterUtil.ZSTD, UnstructuredStorageWriterUtil.LZ4, UnstructuredStorageWriterUtil.SNAPPY})
+    private String compress;
+
+    private SyntheticRecordReceiver receiver;
+    private Configuration config;
+    private NoopTaskPluginCollector collector;
+
+    @Setup
+    public void setup() {
+        this.receiver = new SyntheticRecordReceiver(BenchmarkRecords.generate(BenchmarkRecords.POOL_SIZE, this.columns, this.valueType), ROWS);
+        this.config = Configuration.newDefault();
+        this.config.set(Key.FIELD_DELIMITER, this.delimiter);
+        this.config.set(Key.ENCODING, this.encoding);
+        this.config.set(Key.DATE_FORMAT, BenchmarkRecords.DATE_FORMAT);
+        if (!NONE.equals(this.compress)) {
+            this.config.set(Key.COMPRESS, this.compress);
+        }
+        this.collector = new NoopTaskPluginCollector();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void writeToStream() {
+        this.receiver.reset();
+        UnstructuredStorageWriterUtil.writeToStream(this.receiver, new NullOutputStream(), this.config, "benchmark", this.collector);
+    }
+}
@@ -0,0 +1,372 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 异步输出流：任务线程填充缓冲后交给独立的IO线程压缩、写盘，写完的缓冲回收到缓冲池复用
+ * <span>缓冲池大小即为队列上限，IO线程跟不上时任务线程在获取空闲缓冲时阻塞（背压）</span>
+ * <span>任务线程按间隔轮询等待，期间IO线程出错或意外结束时立即失败，不会永久阻塞</span>
+ *
+ * @author langkye
+ */
+public class AsyncOutputStream extends OutputStream implements ByteBufferSink {
+    /**结束标记*/
+    private static final Object EOF = new Object();
+    /**任务线程等待时检查IO线程状态的间隔（毫秒）*/
+    private static final long POLL_MILLIS = 100L;
+
+    /**目标输出流（压缩流或文件流）*/
+    private final OutputStream target;
+    /**目标为文件时使用的文件通道*/
+    private final FileChannel fileChannel;
+    /**待写出的缓冲、flush屏障及结束标记*/
+    private final BlockingQueue<Object> filledQueue;
+    /**空闲缓冲池*/
+    private final BlockingQueue<ByteBuffer> freeBuffers;
+    /**IO线程*/
+    private final Thread ioThread;
+    /**任务指标, 可为null*/
+    private final WriterMetrics metrics;
+    /**IO线程异常*/
+    private volatile Throwable ioError;
+    /**当前正在填充的缓冲：仅write(byte[])使用*/
+    private ByteBuffer current;
+    /**是否已关闭*/
+    private boolean closed = false;
+
+    /**
+     * 通过目标输出流、缓冲大小及数量构建异步输出流
+     *
+     * @param target 目标输出流, 关闭时一并关闭
+     * @param bufferSize 单个缓冲大小
+     * @param bufferCount 缓冲数量（即队列上限）
+     * @param name IO线程名称
+     */
+    public AsyncOutputStream(OutputStream target, int bufferSize, int bufferCount, String name) {
+        this(target, bufferSize, bufferCount, name, null);
+    }
+
+    /**
+     * 通过目标输出流、缓冲大小及数量、任务指标构建异步输出流
+     *
+     * @param target 目标输出流, 关闭时一并关闭
+     * @param bufferSize 单个缓冲大小
+     * @param bufferCount 缓冲数量（即队列上限）
+     * @param name IO线程名称
+     * @param metrics 任务指标：目标为文件时统计写盘字节数与耗时, 为null时不统计
+     */
+    public AsyncOutputStream(OutputStream target, int bufferSize, int bufferCount, String name, WriterMetrics metrics) {
+        this(target, AsyncOutputStream.allocate(target instanceof FileOutputStream, bufferSize, bufferCount), name, metrics);
+    }
+
+    /**
+     * 通过目标输出流、调用方提供的缓冲（如缓冲池租用的直接内存缓冲）构建异步输出流
+     *
+     * @param target 目标输出流, 关闭时一并关闭
+     * @param buffers 缓冲：缓冲数量即队列上限；目标不是文件时须为堆内缓冲, 关闭时不释放
+     * @param name IO线程名称
+     * @param metrics 任务指标：目标为文件时统计写盘字节数与耗时, 为null时不统计
+     */
+    public AsyncOutputStream(OutputStream target, List<ByteBuffer> buffers, String name, WriterMetrics metrics) {
+        this.target = target;
+        this.metrics = metrics;
+        boolean isFile = target instanceof FileOutputStream;
+        this.fileChannel = isFile ? ((FileOutputStream) target).getChannel() : null;
+        this.filledQueue = new ArrayBlockingQueue<>(buffers.size() + 1);
+        this.freeBuffers = new ArrayBlockingQueue<>(buffers.size());
+        for (ByteBuffer buffer : buffers) {
+            buffer.clear();
+            this.freeBuffers.add(buffer);
+        }
+        this.ioThread = new Thread(this::drain, name);
+        this.ioThread.setDaemon(true);
+        this.ioThread.start();
+    }
+
+    /**
+     * 新建缓冲：文件使用直接内存缓冲写入通道, 压缩流使用堆内缓冲
+     *
+     * @param isFile 目标是否为文件
+     * @param bufferSize 单个缓冲大小
+     * @param bufferCount 缓冲数量
+     * @return 缓冲
+     */
+    private static List<ByteBuffer> allocate(boolean isFile, int bufferSize, int bufferCount) {
+        List<ByteBuffer> buffers = new ArrayList<>(bufferCount);
+        for (int i = 0; i < bufferCount; i++) {
+            buffers.add(isFile ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize));
+        }
+        return buffers;
+    }
+
+    /**
+     * IO线程：按顺序写出缓冲并回收
+     */
+    private void drain() {
+        try {
+            while (true) {
+                Object item = this.filledQueue.take();
+                if (EOF == item) {
+                    return;
+                }
+                //flush屏障：之前的缓冲均已写出
+                if (item instanceof CountDownLatch) {
+                    if (null == this.ioError) {
+                        try {
+                            this.target.flush();
+                        } catch (Throwable e) {
+                            this.ioError = e;
+                        }
+                    }
+                    ((CountDownLatch) item).countDown();
+                    continue;
+                }
+                ByteBuffer buffer = (ByteBuffer) item;
+                //出错后仅回收缓冲，避免任务线程阻塞
+                if (null == this.ioError) {
+                    try {
+                        this.writeOut(buffer);
+                    } catch (Throwable e) {
+                        this.ioError = e;
+                    }
+                }
+                buffer.clear();
+                this.freeBuffers.add(buffer);
+            }
+        } catch (InterruptedException e) {
+            this.ioError = e;
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 将一个缓冲写出到目标
+     *
+     * @param buffer 已flip的缓冲
+     * @throws IOException ex
+     */
+    private void writeOut(ByteBuffer buffer) throws IOException {
+        if (null != this.fileChannel) {
+            long start = null == this.metrics ? 0L : this.metrics.nanoTime();
+            int bytes = buffer.remaining();
+            while (buffer.hasRemaining()) {
+                this.fileChannel.write(buffer);
+            }
+            if (null != this.metrics) {
+                this.metrics.recordDiskWrite(bytes, this.metrics.nanoTime() - start);
+            }
+        } else if (buffer.hasRemaining()) {
+            this.target.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+    }
+
+    /**
+     * 获取一个空闲缓冲，缓冲池为空时阻塞
+     *
+     * @return 空闲缓冲
+     * @throws IOException ex
+     */
+    @Override
+    public ByteBuffer acquire() throws IOException {
+        this.checkError();
+        try {
+            ByteBuffer buffer;
+            while (null == (buffer = this.freeBuffers.poll(POLL_MILLIS, TimeUnit.MILLISECONDS))) {
+                this.checkIoThread();
+            }
+            return buffer;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待空闲缓冲时被中断");
+        }
+    }
+
+    /**
+     * 交出已填充的缓冲并换回一个空闲缓冲
+     *
+     * @param filled 已填充（未flip）的缓冲
+     * @return 空闲缓冲
+     * @throws IOException ex
+     */
+    @Override
+    public ByteBuffer swap(ByteBuffer filled) throws IOException {
+        this.submit(filled);
+        return this.acquire();
+    }
+
+    /**
+     * 提交已填充的缓冲
+     *
+     * @param filled 已填充（未flip）的缓冲
+     * @throws IOException ex
+     */
+    private void submit(ByteBuffer filled) throws IOException {
+        this.checkError();
+        filled.flip();
+        this.put(filled);
+    }
+
+    /**
+     * 放入队列
+     *
+     * @param item 缓冲或标记
+     * @throws IOException ex
+     */
+    private void put(Object item) throws IOException {
+        try {
+            while (!this.filledQueue.offer(item, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                this.checkIoThread();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("提交缓冲时被中断");
+        }
+    }
+
+    /**
+     * 检查IO线程是否出错
+     *
+     * @throws IOException ex
+     */
+    private void checkError() throws IOException {
+        Throwable error = this.ioError;
+        if (null != error) {
+            throw error instanceof IOException ? (IOException) error : new IOException("异步写出失败", error);
+        }
+    }
+
+    /**
+     * 等待期间检查IO线程：出错或已结束时不再等待
+     *
+     * @throws IOException ex
+     */
+    private void checkIoThread() throws IOException {
+        this.checkError();
+        if (!this.ioThread.isAlive()) {
+            throw new IOException(String.format("异步写出线程[%s]已结束", this.ioThread.getName()));
+        }
+    }
+
+    /**
+     * 中断IO线程并等待其结束：任务线程被中断时仍等待, 结束后恢复中断状态
+     */
+    private void stopIoThread() {
+        this.ioThread.interrupt();
+        boolean interrupted = false;
+        while (this.ioThread.isAlive()) {
+            try {
+                this.ioThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 写入单个字节
+     *
+     * @param b 字节
+     * @throws IOException ex
+     */
+    @Override
+    public void write(int b) throws IOException {
+        if (null == this.current) {
+            this.current = this.acquire();
+        } else if (!this.current.hasRemaining()) {
+            this.current = this.swap(this.current);
+        }
+        this.current.put((byte) b);
+    }
+
+    /**
+     * 写入字节数组：复制到当前缓冲
+     *
+     * @param b 字节数组
+     * @param off 起始位置
+     * @param len 长度
+     * @throws IOException ex
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (null == this.current) {
+                this.current = this.acquire();
+            } else if (!this.current.hasRemaining()) {
+                this.current = this.swap(this.current);
+            }
+            int count = Math.min(len, this.current.remaining());
+            this.current.put(b, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * flush：等待已提交的缓冲全部写出并flush目标
+     *
+     * @throws IOException ex
+     */
+    @Override
+    public void flush() throws IOException {
+        if (null != this.current && this.current.position() > 0) {
+            this.submit(this.current);
+            this.current = null;
+        }
+        CountDownLatch barrier = new CountDownLatch(1);
+        this.put(barrier);
+        try {
+            while (!barrier.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                this.checkIoThread();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待异步写出时被中断");
+        }
+        this.checkError();
+    }
+
+    /**
+     * close：写出剩余缓冲、停止IO线程并关闭目标；被中断或提交失败时中断IO线程, 等待其结束后再关闭目标
+     *
+     * @throws IOException ex
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            if (null != this.current && this.current.position() > 0 && null == this.ioError) {
+                this.current.flip();
+                this.put(this.current);
+            }
+            this.current = null;
+            this.put(EOF);
+            this.ioThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待IO线程结束时被中断");
+        } finally {
+            if (this.ioThread.isAlive()) {
+                this.stopIoThread();
+            }
+            this.target.close();
+        }
+        this.checkError();
+    }
+}
@@ -0,0 +1,37 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 缓冲交换式输出：写入方直接填充输出端提供的缓冲, 写满后整体交换, 不再复制
+ *
+ * @author langkye
+ */
+public interface ByteBufferSink {
+    /**
+     * 获取首个可写缓冲
+     *
+     * @return 可写缓冲
+     * @throws IOException ex
+     */
+    ByteBuffer acquire() throws IOException;
+
+    /**
+     * 交出已填充的缓冲（未flip）, 换回可继续写入的缓冲, 写入方应从返回缓冲的当前位置继续写入
+     *
+     * @param filled 已填充的缓冲
+     * @return 可写缓冲
+     * @throws IOException ex
+     */
+    ByteBuffer swap(ByteBuffer filled) throws IOException;
+
+    /**
+     * 是否原地消费：写入缓冲即写入目标（如内存映射）, flush时无需交换
+     *
+     * @return 是否原地消费
+     */
+    default boolean isInPlace() {
+        return false;
+    }
+}
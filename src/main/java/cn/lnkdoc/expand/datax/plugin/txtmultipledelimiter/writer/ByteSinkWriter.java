@@ -0,0 +1,340 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.google.common.collect.Sets;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * 字节输出写入器：替代BufferedWriter+OutputStreamWriter
+ * <span>ASCII兼容编码下的ASCII字符直接写入字节缓冲, 其余字符经复用的CharsetEncoder编码; 文件输出时以直接内存缓冲写入FileChannel;
+ * 异步输出时写满的缓冲整体交给IO线程, 内存映射输出时直接编码到映射窗口, 不再复制</span>
+ *
+ * @author langkye
+ */
+public class ByteSinkWriter extends Writer {
+    /**ASCII字符可直接按字节写出的无状态编码*/
+    private static final Set<String> ASCII_COMPATIBLE_CHARSETS = Sets.newHashSet("UTF-8", "US-ASCII", "ISO-8859-1", "GBK", "GB2312", "GB18030", "Big5", "windows-1252");
+    /**编码暂存区大小*/
+    private static final int CHAR_BUFFER_SIZE = 1024;
+
+    /**输出流*/
+    private final OutputStream outputStream;
+    /**文件通道：输出流为文件时使用, 否则为null*/
+    private final FileChannel fileChannel;
+    /**缓冲交换式输出：输出流为异步输出或内存映射文件时使用, 否则为null*/
+    private final ByteBufferSink bufferSink;
+    /**字节缓冲：缓冲交换式输出时随交换而变化*/
+    private ByteBuffer byteBuffer;
+    /**字节缓冲中上次写出后的起始位置：原地消费的输出端交换后不从0开始*/
+    private int bufferStart = 0;
+    /**编码器：跨行复用*/
+    private final CharsetEncoder encoder;
+    /**待编码字符暂存区, 可能残留半个代理对*/
+    private final CharBuffer charBuffer = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+    /**String写入时的复制缓冲*/
+    private final char[] stringChunk = new char[CHAR_BUFFER_SIZE];
+    /**是否启用ASCII快速路径*/
+    private final boolean asciiFastPath;
+    /**任务指标, 可为null*/
+    private final WriterMetrics metrics;
+    /**是否已关闭*/
+    private boolean closed = false;
+
+    /**
+     * 通过输出流、编码、缓冲大小构建字节输出写入器
+     *
+     * @param outputStream 输出流, 关闭写入器时一并关闭
+     * @param charset 编码
+     * @param bufferSize 字节缓冲大小, 缓冲交换式输出时使用输出端的缓冲
+     * @throws IOException ex
+     */
+    public ByteSinkWriter(OutputStream outputStream, Charset charset, int bufferSize) throws IOException {
+        this(outputStream, charset, bufferSize, null);
+    }
+
+    /**
+     * 通过输出流、编码、缓冲大小、任务指标构建字节输出写入器
+     *
+     * @param outputStream 输出流, 关闭写入器时一并关闭
+     * @param charset 编码
+     * @param bufferSize 字节缓冲大小, 缓冲交换式输出时使用输出端的缓冲
+     * @param metrics 任务指标：统计缓冲写出字节数与耗时, 为null时不统计
+     * @throws IOException ex
+     */
+    public ByteSinkWriter(OutputStream outputStream, Charset charset, int bufferSize, WriterMetrics metrics) throws IOException {
+        this(outputStream, charset, bufferSize, null, metrics);
+    }
+
+    /**
+     * 通过输出流、编码、调用方提供的直接内存缓冲（如缓冲池租用的缓冲）构建字节输出写入器
+     *
+     * @param outputStream 文件输出流, 关闭写入器时一并关闭
+     * @param charset 编码
+     * @param buffer 直接内存缓冲：文件输出时使用, 关闭写入器时不释放
+     * @param metrics 任务指标：统计缓冲写出字节数与耗时, 为null时不统计
+     * @throws IOException ex
+     */
+    public ByteSinkWriter(FileOutputStream outputStream, Charset charset, ByteBuffer buffer, WriterMetrics metrics) throws IOException {
+        this(outputStream, charset, buffer.capacity(), buffer, metrics);
+    }
+
+    /**
+     * 通过输出流、编码、缓冲构建字节输出写入器
+     *
+     * @param outputStream 输出流, 关闭写入器时一并关闭
+     * @param charset 编码
+     * @param bufferSize 字节缓冲大小, 缓冲交换式输出时使用输出端的缓冲
+     * @param buffer 文件输出时使用的直接内存缓冲, 为null时新建
+     * @param metrics 任务指标：统计缓冲写出字节数与耗时, 为null时不统计
+     * @throws IOException ex
+     */
+    private ByteSinkWriter(OutputStream outputStream, Charset charset, int bufferSize, ByteBuffer buffer, WriterMetrics metrics) throws IOException {
+        this.outputStream = outputStream;
+        this.metrics = metrics;
+        //与OutputStreamWriter保持一致：无法编码的字符使用替换字符
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.asciiFastPath = isAsciiCompatible(charset);
+        //异步输出、内存映射：从输出端获取缓冲; 文件输出：直接内存缓冲写入通道; 其他输出流（如压缩流）：堆内缓冲直接写出数组
+        if (outputStream instanceof ByteBufferSink) {
+            this.fileChannel = null;
+            this.bufferSink = (ByteBufferSink) outputStream;
+            this.byteBuffer = this.bufferSink.acquire();
+            this.bufferStart = this.byteBuffer.position();
+        } else if (outputStream instanceof FileOutputStream) {
+            this.fileChannel = ((FileOutputStream) outputStream).getChannel();
+            this.bufferSink = null;
+            if (null != buffer) {
+                buffer.clear();
+            }
+            this.byteBuffer = null != buffer ? buffer : ByteBuffer.allocateDirect(bufferSize);
+        } else {
+            this.fileChannel = null;
+            this.bufferSink = null;
+            this.byteBuffer = ByteBuffer.allocate(bufferSize);
+        }
+    }
+
+    /**
+     * 判断编码是否可将ASCII字符按原字节写出
+     *
+     * @param charset 编码
+     * @return 是否ASCII兼容
+     */
+    static boolean isAsciiCompatible(Charset charset) {
+        if (!ASCII_COMPATIBLE_CHARSETS.contains(charset.name())) {
+            return false;
+        }
+        byte[] ascii = new byte[0x80];
+        for (int i = 0; i < ascii.length; i++) {
+            ascii[i] = (byte) i;
+        }
+        return Arrays.equals(ascii, new String(ascii, Charset.forName("US-ASCII")).getBytes(charset));
+    }
+
+    /**
+     * 写入单个字符
+     *
+     * @param c 字符
+     * @throws IOException ex
+     */
+    @Override
+    public void write(int c) throws IOException {
+        this.ensureOpen();
+        if (this.asciiFastPath && c < 0x80 && this.charBuffer.position() == 0) {
+            if (!this.byteBuffer.hasRemaining()) {
+                this.flushBuffer(true);
+            }
+            this.byteBuffer.put((byte) c);
+            return;
+        }
+        this.charBuffer.put((char) c);
+        this.encodePending(false);
+    }
+
+    /**
+     * 写入字符数组
+     *
+     * @param cbuf 字符数组
+     * @param off 起始位置
+     * @param len 长度
+     * @throws IOException ex
+     */
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        this.ensureOpen();
+        int end = off + len;
+        int i = off;
+        while (i < end) {
+            //ASCII快速路径：暂存区无残留字符时直接写字节
+            if (this.asciiFastPath && this.charBuffer.position() == 0) {
+                ByteBuffer out = this.byteBuffer;
+                while (i < end) {
+                    char c = cbuf[i];
+                    if (c >= 0x80) {
+                        break;
+                    }
+                    if (!out.hasRemaining()) {
+                        this.flushBuffer(true);
+                        //缓冲交换式输出时缓冲已被交换
+                        out = this.byteBuffer;
+                    }
+                    out.put((byte) c);
+                    i++;
+                }
+                if (i == end) {
+                    break;
+                }
+            }
+            //非ASCII字符段（至少一个字符）交由编码器处理
+            int start = i;
+            int limit = Math.min(end, i + this.charBuffer.remaining());
+            if (this.asciiFastPath) {
+                do {
+                    i++;
+                } while (i < limit && cbuf[i] >= 0x80);
+            } else {
+                i = limit;
+            }
+            this.charBuffer.put(cbuf, start, i - start);
+            this.encodePending(false);
+        }
+    }
+
+    /**
+     * 写入字符串片段
+     *
+     * @param str 字符串
+     * @param off 起始位置
+     * @param len 长度
+     * @throws IOException ex
+     */
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        int end = off + len;
+        for (int start = off; start < end; start += this.stringChunk.length) {
+            int count = Math.min(this.stringChunk.length, end - start);
+            str.getChars(start, start + count, this.stringChunk, 0);
+            this.write(this.stringChunk, 0, count);
+        }
+    }
+
+    /**
+     * 编码暂存区中的字符
+     *
+     * @param endOfInput 是否输入结束
+     * @throws IOException ex
+     */
+    private void encodePending(boolean endOfInput) throws IOException {
+        CharBuffer in = this.charBuffer;
+        in.flip();
+        while (true) {
+            CoderResult result = this.encoder.encode(in, this.byteBuffer, endOfInput);
+            if (result.isUnderflow()) {
+                break;
+            }
+            if (result.isOverflow()) {
+                this.flushBuffer(true);
+                continue;
+            }
+            result.throwException();
+        }
+        //保留未能编码的半个代理对
+        in.compact();
+    }
+
+    /**
+     * 将字节缓冲写出到底层输出
+     *
+     * @param needSpace 是否因缓冲空间不足而写出：原地消费的输出端仅在此时交换缓冲
+     * @throws IOException ex
+     */
+    private void flushBuffer(boolean needSpace) throws IOException {
+        long start = null == this.metrics ? 0L : this.metrics.nanoTime();
+        int bytes = this.byteBuffer.position() - this.bufferStart;
+        //缓冲交换式输出：交出当前缓冲, 换回可写缓冲
+        if (null != this.bufferSink) {
+            if (bytes > 0 && (needSpace || !this.bufferSink.isInPlace())) {
+                this.byteBuffer = this.bufferSink.swap(this.byteBuffer);
+            }
+            this.bufferStart = this.byteBuffer.position();
+        } else {
+            ByteBuffer out = this.byteBuffer;
+            out.flip();
+            if (null != this.fileChannel) {
+                while (out.hasRemaining()) {
+                    this.fileChannel.write(out);
+                }
+            } else if (out.hasRemaining()) {
+                this.outputStream.write(out.array(), out.arrayOffset() + out.position(), out.remaining());
+            }
+            out.clear();
+        }
+        if (null != this.metrics && bytes > 0) {
+            long nanos = this.metrics.nanoTime() - start;
+            this.metrics.recordFlush(bytes, nanos);
+            //直接写入文件通道时, 缓冲写出即写盘
+            if (null != this.fileChannel) {
+                this.metrics.recordDiskWrite(bytes, nanos);
+            }
+        }
+    }
+
+    /**
+     * 校验写入器是否已关闭
+     *
+     * @throws IOException ex
+     */
+    private void ensureOpen() throws IOException {
+        if (this.closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    /**
+     * flush
+     *
+     * @throws IOException ex
+     */
+    @Override
+    public void flush() throws IOException {
+        this.ensureOpen();
+        this.flushBuffer(false);
+        this.outputStream.flush();
+    }
+
+    /**
+     * close：编码残留字符、写出缓冲并关闭底层输出流
+     *
+     * @throws IOException ex
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        try {
+            this.encodePending(true);
+            while (this.encoder.flush(this.byteBuffer).isOverflow()) {
+                this.flushBuffer(true);
+            }
+            this.flushBuffer(false);
+        } finally {
+            this.closed = true;
+            this.outputStream.close();
+        }
+    }
+}
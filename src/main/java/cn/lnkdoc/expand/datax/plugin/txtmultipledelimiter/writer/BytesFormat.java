@@ -0,0 +1,148 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.exception.DataXException;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * 字节列输出格式：将BytesColumn的原始字节直接编码追加到行缓冲, 不经过Column.asString()创建中间字符串
+ *
+ * @author langkye
+ */
+public enum BytesFormat {
+    /**十六进制（小写）：每字节两个字符*/
+    HEX {
+        @Override
+        public void append(byte[] bytes, Charset charset, StringBuilder out) {
+            out.ensureCapacity(out.length() + bytes.length * 2);
+            for (byte b : bytes) {
+                out.append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+            }
+        }
+    },
+    /**Base64（RFC 4648标准字母表, 带填充, 不换行）*/
+    BASE64 {
+        @Override
+        public void append(byte[] bytes, Charset charset, StringBuilder out) {
+            int length = bytes.length;
+            out.ensureCapacity(out.length() + (length + 2) / 3 * 4);
+            int end = length - length % 3;
+            int i = 0;
+            while (i < end) {
+                int bits = (bytes[i++] & 0xFF) << 16 | (bytes[i++] & 0xFF) << 8 | (bytes[i++] & 0xFF);
+                out.append(BASE64_DIGITS[bits >>> 18]).append(BASE64_DIGITS[(bits >>> 12) & 0x3F])
+                        .append(BASE64_DIGITS[(bits >>> 6) & 0x3F]).append(BASE64_DIGITS[bits & 0x3F]);
+            }
+            int remaining = length - end;
+            if (1 == remaining) {
+                int bits = (bytes[i] & 0xFF) << 16;
+                out.append(BASE64_DIGITS[bits >>> 18]).append(BASE64_DIGITS[(bits >>> 12) & 0x3F]).append('=').append('=');
+            } else if (2 == remaining) {
+                int bits = (bytes[i] & 0xFF) << 16 | (bytes[i + 1] & 0xFF) << 8;
+                out.append(BASE64_DIGITS[bits >>> 18]).append(BASE64_DIGITS[(bits >>> 12) & 0x3F])
+                        .append(BASE64_DIGITS[(bits >>> 6) & 0x3F]).append('=');
+            }
+        }
+    },
+    /**原样输出：按文件编码解码, 文件编码下合法的字节序列写出后与原始字节一致；ISO-8859-1时任意字节均原样写出*/
+    RAW {
+        @Override
+        public void append(byte[] bytes, Charset charset, StringBuilder out) {
+            int length = bytes.length;
+            out.ensureCapacity(out.length() + length);
+            boolean latin1 = StandardCharsets.ISO_8859_1.equals(charset);
+            //ASCII字节直接追加, 遇到其他字节再交由解码器处理
+            int i = 0;
+            if (latin1 || StandardCharsets.UTF_8.equals(charset) || StandardCharsets.US_ASCII.equals(charset)) {
+                while (i < length && (latin1 || bytes[i] >= 0)) {
+                    out.append((char) (bytes[i] & 0xFF));
+                    i++;
+                }
+            }
+            if (i < length) {
+                BytesFormat.decode(bytes, i, length - i, charset, out);
+            }
+        }
+    };
+
+    /**十六进制字符*/
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+    /**Base64字符*/
+    private static final char[] BASE64_DIGITS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    /**解码分块大小（字符）*/
+    private static final int DECODE_CHUNK_SIZE = 1024;
+
+    /**
+     * 将字节编码后追加到输出缓冲
+     *
+     * @param bytes 字节
+     * @param charset 文件编码：仅raw使用
+     * @param out 输出缓冲
+     */
+    public abstract void append(byte[] bytes, Charset charset, StringBuilder out);
+
+    /**
+     * 解析字节列输出格式
+     *
+     * @param format 格式名, 不区分大小写
+     * @return 字节列输出格式
+     */
+    public static BytesFormat of(String format) {
+        if (StringUtils.isNotBlank(format)) {
+            try {
+                return BytesFormat.valueOf(format.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ignored) {
+                // 下方统一抛出
+            }
+        }
+        throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的bytesFormat [%s]错误, 支持hex, base64, raw三种.", format));
+    }
+
+    /**
+     * 按编码分块解码追加：不为整个字节数组创建字符串
+     *
+     * @param bytes 字节
+     * @param offset 起始位置
+     * @param length 长度
+     * @param charset 编码
+     * @param out 输出缓冲
+     */
+    private static void decode(byte[] bytes, int offset, int length, Charset charset, StringBuilder out) {
+        //与new String(bytes, charset)一致：非法字节序列使用替换字符
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        ByteBuffer in = ByteBuffer.wrap(bytes, offset, length);
+        CharBuffer chunk = CharBuffer.allocate(DECODE_CHUNK_SIZE);
+        while (true) {
+            boolean overflow = decoder.decode(in, chunk, true).isOverflow();
+            BytesFormat.drain(chunk, out);
+            if (!overflow) {
+                break;
+            }
+        }
+        while (decoder.flush(chunk).isOverflow()) {
+            BytesFormat.drain(chunk, out);
+        }
+        BytesFormat.drain(chunk, out);
+    }
+
+    /**
+     * 将解码分块追加到输出缓冲并清空
+     *
+     * @param chunk 解码分块
+     * @param out 输出缓冲
+     */
+    private static void drain(CharBuffer chunk, StringBuilder out) {
+        chunk.flip();
+        out.append(chunk.array(), 0, chunk.limit());
+        chunk.clear();
+    }
+}
@@ -0,0 +1,336 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * 线程安全的日期格式化器：替代每个任务一个SimpleDateFormat
+ * <span>仅由y、M、d、H、m、s、S（数字形式）与字面量组成的格式被预编译, 直接将数字追加到输出缓冲;
+ * 不含毫秒的格式缓存最近一秒的结果; 其他格式及1582年儒略历切换之前的日期退化为每线程一个SimpleDateFormat</span>
+ *
+ * @author langkye
+ */
+public class CachedDateFormatter {
+    private static final long MILLIS_PER_DAY = 86400000L;
+    /**格列高利历切换时间点（1582-10-15T00:00:00Z）之后一天，之前的日期SimpleDateFormat按儒略历处理, 多留一天以覆盖时区偏移*/
+    private static final long GREGORIAN_CUTOVER = -12219292800000L + MILLIS_PER_DAY;
+
+    /**字段类型*/
+    private static final int LITERAL = 0;
+    private static final int YEAR = 1;
+    private static final int MONTH = 2;
+    private static final int DAY = 3;
+    private static final int HOUR = 4;
+    private static final int MINUTE = 5;
+    private static final int SECOND = 6;
+    private static final int MILLIS = 7;
+
+    /**格式*/
+    private final String pattern;
+    /**预编译的字段类型，为null表示不支持预编译*/
+    private final int[] fieldTypes;
+    /**字段宽度（字母个数）*/
+    private final int[] fieldWidths;
+    /**字面量*/
+    private final String[] literals;
+    /**是否可按秒缓存*/
+    private final boolean secondCacheable;
+    /**时区：与SimpleDateFormat一致使用默认时区*/
+    private final TimeZone timeZone;
+    /**退化使用的格式化对象：每线程一个*/
+    private final ThreadLocal<DateFormat> fallback;
+    /**最近一秒的格式化结果*/
+    private volatile CachedSecond lastSecond;
+
+    /**
+     * 按格式构建日期格式化器
+     *
+     * @param pattern SimpleDateFormat格式
+     * @return 日期格式化器
+     */
+    public static CachedDateFormatter of(String pattern) {
+        //校验格式，非法时抛出IllegalArgumentException
+        final SimpleDateFormat prototype = new SimpleDateFormat(pattern);
+        return new CachedDateFormatter(pattern, prototype);
+    }
+
+    /**
+     * 包装已有的日期格式化对象：不做预编译
+     *
+     * @param dateFormat 日期格式化对象
+     */
+    public CachedDateFormatter(DateFormat dateFormat) {
+        this.pattern = dateFormat instanceof SimpleDateFormat ? ((SimpleDateFormat) dateFormat).toPattern() : null;
+        this.fieldTypes = null;
+        this.fieldWidths = null;
+        this.literals = null;
+        this.secondCacheable = false;
+        this.timeZone = dateFormat.getTimeZone();
+        this.fallback = ThreadLocal.withInitial(() -> (DateFormat) dateFormat.clone());
+    }
+
+    /**
+     * 按格式构建日期格式化器
+     *
+     * @param pattern 格式
+     * @param prototype 退化使用的格式化对象原型
+     */
+    private CachedDateFormatter(String pattern, SimpleDateFormat prototype) {
+        this.pattern = pattern;
+        this.timeZone = prototype.getTimeZone();
+        this.fallback = ThreadLocal.withInitial(() -> (DateFormat) prototype.clone());
+
+        List<int[]> fields = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        boolean compiled = compile(pattern, fields, texts);
+        if (compiled) {
+            this.fieldTypes = new int[fields.size()];
+            this.fieldWidths = new int[fields.size()];
+            boolean hasMillis = false;
+            for (int i = 0; i < fields.size(); i++) {
+                this.fieldTypes[i] = fields.get(i)[0];
+                this.fieldWidths[i] = fields.get(i)[1];
+                hasMillis |= MILLIS == this.fieldTypes[i];
+            }
+            this.literals = texts.toArray(new String[0]);
+            this.secondCacheable = !hasMillis;
+        } else {
+            this.fieldTypes = null;
+            this.fieldWidths = null;
+            this.literals = null;
+            this.secondCacheable = false;
+        }
+    }
+
+    /**
+     * 预编译格式
+     *
+     * @param pattern 格式
+     * @param fields 输出：字段类型与宽度
+     * @param texts 输出：与字段一一对应的字面量（非字面量字段为null）
+     * @return 是否可预编译
+     */
+    private static boolean compile(String pattern, List<int[]> fields, List<String> texts) {
+        int length = pattern.length();
+        int i = 0;
+        while (i < length) {
+            char c = pattern.charAt(i);
+            //引号包围的字面量，''表示单引号
+            if ('\'' == c) {
+                StringBuilder text = new StringBuilder();
+                i++;
+                if (i < length && '\'' == pattern.charAt(i)) {
+                    text.append('\'');
+                    i++;
+                } else {
+                    while (true) {
+                        if (i >= length) {
+                            return false;
+                        }
+                        char q = pattern.charAt(i);
+                        if ('\'' == q) {
+                            if (i + 1 < length && '\'' == pattern.charAt(i + 1)) {
+                                text.append('\'');
+                                i += 2;
+                                continue;
+                            }
+                            i++;
+                            break;
+                        }
+                        text.append(q);
+                        i++;
+                    }
+                }
+                fields.add(new int[]{LITERAL, 0});
+                texts.add(text.toString());
+                continue;
+            }
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                int start = i;
+                while (i < length && pattern.charAt(i) == c) {
+                    i++;
+                }
+                int width = i - start;
+                int type;
+                switch (c) {
+                    case 'y':
+                        type = YEAR;
+                        break;
+                    case 'M':
+                        //MMM及以上为月份名称，与语言环境相关
+                        if (width > 2) {
+                            return false;
+                        }
+                        type = MONTH;
+                        break;
+                    case 'd':
+                        type = DAY;
+                        break;
+                    case 'H':
+                        type = HOUR;
+                        break;
+                    case 'm':
+                        type = MINUTE;
+                        break;
+                    case 's':
+                        type = SECOND;
+                        break;
+                    case 'S':
+                        type = MILLIS;
+                        break;
+                    default:
+                        return false;
+                }
+                fields.add(new int[]{type, width});
+                texts.add(null);
+                continue;
+            }
+            fields.add(new int[]{LITERAL, 0});
+            texts.add(String.valueOf(c));
+            i++;
+        }
+        return true;
+    }
+
+    /**
+     * 格式化日期并追加到输出缓冲
+     *
+     * @param epochMillis 毫秒时间戳
+     * @param out 输出缓冲
+     */
+    public void format(long epochMillis, StringBuilder out) {
+        if (null == this.fieldTypes || epochMillis < GREGORIAN_CUTOVER) {
+            out.append(this.fallback.get().format(new Date(epochMillis)));
+            return;
+        }
+        if (!this.secondCacheable) {
+            this.render(epochMillis, out);
+            return;
+        }
+        long second = Math.floorDiv(epochMillis, 1000L);
+        CachedSecond cached = this.lastSecond;
+        if (null == cached || cached.second != second) {
+            StringBuilder text = new StringBuilder(32);
+            this.render(epochMillis, text);
+            cached = new CachedSecond(second, text.toString());
+            this.lastSecond = cached;
+        }
+        out.append(cached.text);
+    }
+
+    /**
+     * 格式化日期
+     *
+     * @param date 日期
+     * @return 格式化结果
+     */
+    public String format(Date date) {
+        StringBuilder out = new StringBuilder(32);
+        this.format(date.getTime(), out);
+        return out.toString();
+    }
+
+    /**
+     * 按预编译的字段输出
+     *
+     * @param epochMillis 毫秒时间戳
+     * @param out 输出缓冲
+     */
+    private void render(long epochMillis, StringBuilder out) {
+        long local = epochMillis + this.timeZone.getOffset(epochMillis);
+        long epochDay = Math.floorDiv(local, MILLIS_PER_DAY);
+        int millisOfDay = (int) Math.floorMod(local, MILLIS_PER_DAY);
+
+        //由天数计算公历年月日
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+
+        for (int i = 0; i < this.fieldTypes.length; i++) {
+            int width = this.fieldWidths[i];
+            switch (this.fieldTypes[i]) {
+                case LITERAL:
+                    out.append(this.literals[i]);
+                    break;
+                case YEAR:
+                    //yy输出年份后两位，其余按宽度补零
+                    if (2 == width) {
+                        appendPadded(out, year % 100, 2);
+                    } else {
+                        appendPadded(out, year, width);
+                    }
+                    break;
+                case MONTH:
+                    appendPadded(out, month, width);
+                    break;
+                case DAY:
+                    appendPadded(out, day, width);
+                    break;
+                case HOUR:
+                    appendPadded(out, millisOfDay / 3600000, width);
+                    break;
+                case MINUTE:
+                    appendPadded(out, millisOfDay / 60000 % 60, width);
+                    break;
+                case SECOND:
+                    appendPadded(out, millisOfDay / 1000 % 60, width);
+                    break;
+                default:
+                    appendPadded(out, millisOfDay % 1000, width);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 追加非负整数，不足宽度时左侧补零
+     *
+     * @param out 输出缓冲
+     * @param value 值
+     * @param width 最小宽度
+     */
+    private static void appendPadded(StringBuilder out, long value, int width) {
+        long bound = 10;
+        for (int digits = 1; digits < width; digits++) {
+            if (value < bound) {
+                out.append('0');
+            }
+            bound *= 10;
+        }
+        out.append(value);
+    }
+
+    /**
+     * 获取格式
+     *
+     * @return 格式
+     */
+    public String getPattern() {
+        return this.pattern;
+    }
+
+    /**
+     * 最近一秒的格式化结果
+     */
+    private static final class CachedSecond {
+        /**秒级时间戳*/
+        private final long second;
+        /**格式化结果*/
+        private final String text;
+
+        private CachedSecond(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.util.Configuration;
+import org.apache.commons.lang3.StringUtils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.Charset;
+import java.util.List;
+
+/**
+ * 列格式化计划：文本格式（txt/csv）下由column参数按列编译出的格式化器, 作业/任务初始化时编译一次
+ * <p>
+ * 每列可单独配置空值输出（nullFormat）、日期格式（dateFormat）、小数位数（scale）、布尔映射（trueValue/falseValue）与字节列输出格式（bytesFormat）；
+ * 未配置任何格式项的列以及超出column的列使用全局的默认列格式化器, 输出与未配置column时一致。
+ *
+ * @author langkye
+ */
+public class ColumnFormatPlan implements ColumnFormatter {
+    /**各列的格式化器：未配置格式项的列为默认列格式化器*/
+    private final ColumnFormatter[] formatters;
+    /**默认列格式化器：超出column的列*/
+    private final ColumnFormatter fallback;
+
+    /**
+     * 通过各列格式化器构建列格式化计划
+     *
+     * @param formatters 各列的格式化器
+     * @param fallback 默认列格式化器
+     */
+    private ColumnFormatPlan(ColumnFormatter[] formatters, ColumnFormatter fallback) {
+        this.formatters = formatters;
+        this.fallback = fallback;
+    }
+
+    /**
+     * 编译column参数中的列格式项
+     *
+     * @param config 配置信息
+     * @param fallback 默认列格式化器：由全局nullFormat、dateFormat构建
+     * @return 列格式化器, 未配置任何列格式项时直接返回默认列格式化器
+     */
+    public static ColumnFormatter compile(Configuration config, ColumnFormatter fallback) {
+        List<Configuration> columns = config.getListConfiguration(Key.COLUMN);
+        if (null == columns || columns.isEmpty()) {
+            return fallback;
+        }
+        String nullFormat = config.getString(Key.NULL_FORMAT);
+        String dateFormat = config.getString(Key.DATE_FORMAT);
+        String bytesFormat = config.getString(Key.BYTES_FORMAT);
+        Charset charset = UnstructuredStorageWriterUtil.resolveCharset(config);
+        ColumnFormatter[] formatters = new ColumnFormatter[columns.size()];
+        boolean planned = false;
+        for (int i = 0; i < columns.size(); i++) {
+            Configuration column = columns.get(i);
+            String name = StringUtils.defaultIfBlank(column.getString(Key.COLUMN_NAME), String.valueOf(i));
+            String columnNullFormat = column.getString(Key.COLUMN_NULL_FORMAT);
+            String columnDateFormat = column.getString(Key.COLUMN_DATE_FORMAT);
+            Integer scale = column.getInt(Key.COLUMN_SCALE);
+            String trueValue = column.getString(Key.COLUMN_TRUE_VALUE);
+            String falseValue = column.getString(Key.COLUMN_FALSE_VALUE);
+            String columnBytesFormat = column.getString(Key.COLUMN_BYTES_FORMAT);
+            if (null == columnNullFormat && StringUtils.isBlank(columnDateFormat) && null == scale && null == trueValue && null == falseValue && StringUtils.isBlank(columnBytesFormat)) {
+                formatters[i] = fallback;
+                continue;
+            }
+            if (null != scale && scale < 0) {
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的列[%s]的scale [%s]错误, 须为非负整数.", name, scale));
+            }
+            //未配置的格式项沿用全局配置
+            String effectiveDateFormat = StringUtils.isNotBlank(columnDateFormat) ? columnDateFormat : dateFormat;
+            CachedDateFormatter dateFormatter = null;
+            if (StringUtils.isNotBlank(effectiveDateFormat)) {
+                try {
+                    dateFormatter = CachedDateFormatter.of(effectiveDateFormat);
+                } catch (IllegalArgumentException e) {
+                    throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的列[%s]的dateFormat [%s]错误.", name, effectiveDateFormat), e);
+                }
+            }
+            String effectiveBytesFormat = StringUtils.isNotBlank(columnBytesFormat) ? columnBytesFormat : bytesFormat;
+            formatters[i] = new PlannedColumnFormatter(name,
+                    null != columnNullFormat ? columnNullFormat : null != nullFormat ? nullFormat : "null",
+                    dateFormatter, null == scale ? -1 : scale,
+                    null == trueValue ? "true" : trueValue, null == falseValue ? "false" : falseValue,
+                    StringUtils.isBlank(effectiveBytesFormat) ? null : BytesFormat.of(effectiveBytesFormat), charset);
+            planned = true;
+        }
+        return planned ? new ColumnFormatPlan(formatters, fallback) : fallback;
+    }
+
+    /**
+     * 将一列格式化后追加到输出缓冲
+     *
+     * @param index 列下标
+     * @param column 列
+     * @param out 输出缓冲
+     */
+    @Override
+    public void format(int index, Column column, StringBuilder out) {
+        ColumnFormatter formatter = index < this.formatters.length ? this.formatters[index] : this.fallback;
+        formatter.format(index, column, out);
+    }
+
+    /**
+     * 按固定小数位数（四舍五入, 与BigDecimal的HALF_UP一致）输出十进制数字文本
+     * <span>普通小数直接在字符上进位, 不创建BigDecimal；科学计数法等其他形式回退到BigDecimal</span>
+     *
+     * @param text 十进制数字文本
+     * @param scale 小数位数
+     * @param out 输出缓冲
+     */
+    static void appendScaled(String text, int scale, StringBuilder out) {
+        int length = text.length();
+        int start = 0;
+        boolean negative = false;
+        if (length > 0 && (text.charAt(0) == '-' || text.charAt(0) == '+')) {
+            negative = text.charAt(0) == '-';
+            start = 1;
+        }
+        int point = -1;
+        for (int i = start; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && point < 0) {
+                point = i;
+            } else if (c < '0' || c > '9') {
+                //科学计数法、非数字等
+                appendScaledSlow(text, scale, out);
+                return;
+            }
+        }
+        int intEnd = point < 0 ? length : point;
+        int fractionStart = point < 0 ? length : point + 1;
+        if (intEnd == start && fractionStart == length) {
+            appendScaledSlow(text, scale, out);
+            return;
+        }
+        //跳过整数部分的前导0
+        int intStart = start;
+        while (intStart < intEnd - 1 && text.charAt(intStart) == '0') {
+            intStart++;
+        }
+        //保留的数字：整数部分 + scale位小数, 首位预留进位
+        //.5这类无整数部分的按0输出
+        int intDigits = Math.max(1, intEnd - intStart);
+        char[] digits = new char[1 + intDigits + scale];
+        digits[0] = '0';
+        if (intEnd > intStart) {
+            text.getChars(intStart, intEnd, digits, 1);
+        } else {
+            digits[1] = '0';
+        }
+        for (int i = 0; i < scale; i++) {
+            int source = fractionStart + i;
+            digits[1 + intDigits + i] = source < length ? text.charAt(source) : '0';
+        }
+        //舍弃位的首位决定是否进位
+        int dropped = fractionStart + scale;
+        if (dropped < length && text.charAt(dropped) >= '5') {
+            int i = digits.length - 1;
+            while (digits[i] == '9') {
+                digits[i--] = '0';
+            }
+            digits[i]++;
+        }
+        int first = digits[0] == '0' ? 1 : 0;
+        boolean zero = true;
+        for (int i = first; i < digits.length; i++) {
+            if (digits[i] != '0') {
+                zero = false;
+                break;
+            }
+        }
+        //与BigDecimal一致：0不带符号
+        if (negative && !zero) {
+            out.append('-');
+        }
+        int pointAt = 1 + intDigits;
+        out.append(digits, first, pointAt - first);
+        if (scale > 0) {
+            out.append('.').append(digits, pointAt, scale);
+        }
+    }
+
+    /**
+     * 通过BigDecimal按固定小数位数输出
+     *
+     * @param text 数字文本
+     * @param scale 小数位数
+     * @param out 输出缓冲
+     */
+    private static void appendScaledSlow(String text, int scale, StringBuilder out) {
+        BigDecimal value;
+        try {
+            value = new BigDecimal(text.trim());
+        } catch (NumberFormatException e) {
+            //NaN、Infinity无法按小数位数输出
+            if ("NaN".equals(text) || "Infinity".equals(text) || "-Infinity".equals(text)) {
+                out.append(text);
+                return;
+            }
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("值[%s]不是数字, 无法按scale [%s]输出.", text, scale));
+        }
+        out.append(value.setScale(scale, RoundingMode.HALF_UP).toPlainString());
+    }
+
+    /**
+     * 单列格式化器：格式项在编译时确定, 按列类型直接追加
+     */
+    private static class PlannedColumnFormatter implements ColumnFormatter {
+        /**列名：错误信息*/
+        private final String name;
+        /**空值输出*/
+        private final String nullFormat;
+        /**日期格式化器, 为null时使用DataX默认日期格式*/
+        private final CachedDateFormatter dateFormatter;
+        /**小数位数, -1表示原样输出*/
+        private final int scale;
+        /**布尔真值输出*/
+        private final String trueValue;
+        /**布尔假值输出*/
+        private final String falseValue;
+        /**字节列输出格式, 为null时按Column.asString()输出*/
+        private final BytesFormat bytesFormat;
+        /**文件编码：字节列原样输出时解码使用*/
+        private final Charset charset;
+
+        /**
+         * 通过列格式项构建单列格式化器
+         *
+         * @param name 列名
+         * @param nullFormat 空值输出
+         * @param dateFormatter 日期格式化器
+         * @param scale 小数位数
+         * @param trueValue 布尔真值输出
+         * @param falseValue 布尔假值输出
+         * @param bytesFormat 字节列输出格式
+         * @param charset 文件编码
+         */
+        private PlannedColumnFormatter(String name, String nullFormat, CachedDateFormatter dateFormatter, int scale, String trueValue, String falseValue, BytesFormat bytesFormat, Charset charset) {
+            this.name = name;
+            this.nullFormat = nullFormat;
+            this.dateFormatter = dateFormatter;
+            this.scale = scale;
+            this.trueValue = trueValue;
+            this.falseValue = falseValue;
+            this.bytesFormat = bytesFormat;
+            this.charset = charset;
+        }
+
+        /**
+         * 将一列格式化后追加到输出缓冲
+         *
+         * @param index 列下标
+         * @param column 列
+         * @param out 输出缓冲
+         */
+        @Override
+        public void format(int index, Column column, StringBuilder out) {
+            Object rawData = column.getRawData();
+            if (null == rawData) {
+                out.append(this.nullFormat);
+                return;
+            }
+            switch (column.getType()) {
+                //LongColumn以BigInteger保存，64位以内直接输出数字
+                case LONG:
+                    if (rawData instanceof BigInteger && ((BigInteger) rawData).bitLength() < 64) {
+                        out.append(((BigInteger) rawData).longValue());
+                    } else {
+                        out.append(column.asString());
+                    }
+                    if (this.scale > 0) {
+                        out.append('.');
+                        for (int i = 0; i < this.scale; i++) {
+                            out.append('0');
+                        }
+                    }
+                    break;
+                //DoubleColumn以String保存原始文本, 仅在配置scale时进位
+                case DOUBLE:
+                    String text = rawData instanceof String ? (String) rawData : column.asString();
+                    if (this.scale >= 0) {
+                        appendScaled(text, this.scale, out);
+                    } else {
+                        out.append(text);
+                    }
+                    break;
+                case STRING:
+                    String value = rawData instanceof String ? (String) rawData : column.asString();
+                    if (this.scale >= 0 && !value.isEmpty()) {
+                        try {
+                            appendScaled(value, this.scale, out);
+                        } catch (DataXException e) {
+                            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("列[%s]的值[%s]不是数字, 无法按scale [%s]输出.", this.name, value, this.scale));
+                        }
+                    } else {
+                        out.append(value);
+                    }
+                    break;
+                case BOOL:
+                    out.append(column.asBoolean() ? this.trueValue : this.falseValue);
+                    break;
+                //日期格式处理：DateColumn以Long保存毫秒时间戳
+                case DATE:
+                    if (null != this.dateFormatter) {
+                        long epochMillis = rawData instanceof Long ? (Long) rawData : column.asDate().getTime();
+                        this.dateFormatter.format(epochMillis, out);
+                    } else {
+                        out.append(column.asString());
+                    }
+                    break;
+                //BytesColumn以byte[]保存, 直接编码追加
+                case BYTES:
+                    if (null != this.bytesFormat && rawData instanceof byte[]) {
+                        this.bytesFormat.append((byte[]) rawData, this.charset, out);
+                    } else {
+                        out.append(column.asString());
+                    }
+                    break;
+                default:
+                    out.append(column.asString());
+                    break;
+            }
+        }
+    }
+}
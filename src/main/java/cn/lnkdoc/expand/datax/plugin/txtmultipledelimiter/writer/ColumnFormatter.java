@@ -0,0 +1,21 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Column;
+
+/**
+ * 列格式化器定义：将列直接格式化到输出缓冲，避免为每一列创建中间字符串
+ *
+ * @author langkye
+ */
+public interface ColumnFormatter {
+
+    /**
+     * 将一列格式化后追加到输出缓冲
+     *
+     * @param index 列下标
+     * @param column 列
+     * @param out 输出缓冲
+     */
+    public void format(int index, Column column, StringBuilder out);
+
+}
@@ -0,0 +1,118 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.util.Configuration;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 列定义：column参数中的一项, 描述输出文件的列名与列类型
+ *
+ * @author langkye
+ */
+public class ColumnSpec {
+    /**列名*/
+    private final String name;
+    /**列类型*/
+    private final Type type;
+
+    /**
+     * 通过列名、列类型构建列定义
+     *
+     * @param name 列名
+     * @param type 列类型
+     */
+    public ColumnSpec(String name, Type type) {
+        this.name = name;
+        this.type = type;
+    }
+
+    /**
+     * 解析column参数
+     *
+     * @param config 配置信息
+     * @return 列定义, 未配置时为空列表
+     */
+    public static List<ColumnSpec> parse(Configuration config) {
+        List<Configuration> columns = config.getListConfiguration(Key.COLUMN);
+        if (null == columns || columns.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<ColumnSpec> specs = new ArrayList<>(columns.size());
+        for (int i = 0; i < columns.size(); i++) {
+            Configuration column = columns.get(i);
+            String name = column.getString(Key.COLUMN_NAME);
+            if (StringUtils.isBlank(name)) {
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的column第[%s]列缺少name.", i + 1));
+            }
+            String type = column.getString(Key.COLUMN_TYPE);
+            specs.add(new ColumnSpec(name.trim(), Type.of(type, name)));
+        }
+        return specs;
+    }
+
+    /**
+     * 列名
+     *
+     * @return 列名
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * 列类型
+     *
+     * @return 列类型
+     */
+    public Type getType() {
+        return this.type;
+    }
+
+    /**
+     * 列类型
+     */
+    public enum Type {
+        /**字符串*/
+        STRING,
+        /**32位整数*/
+        INT,
+        /**64位整数*/
+        LONG,
+        /**单精度浮点数*/
+        FLOAT,
+        /**双精度浮点数*/
+        DOUBLE,
+        /**布尔*/
+        BOOLEAN,
+        /**日期：按本地时区取日期*/
+        DATE,
+        /**时间戳：毫秒精度*/
+        TIMESTAMP,
+        /**字节数组*/
+        BYTES;
+
+        /**
+         * 解析列类型
+         *
+         * @param type 列类型名, 不区分大小写
+         * @param name 列名
+         * @return 列类型
+         */
+        public static Type of(String type, String name) {
+            if (StringUtils.isNotBlank(type)) {
+                try {
+                    return Type.valueOf(type.trim().toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException ignored) {
+                    // 下方统一抛出
+                }
+            }
+            String message = String.format("您配置的列[%s]的type [%s]错误, 支持%s.", name, type, StringUtils.join(Type.values(), ", ").toLowerCase(Locale.ROOT));
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, message);
+        }
+    }
+}
@@ -0,0 +1,743 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.plugin.TaskPluginCollector;
+import com.alibaba.datax.common.util.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.CompressionKind;
+import org.apache.orc.OrcConf;
+import org.apache.orc.OrcFile;
+import org.apache.orc.TypeDescription;
+import org.apache.orc.impl.PhysicalFsWriter;
+import org.apache.orc.impl.writer.WriterEncryptionVariant;
+import org.apache.parquet.hadoop.ParquetFileWriter;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.PositionOutputStream;
+import org.apache.parquet.io.api.Binary;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.apache.parquet.schema.Types;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+
+/**
+ * 列式文件处理器：parquet、orc
+ * <span>按column参数定义的列类型写出, 压缩由文件格式自身完成, 不经过字符编码、流压缩与并行序列化</span>
+ *
+ * @author langkye
+ */
+public class ColumnarWriterManager {
+    /**parquet支持的压缩格式*/
+    private static final Map<String, CompressionCodecName> PARQUET_CODECS = new LinkedHashMap<>();
+    /**orc支持的压缩格式*/
+    private static final Map<String, CompressionKind> ORC_CODECS = new LinkedHashMap<>();
+
+    static {
+        PARQUET_CODECS.put("none", CompressionCodecName.UNCOMPRESSED);
+        PARQUET_CODECS.put("snappy", CompressionCodecName.SNAPPY);
+        PARQUET_CODECS.put("gzip", CompressionCodecName.GZIP);
+        PARQUET_CODECS.put("zstd", CompressionCodecName.ZSTD);
+        ORC_CODECS.put("none", CompressionKind.NONE);
+        ORC_CODECS.put("snappy", CompressionKind.SNAPPY);
+        ORC_CODECS.put("zlib", CompressionKind.ZLIB);
+        ORC_CODECS.put("lz4", CompressionKind.LZ4);
+        ORC_CODECS.put("zstd", CompressionKind.ZSTD);
+    }
+
+    /**
+     * 是否列式文件格式
+     *
+     * @param fileFormat 文件格式
+     * @return 是否列式文件格式
+     */
+    public static boolean isColumnar(String fileFormat) {
+        return Constant.FILE_FORMAT_PARQUET.equals(fileFormat) || Constant.FILE_FORMAT_ORC.equals(fileFormat);
+    }
+
+    /**
+     * 列式文件格式支持的压缩格式
+     *
+     * @param fileFormat 文件格式
+     * @return 压缩格式名称
+     */
+    public static Set<String> getSupportedCompress(String fileFormat) {
+        if (Constant.FILE_FORMAT_PARQUET.equals(fileFormat)) {
+            return Collections.unmodifiableSet(PARQUET_CODECS.keySet());
+        }
+        if (Constant.FILE_FORMAT_ORC.equals(fileFormat)) {
+            return Collections.unmodifiableSet(ORC_CODECS.keySet());
+        }
+        return Collections.emptySet();
+    }
+
+    /**
+     * 构建列式写入器：写入给定的输出流, 关闭写入器时关闭输出流
+     *
+     * @param config 配置信息
+     * @param outputStream 输出流
+     * @param fileName 文件名, 用于区分同一进程内的写入器
+     * @return 非结构化写入器
+     * @throws IOException ex
+     */
+    public static UnstructuredWriter produceUnstructuredWriter(Configuration config, OutputStream outputStream, String fileName) throws IOException {
+        return ColumnarWriterManager.produceUnstructuredWriter(WriterSpec.of(config), outputStream, fileName);
+    }
+
+    /**
+     * 构建列式写入器：写入给定的输出流, 关闭写入器时关闭输出流
+     *
+     * @param spec 写出规格
+     * @param outputStream 输出流
+     * @param fileName 文件名, 用于区分同一进程内的写入器
+     * @return 非结构化写入器
+     * @throws IOException ex
+     */
+    public static UnstructuredWriter produceUnstructuredWriter(WriterSpec spec, OutputStream outputStream, String fileName) throws IOException {
+        String fileFormat = spec.getFileFormat();
+        List<ColumnSpec> columns = spec.getColumns();
+        if (columns.isEmpty()) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.REQUIRED_VALUE, String.format("fileFormat为[%s]时必须配置column.", fileFormat));
+        }
+        String compress = spec.getCompress();
+        long rowGroupSize = spec.getRowGroupSize();
+        boolean dictionaryEncoding = spec.isDictionaryEncoding();
+        //列式格式不读取hadoop配置文件
+        org.apache.hadoop.conf.Configuration hadoopConf = new org.apache.hadoop.conf.Configuration(false);
+        if (Constant.FILE_FORMAT_PARQUET.equals(fileFormat)) {
+            return new ParquetWriterImpl(outputStream, columns, PARQUET_CODECS.get(compress), rowGroupSize, dictionaryEncoding, hadoopConf);
+        }
+        return new OrcWriterImpl(outputStream, fileName, columns, ORC_CODECS.get(compress), rowGroupSize, dictionaryEncoding, hadoopConf);
+    }
+}
+
+/**
+ * 列式写入的行缓冲：一条记录按列类型转换后的值, 跨行复用
+ * <span>整行转换成功后才写入文件, 转换异常的记录作为脏数据, 不会写出半行</span>
+ */
+final class ColumnarRow {
+    /**每天的毫秒数*/
+    private static final long MILLIS_PER_DAY = 24 * 60 * 60 * 1000L;
+
+    /**列类型*/
+    final ColumnSpec.Type[] types;
+    /**是否为空*/
+    final boolean[] nulls;
+    /**整数、布尔(0/1)、日期(天)、时间戳(毫秒)*/
+    final long[] longs;
+    /**浮点数*/
+    final double[] doubles;
+    /**字符串、字节数组*/
+    final Object[] objects;
+    /**取日期时使用的时区*/
+    private final TimeZone timeZone = TimeZone.getDefault();
+
+    ColumnarRow(List<ColumnSpec> columns) {
+        int size = columns.size();
+        this.types = new ColumnSpec.Type[size];
+        for (int i = 0; i < size; i++) {
+            this.types[i] = columns.get(i).getType();
+        }
+        this.nulls = new boolean[size];
+        this.longs = new long[size];
+        this.doubles = new double[size];
+        this.objects = new Object[size];
+    }
+
+    /**
+     * 按列类型转换一条记录
+     *
+     * @param record 记录
+     */
+    void fill(Record record) {
+        int recordLength = record.getColumnNumber();
+        if (recordLength != this.types.length) {
+            throw new IllegalArgumentException(String.format("记录的列数[%s]与column配置的列数[%s]不一致", recordLength, this.types.length));
+        }
+        for (int i = 0; i < recordLength; i++) {
+            Column column = record.getColumn(i);
+            boolean isNull = null == column || null == column.getRawData();
+            this.nulls[i] = isNull;
+            this.objects[i] = null;
+            if (isNull) {
+                continue;
+            }
+            switch (this.types[i]) {
+                case STRING:
+                    this.objects[i] = column.asString();
+                    break;
+                case INT:
+                    this.longs[i] = Math.toIntExact(column.asLong());
+                    break;
+                case LONG:
+                    this.longs[i] = column.asLong();
+                    break;
+                case FLOAT:
+                case DOUBLE:
+                    this.doubles[i] = column.asDouble();
+                    break;
+                case BOOLEAN:
+                    this.longs[i] = column.asBoolean() ? 1L : 0L;
+                    break;
+                case DATE:
+                    long epochMillis = column.asDate().getTime();
+                    this.longs[i] = Math.floorDiv(epochMillis + this.timeZone.getOffset(epochMillis), MILLIS_PER_DAY);
+                    break;
+                case TIMESTAMP:
+                    this.longs[i] = column.asDate().getTime();
+                    break;
+                case BYTES:
+                    this.objects[i] = column.asBytes();
+                    break;
+                default:
+                    throw new IllegalArgumentException(String.format("不支持的列类型[%s]", this.types[i]));
+            }
+        }
+    }
+}
+
+/**
+ * 非结构化数据写入器--parquet实现:
+ * <span>列均为optional; date为DATE(天), timestamp为TIMESTAMP(MILLIS, UTC)</span>
+ */
+class ParquetWriterImpl implements UnstructuredWriter {
+    /**行缓冲*/
+    private final ColumnarRow row;
+    /**parquet写入器*/
+    private final ParquetWriter<ColumnarRow> parquetWriter;
+    /**是否已关闭*/
+    private boolean closed;
+
+    /**
+     * 构建parquet写入器
+     *
+     * @param outputStream 输出流
+     * @param columns 列定义
+     * @param codec 压缩格式
+     * @param rowGroupSize 行组大小（字节）
+     * @param dictionaryEncoding 是否启用字典编码
+     * @param hadoopConf hadoop配置
+     * @throws IOException ex
+     */
+    ParquetWriterImpl(OutputStream outputStream, List<ColumnSpec> columns, CompressionCodecName codec, long rowGroupSize, boolean dictionaryEncoding, org.apache.hadoop.conf.Configuration hadoopConf) throws IOException {
+        this.row = new ColumnarRow(columns);
+        this.parquetWriter = new Builder(new StreamOutputFile(outputStream), ParquetWriterImpl.buildSchema(columns))
+                .withConf(hadoopConf)
+                .withWriteMode(ParquetFileWriter.Mode.OVERWRITE)
+                .withCompressionCodec(codec)
+                .withRowGroupSize(rowGroupSize)
+                .withDictionaryEncoding(dictionaryEncoding)
+                .build();
+    }
+
+    /**
+     * 由列定义构建parquet schema
+     *
+     * @param columns 列定义
+     * @return schema
+     */
+    private static MessageType buildSchema(List<ColumnSpec> columns) {
+        Types.MessageTypeBuilder builder = Types.buildMessage();
+        for (ColumnSpec column : columns) {
+            switch (column.getType()) {
+                case STRING:
+                    builder.optional(PrimitiveTypeName.BINARY).as(LogicalTypeAnnotation.stringType()).named(column.getName());
+                    break;
+                case INT:
+                    builder.optional(PrimitiveTypeName.INT32).named(column.getName());
+                    break;
+                case LONG:
+                    builder.optional(PrimitiveTypeName.INT64).named(column.getName());
+                    break;
+                case FLOAT:
+                    builder.optional(PrimitiveTypeName.FLOAT).named(column.getName());
+                    break;
+                case DOUBLE:
+                    builder.optional(PrimitiveTypeName.DOUBLE).named(column.getName());
+                    break;
+                case BOOLEAN:
+                    builder.optional(PrimitiveTypeName.BOOLEAN).named(column.getName());
+                    break;
+                case DATE:
+                    builder.optional(PrimitiveTypeName.INT32).as(LogicalTypeAnnotation.dateType()).named(column.getName());
+                    break;
+                case TIMESTAMP:
+                    builder.optional(PrimitiveTypeName.INT64).as(LogicalTypeAnnotation.timestampType(true, LogicalTypeAnnotation.TimeUnit.MILLIS)).named(column.getName());
+                    break;
+                default:
+                    builder.optional(PrimitiveTypeName.BINARY).named(column.getName());
+                    break;
+            }
+        }
+        return builder.named("datax");
+    }
+
+    /**
+     * 写入一行：parquet文件不写表头, 列名由schema描述
+     *
+     * @param splitedRows 分割的行
+     */
+    @Override
+    public void writeOneRecord(List<String> splitedRows) {
+        // 忽略
+    }
+
+    /**
+     * 写入一条记录：按列类型转换, 不使用列格式化器
+     *
+     * @param record 记录
+     * @param formatter 列格式化器
+     * @throws IOException ex
+     */
+    @Override
+    public void writeRecord(Record record, ColumnFormatter formatter) throws IOException {
+        this.row.fill(record);
+        this.parquetWriter.write(this.row);
+    }
+
+    /**
+     * 批量写入记录：仅类型转换异常的记录作为脏数据收集, parquet写出异常直接抛出
+     *
+     * @param records 记录数组
+     * @param count 记录数
+     * @param formatter 列格式化器
+     * @param taskPluginCollector 任务处理器
+     * @return 脏数据记录数
+     * @throws IOException ex
+     */
+    @Override
+    public int writeBatch(Record[] records, int count, ColumnFormatter formatter, TaskPluginCollector taskPluginCollector) throws IOException {
+        int dirty = 0;
+        for (int i = 0; i < count; i++) {
+            try {
+                this.row.fill(records[i]);
+            } catch (Exception e) {
+                // warn: dirty data
+                taskPluginCollector.collectDirtyRecord(records[i], e);
+                dirty++;
+                continue;
+            }
+            this.parquetWriter.write(this.row);
+        }
+        return dirty;
+    }
+
+    /**
+     * flush：行组写满时由parquet写出
+     */
+    @Override
+    public void flush() {
+        // 忽略
+    }
+
+    /**
+     * close：写出最后一个行组与文件尾
+     *
+     * @throws IOException ex
+     */
+    @Override
+    public void close() throws IOException {
+        if (!this.closed) {
+            this.closed = true;
+            this.parquetWriter.close();
+        }
+    }
+
+    /**
+     * parquet写入器构建器
+     */
+    private static final class Builder extends ParquetWriter.Builder<ColumnarRow, Builder> {
+        /**schema*/
+        private final MessageType schema;
+
+        private Builder(OutputFile file, MessageType schema) {
+            super(file);
+            this.schema = schema;
+        }
+
+        @Override
+        protected Builder self() {
+            return this;
+        }
+
+        @Override
+        protected WriteSupport<ColumnarRow> getWriteSupport(org.apache.hadoop.conf.Configuration conf) {
+            return new RowWriteSupport(this.schema);
+        }
+    }
+
+    /**
+     * 将行缓冲写入parquet
+     */
+    private static final class RowWriteSupport extends WriteSupport<ColumnarRow> {
+        /**schema*/
+        private final MessageType schema;
+        /**列名*/
+        private final String[] names;
+        /**记录消费者*/
+        private RecordConsumer recordConsumer;
+
+        private RowWriteSupport(MessageType schema) {
+            this.schema = schema;
+            this.names = new String[schema.getFieldCount()];
+            for (int i = 0; i < this.names.length; i++) {
+                this.names[i] = schema.getFieldName(i);
+            }
+        }
+
+        @Override
+        public WriteContext init(org.apache.hadoop.conf.Configuration configuration) {
+            return new WriteContext(this.schema, Collections.emptyMap());
+        }
+
+        @Override
+        public void prepareForWrite(RecordConsumer recordConsumer) {
+            this.recordConsumer = recordConsumer;
+        }
+
+        @Override
+        public void write(ColumnarRow row) {
+            RecordConsumer consumer = this.recordConsumer;
+            consumer.startMessage();
+            for (int i = 0; i < this.names.length; i++) {
+                if (row.nulls[i]) {
+                    continue;
+                }
+                consumer.startField(this.names[i], i);
+                switch (row.types[i]) {
+                    case STRING:
+                        consumer.addBinary(Binary.fromString((String) row.objects[i]));
+                        break;
+                    case INT:
+                    case DATE:
+                        consumer.addInteger((int) row.longs[i]);
+                        break;
+                    case LONG:
+                    case TIMESTAMP:
+                        consumer.addLong(row.longs[i]);
+                        break;
+                    case FLOAT:
+                        consumer.addFloat((float) row.doubles[i]);
+                        break;
+                    case DOUBLE:
+                        consumer.addDouble(row.doubles[i]);
+                        break;
+                    case BOOLEAN:
+                        consumer.addBoolean(0 != row.longs[i]);
+                        break;
+                    default:
+                        consumer.addBinary(Binary.fromConstantByteArray((byte[]) row.objects[i]));
+                        break;
+                }
+                consumer.endField(this.names[i], i);
+            }
+            consumer.endMessage();
+        }
+    }
+
+    /**
+     * 以已打开的输出流作为parquet输出文件
+     */
+    private static final class StreamOutputFile implements OutputFile {
+        /**输出流*/
+        private final OutputStream outputStream;
+
+        private StreamOutputFile(OutputStream outputStream) {
+            this.outputStream = outputStream;
+        }
+
+        @Override
+        public PositionOutputStream create(long blockSizeHint) {
+            return new PositionOutputStream() {
+                /**已写出的字节数*/
+                private long position;
+
+                @Override
+                public long getPos() {
+                    return this.position;
+                }
+
+                @Override
+                public void write(int b) throws IOException {
+                    StreamOutputFile.this.outputStream.write(b);
+                    this.position++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    StreamOutputFile.this.outputStream.write(b, off, len);
+                    this.position += len;
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    StreamOutputFile.this.outputStream.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    StreamOutputFile.this.outputStream.close();
+                }
+            };
+        }
+
+        @Override
+        public PositionOutputStream createOrOverwrite(long blockSizeHint) {
+            return this.create(blockSizeHint);
+        }
+
+        @Override
+        public boolean supportsBlockSize() {
+            return false;
+        }
+
+        @Override
+        public long defaultBlockSize() {
+            return 0;
+        }
+    }
+}
+
+/**
+ * 非结构化数据写入器--orc实现:
+ * <span>按VectorizedRowBatch批量写入; timestamp按orc的timestamp类型（写入时区的本地时间）写出</span>
+ */
+class OrcWriterImpl implements UnstructuredWriter {
+    /**行缓冲*/
+    private final ColumnarRow row;
+    /**orc写入器*/
+    private final org.apache.orc.Writer orcWriter;
+    /**列批*/
+    private final VectorizedRowBatch batch;
+    /**是否已关闭*/
+    private boolean closed;
+
+    /**
+     * 构建orc写入器
+     *
+     * @param outputStream 输出流
+     * @param fileName 文件名
+     * @param columns 列定义
+     * @param codec 压缩格式
+     * @param stripeSize 条带大小（字节）
+     * @param dictionaryEncoding 是否启用字典编码
+     * @param hadoopConf hadoop配置
+     * @throws IOException ex
+     */
+    OrcWriterImpl(OutputStream outputStream, String fileName, List<ColumnSpec> columns, CompressionKind codec, long stripeSize, boolean dictionaryEncoding, org.apache.hadoop.conf.Configuration hadoopConf) throws IOException {
+        this.row = new ColumnarRow(columns);
+        TypeDescription schema = OrcWriterImpl.buildSchema(columns);
+        //字典阈值为0即不使用字典编码
+        if (!dictionaryEncoding) {
+            OrcConf.DICTIONARY_KEY_SIZE_THRESHOLD.setDouble(hadoopConf, 0D);
+        }
+        OrcFile.WriterOptions options = OrcFile.writerOptions(hadoopConf)
+                .setSchema(schema)
+                .compress(codec)
+                .stripeSize(stripeSize);
+        //写入已打开的输出流, 不经过hadoop文件系统
+        FSDataOutputStream fsOutputStream = new FSDataOutputStream(outputStream, null);
+        options.physicalWriter(new PhysicalFsWriter(fsOutputStream, options, new WriterEncryptionVariant[0]));
+        this.orcWriter = OrcFile.createWriter(new Path(fileName), options);
+        this.batch = schema.createRowBatch();
+    }
+
+    /**
+     * 由列定义构建orc schema
+     *
+     * @param columns 列定义
+     * @return schema
+     */
+    private static TypeDescription buildSchema(List<ColumnSpec> columns) {
+        TypeDescription schema = TypeDescription.createStruct();
+        for (ColumnSpec column : columns) {
+            switch (column.getType()) {
+                case STRING:
+                    schema.addField(column.getName(), TypeDescription.createString());
+                    break;
+                case INT:
+                    schema.addField(column.getName(), TypeDescription.createInt());
+                    break;
+                case LONG:
+                    schema.addField(column.getName(), TypeDescription.createLong());
+                    break;
+                case FLOAT:
+                    schema.addField(column.getName(), TypeDescription.createFloat());
+                    break;
+                case DOUBLE:
+                    schema.addField(column.getName(), TypeDescription.createDouble());
+                    break;
+                case BOOLEAN:
+                    schema.addField(column.getName(), TypeDescription.createBoolean());
+                    break;
+                case DATE:
+                    schema.addField(column.getName(), TypeDescription.createDate());
+                    break;
+                case TIMESTAMP:
+                    schema.addField(column.getName(), TypeDescription.createTimestamp());
+                    break;
+                default:
+                    schema.addField(column.getName(), TypeDescription.createBinary());
+                    break;
+            }
+        }
+        return schema;
+    }
+
+    /**
+     * 写入一行：orc文件不写表头, 列名由schema描述
+     *
+     * @param splitedRows 分割的行
+     */
+    @Override
+    public void writeOneRecord(List<String> splitedRows) {
+        // 忽略
+    }
+
+    /**
+     * 写入一条记录：按列类型转换后放入列批
+     *
+     * @param record 记录
+     * @param formatter 列格式化器
+     * @throws IOException ex
+     */
+    @Override
+    public void writeRecord(Record record, ColumnFormatter formatter) throws IOException {
+        this.row.fill(record);
+        this.addRow();
+    }
+
+    /**
+     * 批量写入记录：仅类型转换异常的记录作为脏数据收集, orc写出异常直接抛出
+     *
+     * @param records 记录数组
+     * @param count 记录数
+     * @param formatter 列格式化器
+     * @param taskPluginCollector 任务处理器
+     * @return 脏数据记录数
+     * @throws IOException ex
+     */
+    @Override
+    public int writeBatch(Record[] records, int count, ColumnFormatter formatter, TaskPluginCollector taskPluginCollector) throws IOException {
+        int dirty = 0;
+        for (int i = 0; i < count; i++) {
+            try {
+                this.row.fill(records[i]);
+            } catch (Exception e) {
+                // warn: dirty data
+                taskPluginCollector.collectDirtyRecord(records[i], e);
+                dirty++;
+                continue;
+            }
+            this.addRow();
+        }
+        return dirty;
+    }
+
+    /**
+     * 将已转换的行缓冲放入列批, 列批写满时交给orc
+     *
+     * @throws IOException ex
+     */
+    private void addRow() throws IOException {
+        ColumnarRow row = this.row;
+        int rowIndex = this.batch.size;
+        for (int i = 0; i < row.types.length; i++) {
+            ColumnVector vector = this.batch.cols[i];
+            if (row.nulls[i]) {
+                vector.noNulls = false;
+                vector.isNull[rowIndex] = true;
+                continue;
+            }
+            vector.isNull[rowIndex] = false;
+            switch (row.types[i]) {
+                case STRING:
+                    byte[] utf8 = ((String) row.objects[i]).getBytes(StandardCharsets.UTF_8);
+                    ((BytesColumnVector) vector).setRef(rowIndex, utf8, 0, utf8.length);
+                    break;
+                case FLOAT:
+                case DOUBLE:
+                    ((DoubleColumnVector) vector).vector[rowIndex] = row.doubles[i];
+                    break;
+                case TIMESTAMP:
+                    long epochMillis = row.longs[i];
+                    TimestampColumnVector timestampVector = (TimestampColumnVector) vector;
+                    timestampVector.time[rowIndex] = epochMillis;
+                    timestampVector.nanos[rowIndex] = (int) Math.floorMod(epochMillis, 1000L) * 1000000;
+                    break;
+                case BYTES:
+                    byte[] bytes = (byte[]) row.objects[i];
+                    ((BytesColumnVector) vector).setVal(rowIndex, bytes, 0, bytes.length);
+                    break;
+                default:
+                    ((LongColumnVector) vector).vector[rowIndex] = row.longs[i];
+                    break;
+            }
+        }
+        this.batch.size++;
+        if (this.batch.size == this.batch.getMaxSize()) {
+            this.flushBatch();
+        }
+    }
+
+    /**
+     * 将列批交给orc：写出失败时同样清空列批, 不会以写满的列批继续写入
+     *
+     * @throws IOException ex
+     */
+    private void flushBatch() throws IOException {
+        if (this.batch.size > 0) {
+            try {
+                this.orcWriter.addRowBatch(this.batch);
+            } finally {
+                this.batch.reset();
+            }
+        }
+    }
+
+    /**
+     * flush：条带写满时由orc写出
+     */
+    @Override
+    public void flush() {
+        // 忽略
+    }
+
+    /**
+     * close：写出剩余的列批、最后一个条带与文件尾
+     *
+     * @throws IOException ex
+     */
+    @Override
+    public void close() throws IOException {
+        if (!this.closed) {
+            this.closed = true;
+            try {
+                this.flushBatch();
+            } finally {
+                this.orcWriter.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 压缩编解码器定义：通过{@link CompressCodecRegistry}注册后即可在compress参数中使用
+ *
+ * @author langkye
+ */
+public interface CompressCodec {
+    /**使用编解码器的默认压缩级别*/
+    public static final int DEFAULT_LEVEL = -1;
+
+    /**
+     * 压缩格式名称，即compress参数值（不区分大小写）
+     *
+     * @return 名称
+     */
+    public String getName();
+
+    /**
+     * 多个独立的压缩流串联后是否仍可被标准工具完整解压；支持时可用于并行块压缩
+     *
+     * @return 是否支持串联
+     */
+    public boolean isConcatenable();
+
+    /**
+     * 校验压缩级别
+     *
+     * @param level 压缩级别
+     * @return 是否合法
+     */
+    public boolean isValidLevel(int level);
+
+    /**
+     * 构建压缩输出流
+     *
+     * @param out 目标输出流
+     * @param level 压缩级别, {@link #DEFAULT_LEVEL}表示默认级别
+     * @param workers 编解码器内部的压缩线程数, 0表示不使用, 不支持的编解码器忽略该参数
+     * @return 压缩输出流, 关闭时一并关闭目标输出流
+     * @throws IOException ex
+     */
+    public OutputStream createOutputStream(OutputStream out, int level, int workers) throws IOException;
+
+}
@@ -0,0 +1,213 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.github.luben.zstd.ZstdOutputStream;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+import net.jpountz.xxhash.XXHashFactory;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
+import org.xerial.snappy.SnappyFramedOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 压缩编解码器注册表：内置gzip、bzip2、zstd、lz4、snappy，
+ * 并通过ServiceLoader加载classpath中的{@link CompressCodec}实现
+ *
+ * @author langkye
+ */
+public class CompressCodecRegistry {
+    /**已注册的编解码器：key为小写名称*/
+    private static final Map<String, CompressCodec> CODECS = new ConcurrentHashMap<>();
+
+    static {
+        register(new GzipCodec());
+        register(new Bzip2Codec());
+        register(new ZstdCodec());
+        register(new Lz4Codec());
+        register(new SnappyCodec());
+        for (CompressCodec codec : ServiceLoader.load(CompressCodec.class)) {
+            register(codec);
+        }
+    }
+
+    private CompressCodecRegistry() {}
+
+    /**
+     * 注册编解码器，同名时覆盖
+     *
+     * @param codec 编解码器
+     */
+    public static void register(CompressCodec codec) {
+        CODECS.put(codec.getName().toLowerCase(Locale.ROOT), codec);
+    }
+
+    /**
+     * 按名称获取编解码器（不区分大小写）
+     *
+     * @param name 名称
+     * @return 编解码器, 不存在时返回null
+     */
+    public static CompressCodec getCodec(String name) {
+        return null == name ? null : CODECS.get(name.trim().toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * 已注册的编解码器名称
+     *
+     * @return 名称集合
+     */
+    public static Set<String> getSupportedNames() {
+        return new TreeSet<>(CODECS.keySet());
+    }
+}
+
+/**
+ * gzip：级别1~9
+ */
+class GzipCodec implements CompressCodec {
+    @Override
+    public String getName() {
+        return UnstructuredStorageWriterUtil.GZIP;
+    }
+
+    @Override
+    public boolean isConcatenable() {
+        return true;
+    }
+
+    @Override
+    public boolean isValidLevel(int level) {
+        return DEFAULT_LEVEL == level || (level >= 1 && level <= 9);
+    }
+
+    @Override
+    public OutputStream createOutputStream(OutputStream out, int level, int workers) throws IOException {
+        GzipParameters parameters = new GzipParameters();
+        if (DEFAULT_LEVEL != level) {
+            parameters.setCompressionLevel(level);
+        }
+        return new GzipCompressorOutputStream(out, parameters);
+    }
+}
+
+/**
+ * bzip2：级别1~9即块大小100k~900k
+ */
+class Bzip2Codec implements CompressCodec {
+    @Override
+    public String getName() {
+        return UnstructuredStorageWriterUtil.BZIP2;
+    }
+
+    @Override
+    public boolean isConcatenable() {
+        return true;
+    }
+
+    @Override
+    public boolean isValidLevel(int level) {
+        return DEFAULT_LEVEL == level || (level >= BZip2CompressorOutputStream.MIN_BLOCKSIZE && level <= BZip2CompressorOutputStream.MAX_BLOCKSIZE);
+    }
+
+    @Override
+    public OutputStream createOutputStream(OutputStream out, int level, int workers) throws IOException {
+        if (DEFAULT_LEVEL == level) {
+            return new BZip2CompressorOutputStream(out);
+        }
+        return new BZip2CompressorOutputStream(out, level);
+    }
+}
+
+/**
+ * zstd：级别1~22，支持zstd内部多线程（workers）
+ */
+class ZstdCodec implements CompressCodec {
+    /**默认级别，与zstd命令行一致*/
+    private static final int ZSTD_DEFAULT_LEVEL = 3;
+
+    @Override
+    public String getName() {
+        return UnstructuredStorageWriterUtil.ZSTD;
+    }
+
+    @Override
+    public boolean isConcatenable() {
+        return true;
+    }
+
+    @Override
+    public boolean isValidLevel(int level) {
+        return DEFAULT_LEVEL == level || (level >= 1 && level <= 22);
+    }
+
+    @Override
+    public OutputStream createOutputStream(OutputStream out, int level, int workers) throws IOException {
+        ZstdOutputStream zstdOutputStream = new ZstdOutputStream(out, DEFAULT_LEVEL == level ? ZSTD_DEFAULT_LEVEL : level);
+        if (workers > 0) {
+            zstdOutputStream.setWorkers(workers);
+        }
+        return zstdOutputStream;
+    }
+}
+
+/**
+ * lz4 frame：级别1~2使用快速压缩，3~12使用高压缩率（HC）模式，与lz4命令行一致
+ */
+class Lz4Codec implements CompressCodec {
+    @Override
+    public String getName() {
+        return UnstructuredStorageWriterUtil.LZ4;
+    }
+
+    @Override
+    public boolean isConcatenable() {
+        return true;
+    }
+
+    @Override
+    public boolean isValidLevel(int level) {
+        return DEFAULT_LEVEL == level || (level >= 1 && level <= 12);
+    }
+
+    @Override
+    public OutputStream createOutputStream(OutputStream out, int level, int workers) throws IOException {
+        LZ4Factory factory = LZ4Factory.fastestInstance();
+        LZ4Compressor compressor = level < 3 ? factory.fastCompressor() : factory.highCompressor(level);
+        return new LZ4FrameOutputStream(out, LZ4FrameOutputStream.BLOCKSIZE.SIZE_4MB, -1L, compressor, XXHashFactory.fastestInstance().hash32(), LZ4FrameOutputStream.FLG.Bits.BLOCK_INDEPENDENCE);
+    }
+}
+
+/**
+ * snappy framing format：不支持级别
+ */
+class SnappyCodec implements CompressCodec {
+    @Override
+    public String getName() {
+        return UnstructuredStorageWriterUtil.SNAPPY;
+    }
+
+    @Override
+    public boolean isConcatenable() {
+        return true;
+    }
+
+    @Override
+    public boolean isValidLevel(int level) {
+        return DEFAULT_LEVEL == level;
+    }
+
+    @Override
+    public OutputStream createOutputStream(OutputStream out, int level, int workers) throws IOException {
+        return new SnappyFramedOutputStream(out);
+    }
+}
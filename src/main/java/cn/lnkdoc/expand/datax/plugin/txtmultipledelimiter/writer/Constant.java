@@ -16,8 +16,56 @@ public class Constant {
 	public static final String FILE_FORMAT_CSV = "csv";
 	/**text文件格式*/
 	public static final String FILE_FORMAT_TEXT = "text";
+	/**parquet文件格式*/
+	public static final String FILE_FORMAT_PARQUET = "parquet";
+	/**orc文件格式*/
+	public static final String FILE_FORMAT_ORC = "orc";
+	/**默认parquet行组/orc条带大小（MB）*/
+	public static final int DEFAULT_ROW_GROUP_SIZE = 64;
+	/**parquet/orc默认压缩格式*/
+	public static final String DEFAULT_COLUMNAR_COMPRESS = "snappy";
 	/**每个分块10MB，最大10000个分块*/
 	public static final Long MAX_FILE_SIZE = 1024 * 1024 * 10 * 10000L;
+	/**默认输出缓冲大小：256KB*/
+	public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+	/**通过FileChannel写出直接内存缓冲*/
+	public static final String OUTPUT_MODE_CHANNEL = "channel";
+	/**通过滑动的内存映射窗口写出*/
+	public static final String OUTPUT_MODE_MMAP = "mmap";
+	/**默认内存映射窗口大小（MB）*/
+	public static final int DEFAULT_MMAP_WINDOW_SIZE = 64;
+	/**默认并行压缩块大小（KB）*/
+	public static final int DEFAULT_COMPRESS_BLOCK_SIZE = 1024;
+	/**并行压缩块大小上限（KB）：1GB, 换算为字节后不超出int范围*/
+	public static final int MAX_COMPRESS_BLOCK_SIZE = 1048576;
+	/**默认每批处理记录数*/
+	public static final int DEFAULT_SERIALIZE_BATCH_SIZE = 4096;
+	/**默认异步写出缓冲数量*/
+	public static final int DEFAULT_ASYNC_QUEUE_SIZE = 4;
+	/**默认指标上报器*/
+	public static final String DEFAULT_METRICS_REPORTER = "log";
+	/**默认指标周期上报间隔（秒）*/
+	public static final int DEFAULT_METRICS_INTERVAL = 60;
+	/**隐藏文件前缀：暂存文件、元数据文件*/
+	public static final String HIDDEN_FILE_PREFIX = ".";
+	/**暂存文件后缀*/
+	public static final String STAGING_FILE_SUFFIX = ".inprogress";
+	/**任务元数据文件后缀*/
+	public static final String META_FILE_SUFFIX = ".meta";
+	/**续写模式：从任务检查点继续写入*/
+	public static final String WRITE_MODE_RESUME = "resume";
+	/**任务检查点文件后缀*/
+	public static final String CHECKPOINT_FILE_SUFFIX = ".checkpoint";
+	/**默认检查点间隔（秒）*/
+	public static final int DEFAULT_CHECKPOINT_INTERVAL = 60;
+	/**作业成功清单文件名*/
+	public static final String SUCCESS_FILE_NAME = "_SUCCESS";
+	/**truncate模式并行删除文件的线程数*/
+	public static final int DELETE_THREADS = 8;
+	/**nonConflict模式冲突时最多列出的文件数*/
+	public static final int MAX_CONFLICT_FILES_LOGGED = 100;
+	/**分区写出时每个任务默认最多同时打开的文件数*/
+	public static final int DEFAULT_MAX_OPEN_FILES = 64;
 	/**默认后缀*/
 	public static final String DEFAULT_SUFFIX = "";
 }
@@ -0,0 +1,118 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Column;
+
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.text.DateFormat;
+
+/**
+ * 默认列格式化器：按列类型直接追加，long/double/bool不经过String转换
+ *
+ * @author langkye
+ */
+public class DefaultColumnFormatter implements ColumnFormatter {
+    /**空值输出*/
+    private final String nullFormat;
+    /**日期格式化器*/
+    private final CachedDateFormatter dateFormatter;
+    /**字节列输出格式, 为null时按Column.asString()输出*/
+    private final BytesFormat bytesFormat;
+    /**文件编码：字节列原样输出时解码使用*/
+    private final Charset charset;
+
+    /**
+     * 通过空处理格式、日期格式化对象构建列格式化器
+     *
+     * @param nullFormat 空处理格式, 为null时输出"null"
+     * @param dateParse 日期格式化对象, 为null时使用DataX默认日期格式
+     */
+    public DefaultColumnFormatter(String nullFormat, DateFormat dateParse) {
+        this(nullFormat, null == dateParse ? null : new CachedDateFormatter(dateParse));
+    }
+
+    /**
+     * 通过空处理格式、日期格式化器构建列格式化器
+     *
+     * @param nullFormat 空处理格式, 为null时输出"null"
+     * @param dateFormatter 日期格式化器, 为null时使用DataX默认日期格式
+     */
+    public DefaultColumnFormatter(String nullFormat, CachedDateFormatter dateFormatter) {
+        this(nullFormat, dateFormatter, null, null);
+    }
+
+    /**
+     * 通过空处理格式、日期格式化器、字节列输出格式构建列格式化器
+     *
+     * @param nullFormat 空处理格式, 为null时输出"null"
+     * @param dateFormatter 日期格式化器, 为null时使用DataX默认日期格式
+     * @param bytesFormat 字节列输出格式, 为null时按Column.asString()输出
+     * @param charset 文件编码
+     */
+    public DefaultColumnFormatter(String nullFormat, CachedDateFormatter dateFormatter, BytesFormat bytesFormat, Charset charset) {
+        //默认空处理为"null"
+        this.nullFormat = null == nullFormat ? "null" : nullFormat;
+        this.dateFormatter = dateFormatter;
+        this.bytesFormat = bytesFormat;
+        this.charset = charset;
+    }
+
+    /**
+     * 将一列格式化后追加到输出缓冲
+     *
+     * @param index 列下标
+     * @param column 列
+     * @param out 输出缓冲
+     */
+    @Override
+    public void format(int index, Column column, StringBuilder out) {
+        Object rawData = column.getRawData();
+        //数据为空处理
+        if (null == rawData) {
+            out.append(this.nullFormat);
+            return;
+        }
+        switch (column.getType()) {
+            //LongColumn以BigInteger保存，64位以内直接输出数字
+            case LONG:
+                if (rawData instanceof BigInteger && ((BigInteger) rawData).bitLength() < 64) {
+                    out.append(((BigInteger) rawData).longValue());
+                } else {
+                    out.append(column.asString());
+                }
+                break;
+            //DoubleColumn、StringColumn以String保存
+            case DOUBLE:
+            case STRING:
+                if (rawData instanceof String) {
+                    out.append((String) rawData);
+                } else {
+                    out.append(column.asString());
+                }
+                break;
+            case BOOL:
+                out.append(column.asBoolean().booleanValue());
+                break;
+            //日期格式处理：DateColumn以Long保存毫秒时间戳
+            case DATE:
+                if (null != this.dateFormatter) {
+                    long epochMillis = rawData instanceof Long ? (Long) rawData : column.asDate().getTime();
+                    this.dateFormatter.format(epochMillis, out);
+                } else {
+                    out.append(column.asString());
+                }
+                break;
+            //BytesColumn以byte[]保存, 直接编码追加
+            case BYTES:
+                if (null != this.bytesFormat && rawData instanceof byte[]) {
+                    this.bytesFormat.append((byte[]) rawData, this.charset, out);
+                } else {
+                    out.append(column.asString());
+                }
+                break;
+            default:
+                out.append(column.asString());
+                break;
+        }
+    }
+}
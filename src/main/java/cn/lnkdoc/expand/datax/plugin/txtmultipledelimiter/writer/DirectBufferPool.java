@@ -0,0 +1,282 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 直接内存缓冲池：同一JVM内的全部任务共享, 任务开始写入时租用输出缓冲, 销毁时归还
+ * <p>
+ * 已租出的缓冲总量不超过上限, 达到上限时租用方阻塞等待其他任务归还（背压）；一次租用的多个缓冲整体获取,
+ * 不会出现各任务各持一部分而相互等待。空闲缓冲按线程分段存放以减少锁竞争, 缓冲总量超过上限时归还的缓冲不再缓存。
+ *
+ * @author langkye
+ */
+public final class DirectBufferPool {
+    private static final Logger logger = LoggerFactory.getLogger(DirectBufferPool.class);
+
+    /**许可单位（字节）：按KB计数, 避免上限超过int范围*/
+    private static final int PERMIT_UNIT = 1024;
+    /**进程内共享的缓冲池*/
+    private static DirectBufferPool shared;
+
+    /**上限（字节）*/
+    private final long capacity;
+    /**全部许可数*/
+    private final int totalPermits;
+    /**已租出的缓冲（KB）许可：公平获取, 先等待的任务先获得*/
+    private final Semaphore permits;
+    /**空闲缓冲分段*/
+    private final Stripe[] stripes;
+    /**缓冲池持有的缓冲总量（字节）：已租出与空闲之和*/
+    private final AtomicLong allocated = new AtomicLong();
+
+    /**
+     * 空闲缓冲分段：按缓冲大小存放
+     */
+    private static final class Stripe {
+        /**空闲缓冲：缓冲大小 -> 缓冲*/
+        private final Map<Integer, ArrayDeque<ByteBuffer>> free = new HashMap<>();
+    }
+
+    /**
+     * 通过上限构建缓冲池：任务写入使用{@link #shared(long)}
+     *
+     * @param capacity 上限（字节）
+     */
+    DirectBufferPool(long capacity) {
+        this.capacity = capacity;
+        this.totalPermits = (int) Math.min(Integer.MAX_VALUE, capacity / PERMIT_UNIT);
+        this.permits = new Semaphore(this.totalPermits, true);
+        //分段数：不小于CPU核数的2的幂, 至多16段
+        int stripeCount = Integer.highestOneBit(Math.max(1, Math.min(16, Runtime.getRuntime().availableProcessors())) * 2 - 1);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * 获取进程内共享的缓冲池：首次调用时按上限创建, 之后的调用沿用已创建的缓冲池
+     *
+     * @param capacity 上限（字节）
+     * @return 缓冲池
+     */
+    public static synchronized DirectBufferPool shared(long capacity) {
+        if (null == shared) {
+            shared = new DirectBufferPool(capacity);
+            logger.info(String.format("创建直接内存缓冲池, 上限[%s]MB", capacity / 1024 / 1024));
+        } else if (shared.capacity != capacity) {
+            logger.warn(String.format("直接内存缓冲池已按上限[%s]MB创建, 忽略上限[%s]MB", shared.capacity / 1024 / 1024, capacity / 1024 / 1024));
+        }
+        return shared;
+    }
+
+    /**
+     * 上限（字节）
+     *
+     * @return 上限
+     */
+    public long getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * 已租出的缓冲总量（字节）：按许可计, 单个缓冲向上取整到KB
+     *
+     * @return 已租出的缓冲总量
+     */
+    public long getLeasedBytes() {
+        return (long) (this.totalPermits - this.permits.availablePermits()) * PERMIT_UNIT;
+    }
+
+    /**
+     * 缓冲池持有的缓冲总量（字节）：已租出与空闲之和
+     *
+     * @return 缓冲总量
+     */
+    public long getAllocatedBytes() {
+        return this.allocated.get();
+    }
+
+    /**
+     * 租用一组大小相同的缓冲：已租出的总量达到上限时阻塞, 直到其他任务归还
+     *
+     * @param count 缓冲数量
+     * @param size 单个缓冲大小（字节）
+     * @return 租约, 关闭时归还缓冲
+     * @throws InterruptedIOException 等待时被中断
+     */
+    public Lease lease(int count, int size) throws InterruptedIOException {
+        int units = count * permitUnits(size);
+        if (units > this.totalPermits) {
+            //总量超过上限的租用永远无法满足
+            throw new IllegalArgumentException(String.format("租用的缓冲总量[%s]KB超过直接内存缓冲池上限[%s]MB", units, this.capacity / 1024 / 1024));
+        }
+        try {
+            //公平模式下tryAcquire(0)同样遵守等待顺序
+            if (!this.permits.tryAcquire(units, 0L, TimeUnit.MILLISECONDS)) {
+                logger.info(String.format("直接内存缓冲池已达上限[%s]MB, 等待其他任务归还缓冲", this.capacity / 1024 / 1024));
+                long start = System.nanoTime();
+                this.permits.acquire(units);
+                logger.info(String.format("等待直接内存缓冲[%s]ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待直接内存缓冲时被中断");
+        }
+        List<ByteBuffer> buffers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            buffers.add(this.take(size));
+        }
+        return new Lease(buffers, units);
+    }
+
+    /**
+     * 取出一个空闲缓冲：先查当前线程所在分段, 再查其他分段, 均无时新建
+     *
+     * @param size 缓冲大小
+     * @return 已清空的缓冲
+     */
+    private ByteBuffer take(int size) {
+        int home = this.stripeIndex();
+        for (int i = 0; i < this.stripes.length; i++) {
+            Stripe stripe = this.stripes[(home + i) & (this.stripes.length - 1)];
+            synchronized (stripe) {
+                ArrayDeque<ByteBuffer> free = stripe.free.get(size);
+                ByteBuffer buffer = null == free ? null : free.pollFirst();
+                if (null != buffer) {
+                    return buffer;
+                }
+            }
+        }
+        //新建前释放其他大小的空闲缓冲, 使缓冲总量不超过上限
+        if (this.allocated.get() + size > this.capacity) {
+            this.evict(this.allocated.get() + size - this.capacity);
+        }
+        this.allocated.addAndGet(size);
+        return ByteBuffer.allocateDirect(size);
+    }
+
+    /**
+     * 释放空闲缓冲：交由GC回收直接内存
+     *
+     * @param bytes 需要释放的字节数
+     */
+    private void evict(long bytes) {
+        long evicted = 0;
+        for (Stripe stripe : this.stripes) {
+            synchronized (stripe) {
+                Iterator<ArrayDeque<ByteBuffer>> iterator = stripe.free.values().iterator();
+                while (evicted < bytes && iterator.hasNext()) {
+                    ArrayDeque<ByteBuffer> free = iterator.next();
+                    while (evicted < bytes && !free.isEmpty()) {
+                        int size = free.pollFirst().capacity();
+                        this.allocated.addAndGet(-size);
+                        evicted += size;
+                    }
+                }
+            }
+            if (evicted >= bytes) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 归还缓冲：缓冲总量未超过上限时放回当前线程所在分段
+     *
+     * @param buffers 缓冲
+     * @param units 许可数
+     */
+    private void release(List<ByteBuffer> buffers, int units) {
+        Stripe stripe = this.stripes[this.stripeIndex()];
+        for (ByteBuffer buffer : buffers) {
+            buffer.clear();
+            if (this.allocated.get() > this.capacity) {
+                this.allocated.addAndGet(-buffer.capacity());
+                continue;
+            }
+            synchronized (stripe) {
+                stripe.free.computeIfAbsent(buffer.capacity(), k -> new ArrayDeque<>()).addFirst(buffer);
+            }
+        }
+        this.permits.release(units);
+    }
+
+    /**
+     * 当前线程所在分段
+     *
+     * @return 分段下标
+     */
+    private int stripeIndex() {
+        return (int) Thread.currentThread().getId() & (this.stripes.length - 1);
+    }
+
+    /**
+     * 缓冲大小对应的许可数
+     *
+     * @param size 缓冲大小（字节）
+     * @return 许可数
+     */
+    private static int permitUnits(int size) {
+        return (size + PERMIT_UNIT - 1) / PERMIT_UNIT;
+    }
+
+    /**
+     * 租约：持有租用的缓冲, 关闭时归还缓冲池
+     */
+    public final class Lease implements Closeable {
+        /**租用的缓冲, 归还后为null*/
+        private List<ByteBuffer> buffers;
+        /**许可数*/
+        private final int units;
+
+        /**
+         * 通过缓冲、许可数构建租约
+         *
+         * @param buffers 缓冲
+         * @param units 许可数
+         */
+        private Lease(List<ByteBuffer> buffers, int units) {
+            this.buffers = Collections.unmodifiableList(buffers);
+            this.units = units;
+        }
+
+        /**
+         * 租用的缓冲：同一时间只能由一个写入器使用
+         *
+         * @return 缓冲
+         */
+        public List<ByteBuffer> getBuffers() {
+            if (null == this.buffers) {
+                throw new IllegalStateException("缓冲已归还");
+            }
+            return this.buffers;
+        }
+
+        /**
+         * 归还缓冲, 重复调用无副作用
+         */
+        @Override
+        public synchronized void close() {
+            if (null != this.buffers) {
+                DirectBufferPool.this.release(this.buffers, this.units);
+                this.buffers = null;
+            }
+        }
+    }
+}
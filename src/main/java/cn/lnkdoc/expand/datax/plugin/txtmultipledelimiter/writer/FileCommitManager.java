@@ -0,0 +1,263 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.util.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * 原子提交：任务写入隐藏的暂存文件(.fileName.inprogress)并落盘, 作业结束时统一重命名为正式文件
+ * <p>
+ * 每个任务在结束时写出元数据文件(.fileName.meta), 记录其全部分片的行数、字节数与校验和；
+ * 作业后置处理据此重命名分片, 并可写出_SUCCESS清单。作业失败时正式文件不可见, 残留的暂存文件由下次prepare清理。
+ *
+ * @author langkye
+ */
+public class FileCommitManager {
+    private static final Logger logger = LoggerFactory.getLogger(FileCommitManager.class);
+
+    /**元数据·分片列表*/
+    private static final String META_FILES = "files";
+    /**元数据·文件名*/
+    private static final String META_NAME = "name";
+    /**元数据·行数*/
+    private static final String META_ROWS = "rows";
+    /**元数据·字节数*/
+    private static final String META_BYTES = "bytes";
+    /**元数据·CRC32校验和（十六进制）*/
+    private static final String META_CRC32 = "crc32";
+    /**校验和读取缓冲大小*/
+    private static final int CHECKSUM_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * 暂存文件名：分区文件名含相对目录时, 暂存文件位于同一目录
+     *
+     * @param fileName 正式文件名
+     * @return 暂存文件名
+     */
+    public static String stagingFileName(String fileName) {
+        int nameStart = fileName.lastIndexOf('/') + 1;
+        return fileName.substring(0, nameStart) + Constant.HIDDEN_FILE_PREFIX + fileName.substring(nameStart) + Constant.STAGING_FILE_SUFFIX;
+    }
+
+    /**
+     * 任务元数据文件名
+     *
+     * @param fileName 任务文件名
+     * @return 元数据文件名
+     */
+    public static String metaFileName(String fileName) {
+        return Constant.HIDDEN_FILE_PREFIX + fileName + Constant.META_FILE_SUFFIX;
+    }
+
+    /**
+     * 封存一个已关闭的暂存文件：落盘并统计字节数、校验和
+     *
+     * @param stagingFile 暂存文件
+     * @param fileName 正式文件名
+     * @param rows 行数
+     * @param checksum 是否计算校验和（需回读文件）
+     * @return 分片元数据
+     * @throws IOException ex
+     */
+    public static Configuration seal(File stagingFile, String fileName, long rows, boolean checksum) throws IOException {
+        Configuration part = Configuration.newDefault();
+        try (FileChannel channel = FileChannel.open(stagingFile.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            //流已关闭, 通过新的通道对同一文件执行fsync
+            channel.force(true);
+            part.set(META_NAME, fileName);
+            part.set(META_ROWS, rows);
+            part.set(META_BYTES, channel.size());
+            if (checksum) {
+                part.set(META_CRC32, FileCommitManager.crc32(channel));
+            }
+        }
+        return part;
+    }
+
+    /**
+     * 计算文件的CRC32校验和
+     *
+     * @param channel 文件通道
+     * @return 十六进制校验和
+     * @throws IOException ex
+     */
+    private static String crc32(FileChannel channel) throws IOException {
+        CRC32 crc32 = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHECKSUM_BUFFER_SIZE);
+        channel.position(0);
+        while (channel.read(buffer) > 0) {
+            buffer.flip();
+            crc32.update(buffer);
+            buffer.clear();
+        }
+        return String.format("%08x", crc32.getValue());
+    }
+
+    /**
+     * 写出任务元数据文件：先写临时文件再重命名, 元数据存在即表示该任务的全部分片均已落盘
+     *
+     * @param dir 目录
+     * @param fileName 任务文件名
+     * @param parts 分片元数据
+     * @throws IOException ex
+     */
+    public static void writeTaskMeta(File dir, String fileName, List<Configuration> parts) throws IOException {
+        Configuration meta = Configuration.newDefault();
+        meta.set(META_FILES, FileCommitManager.toMaps(parts));
+        FileCommitManager.writeAtomically(dir, FileCommitManager.metaFileName(fileName), meta.toJSON());
+    }
+
+    /**
+     * 提交作业：按任务元数据将暂存文件重命名为正式文件, 可选写出_SUCCESS清单, 最后删除元数据文件
+     *
+     * @param dir 目录
+     * @param taskFileNames 各任务文件名
+     * @param successFile 是否写出_SUCCESS清单
+     * @throws IOException ex
+     */
+    public static void commit(File dir, List<String> taskFileNames, boolean successFile) throws IOException {
+        //先读取全部元数据：任一任务未封存时不重命名任何文件
+        List<Configuration> parts = new ArrayList<>();
+        for (String taskFileName : taskFileNames) {
+            File metaFile = new File(dir, FileCommitManager.metaFileName(taskFileName));
+            if (!metaFile.isFile()) {
+                throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.Write_FILE_ERROR, String.format("任务文件[%s]的元数据[%s]不存在, 无法提交.", taskFileName, metaFile.getName()));
+            }
+            parts.addAll(Configuration.from(metaFile).getListConfiguration(META_FILES));
+        }
+
+        long rows = 0;
+        long bytes = 0;
+        //接收了重命名的目录：分区写出时为各分区目录及其上级目录
+        Set<File> renamedDirs = new LinkedHashSet<>();
+        for (Configuration part : parts) {
+            String fileName = part.getString(META_NAME);
+            Path staging = new File(dir, FileCommitManager.stagingFileName(fileName)).toPath();
+            Path target = new File(dir, fileName).toPath();
+            FileCommitManager.move(staging, target);
+            logger.info(String.format("提交文件: [%s] -> [%s]", staging.getFileName(), fileName));
+            //分区目录在写出时新建, 其目录项同样需要在上级目录落盘
+            File parent = target.toFile().getParentFile();
+            while (null != parent && !parent.equals(dir) && renamedDirs.add(parent)) {
+                parent = parent.getParentFile();
+            }
+            rows += part.getLong(META_ROWS, 0L);
+            bytes += part.getLong(META_BYTES, 0L);
+        }
+        //重命名属于目录元数据, 写出_SUCCESS前对每个接收了重命名的目录落盘
+        for (File renamedDir : renamedDirs) {
+            FileCommitManager.syncDirectory(renamedDir);
+        }
+        FileCommitManager.syncDirectory(dir);
+
+        if (successFile) {
+            Configuration manifest = Configuration.newDefault();
+            manifest.set(META_ROWS, rows);
+            manifest.set(META_BYTES, bytes);
+            manifest.set(META_FILES, FileCommitManager.toMaps(parts));
+            FileCommitManager.writeAtomically(dir, Constant.SUCCESS_FILE_NAME, manifest.toJSON());
+            logger.info(String.format("写出清单: [%s], 文件数[%s], 行数[%s], 字节数[%s]", Constant.SUCCESS_FILE_NAME, parts.size(), rows, bytes));
+        }
+
+        for (String taskFileName : taskFileNames) {
+            Files.deleteIfExists(new File(dir, FileCommitManager.metaFileName(taskFileName)).toPath());
+        }
+    }
+
+    /**
+     * 清理残留的暂存文件与元数据文件：来自此前失败或被终止的作业
+     *
+     * @param dir 目录
+     * @param fileName 文件名前缀
+     * @throws IOException ex
+     */
+    public static void cleanStaging(File dir, String fileName) throws IOException {
+        String prefix = Constant.HIDDEN_FILE_PREFIX + fileName;
+        List<String> staleFiles = new ArrayList<>(PrefixFileScanner.delete(dir.toPath(), prefix, Constant.STAGING_FILE_SUFFIX));
+        staleFiles.addAll(PrefixFileScanner.delete(dir.toPath(), prefix, Constant.META_FILE_SUFFIX));
+        for (String staleFile : staleFiles) {
+            logger.info(String.format("删除残留的暂存文件： [%s].", staleFile));
+        }
+    }
+
+    /**
+     * 原子重命名, 文件系统不支持时退化为普通重命名
+     *
+     * @param source 源文件
+     * @param target 目标文件
+     * @throws IOException ex
+     */
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            logger.warn(String.format("文件系统不支持原子重命名, 将使用普通重命名: [%s]", target));
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 写出小文件：写入并落盘临时文件后重命名, 读取方不会看到不完整的内容
+     *
+     * @param dir 目录
+     * @param fileName 文件名
+     * @param content 内容
+     * @throws IOException ex
+     */
+    static void writeAtomically(File dir, String fileName, String content) throws IOException {
+        File stagingFile = new File(dir, FileCommitManager.stagingFileName(fileName));
+        try (FileChannel channel = FileChannel.open(stagingFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        FileCommitManager.move(stagingFile.toPath(), new File(dir, fileName).toPath());
+        FileCommitManager.syncDirectory(dir);
+    }
+
+    /**
+     * 目录落盘：部分平台（如Windows）不支持打开目录, 忽略即可
+     *
+     * @param dir 目录
+     */
+    private static void syncDirectory(File dir) {
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.debug(String.format("目录[%s]落盘失败: %s", dir, e.getMessage()));
+        }
+    }
+
+    /**
+     * 分片元数据转换为可序列化的Map列表
+     *
+     * @param parts 分片元数据
+     * @return Map列表
+     */
+    private static List<Object> toMaps(List<Configuration> parts) {
+        List<Object> maps = new ArrayList<>(parts.size());
+        for (Configuration part : parts) {
+            maps.add(part.getInternal());
+        }
+        return maps;
+    }
+}
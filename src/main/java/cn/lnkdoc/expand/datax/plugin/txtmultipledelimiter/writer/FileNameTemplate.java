@@ -0,0 +1,121 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.exception.DataXException;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 文件名模板：如${fileName}_${jobId}_${taskId}_${part}${suffix}, 任务序号与分片序号按4位补零, 文件名可按字典序排序
+ * <span>拆分时解析除${part}之外的变量, 任务写入每个分片时再解析${part}</span>
+ *
+ * @author langkye
+ */
+public class FileNameTemplate {
+    /**变量：文件名前缀*/
+    public static final String VAR_FILE_NAME = "${fileName}";
+    /**变量：作业标识*/
+    public static final String VAR_JOB_ID = "${jobId}";
+    /**变量：任务序号*/
+    public static final String VAR_TASK_ID = "${taskId}";
+    /**变量：分片序号*/
+    public static final String VAR_PART = "${part}";
+    /**变量：文件后缀*/
+    public static final String VAR_SUFFIX = "${suffix}";
+    /**支持的变量*/
+    private static final List<String> VARIABLES = Arrays.asList(VAR_FILE_NAME, VAR_JOB_ID, VAR_TASK_ID, VAR_PART, VAR_SUFFIX);
+    /**变量格式*/
+    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\$\\{[^}]*}");
+    /**作业标识不能包含的字符：路径分隔符、文件名通配符（按前缀清理、检查文件时会被当作模式）*/
+    private static final char[] JOB_ID_ILLEGAL_CHARS = {'/', '\\', '*', '?', '[', '{'};
+
+    /**
+     * 校验文件名模板
+     *
+     * @param template 文件名模板
+     * @param rolling 是否配置了文件滚动：需包含${part}
+     */
+    public static void validate(String template, boolean rolling) {
+        if (StringUtils.isBlank(template)) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, "您配置的fileNameTemplate不能为空.");
+        }
+        if (StringUtils.containsAny(template, '/', '\\')) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的fileNameTemplate [%s]错误, 不能包含路径分隔符.", template));
+        }
+        //truncate、nonConflict按fileName前缀清理、检查文件
+        if (!template.startsWith(VAR_FILE_NAME)) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的fileNameTemplate [%s]错误, 须以%s开头.", template, VAR_FILE_NAME));
+        }
+        Matcher matcher = VARIABLE_PATTERN.matcher(template);
+        while (matcher.find()) {
+            if (!VARIABLES.contains(matcher.group())) {
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的fileNameTemplate [%s]中的变量%s不支持, 支持%s.", template, matcher.group(), StringUtils.join(VARIABLES, ", ")));
+            }
+        }
+        if (rolling && !template.contains(VAR_PART)) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置了maxFileSize或maxFileRows, fileNameTemplate [%s]须包含%s.", template, VAR_PART));
+        }
+    }
+
+    /**
+     * 校验作业标识：作业标识写入文件名, 不能包含路径分隔符、".."及通配符
+     *
+     * @param jobId 作业标识
+     */
+    public static void validateJobId(String jobId) {
+        if (StringUtils.containsAny(jobId, JOB_ID_ILLEGAL_CHARS) || jobId.contains("..")) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的jobId [%s]错误, 不能包含路径分隔符、\"..\"及通配符[%s].", jobId, "*?[{"));
+        }
+    }
+
+    /**
+     * 解析任务文件名模板：保留${part}
+     *
+     * @param template 文件名模板
+     * @param fileName 文件名前缀
+     * @param jobId 作业标识
+     * @param taskId 任务序号
+     * @param suffix 文件后缀
+     * @return 任务文件名模板
+     */
+    public static String resolveTask(String template, String fileName, String jobId, int taskId, String suffix) {
+        return template.replace(VAR_FILE_NAME, fileName)
+                .replace(VAR_JOB_ID, jobId)
+                .replace(VAR_TASK_ID, String.format("%04d", taskId))
+                .replace(VAR_SUFFIX, suffix);
+    }
+
+    /**
+     * 解析分片文件名
+     *
+     * @param taskTemplate 任务文件名模板
+     * @param part 分片序号
+     * @return 分片文件名
+     */
+    public static String resolvePart(String taskTemplate, int part) {
+        return taskTemplate.replace(VAR_PART, String.format("%04d", part));
+    }
+
+    /**
+     * 各任务文件名共有的前缀：模板中第一个随任务、分片变化的变量之前的部分
+     *
+     * @param template 文件名模板
+     * @param fileName 文件名前缀
+     * @param jobId 作业标识
+     * @param suffix 文件后缀
+     * @return 前缀
+     */
+    public static String commonPrefix(String template, String fileName, String jobId, String suffix) {
+        int end = template.length();
+        for (String variable : new String[]{VAR_TASK_ID, VAR_PART}) {
+            int index = template.indexOf(variable);
+            if (index >= 0) {
+                end = Math.min(end, index);
+            }
+        }
+        return FileNameTemplate.resolveTask(template.substring(0, end), fileName, jobId, 0, suffix);
+    }
+}
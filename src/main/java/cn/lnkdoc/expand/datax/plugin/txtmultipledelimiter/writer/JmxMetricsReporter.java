@@ -0,0 +1,71 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * JMX指标上报器：任务指标注册为MXBean, 实时可见, 任务销毁时注销
+ *
+ * @author langkye
+ */
+public class JmxMetricsReporter implements MetricsReporter {
+    private static final Logger logger = LoggerFactory.getLogger(JmxMetricsReporter.class);
+
+    /**MBean服务*/
+    private final MBeanServer mBeanServer;
+    /**注册名称, 注册失败时为null*/
+    private ObjectName objectName;
+
+    /**
+     * 注册任务指标
+     *
+     * @param metrics 指标
+     * @param taskGroupId 任务组ID
+     * @param taskId 任务ID
+     */
+    public JmxMetricsReporter(WriterMetrics metrics, int taskGroupId, int taskId) {
+        this.mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(String.format("cn.lnkdoc.expand.datax:type=TxtFileMultiDelimiterWriter,taskGroup=%d,task=%d", taskGroupId, taskId));
+            //同一进程内重复运行的任务：替换旧的注册
+            if (this.mBeanServer.isRegistered(name)) {
+                this.mBeanServer.unregisterMBean(name);
+            }
+            this.mBeanServer.registerMBean(metrics, name);
+            this.objectName = name;
+        } catch (JMException e) {
+            logger.warn(String.format("注册JMX指标失败: [%s]", e.getMessage()), e);
+        }
+    }
+
+    /**
+     * 指标实时可见, 无需上报
+     *
+     * @param metrics 指标
+     * @param finished 任务是否已结束
+     */
+    @Override
+    public void report(WriterMetrics metrics, boolean finished) {
+    }
+
+    /**
+     * 注销任务指标
+     */
+    @Override
+    public void close() {
+        if (null == this.objectName) {
+            return;
+        }
+        try {
+            this.mBeanServer.unregisterMBean(this.objectName);
+        } catch (JMException e) {
+            logger.warn(String.format("注销JMX指标失败: [%s]", e.getMessage()), e);
+        }
+        this.objectName = null;
+    }
+}
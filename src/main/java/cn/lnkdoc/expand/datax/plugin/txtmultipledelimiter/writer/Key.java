@@ -18,18 +18,96 @@ public class Key {
     public static final String ENCODING = "encoding";
     /**压缩：必要参数[非],默认值[不压缩]*/
     public static final String COMPRESS = "compress";
+    /**压缩级别，取值范围由压缩格式决定：必要参数[非],默认值[压缩格式的默认级别]*/
+    public static final String COMPRESS_LEVEL = "compressLevel";
+    /**压缩格式内部的压缩线程数（仅zstd支持）：必要参数[非],默认值[0]*/
+    public static final String COMPRESS_WORKERS = "compressWorkers";
+    /**压缩线程数，大于1时启用并行块压缩：必要参数[非],默认值[1]*/
+    public static final String COMPRESS_THREADS = "compressThreads";
+    /**并行压缩的块大小（KB）：必要参数[非],默认值[1024]*/
+    public static final String COMPRESS_BLOCK_SIZE = "compressBlockSize";
     /**空格式：必要参数[非],默认值[无]*/
     public static final String NULL_FORMAT = "nullFormat";
     /**日期格式·旧的：必要参数[非],默认值[无]；该参数仅仅为了兼容旧的参数，请尽量避免使用它，而使用[DATE_FORMAT]*/
     public static final String FORMAT = "format";
     /**日期格式：必要参数[非],默认值[无]*/
     public static final String DATE_FORMAT = "dateFormat";
-    /**文件格式（类型）：必要参数[非],默认值[无],可选值[csv｜txt]（其他将不支持的类型将抛异常）*/
+    /**字节列输出格式，可选值[hex|base64|raw]，仅txt/csv格式：必要参数[非],默认值[无，按DataX默认方式转为字符串]*/
+    public static final String BYTES_FORMAT = "bytesFormat";
+    /**转义符（单个字符），仅text格式：字段中的转义符、分隔符前加转义符，换行符写为转义符+n、转义符+r：必要参数[非],默认值[无，不转义]*/
+    public static final String ESCAPE_CHAR = "escapeChar";
+    /**换行符的替换串，仅text格式：字段中的换行符（\r\n视为一个）写为替换串：必要参数[非],默认值[无]*/
+    public static final String LINE_BREAK_REPLACEMENT = "lineBreakReplacement";
+    /**文件格式（类型）：必要参数[非],默认值[无],可选值[csv｜txt｜parquet｜orc]（其他将不支持的类型将抛异常）*/
     public static final String FILE_FORMAT = "fileFormat";
+    /**列定义[{name,type}]，txt/csv格式时可配置每列的格式项：必要参数[parquet/orc格式时是],默认值[无]*/
+    public static final String COLUMN = "column";
+    /**列定义·列名*/
+    public static final String COLUMN_NAME = "name";
+    /**列定义·列类型*/
+    public static final String COLUMN_TYPE = "type";
+    /**列定义·空值输出，仅txt/csv格式：必要参数[非],默认值[nullFormat]*/
+    public static final String COLUMN_NULL_FORMAT = "nullFormat";
+    /**列定义·日期格式，仅txt/csv格式：必要参数[非],默认值[dateFormat]*/
+    public static final String COLUMN_DATE_FORMAT = "dateFormat";
+    /**列定义·小数位数（四舍五入），仅txt/csv格式：必要参数[非],默认值[无，原样输出]*/
+    public static final String COLUMN_SCALE = "scale";
+    /**列定义·布尔真值输出，仅txt/csv格式：必要参数[非],默认值[true]*/
+    public static final String COLUMN_TRUE_VALUE = "trueValue";
+    /**列定义·布尔假值输出，仅txt/csv格式：必要参数[非],默认值[false]*/
+    public static final String COLUMN_FALSE_VALUE = "falseValue";
+    /**列定义·字节列输出格式，仅txt/csv格式：必要参数[非],默认值[bytesFormat]*/
+    public static final String COLUMN_BYTES_FORMAT = "bytesFormat";
+    /**parquet行组/orc条带大小（MB）：必要参数[非],默认值[64]*/
+    public static final String ROW_GROUP_SIZE = "rowGroupSize";
+    /**parquet/orc是否启用字典编码：必要参数[非],默认值[true]*/
+    public static final String DICTIONARY_ENCODING = "dictionaryEncoding";
     /**是否跳过首行：必要参数[非],默认值[无]*/
     public static final String HEADER = "header";
-    /**最大处理文件数量：必要参数[非],默认值[无]*/
+    /**单个文件最大大小（MB），超过后滚动到下一个文件：必要参数[非],默认值[无]*/
     public static final String MAX_FILE_SIZE = "maxFileSize";
-    /**写入的文件类型(如：.txt|.cav)：必要参数[非],默认值[无]*/
+    /**单个文件最大行数，超过后滚动到下一个文件：必要参数[非],默认值[无]*/
+    public static final String MAX_FILE_ROWS = "maxFileRows";
+    /**序列化线程数，大于1时单个文件内并行序列化（及压缩），按原顺序写出：必要参数[非],默认值[1]*/
+    public static final String SERIALIZE_THREADS = "serializeThreads";
+    /**每批处理的记录数（单线程批量写出、并行序列化）：必要参数[非],默认值[4096]*/
+    public static final String SERIALIZE_BATCH_SIZE = "serializeBatchSize";
+    /**是否启用异步写出（独立IO线程压缩、写盘）：必要参数[非],默认值[false]*/
+    public static final String ASYNC_WRITE = "asyncWrite";
+    /**异步写出的缓冲数量（队列上限）：必要参数[非],默认值[4]*/
+    public static final String ASYNC_QUEUE_SIZE = "asyncQueueSize";
+    /**文件输出方式，可选值[channel|mmap]：必要参数[非],默认值[channel]*/
+    public static final String OUTPUT_MODE = "outputMode";
+    /**输出缓冲大小（KB）：必要参数[非],默认值[256]*/
+    public static final String BUFFER_SIZE = "bufferSize";
+    /**直接内存缓冲池上限（MB），同一JVM内的任务共享，0表示不使用缓冲池：必要参数[非],默认值[0]*/
+    public static final String BUFFER_POOL_SIZE = "bufferPoolSize";
+    /**内存映射窗口大小（MB），仅outputMode为mmap时有效：必要参数[非],默认值[64]*/
+    public static final String MMAP_WINDOW_SIZE = "mmapWindowSize";
+    /**指标上报器，多个以逗号分隔，可选值[log|jmx|prometheus]，为空表示不上报：必要参数[非],默认值[log]*/
+    public static final String METRICS_REPORTER = "metricsReporter";
+    /**指标周期上报间隔（秒），0表示仅在任务结束时上报：必要参数[非],默认值[60]*/
+    public static final String METRICS_INTERVAL = "metricsInterval";
+    /**是否统计耗时，关闭后不再按批次、缓冲写出计时（记录数、字节数照常统计）：必要参数[非],默认值[true]*/
+    public static final String METRICS_TIMING = "metricsTiming";
+    /**prometheus指标文件目录：必要参数[metricsReporter包含prometheus时是],默认值[无]*/
+    public static final String METRICS_PATH = "metricsPath";
+    /**是否原子提交：任务写入隐藏的暂存文件, 作业成功后统一重命名为正式文件：必要参数[非],默认值[false]*/
+    public static final String ATOMIC_COMMIT = "atomicCommit";
+    /**原子提交时是否写出_SUCCESS清单（含各文件行数、字节数、CRC32校验和）：必要参数[非],默认值[false]*/
+    public static final String SUCCESS_FILE = "successFile";
+    /**检查点间隔（秒），仅writeMode为resume时有效：必要参数[非],默认值[60]*/
+    public static final String CHECKPOINT_INTERVAL = "checkpointInterval";
+    /**文件名模板，支持${fileName}、${jobId}、${taskId}、${part}、${suffix}：必要参数[非],默认值[无，沿用fileName、fileName__uuid、fileName__partNNNN命名]*/
+    public static final String FILE_NAME_TEMPLATE = "fileNameTemplate";
+    /**作业标识，用于文件名模板中的${jobId}：必要参数[非],默认值[作业拆分时间yyyyMMddHHmmss]*/
+    public static final String JOB_ID = "jobId";
+    /**分区列序号，如[3,0]：必要参数[非],默认值[无，不分区]*/
+    public static final String PARTITION_BY = "partitionBy";
+    /**分区路径模板，如dt=${col3}/tenant=${col0}：必要参数[非],默认值[col3=${col3}/col0=${col0}]*/
+    public static final String PARTITION_PATH = "partitionPath";
+    /**分区写出时每个任务最多同时打开的文件数：必要参数[非],默认值[64]*/
+    public static final String MAX_OPEN_FILES = "maxOpenFiles";
+    /**写入的文件类型(如：.txt|.cav)，追加在文件名末尾：必要参数[非],默认值[无]*/
     public static final String SUFFIX = "suffix";
 }
@@ -0,0 +1,48 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * 日志指标上报器
+ *
+ * @author langkye
+ */
+public class LogMetricsReporter implements MetricsReporter {
+    private static final Logger logger = LoggerFactory.getLogger(LogMetricsReporter.class);
+    private static final double NANOS_PER_SECOND = 1000000000D;
+    private static final double BYTES_PER_MB = 1024D * 1024D;
+
+    /**任务名称*/
+    private final String taskName;
+
+    /**
+     * 通过任务名称构建日志指标上报器
+     *
+     * @param taskName 任务名称
+     */
+    public LogMetricsReporter(String taskName) {
+        this.taskName = taskName;
+    }
+
+    /**
+     * 上报指标
+     *
+     * @param metrics 指标
+     * @param finished 任务是否已结束
+     */
+    @Override
+    public void report(WriterMetrics metrics, boolean finished) {
+        logger.info(String.format("###[%s]写出指标%s: 记录[%d](脏数据[%d]), 文件[%d], 速率[%.0f行/秒, %.2fMB/秒], "
+                        + "压缩前[%.2fMB], 写出[%.2fMB], 压缩比[%.2f], 耗时[读取%.2fs, 序列化%.2fs, 写出%.2fs, 写盘%.2fs, 总计%.2fs], "
+                        + "缓冲写出耗时[p50<=%.6fs, p99<=%.6fs]",
+                this.taskName, finished ? "(结束)" : "",
+                metrics.getRecords(), metrics.getDirtyRecords(), metrics.getFiles(),
+                metrics.getRecordsPerSecond(), metrics.getWrittenBytesPerSecond() / BYTES_PER_MB,
+                metrics.getRawBytes() / BYTES_PER_MB, metrics.getWrittenBytes() / BYTES_PER_MB, metrics.getCompressionRatio(),
+                metrics.getReadNanos() / NANOS_PER_SECOND, metrics.getSerializeNanos() / NANOS_PER_SECOND,
+                metrics.getWriteNanos() / NANOS_PER_SECOND, metrics.getDiskNanos() / NANOS_PER_SECOND,
+                metrics.getElapsedNanos() / NANOS_PER_SECOND,
+                metrics.flushLatencyQuantileSeconds(0.5D), metrics.flushLatencyQuantileSeconds(0.99D)));
+    }
+}
@@ -0,0 +1,274 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.function.Consumer;
+
+/**
+ * 内存映射文件输出流：以滑动的MappedByteBuffer窗口追加写入, 文件按窗口大小成块增长, 关闭时截断到实际长度
+ * <span>ByteSinkWriter直接编码到映射窗口; 其他写入方（压缩流、异步IO线程）通过write复制到窗口</span>
+ *
+ * @author langkye
+ */
+public class MappedFileOutputStream extends OutputStream implements ByteBufferSink {
+    private static final Logger logger = LoggerFactory.getLogger(MappedFileOutputStream.class);
+    /**解除映射：JDK未提供公开API, 尽力而为, 不可用时等待GC回收*/
+    private static final Consumer<ByteBuffer> UNMAPPER = unmapper();
+
+    /**文件通道：需以读写方式打开*/
+    private final FileChannel channel;
+    /**映射窗口大小*/
+    private final int windowSize;
+    /**任务指标, 可为null*/
+    private final WriterMetrics metrics;
+    /**当前窗口在文件中的起始位置*/
+    private volatile long windowStart = 0;
+    /**当前窗口*/
+    private volatile MappedByteBuffer window;
+    /**是否已关闭*/
+    private boolean closed = false;
+
+    /**
+     * 通过文件通道、窗口大小构建内存映射文件输出流
+     *
+     * @param channel 以读写方式打开的文件通道, 关闭时一并关闭
+     * @param windowSize 映射窗口大小
+     * @param metrics 任务指标：统计写入映射的字节数与映射耗时, 为null时不统计
+     * @throws IOException ex
+     */
+    public MappedFileOutputStream(FileChannel channel, int windowSize, WriterMetrics metrics) throws IOException {
+        this(channel, windowSize, metrics, 0L);
+    }
+
+    /**
+     * 通过文件通道、窗口大小构建内存映射文件输出流, 从指定位置续写
+     *
+     * @param channel 以读写方式打开的文件通道, 关闭时一并关闭
+     * @param windowSize 映射窗口大小
+     * @param metrics 任务指标：统计写入映射的字节数与映射耗时, 为null时不统计
+     * @param position 续写位置：其后的原有内容被清除
+     * @throws IOException ex
+     */
+    public MappedFileOutputStream(FileChannel channel, int windowSize, WriterMetrics metrics, long position) throws IOException {
+        this.channel = channel;
+        this.windowSize = windowSize;
+        this.metrics = metrics;
+        try {
+            //清除同名文件续写位置之后的原有内容
+            this.channel.truncate(position);
+            this.windowStart = position;
+            this.window = this.map(position);
+        } catch (IOException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * 映射一个窗口：文件随之增长到窗口末尾
+     *
+     * @param position 窗口起始位置
+     * @return 映射窗口
+     * @throws IOException ex
+     */
+    private MappedByteBuffer map(long position) throws IOException {
+        return this.channel.map(FileChannel.MapMode.READ_WRITE, position, this.windowSize);
+    }
+
+    /**
+     * 获取当前窗口
+     *
+     * @return 当前窗口
+     * @throws IOException ex
+     */
+    @Override
+    public ByteBuffer acquire() throws IOException {
+        this.ensureOpen();
+        return this.window;
+    }
+
+    /**
+     * 滑动到下一个窗口：新窗口从已写入的位置开始
+     *
+     * @param filled 当前窗口
+     * @return 新窗口
+     * @throws IOException ex
+     */
+    @Override
+    public ByteBuffer swap(ByteBuffer filled) throws IOException {
+        this.ensureOpen();
+        long start = null == this.metrics ? 0L : this.metrics.nanoTime();
+        MappedByteBuffer current = this.window;
+        int bytes = current.position();
+        long next = this.windowStart + bytes;
+        this.window = this.map(next);
+        this.windowStart = next;
+        UNMAPPER.accept(current);
+        if (null != this.metrics) {
+            this.metrics.recordDiskWrite(bytes, this.metrics.nanoTime() - start);
+        }
+        return this.window;
+    }
+
+    /**
+     * 写入映射窗口即写入文件
+     *
+     * @return true
+     */
+    @Override
+    public boolean isInPlace() {
+        return true;
+    }
+
+    /**
+     * 已写入的字节数
+     *
+     * @return 字节数
+     */
+    public long getBytesWritten() {
+        return this.windowStart + this.window.position();
+    }
+
+    /**
+     * 落盘：FileChannel.force不保证写出映射缓冲中的修改, 先写出当前窗口, 已解除映射的窗口由通道落盘
+     *
+     * @throws IOException ex
+     */
+    public void force() throws IOException {
+        this.ensureOpen();
+        this.window.force();
+        this.channel.force(false);
+    }
+
+    /**
+     * 写入单个字节
+     *
+     * @param b 字节
+     * @throws IOException ex
+     */
+    @Override
+    public void write(int b) throws IOException {
+        this.ensureOpen();
+        if (!this.window.hasRemaining()) {
+            this.swap(this.window);
+        }
+        this.window.put((byte) b);
+    }
+
+    /**
+     * 写入字节数组
+     *
+     * @param b 字节数组
+     * @param off 起始位置
+     * @param len 长度
+     * @throws IOException ex
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        this.ensureOpen();
+        while (len > 0) {
+            if (!this.window.hasRemaining()) {
+                this.swap(this.window);
+            }
+            int count = Math.min(len, this.window.remaining());
+            this.window.put(b, off, count);
+            off += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * 关闭：解除映射并截断到实际长度
+     *
+     * @throws IOException ex
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            int bytes = this.window.position();
+            long length = this.windowStart + bytes;
+            UNMAPPER.accept(this.window);
+            this.channel.truncate(length);
+            if (null != this.metrics) {
+                this.metrics.recordDiskWrite(bytes, 0L);
+            }
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * 校验输出流是否已关闭
+     *
+     * @throws IOException ex
+     */
+    private void ensureOpen() throws IOException {
+        if (this.closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    /**
+     * 解析解除映射的方式：JDK9+使用Unsafe.invokeCleaner, JDK8使用DirectByteBuffer.cleaner()
+     *
+     * @return 解除映射操作
+     */
+    private static Consumer<ByteBuffer> unmapper() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            return buffer -> invokeQuietly(invokeCleaner, unsafe, buffer);
+        } catch (NoSuchMethodException e) {
+            try {
+                Method cleanerMethod = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+                Method cleanMethod = Class.forName("sun.misc.Cleaner").getMethod("clean");
+                return buffer -> {
+                    try {
+                        Object cleaner = cleanerMethod.invoke(buffer);
+                        if (null != cleaner) {
+                            cleanMethod.invoke(cleaner);
+                        }
+                    } catch (Exception ex) {
+                        logger.debug("解除内存映射失败, 等待GC回收", ex);
+                    }
+                };
+            } catch (Exception ex) {
+                logger.debug("不支持解除内存映射, 等待GC回收", ex);
+            }
+        } catch (Exception e) {
+            logger.debug("不支持解除内存映射, 等待GC回收", e);
+        }
+        return buffer -> {
+        };
+    }
+
+    /**
+     * 调用解除映射方法：失败时等待GC回收
+     *
+     * @param method 方法
+     * @param target 对象
+     * @param buffer 映射缓冲
+     */
+    private static void invokeQuietly(Method method, Object target, ByteBuffer buffer) {
+        try {
+            method.invoke(target, buffer);
+        } catch (Exception e) {
+            logger.debug("解除内存映射失败, 等待GC回收", e);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import org.apache.commons.io.output.CloseShieldOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 分段压缩输出流：可在任意时刻结束当前压缩段（gzip member、zstd frame等）, 后续数据写入新的压缩段
+ * <span>仅用于可串联的压缩格式, 结束压缩段后目标流的位置即为可截断、可续写的检查点</span>
+ *
+ * @author langkye
+ */
+public class MemberCompressorOutputStream extends OutputStream {
+    /**压缩编解码器*/
+    private final CompressCodec codec;
+    /**压缩级别*/
+    private final int level;
+    /**编解码器内部线程数*/
+    private final int workers;
+    /**目标流*/
+    private final OutputStream target;
+    /**当前压缩段, 未写入数据时为null*/
+    private OutputStream member;
+    /**是否已写出过压缩段*/
+    private boolean anyMember = false;
+    /**是否已关闭*/
+    private boolean closed = false;
+
+    /**
+     * 通过目标流、编解码器构建分段压缩输出流
+     *
+     * @param target 目标流, 关闭时一并关闭
+     * @param codec 压缩编解码器, 须可串联
+     * @param level 压缩级别
+     * @param workers 编解码器内部线程数
+     */
+    public MemberCompressorOutputStream(OutputStream target, CompressCodec codec, int level, int workers) {
+        this.target = target;
+        this.codec = codec;
+        this.level = level;
+        this.workers = workers;
+    }
+
+    /**
+     * 获取当前压缩段：首次写入时创建
+     *
+     * @return 当前压缩段
+     * @throws IOException ex
+     */
+    private OutputStream member() throws IOException {
+        if (this.closed) {
+            throw new IOException("Stream closed");
+        }
+        if (null == this.member) {
+            //屏蔽关闭：结束压缩段时不关闭目标流, 屏蔽流关闭后不可再用, 每个压缩段单独创建
+            this.member = this.codec.createOutputStream(CloseShieldOutputStream.wrap(this.target), this.level, this.workers);
+            this.anyMember = true;
+        }
+        return this.member;
+    }
+
+    /**
+     * 结束当前压缩段：写出段尾, 目标流中的数据可独立解压
+     *
+     * @throws IOException ex
+     */
+    public void finishMember() throws IOException {
+        if (null != this.member) {
+            OutputStream current = this.member;
+            this.member = null;
+            current.close();
+        }
+        this.target.flush();
+    }
+
+    /**
+     * 写入单个字节
+     *
+     * @param b 字节
+     * @throws IOException ex
+     */
+    @Override
+    public void write(int b) throws IOException {
+        this.member().write(b);
+    }
+
+    /**
+     * 写入字节数组
+     *
+     * @param b 字节数组
+     * @param off 起始位置
+     * @param len 长度
+     * @throws IOException ex
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        this.member().write(b, off, len);
+    }
+
+    /**
+     * flush：不结束当前压缩段
+     *
+     * @throws IOException ex
+     */
+    @Override
+    public void flush() throws IOException {
+        if (null != this.member) {
+            this.member.flush();
+        }
+        this.target.flush();
+    }
+
+    /**
+     * 关闭：结束当前压缩段并关闭目标流, 未写入任何数据时写出一个空压缩段, 保证文件可解压
+     *
+     * @throws IOException ex
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        try {
+            if (!this.anyMember) {
+                this.member();
+            }
+            this.finishMember();
+        } finally {
+            this.closed = true;
+            this.target.close();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 计量输出流：统计写入目标流的字节数与耗时, 用于压缩流与文件流之间
+ * <span>逐字节写出的压缩格式（如bzip2）须在其上加一层缓冲, 使计量与写盘按缓冲整块进行</span>
+ *
+ * @author langkye
+ */
+public class MeteredOutputStream extends FilterOutputStream {
+    /**任务指标*/
+    private final WriterMetrics metrics;
+
+    /**
+     * 通过目标输出流、任务指标构建计量输出流
+     *
+     * @param out 目标输出流, 关闭时一并关闭
+     * @param metrics 任务指标
+     */
+    public MeteredOutputStream(OutputStream out, WriterMetrics metrics) {
+        super(out);
+        this.metrics = metrics;
+    }
+
+    /**
+     * 写入单个字节
+     *
+     * @param b 字节
+     * @throws IOException ex
+     */
+    @Override
+    public void write(int b) throws IOException {
+        long start = this.metrics.nanoTime();
+        this.out.write(b);
+        this.metrics.recordDiskWrite(1, this.metrics.nanoTime() - start);
+    }
+
+    /**
+     * 写入字节数组：整段写入目标流, 不逐字节转发
+     *
+     * @param b 字节数组
+     * @param off 起始位置
+     * @param len 长度
+     * @throws IOException ex
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        long start = this.metrics.nanoTime();
+        this.out.write(b, off, len);
+        this.metrics.recordDiskWrite(len, this.metrics.nanoTime() - start);
+    }
+}
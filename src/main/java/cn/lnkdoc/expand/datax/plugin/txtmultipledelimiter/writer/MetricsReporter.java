@@ -0,0 +1,22 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+/**
+ * 写任务指标上报器：周期性及任务结束时被调用
+ *
+ * @author langkye
+ */
+public interface MetricsReporter {
+    /**
+     * 上报指标：可能在上报线程中调用
+     *
+     * @param metrics 指标
+     * @param finished 任务是否已结束
+     */
+    void report(WriterMetrics metrics, boolean finished);
+
+    /**
+     * 释放资源：任务销毁时调用
+     */
+    default void close() {
+    }
+}
@@ -0,0 +1,156 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.util.Configuration;
+import com.google.common.collect.Sets;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 指标上报器管理：按配置创建上报器、周期上报
+ *
+ * @author langkye
+ */
+public class MetricsReporterManager {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsReporterManager.class);
+
+    /**日志上报*/
+    public static final String LOG = "log";
+    /**JMX上报*/
+    public static final String JMX = "jmx";
+    /**Prometheus文本文件上报*/
+    public static final String PROMETHEUS = "prometheus";
+
+    /**
+     * 校验指标上报参数
+     *
+     * @param writerConfiguration 配置信息
+     */
+    public static void validateParameter(Configuration writerConfiguration) {
+        Set<String> reporters = parseReporters(writerConfiguration);
+        Set<String> supportedReporters = Sets.newHashSet(LOG, JMX, PROMETHEUS);
+        for (String reporter : reporters) {
+            if (!supportedReporters.contains(reporter)) {
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("仅支持 log, jmx, prometheus 三种指标上报器, 不支持您配置的 metricsReporter : [%s]", reporter));
+            }
+        }
+        if (reporters.contains(PROMETHEUS)) {
+            String metricsPath = writerConfiguration.getNecessaryValue(Key.METRICS_PATH, UnstructuredStorageWriterErrorCode.REQUIRED_VALUE);
+            File dir = new File(metricsPath);
+            if (!dir.isDirectory() && !dir.mkdirs()) {
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的metricsPath [%s]不是目录且无法创建.", metricsPath));
+            }
+        }
+        Integer metricsInterval = writerConfiguration.getInt(Key.METRICS_INTERVAL);
+        if (null != metricsInterval && metricsInterval < 0) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的metricsInterval [%s]错误, 不能为负数.", metricsInterval));
+        }
+    }
+
+    /**
+     * 按配置创建指标上报器
+     *
+     * @param config 配置信息
+     * @param metrics 任务指标
+     * @param taskGroupId 任务组ID
+     * @param taskId 任务ID
+     * @return 指标上报器
+     */
+    public static List<MetricsReporter> produceMetricsReporters(Configuration config, WriterMetrics metrics, int taskGroupId, int taskId) {
+        List<MetricsReporter> metricsReporters = new ArrayList<>();
+        for (String reporter : parseReporters(config)) {
+            switch (reporter) {
+                case LOG:
+                    metricsReporters.add(new LogMetricsReporter(String.format("%d-%d", taskGroupId, taskId)));
+                    break;
+                case JMX:
+                    metricsReporters.add(new JmxMetricsReporter(metrics, taskGroupId, taskId));
+                    break;
+                case PROMETHEUS:
+                    metricsReporters.add(new PrometheusFileMetricsReporter(config.getString(Key.METRICS_PATH), taskGroupId, taskId));
+                    break;
+                default:
+                    throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("不支持的指标上报器 : [%s]", reporter));
+            }
+        }
+        return metricsReporters;
+    }
+
+    /**
+     * 启动周期上报
+     *
+     * @param config 配置信息
+     * @param metricsReporters 指标上报器
+     * @param metrics 任务指标
+     * @param threadName 上报线程名称
+     * @return 上报调度器, 无需周期上报时为null
+     */
+    public static ScheduledExecutorService schedule(Configuration config, List<MetricsReporter> metricsReporters, WriterMetrics metrics, String threadName) {
+        int interval = config.getInt(Key.METRICS_INTERVAL, Constant.DEFAULT_METRICS_INTERVAL);
+        if (interval <= 0 || metricsReporters.isEmpty()) {
+            return null;
+        }
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> report(metricsReporters, metrics, false), interval, interval, TimeUnit.SECONDS);
+        return scheduler;
+    }
+
+    /**
+     * 上报指标：单个上报器失败不影响写任务
+     *
+     * @param metricsReporters 指标上报器
+     * @param metrics 任务指标
+     * @param finished 任务是否已结束
+     */
+    public static void report(List<MetricsReporter> metricsReporters, WriterMetrics metrics, boolean finished) {
+        for (MetricsReporter metricsReporter : metricsReporters) {
+            try {
+                metricsReporter.report(metrics, finished);
+            } catch (Exception e) {
+                logger.warn(String.format("指标上报失败 : [%s]", metricsReporter.getClass().getSimpleName()), e);
+            }
+        }
+    }
+
+    /**
+     * 关闭指标上报器
+     *
+     * @param metricsReporters 指标上报器
+     */
+    public static void close(List<MetricsReporter> metricsReporters) {
+        for (MetricsReporter metricsReporter : metricsReporters) {
+            metricsReporter.close();
+        }
+    }
+
+    /**
+     * 解析指标上报器配置
+     *
+     * @param config 配置信息
+     * @return 上报器名称（小写）
+     */
+    private static Set<String> parseReporters(Configuration config) {
+        String reporters = config.getString(Key.METRICS_REPORTER, Constant.DEFAULT_METRICS_REPORTER);
+        Set<String> names = Sets.newLinkedHashSet();
+        for (String name : StringUtils.split(StringUtils.defaultString(reporters), ',')) {
+            if (StringUtils.isNotBlank(name)) {
+                names.add(name.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        return names;
+    }
+}
@@ -0,0 +1,209 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 并行块压缩输出流（类似pigz）：将数据切分为独立的块，由线程池并行压缩，按原顺序写出
+ * <span>输出为多个独立压缩流的串联（如gzip member、bzip2流、zstd frame）, 仅用于{@link CompressCodec#isConcatenable()}的压缩格式</span>
+ *
+ * @author langkye
+ */
+public class ParallelCompressorOutputStream extends OutputStream {
+    /**线程编号*/
+    private static final AtomicInteger THREAD_SEQ = new AtomicInteger();
+
+    /**目标输出流*/
+    private final OutputStream target;
+    /**压缩编解码器*/
+    private final CompressCodec codec;
+    /**压缩级别*/
+    private final int level;
+    /**块大小*/
+    private final int blockSize;
+    /**最多同时在压缩中的块数量*/
+    private final int maxInFlight;
+    /**压缩线程池*/
+    private final ExecutorService executor;
+    /**按提交顺序排列的压缩结果*/
+    private final Deque<Future<byte[]>> inFlight = new ArrayDeque<>();
+    /**回收的块缓冲*/
+    private final Queue<byte[]> freeBlocks = new ConcurrentLinkedQueue<>();
+    /**当前块*/
+    private byte[] block;
+    /**当前块已写入长度*/
+    private int blockLength = 0;
+    /**是否写出过任何块*/
+    private boolean anyBlock = false;
+    /**是否已关闭*/
+    private boolean closed = false;
+
+    /**
+     * 通过目标输出流、压缩格式、线程数、块大小构建并行压缩输出流
+     *
+     * @param target 目标输出流, 关闭时一并关闭
+     * @param codec 压缩编解码器, 必须支持串联
+     * @param level 压缩级别
+     * @param threads 压缩线程数
+     * @param blockSize 块大小（字节）
+     */
+    public ParallelCompressorOutputStream(OutputStream target, CompressCodec codec, int level, int threads, int blockSize) {
+        this.target = target;
+        this.codec = codec;
+        this.level = level;
+        this.blockSize = blockSize;
+        this.maxInFlight = threads * 2;
+        this.block = new byte[blockSize];
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, String.format("txt-writer-compress-%d", THREAD_SEQ.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 写入单个字节
+     *
+     * @param b 字节
+     * @throws IOException ex
+     */
+    @Override
+    public void write(int b) throws IOException {
+        if (this.blockLength == this.blockSize) {
+            this.submitBlock();
+        }
+        this.block[this.blockLength++] = (byte) b;
+    }
+
+    /**
+     * 写入字节数组
+     *
+     * @param b 字节数组
+     * @param off 起始位置
+     * @param len 长度
+     * @throws IOException ex
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (this.blockLength == this.blockSize) {
+                this.submitBlock();
+            }
+            int count = Math.min(len, this.blockSize - this.blockLength);
+            System.arraycopy(b, off, this.block, this.blockLength, count);
+            this.blockLength += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    /**
+     * 提交当前块压缩，并在压缩中的块过多时按顺序写出最早的块
+     *
+     * @throws IOException ex
+     */
+    private void submitBlock() throws IOException {
+        final byte[] data = this.block;
+        final int length = this.blockLength;
+        this.inFlight.addLast(this.executor.submit(() -> {
+            try {
+                return this.compressBlock(data, length);
+            } finally {
+                this.freeBlocks.offer(data);
+            }
+        }));
+        this.anyBlock = true;
+        byte[] free = this.freeBlocks.poll();
+        this.block = null != free ? free : new byte[this.blockSize];
+        this.blockLength = 0;
+        while (this.inFlight.size() >= this.maxInFlight) {
+            this.writeHead();
+        }
+    }
+
+    /**
+     * 将一个块压缩为独立完整的压缩流
+     *
+     * @param data 数据
+     * @param length 长度
+     * @return 压缩后的字节
+     * @throws IOException ex
+     */
+    private byte[] compressBlock(byte[] data, int length) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(64, length / 4));
+        OutputStream compressorStream = this.codec.createOutputStream(compressed, this.level, 0);
+        compressorStream.write(data, 0, length);
+        compressorStream.close();
+        return compressed.toByteArray();
+    }
+
+    /**
+     * 等待最早提交的块压缩完成并写出
+     *
+     * @throws IOException ex
+     */
+    private void writeHead() throws IOException {
+        Future<byte[]> head = this.inFlight.pollFirst();
+        try {
+            this.target.write(head.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待块压缩时被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException("块压缩失败", cause);
+        }
+    }
+
+    /**
+     * flush：压缩当前不完整的块并写出全部已提交的块
+     *
+     * @throws IOException ex
+     */
+    @Override
+    public void flush() throws IOException {
+        if (this.blockLength > 0) {
+            this.submitBlock();
+        }
+        while (!this.inFlight.isEmpty()) {
+            this.writeHead();
+        }
+        this.target.flush();
+    }
+
+    /**
+     * close：写出剩余数据、停止线程池并关闭目标
+     *
+     * @throws IOException ex
+     */
+    @Override
+    public void close() throws IOException {
+        if (this.closed) {
+            return;
+        }
+        this.closed = true;
+        try {
+            //没有任何数据时仍输出一个空的压缩流，与单线程压缩保持一致
+            if (this.blockLength > 0 || !this.anyBlock) {
+                this.submitBlock();
+            }
+            while (!this.inFlight.isEmpty()) {
+                this.writeHead();
+            }
+        } finally {
+            this.executor.shutdownNow();
+            this.target.close();
+        }
+    }
+}
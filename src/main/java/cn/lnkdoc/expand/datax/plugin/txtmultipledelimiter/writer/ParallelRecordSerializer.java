@@ -0,0 +1,367 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.plugin.RecordReceiver;
+import com.alibaba.datax.common.plugin.TaskPluginCollector;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单文件并行序列化：任务线程按批读取记录交给序列化线程池, 每批独立序列化、编码（压缩格式可串联时一并压缩）为一个数据块,
+ * 任务线程按提交顺序写出数据块, 保持行顺序
+ * <span>表头作为第一个数据块; 脏数据由序列化线程收集, 在任务线程上按顺序上报; 仅支持无状态编码</span>
+ *
+ * @author langkye
+ */
+public class ParallelRecordSerializer {
+    /**线程编号*/
+    private static final AtomicInteger THREAD_SEQ = new AtomicInteger();
+    /**序列化线程的编码缓冲大小*/
+    private static final int CHUNK_BUFFER_SIZE = 64 * 1024;
+
+    /**写出规格*/
+    private final WriterSpec spec;
+    /**编码*/
+    private final Charset charset;
+    /**压缩编解码器：为null表示数据块不压缩*/
+    private final CompressCodec codec;
+    /**压缩级别*/
+    private final int level;
+    /**每批记录数*/
+    private final int batchSize;
+    /**最多同时在序列化中的批数量*/
+    private final int maxInFlight;
+    /**任务指标*/
+    private final WriterMetrics metrics;
+    /**列格式化器：无可变状态, 线程间共享*/
+    private final ColumnFormatter columnFormatter;
+    /**序列化线程池*/
+    private final ExecutorService executor;
+    /**序列化线程各自的写入器*/
+    private final ThreadLocal<ChunkWriter> chunkWriters;
+    /**按提交顺序排列的序列化结果*/
+    private final Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+    /**回收的批数组：仅任务线程访问*/
+    private final Deque<Record[]> freeBatches = new ArrayDeque<>();
+
+    /**
+     * 构建并行序列化器
+     *
+     * @param spec 写出规格：编码必须为无状态编码
+     * @param codec 压缩编解码器, 必须支持串联; 为null表示不压缩
+     * @param metrics 任务指标
+     */
+    public ParallelRecordSerializer(WriterSpec spec, CompressCodec codec, WriterMetrics metrics) {
+        int threads = spec.getSerializeThreads();
+        this.spec = spec;
+        this.charset = spec.getCharset();
+        this.codec = codec;
+        this.level = spec.getCompressLevel();
+        this.batchSize = spec.getSerializeBatchSize();
+        this.maxInFlight = threads * 2;
+        this.metrics = metrics;
+        this.columnFormatter = spec.getColumnFormatter();
+        this.chunkWriters = ThreadLocal.withInitial(this::newChunkWriter);
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, String.format("txt-writer-serialize-%d", THREAD_SEQ.incrementAndGet()));
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 编码是否支持分块并行编码：分块编码后直接拼接须与整体编码一致
+     *
+     * @param charset 编码
+     * @return 是否支持
+     */
+    public static boolean isSupported(Charset charset) {
+        //ASCII兼容的无状态编码：不输出BOM, 也不跨字符保留移位状态
+        return ByteSinkWriter.isAsciiCompatible(charset);
+    }
+
+    /**
+     * 读取全部记录并按顺序写出到输出流, 不关闭输出流
+     *
+     * @param lineReceiver 接收的行
+     * @param out 输出流
+     * @param taskPluginCollector 任务处理器
+     * @throws IOException ex
+     */
+    public void write(RecordReceiver lineReceiver, OutputStream out, TaskPluginCollector taskPluginCollector) throws IOException {
+        try {
+            boolean anyChunk = false;
+            //表头作为第一个数据块
+            List<String> headers = this.spec.getHeaders();
+            if (!headers.isEmpty()) {
+                this.inFlight.addLast(this.executor.submit(() -> this.serializeHeader(headers)));
+                anyChunk = true;
+            }
+
+            int count;
+            do {
+                Record[] batch = this.nextBatch();
+                long readStart = this.metrics.nanoTime();
+                count = UnstructuredStorageWriterUtil.drain(lineReceiver, batch);
+                this.metrics.recordRead(this.metrics.nanoTime() - readStart);
+                if (count > 0) {
+                    this.submit(batch, count, out, taskPluginCollector);
+                    anyChunk = true;
+                } else {
+                    this.freeBatches.addLast(batch);
+                }
+            } while (count == this.batchSize || this.continuePart(lineReceiver, out, taskPluginCollector));
+            while (!this.inFlight.isEmpty()) {
+                this.writeHead(out, taskPluginCollector);
+            }
+            //没有任何数据时仍输出一个空的压缩流，与单线程压缩保持一致
+            if (!anyChunk && null != this.codec) {
+                ByteArrayOutputStream empty = new ByteArrayOutputStream(64);
+                this.codec.createOutputStream(empty, this.level, 0).close();
+                out.write(empty.toByteArray());
+            }
+        } finally {
+            this.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 滚动接收器在当前文件达到行数阈值时返回null：此时序列化中的批尚未上报脏数据, 先全部写出再判断是否继续写入当前文件
+     *
+     * @param lineReceiver 接收的行
+     * @param out 输出流
+     * @param taskPluginCollector 任务处理器
+     * @return 是否继续写入当前文件
+     * @throws IOException ex
+     */
+    private boolean continuePart(RecordReceiver lineReceiver, OutputStream out, TaskPluginCollector taskPluginCollector) throws IOException {
+        if (!(lineReceiver instanceof RollingRecordReceiver)) {
+            return false;
+        }
+        while (!this.inFlight.isEmpty()) {
+            this.writeHead(out, taskPluginCollector);
+        }
+        return ((RollingRecordReceiver) lineReceiver).continuePart();
+    }
+
+    /**
+     * 获取一个批数组
+     *
+     * @return 批数组
+     */
+    private Record[] nextBatch() {
+        Record[] batch = this.freeBatches.pollFirst();
+        return null != batch ? batch : new Record[this.batchSize];
+    }
+
+    /**
+     * 提交一批记录序列化, 并在序列化中的批过多时按顺序写出最早的批
+     *
+     * @param batch 批数组
+     * @param count 记录数
+     * @param out 输出流
+     * @param taskPluginCollector 任务处理器
+     * @throws IOException ex
+     */
+    private void submit(Record[] batch, int count, OutputStream out, TaskPluginCollector taskPluginCollector) throws IOException {
+        this.inFlight.addLast(this.executor.submit(() -> this.serializeBatch(batch, count)));
+        while (this.inFlight.size() >= this.maxInFlight) {
+            this.writeHead(out, taskPluginCollector);
+        }
+    }
+
+    /**
+     * 等待最早提交的批序列化完成并写出, 上报其中的脏数据
+     *
+     * @param out 输出流
+     * @param taskPluginCollector 任务处理器
+     * @throws IOException ex
+     */
+    private void writeHead(OutputStream out, TaskPluginCollector taskPluginCollector) throws IOException {
+        Future<Chunk> head = this.inFlight.pollFirst();
+        Chunk chunk;
+        try {
+            chunk = head.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待序列化时被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException ? (IOException) cause : new IOException("序列化失败", cause);
+        }
+        long start = this.metrics.nanoTime();
+        out.write(chunk.bytes);
+        long nanos = this.metrics.nanoTime() - start;
+        this.metrics.recordFlush(chunk.rawLength, nanos);
+        //直接写入文件时, 写出即写盘; 其他输出流由其自身统计
+        if (out instanceof FileOutputStream) {
+            this.metrics.recordDiskWrite(chunk.bytes.length, nanos);
+        }
+        for (int i = 0; i < chunk.dirtyRecords.size(); i++) {
+            taskPluginCollector.collectDirtyRecord(chunk.dirtyRecords.get(i), chunk.dirtyErrors.get(i));
+        }
+        this.metrics.recordBatch(chunk.records, chunk.dirtyRecords.size(), chunk.nanos);
+        //回收批数组, 释放记录引用
+        if (null != chunk.batch) {
+            Arrays.fill(chunk.batch, null);
+            this.freeBatches.addLast(chunk.batch);
+        }
+    }
+
+    /**
+     * 序列化线程：序列化表头
+     *
+     * @param headers 表头
+     * @return 数据块
+     * @throws IOException ex
+     */
+    private Chunk serializeHeader(List<String> headers) throws IOException {
+        long start = this.metrics.nanoTime();
+        ChunkWriter chunkWriter = this.chunkWriters.get();
+        chunkWriter.unstructuredWriter.writeOneRecord(headers);
+        Chunk chunk = new Chunk(null, 0);
+        chunkWriter.finish(chunk);
+        chunk.nanos = this.metrics.nanoTime() - start;
+        return chunk;
+    }
+
+    /**
+     * 序列化线程：序列化一批记录, 异常记录作为脏数据收集
+     *
+     * @param batch 批数组
+     * @param count 记录数
+     * @return 数据块
+     * @throws IOException ex
+     */
+    private Chunk serializeBatch(Record[] batch, int count) throws IOException {
+        long start = this.metrics.nanoTime();
+        ChunkWriter chunkWriter = this.chunkWriters.get();
+        Chunk chunk = new Chunk(batch, count);
+        chunkWriter.unstructuredWriter.writeBatch(batch, count, this.columnFormatter, chunk.dirtyCollector);
+        chunkWriter.finish(chunk);
+        chunk.nanos = this.metrics.nanoTime() - start;
+        return chunk;
+    }
+
+    /**
+     * 创建序列化线程的写入器
+     *
+     * @return 写入器
+     */
+    private ChunkWriter newChunkWriter() {
+        try {
+            return new ChunkWriter();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 序列化线程的写入器：编码到复用的内存缓冲
+     */
+    private final class ChunkWriter {
+        /**编码后的数据*/
+        private final ExposedByteArrayOutputStream encoded = new ExposedByteArrayOutputStream(CHUNK_BUFFER_SIZE);
+        /**压缩后的数据*/
+        private final ByteArrayOutputStream compressed = new ByteArrayOutputStream(CHUNK_BUFFER_SIZE);
+        /**非结构化写入器*/
+        private final UnstructuredWriter unstructuredWriter;
+
+        private ChunkWriter() throws IOException {
+            ByteSinkWriter writer = new ByteSinkWriter(this.encoded, ParallelRecordSerializer.this.charset, CHUNK_BUFFER_SIZE);
+            this.unstructuredWriter = UnstructuredStorageWriterUtil.produceUnstructuredWriter(ParallelRecordSerializer.this.spec, writer);
+        }
+
+        /**
+         * 结束当前数据块：取出编码（及压缩）后的数据, 重置缓冲
+         *
+         * @param chunk 数据块
+         * @throws IOException ex
+         */
+        private void finish(Chunk chunk) throws IOException {
+            this.unstructuredWriter.flush();
+            chunk.rawLength = this.encoded.size();
+            if (null == ParallelRecordSerializer.this.codec) {
+                chunk.bytes = this.encoded.toByteArray();
+            } else {
+                this.compressed.reset();
+                OutputStream compressorStream = ParallelRecordSerializer.this.codec.createOutputStream(this.compressed, ParallelRecordSerializer.this.level, 0);
+                compressorStream.write(this.encoded.buffer(), 0, this.encoded.size());
+                compressorStream.close();
+                chunk.bytes = this.compressed.toByteArray();
+            }
+            this.encoded.reset();
+        }
+    }
+
+    /**
+     * 可直接访问内部数组的字节输出流：避免压缩前再复制一次
+     */
+    private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+        private ExposedByteArrayOutputStream(int size) {
+            super(size);
+        }
+
+        /**
+         * 内部数组
+         *
+         * @return 内部数组, 有效长度为size()
+         */
+        private byte[] buffer() {
+            return this.buf;
+        }
+    }
+
+    /**
+     * 数据块：一批记录序列化后的结果
+     */
+    private static final class Chunk {
+        /**批数组：表头数据块为null*/
+        private final Record[] batch;
+        /**记录数*/
+        private final int records;
+        /**脏数据记录*/
+        private final List<Record> dirtyRecords = new ArrayList<>(0);
+        /**脏数据异常*/
+        private final List<Throwable> dirtyErrors = new ArrayList<>(0);
+        /**序列化线程上的脏数据收集器：仅暂存, 由任务线程上报*/
+        private final TaskPluginCollector dirtyCollector = new TaskPluginCollector() {
+            @Override
+            public void collectDirtyRecord(Record dirtyRecord, Throwable t, String errorMessage) {
+                Chunk.this.dirtyRecords.add(dirtyRecord);
+                Chunk.this.dirtyErrors.add(t);
+            }
+
+            @Override
+            public void collectMessage(String key, String value) {
+                // 不需要
+            }
+        };
+        /**写出的字节（可能已压缩）*/
+        private byte[] bytes;
+        /**压缩前字节数*/
+        private int rawLength;
+        /**序列化耗时*/
+        private long nanos;
+
+        private Chunk(Record[] batch, int records) {
+            this.batch = batch;
+            this.records = records;
+        }
+    }
+}
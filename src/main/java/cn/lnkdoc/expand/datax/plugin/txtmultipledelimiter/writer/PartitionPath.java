@@ -0,0 +1,193 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.exception.DataXException;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 分区路径模板：如dt=${col3}/tenant=${col0}, 按记录的列值解析出分区目录（相对于path）
+ * <span>列值按Hive的规则转义, 空值写入__HIVE_DEFAULT_PARTITION__分区</span>
+ *
+ * @author langkye
+ */
+public class PartitionPath {
+    /**空值分区：与Hive一致*/
+    public static final String DEFAULT_PARTITION = "__HIVE_DEFAULT_PARTITION__";
+    /**路径分隔符*/
+    private static final char SEPARATOR = '/';
+    /**变量格式*/
+    private static final Pattern VARIABLE_PATTERN = Pattern.compile("\\$\\{([^}]*)}");
+    /**列变量格式*/
+    private static final Pattern COLUMN_PATTERN = Pattern.compile("col(\\d+)");
+    /**需要转义的字符：与Hive的FileUtils.escapePathName一致*/
+    private static final BitSet ESCAPE_CHARS = new BitSet(128);
+    /**十六进制字符*/
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    static {
+        for (char c = 0; c < ' '; c++) {
+            ESCAPE_CHARS.set(c);
+        }
+        for (char c : "\"#%'*/:=?\\\u007F{[]^".toCharArray()) {
+            ESCAPE_CHARS.set(c);
+        }
+    }
+
+    /**模板中的常量片段, 与列交替出现：literals[i]之后为columns[i]*/
+    private final String[] literals;
+    /**模板中引用的列序号*/
+    private final int[] columns;
+    /**分区目录层数*/
+    private final int depth;
+
+    /**
+     * 通过模板片段构建分区路径
+     *
+     * @param literals 常量片段, 比列多一个
+     * @param columns 列序号
+     * @param depth 分区目录层数
+     */
+    private PartitionPath(String[] literals, int[] columns, int depth) {
+        this.literals = literals;
+        this.columns = columns;
+        this.depth = depth;
+    }
+
+    /**
+     * 默认分区路径模板：Hive风格, 如col3=${col3}/col0=${col0}
+     *
+     * @param partitionBy 分区列序号
+     * @return 分区路径模板
+     */
+    public static String defaultTemplate(List<Integer> partitionBy) {
+        List<String> segments = new ArrayList<>(partitionBy.size());
+        for (Integer column : partitionBy) {
+            segments.add(String.format("col%d=${col%d}", column, column));
+        }
+        return StringUtils.join(segments, SEPARATOR);
+    }
+
+    /**
+     * 解析并校验分区路径模板
+     *
+     * @param template 分区路径模板, 为空时使用默认模板
+     * @param partitionBy 分区列序号
+     * @return 分区路径
+     */
+    public static PartitionPath parse(String template, List<Integer> partitionBy) {
+        if (null == partitionBy || partitionBy.isEmpty()) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.REQUIRED_VALUE, "配置了分区写出时, partitionBy不能为空.");
+        }
+        for (Integer column : partitionBy) {
+            if (null == column || column < 0) {
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的partitionBy %s错误, 列序号须为非负整数.", partitionBy));
+            }
+        }
+        if (StringUtils.isBlank(template)) {
+            template = PartitionPath.defaultTemplate(partitionBy);
+        }
+        if (template.indexOf('\\') >= 0 || template.startsWith("/") || template.endsWith("/")) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的partitionPath [%s]错误, 须为以/分隔的相对路径.", template));
+        }
+        for (String segment : StringUtils.splitPreserveAllTokens(template, SEPARATOR)) {
+            if (segment.isEmpty() || ".".equals(segment) || "..".equals(segment)) {
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的partitionPath [%s]错误, 不能包含空目录、.或..", template));
+            }
+        }
+
+        List<String> literals = new ArrayList<>();
+        List<Integer> columns = new ArrayList<>();
+        Matcher matcher = VARIABLE_PATTERN.matcher(template);
+        int start = 0;
+        while (matcher.find()) {
+            Matcher column = COLUMN_PATTERN.matcher(matcher.group(1));
+            if (!column.matches()) {
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的partitionPath [%s]中的变量%s不支持, 仅支持${colN}.", template, matcher.group()));
+            }
+            int index = Integer.parseInt(column.group(1));
+            if (!partitionBy.contains(index)) {
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的partitionPath [%s]引用了第%s列, 但partitionBy %s中不包含该列.", template, index, partitionBy));
+            }
+            literals.add(template.substring(start, matcher.start()));
+            columns.add(index);
+            start = matcher.end();
+        }
+        literals.add(template.substring(start));
+        for (Integer column : partitionBy) {
+            if (!columns.contains(column)) {
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的partitionBy包含第%s列, 但partitionPath [%s]中未引用${col%s}.", column, template, column));
+            }
+        }
+
+        int[] columnArray = new int[columns.size()];
+        for (int i = 0; i < columnArray.length; i++) {
+            columnArray[i] = columns.get(i);
+        }
+        return new PartitionPath(literals.toArray(new String[0]), columnArray, StringUtils.countMatches(template, SEPARATOR) + 1);
+    }
+
+    /**
+     * 分区目录层数
+     *
+     * @return 层数
+     */
+    public int getDepth() {
+        return this.depth;
+    }
+
+    /**
+     * 解析记录所属的分区目录
+     *
+     * @param record 记录
+     * @param out 分区目录输出缓冲, 调用方复用
+     */
+    public void resolve(Record record, StringBuilder out) {
+        out.setLength(0);
+        for (int i = 0; i < this.columns.length; i++) {
+            out.append(this.literals[i]);
+            int index = this.columns[i];
+            if (index >= record.getColumnNumber()) {
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("记录只有%s列, 无法按第%s列分区.", record.getColumnNumber(), index));
+            }
+            Column column = record.getColumn(index);
+            String value = null == column ? null : column.asString();
+            PartitionPath.escape(value, out);
+        }
+        out.append(this.literals[this.columns.length]);
+    }
+
+    /**
+     * 转义分区值：空值、.与..写为对应的安全目录名
+     *
+     * @param value 分区值
+     * @param out 输出缓冲
+     */
+    static void escape(String value, StringBuilder out) {
+        if (null == value || value.isEmpty()) {
+            out.append(DEFAULT_PARTITION);
+            return;
+        }
+        //.与..不能作为目录名
+        if (".".equals(value) || "..".equals(value)) {
+            for (int i = 0; i < value.length(); i++) {
+                out.append("%2E");
+            }
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 128 && ESCAPE_CHARS.get(c)) {
+                out.append('%').append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+            } else {
+                out.append(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.plugin.RecordReceiver;
+import com.alibaba.datax.common.plugin.TaskPluginCollector;
+import com.alibaba.datax.common.util.Configuration;
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * 分区写入器池：按分区路径将记录路由到各分区目录下的文件, 每个分区一个打开的非结构化写入器
+ * <p>
+ * 打开的写入器按最近使用顺序（LRU）管理, 数量达到maxOpenFiles时关闭最久未使用的分区文件；
+ * 不压缩、无状态编码的文本格式在该分区再次出现时以追加方式重新打开同一文件（不再写出表头）；
+ * 压缩格式与列式文件格式无法追加, 在同一目录下写入新的分片文件, 关闭次数超过分区数时提示调大maxOpenFiles。
+ * 写出异常（IOException）直接抛出, 仅分区解析、格式化异常的记录作为脏数据。
+ *
+ * @author langkye
+ */
+public class PartitionWriterPool {
+    private static final Logger logger = LoggerFactory.getLogger(PartitionWriterPool.class);
+
+    /**文件大小检查间隔（行）：避免每行都查询文件位置*/
+    private static final int SIZE_CHECK_INTERVAL = 1024;
+
+    /**根目录*/
+    private final File root;
+    /**写出规格*/
+    private final WriterSpec spec;
+    /**分区路径*/
+    private final PartitionPath partitionPath;
+    /**分片文件名：按分片序号生成*/
+    private final IntFunction<String> partFileNames;
+    /**最多同时打开的文件数*/
+    private final int maxOpenFiles;
+    /**单个文件最大字节数，0表示不滚动*/
+    private final long maxFileBytes;
+    /**单个文件最大行数，0表示不滚动*/
+    private final long maxFileRows;
+    /**是否原子提交：写入暂存文件, 关闭时封存*/
+    private final boolean atomicCommit;
+    /**封存时是否计算校验和*/
+    private final boolean checksum;
+    /**append模式：不覆盖已有文件*/
+    private final boolean append;
+    /**任务处理器*/
+    private final TaskPluginCollector taskPluginCollector;
+    /**任务指标*/
+    private final WriterMetrics metrics;
+
+    /**打开的分区文件：按访问顺序排列, 最久未使用的在前*/
+    private final LinkedHashMap<String, PartitionFile> openFiles = new LinkedHashMap<>(16, 0.75f, true);
+    /**各分区下一个分片序号*/
+    private final Map<String, Integer> nextParts = new HashMap<>();
+    /**已封存的分片元数据*/
+    private final List<Configuration> sealedParts = new ArrayList<>();
+    /**因打开文件数达到上限而关闭、可追加续写的分区文件（写入器已关闭）*/
+    private final Map<String, PartitionFile> suspendedFiles = new HashMap<>();
+    /**分区文件因打开文件数达到上限而关闭后, 是否追加续写同一文件：仅不压缩、无状态编码的文本格式*/
+    private final boolean reopenForAppend;
+    /**因打开文件数达到上限而关闭的次数*/
+    private long evictions = 0;
+    /**是否已提示关闭次数过多*/
+    private boolean evictionWarned = false;
+
+    /**
+     * 分区文件
+     */
+    private static class PartitionFile {
+        /**相对于根目录的文件名*/
+        private final String fileName;
+        /**实际写入的文件：原子提交时为暂存文件*/
+        private final File file;
+        /**文件通道：检查文件大小*/
+        private final FileChannel channel;
+        /**非结构化写入器*/
+        private final UnstructuredWriter writer;
+        /**已写出的行数*/
+        private long rows = 0;
+
+        /**
+         * 通过文件、写入器构建分区文件
+         *
+         * @param fileName 相对于根目录的文件名
+         * @param file 实际写入的文件
+         * @param channel 文件通道
+         * @param writer 非结构化写入器
+         */
+        private PartitionFile(String fileName, File file, FileChannel channel, UnstructuredWriter writer) {
+            this.fileName = fileName;
+            this.file = file;
+            this.channel = channel;
+            this.writer = writer;
+        }
+    }
+
+    /**
+     * 通过配置构建分区写入器池
+     *
+     * @param root 根目录
+     * @param config 配置信息
+     * @param spec 写出规格
+     * @param partitionPath 分区路径
+     * @param partFileNames 分片文件名：按分片序号生成
+     * @param taskPluginCollector 任务处理器
+     * @param metrics 任务指标
+     */
+    public PartitionWriterPool(File root, Configuration config, WriterSpec spec, PartitionPath partitionPath, IntFunction<String> partFileNames, TaskPluginCollector taskPluginCollector, WriterMetrics metrics) {
+        this.root = root;
+        this.spec = spec;
+        this.partitionPath = partitionPath;
+        this.partFileNames = partFileNames;
+        this.maxOpenFiles = config.getInt(Key.MAX_OPEN_FILES, Constant.DEFAULT_MAX_OPEN_FILES);
+        //maxFileSize单位为MB
+        this.maxFileBytes = config.getLong(Key.MAX_FILE_SIZE, 0L) * 1024L * 1024L;
+        this.maxFileRows = config.getLong(Key.MAX_FILE_ROWS, 0L);
+        this.atomicCommit = config.getBool(Key.ATOMIC_COMMIT, false);
+        this.checksum = this.atomicCommit && config.getBool(Key.SUCCESS_FILE, false);
+        this.append = "append".equals(config.getString(Key.WRITE_MODE));
+        this.taskPluginCollector = taskPluginCollector;
+        this.metrics = metrics;
+        this.reopenForAppend = !spec.isColumnar() && null == spec.getCodec() && ParallelRecordSerializer.isSupported(spec.getCharset());
+    }
+
+    /**
+     * 按批读取记录并路由到各分区文件, 读完后关闭全部文件
+     *
+     * @param lineReceiver 接收的行
+     * @throws IOException ex
+     */
+    public void write(RecordReceiver lineReceiver) throws IOException {
+        //列格式化器：整个任务复用
+        ColumnFormatter columnFormatter = this.spec.getColumnFormatter();
+        int batchSize = this.spec.getSerializeBatchSize();
+        Record[] batch = new Record[batchSize];
+        StringBuilder partition = new StringBuilder();
+        int count;
+        do {
+            long readStart = this.metrics.nanoTime();
+            count = UnstructuredStorageWriterUtil.drain(lineReceiver, batch);
+            long transportStart = this.metrics.nanoTime();
+            this.metrics.recordRead(transportStart - readStart);
+            int dirty = 0;
+            for (int i = 0; i < count; i++) {
+                Record record = batch[i];
+                try {
+                    this.partitionPath.resolve(record, partition);
+                } catch (Exception e) {
+                    // warn: dirty data
+                    this.taskPluginCollector.collectDirtyRecord(record, e);
+                    dirty++;
+                    continue;
+                }
+                String partitionDir = partition.toString();
+                PartitionFile partitionFile = this.acquire(partitionDir);
+                try {
+                    partitionFile.writer.writeRecord(record, columnFormatter);
+                } catch (IOException e) {
+                    throw e;
+                } catch (Exception e) {
+                    // warn: dirty data
+                    this.taskPluginCollector.collectDirtyRecord(record, e);
+                    dirty++;
+                    continue;
+                }
+                partitionFile.rows++;
+                this.rollIfFull(partitionDir, partitionFile);
+            }
+            if (count > 0) {
+                this.metrics.recordTransport(count, dirty, this.metrics.nanoTime() - transportStart);
+                //释放记录引用
+                Arrays.fill(batch, 0, count, null);
+            }
+        } while (count == batchSize);
+        this.closeAll();
+        logger.info(String.format("分区写出完成: 分区数[%s], 文件数[%s], 因打开文件数达到上限关闭[%s]次", this.nextParts.size(), this.nextParts.values().stream().mapToInt(Integer::intValue).sum(), this.evictions));
+    }
+
+    /**
+     * 获取分区的写入器：未打开时追加续写已关闭的文件或打开新的分片文件, 打开文件数达到上限时先关闭最久未使用的分区文件
+     *
+     * @param partition 分区目录
+     * @return 分区文件
+     * @throws IOException ex
+     */
+    private PartitionFile acquire(String partition) throws IOException {
+        PartitionFile partitionFile = this.openFiles.get(partition);
+        if (null != partitionFile) {
+            return partitionFile;
+        }
+        if (this.openFiles.size() >= this.maxOpenFiles) {
+            Iterator<Map.Entry<String, PartitionFile>> eldest = this.openFiles.entrySet().iterator();
+            Map.Entry<String, PartitionFile> evicted = eldest.next();
+            eldest.remove();
+            this.evict(evicted.getKey(), evicted.getValue());
+        }
+        PartitionFile suspended = this.suspendedFiles.remove(partition);
+        partitionFile = null != suspended ? this.reopen(suspended) : this.open(partition);
+        this.openFiles.put(partition, partitionFile);
+        return partitionFile;
+    }
+
+    /**
+     * 因打开文件数达到上限关闭分区文件：可追加续写时暂不封存, 否则该分区之后写入新的分片文件
+     *
+     * @param partition 分区目录
+     * @param partitionFile 分区文件
+     * @throws IOException ex
+     */
+    private void evict(String partition, PartitionFile partitionFile) throws IOException {
+        this.evictions++;
+        logger.debug(String.format("打开文件数达到上限[%s], 关闭文件: [%s]", this.maxOpenFiles, partitionFile.fileName));
+        if (this.reopenForAppend) {
+            partitionFile.writer.close();
+            this.suspendedFiles.put(partition, partitionFile);
+            return;
+        }
+        this.close(partitionFile);
+        if (!this.evictionWarned && this.evictions > this.nextParts.size()) {
+            this.evictionWarned = true;
+            logger.warn(String.format("打开文件数达到上限[%s]后关闭文件[%s]次, 已超过分区数[%s]; 压缩格式与列式文件格式的分区再次出现时写入新的分片文件, 将产生大量小文件, 请调大maxOpenFiles或按分区列排序后写出",
+                    this.maxOpenFiles, this.evictions, this.nextParts.size()));
+        }
+    }
+
+    /**
+     * 当前文件达到maxFileSize或maxFileRows时关闭, 该分区的下一条记录写入新的分片文件
+     *
+     * @param partition 分区目录
+     * @param partitionFile 分区文件
+     * @throws IOException ex
+     */
+    private void rollIfFull(String partition, PartitionFile partitionFile) throws IOException {
+        boolean full = this.maxFileRows > 0 && partitionFile.rows >= this.maxFileRows;
+        if (!full && this.maxFileBytes > 0 && partitionFile.rows % SIZE_CHECK_INTERVAL == 0) {
+            full = partitionFile.channel.size() >= this.maxFileBytes;
+        }
+        if (full) {
+            this.openFiles.remove(partition);
+            this.close(partitionFile);
+        }
+    }
+
+    /**
+     * 打开分区的下一个分片文件
+     *
+     * @param partition 分区目录
+     * @return 分区文件
+     * @throws IOException ex
+     */
+    private PartitionFile open(String partition) throws IOException {
+        int part = this.nextParts.getOrDefault(partition, 0);
+        this.nextParts.put(partition, part + 1);
+        String fileName = partition + "/" + this.partFileNames.apply(part);
+        File file = new File(this.root, this.atomicCommit ? FileCommitManager.stagingFileName(fileName) : fileName);
+        //append模式不覆盖已有文件
+        if (this.append && new File(this.root, fileName).exists()) {
+            throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.Write_FILE_ERROR, String.format("writeMode为append, 但文件[%s]已存在.", new File(this.root, fileName)));
+        }
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+            throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.CONFIG_INVALID_EXCEPTION, String.format("分区目录 : [%s] 创建失败.", dir));
+        }
+        logger.info(String.format("###即将写入的文件 : [%s]", file));
+        this.metrics.recordFile();
+        FileOutputStream fileStream = new FileOutputStream(file);
+        try {
+            UnstructuredWriter writer = UnstructuredStorageWriterUtil.openUnstructuredWriter(fileStream, this.spec, fileName, this.metrics);
+            return new PartitionFile(fileName, file, fileStream.getChannel(), writer);
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(fileStream);
+            throw e;
+        }
+    }
+
+    /**
+     * 追加续写已关闭的分区文件：不再写出表头, 行数接续
+     *
+     * @param suspended 已关闭的分区文件
+     * @return 分区文件
+     * @throws IOException ex
+     */
+    private PartitionFile reopen(PartitionFile suspended) throws IOException {
+        logger.debug(String.format("追加续写文件 : [%s]", suspended.file));
+        FileOutputStream fileStream = new FileOutputStream(suspended.file, true);
+        try {
+            UnstructuredWriter writer = UnstructuredStorageWriterUtil.openUnstructuredWriter(fileStream, this.spec.withoutHeader(), suspended.fileName, this.metrics);
+            PartitionFile partitionFile = new PartitionFile(suspended.fileName, suspended.file, fileStream.getChannel(), writer);
+            partitionFile.rows = suspended.rows;
+            return partitionFile;
+        } catch (IOException | RuntimeException e) {
+            IOUtils.closeQuietly(fileStream);
+            throw e;
+        }
+    }
+
+    /**
+     * 关闭分区文件：原子提交时落盘并记录分片元数据
+     *
+     * @param partitionFile 分区文件
+     * @throws IOException ex
+     */
+    private void close(PartitionFile partitionFile) throws IOException {
+        partitionFile.writer.close();
+        this.seal(partitionFile);
+    }
+
+    /**
+     * 原子提交时将已关闭的分区文件落盘并记录分片元数据
+     *
+     * @param partitionFile 分区文件
+     * @throws IOException ex
+     */
+    private void seal(PartitionFile partitionFile) throws IOException {
+        if (this.atomicCommit) {
+            this.sealedParts.add(FileCommitManager.seal(partitionFile.file, partitionFile.fileName, partitionFile.rows, this.checksum));
+        }
+    }
+
+    /**
+     * 关闭全部打开的分区文件, 封存已关闭待续写的分区文件
+     *
+     * @throws IOException ex
+     */
+    private void closeAll() throws IOException {
+        Iterator<PartitionFile> iterator = this.openFiles.values().iterator();
+        while (iterator.hasNext()) {
+            PartitionFile partitionFile = iterator.next();
+            iterator.remove();
+            this.close(partitionFile);
+        }
+        Iterator<PartitionFile> suspended = this.suspendedFiles.values().iterator();
+        while (suspended.hasNext()) {
+            PartitionFile partitionFile = suspended.next();
+            suspended.remove();
+            this.seal(partitionFile);
+        }
+    }
+
+    /**
+     * 写入失败时关闭全部打开的文件, 忽略异常
+     */
+    public void abort() {
+        for (PartitionFile partitionFile : this.openFiles.values()) {
+            IOUtils.closeQuietly(partitionFile.writer);
+        }
+        this.openFiles.clear();
+        this.suspendedFiles.clear();
+    }
+
+    /**
+     * 已封存的分片元数据：仅原子提交
+     *
+     * @return 封存元数据
+     */
+    public List<Configuration> getSealedParts() {
+        return this.sealedParts;
+    }
+}
@@ -0,0 +1,216 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * 按文件名前缀扫描目录：通过DirectoryStream与glob流式遍历, 不在内存中构建完整的文件列表, 适用于包含大量文件的目录
+ *
+ * @author langkye
+ */
+public class PrefixFileScanner {
+    private static final Logger logger = LoggerFactory.getLogger(PrefixFileScanner.class);
+
+    /**glob元字符*/
+    private static final String GLOB_META_CHARS = "\\*?[]{}";
+    /**并行删除的等待队列长度：扫描快于删除时由扫描线程自行删除, 避免积压*/
+    private static final int DELETE_QUEUE_SIZE = 1024;
+
+    /**
+     * 构建匹配"前缀*后缀"的glob
+     *
+     * @param prefix 文件名前缀
+     * @param suffix 文件名后缀, 可为空字符串
+     * @return glob
+     */
+    static String glob(String prefix, String suffix) {
+        return PrefixFileScanner.escape(prefix) + "*" + PrefixFileScanner.escape(suffix);
+    }
+
+    /**
+     * 转义glob元字符
+     *
+     * @param literal 原文
+     * @return 转义后的glob片段
+     */
+    private static String escape(String literal) {
+        StringBuilder builder = new StringBuilder(literal.length() + 8);
+        for (int i = 0; i < literal.length(); i++) {
+            char c = literal.charAt(i);
+            if (GLOB_META_CHARS.indexOf(c) >= 0) {
+                builder.append('\\');
+            }
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 查找匹配的文件名
+     *
+     * @param dir 目录
+     * @param prefix 文件名前缀
+     * @param limit 最多返回的数量
+     * @return 文件名
+     * @throws IOException ex
+     */
+    public static List<String> find(Path dir, String prefix, int limit) throws IOException {
+        List<String> names = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return names;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, PrefixFileScanner.glob(prefix, ""))) {
+            for (Path path : stream) {
+                if (names.size() >= limit) {
+                    break;
+                }
+                names.add(path.getFileName().toString());
+            }
+        } catch (DirectoryIteratorException e) {
+            throw e.getCause();
+        }
+        return names;
+    }
+
+    /**
+     * 一次扫描找出已存在的候选文件名：仅保留候选文件名, 内存占用与目录大小无关
+     *
+     * @param dir 目录
+     * @param prefix 候选文件名的共同前缀
+     * @param candidates 候选文件名
+     * @return 已存在的候选文件名
+     * @throws IOException ex
+     */
+    public static Set<String> findExisting(Path dir, String prefix, Set<String> candidates) throws IOException {
+        Set<String> existing = new TreeSet<>();
+        if (!Files.isDirectory(dir) || candidates.isEmpty()) {
+            return existing;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, PrefixFileScanner.glob(prefix, ""))) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                if (candidates.contains(name)) {
+                    existing.add(name);
+                }
+            }
+        } catch (DirectoryIteratorException e) {
+            throw e.getCause();
+        }
+        return existing;
+    }
+
+    /**
+     * 列出指定层数的子目录：如分区目录dt=x/tenant=y为2层
+     *
+     * @param dir 目录
+     * @param depth 层数
+     * @return 子目录
+     * @throws IOException ex
+     */
+    public static List<Path> directories(Path dir, int depth) throws IOException {
+        List<Path> dirs = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return dirs;
+        }
+        try (Stream<Path> stream = Files.walk(dir, depth)) {
+            //目录自身相对路径为空路径, 其名称数同样为1, 须排除
+            stream.filter(path -> !dir.equals(path) && dir.relativize(path).getNameCount() == depth && Files.isDirectory(path)).forEach(dirs::add);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return dirs;
+    }
+
+    /**
+     * 并行删除匹配的文件（及目录）
+     *
+     * @param dir 目录
+     * @param prefix 文件名前缀
+     * @param suffix 文件名后缀, 可为空字符串
+     * @param threads 删除线程数
+     * @return 删除的数量
+     * @throws IOException ex
+     */
+    public static long deleteAll(Path dir, String prefix, String suffix, int threads) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return 0L;
+        }
+        AtomicLong deleted = new AtomicLong();
+        AtomicReference<IOException> error = new AtomicReference<>();
+        //队列满时由扫描线程执行删除：内存占用有界, 同时形成背压
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(DELETE_QUEUE_SIZE), new ThreadPoolExecutor.CallerRunsPolicy());
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, PrefixFileScanner.glob(prefix, suffix))) {
+            for (Path path : stream) {
+                if (null != error.get()) {
+                    break;
+                }
+                executor.execute(() -> {
+                    try {
+                        logger.debug(String.format("开始删除文件： [%s].", path.getFileName()));
+                        FileUtils.forceDelete(path.toFile());
+                        deleted.incrementAndGet();
+                    } catch (IOException e) {
+                        error.compareAndSet(null, e);
+                    }
+                });
+            }
+        } catch (DirectoryIteratorException e) {
+            error.compareAndSet(null, e.getCause());
+        } finally {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                executor.shutdownNow();
+            }
+        }
+        if (null != error.get()) {
+            throw error.get();
+        }
+        return deleted.get();
+    }
+
+    /**
+     * 逐个删除匹配的文件：匹配数量较少时使用, 如暂存文件、检查点文件
+     *
+     * @param dir 目录
+     * @param prefix 文件名前缀
+     * @param suffix 文件名后缀
+     * @return 删除的文件名
+     * @throws IOException ex
+     */
+    public static List<String> delete(Path dir, String prefix, String suffix) throws IOException {
+        List<String> names = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return names;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, PrefixFileScanner.glob(prefix, suffix))) {
+            for (Path path : stream) {
+                Files.deleteIfExists(path);
+                names.add(path.getFileName().toString());
+            }
+        } catch (DirectoryIteratorException e) {
+            throw e.getCause();
+        }
+        return names;
+    }
+}
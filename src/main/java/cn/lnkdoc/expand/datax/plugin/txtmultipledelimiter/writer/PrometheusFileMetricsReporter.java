@@ -0,0 +1,140 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Prometheus文本文件指标上报器：每个任务一个文件, 供node_exporter textfile collector采集
+ * <span>先写临时文件再重命名, 采集端不会读到写了一半的文件; 任务结束后文件保留最终值</span>
+ *
+ * @author langkye
+ */
+public class PrometheusFileMetricsReporter implements MetricsReporter {
+    private static final Logger logger = LoggerFactory.getLogger(PrometheusFileMetricsReporter.class);
+    private static final double NANOS_PER_SECOND = 1000000000D;
+    /**指标名前缀*/
+    private static final String PREFIX = "datax_txtwriter_";
+
+    /**指标文件*/
+    private final Path file;
+    /**临时文件*/
+    private final Path tempFile;
+    /**标签*/
+    private final String labels;
+
+    /**
+     * 通过目录、任务ID构建上报器
+     *
+     * @param directory 指标文件目录
+     * @param taskGroupId 任务组ID
+     * @param taskId 任务ID
+     */
+    public PrometheusFileMetricsReporter(String directory, int taskGroupId, int taskId) {
+        String fileName = String.format("txtwriter_%d_%d.prom", taskGroupId, taskId);
+        this.file = new File(directory, fileName).toPath();
+        this.tempFile = new File(directory, "." + fileName + ".tmp").toPath();
+        this.labels = String.format("{task_group=\"%d\",task=\"%d\"}", taskGroupId, taskId);
+    }
+
+    /**
+     * 上报指标：重写指标文件
+     *
+     * @param metrics 指标
+     * @param finished 任务是否已结束
+     */
+    @Override
+    public void report(WriterMetrics metrics, boolean finished) {
+        StringBuilder text = new StringBuilder(4096);
+        this.counter(text, "records_total", "Records processed, including dirty records.", metrics.getRecords());
+        this.counter(text, "dirty_records_total", "Dirty records.", metrics.getDirtyRecords());
+        this.counter(text, "files_total", "Files written.", metrics.getFiles());
+        this.counter(text, "raw_bytes_total", "Encoded bytes before compression.", metrics.getRawBytes());
+        this.counter(text, "written_bytes_total", "Bytes written to the filesystem.", metrics.getWrittenBytes());
+        this.counter(text, "read_seconds_total", "Time blocked waiting for records from the reader.", metrics.getReadNanos() / NANOS_PER_SECOND);
+        this.counter(text, "serialize_seconds_total", "Time serializing and encoding records.", metrics.getSerializeNanos() / NANOS_PER_SECOND);
+        this.counter(text, "write_seconds_total", "Time handing buffers downstream (compression and disk when synchronous).", metrics.getWriteNanos() / NANOS_PER_SECOND);
+        this.counter(text, "disk_seconds_total", "Time in filesystem writes.", metrics.getDiskNanos() / NANOS_PER_SECOND);
+        this.gauge(text, "finished", "Whether the task has finished.", finished ? 1 : 0);
+
+        //缓冲写出耗时直方图：累计计数
+        String name = PREFIX + "flush_latency_seconds";
+        text.append("# HELP ").append(name).append(" Latency of handing one buffer downstream.\n");
+        text.append("# TYPE ").append(name).append(" histogram\n");
+        long[] histogram = metrics.getFlushLatencyHistogram();
+        long cumulative = 0;
+        String labelPrefix = this.labels.substring(0, this.labels.length() - 1);
+        for (int i = 0; i < histogram.length; i++) {
+            cumulative += histogram[i];
+            double bound = WriterMetrics.bucketUpperBoundSeconds(i);
+            String le = Double.isInfinite(bound) ? "+Inf" : String.valueOf(bound);
+            text.append(name).append("_bucket").append(labelPrefix).append(",le=\"").append(le).append("\"} ").append(cumulative).append('\n');
+        }
+        text.append(name).append("_sum").append(this.labels).append(' ').append(metrics.getWriteNanos() / NANOS_PER_SECOND).append('\n');
+        text.append(name).append("_count").append(this.labels).append(' ').append(cumulative).append('\n');
+
+        try {
+            Files.write(this.tempFile, text.toString().getBytes(StandardCharsets.UTF_8));
+            try {
+                Files.move(this.tempFile, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(this.tempFile, this.file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.warn(String.format("写入指标文件失败 : [%s]", this.file), e);
+        }
+    }
+
+    /**
+     * 输出计数器
+     *
+     * @param text 输出
+     * @param name 名称
+     * @param help 说明
+     * @param value 值
+     */
+    private void counter(StringBuilder text, String name, String help, double value) {
+        this.metric(text, name, help, "counter", value);
+    }
+
+    /**
+     * 输出仪表盘
+     *
+     * @param text 输出
+     * @param name 名称
+     * @param help 说明
+     * @param value 值
+     */
+    private void gauge(StringBuilder text, String name, String help, double value) {
+        this.metric(text, name, help, "gauge", value);
+    }
+
+    /**
+     * 输出单值指标
+     *
+     * @param text 输出
+     * @param name 名称
+     * @param help 说明
+     * @param type 类型
+     * @param value 值
+     */
+    private void metric(StringBuilder text, String name, String help, String type, double value) {
+        text.append("# HELP ").append(PREFIX).append(name).append(' ').append(help).append('\n');
+        text.append("# TYPE ").append(PREFIX).append(name).append(' ').append(type).append('\n');
+        text.append(PREFIX).append(name).append(this.labels).append(' ');
+        //整数值不输出小数部分
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            text.append((long) value);
+        } else {
+            text.append(value);
+        }
+        text.append('\n');
+    }
+}
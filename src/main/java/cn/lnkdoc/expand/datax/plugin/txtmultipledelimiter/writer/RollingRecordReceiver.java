@@ -0,0 +1,214 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.plugin.RecordReceiver;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.function.LongSupplier;
+
+/**
+ * 文件滚动记录接收器：当前文件达到大小或行数阈值时返回null结束当前文件，由调用方切换到下一个文件
+ * <p>
+ * 行数阈值按写出的行数判断, 脏数据不计入; 记录按批写出, 尚未写出的记录按写出计算, 批写出后脏数据使文件回落到阈值以下时继续接收（见{@link #continuePart()}）。
+ * 大小阈值每{@value #SIZE_CHECK_INTERVAL}行按已落盘的字节数判断, 写入缓冲、压缩器中的数据不计入, 文件可能超出阈值。
+ *
+ * @author langkye
+ */
+public class RollingRecordReceiver implements RecordReceiver {
+    /**文件大小检查间隔（行）：避免每行都查询文件位置*/
+    private static final int SIZE_CHECK_INTERVAL = 1024;
+
+    /**被代理的接收器*/
+    private final RecordReceiver delegate;
+    /**单个文件最大字节数，小于等于0表示不限制*/
+    private final long maxFileBytes;
+    /**单个文件最大行数，小于等于0表示不限制*/
+    private final long maxFileRows;
+
+    /**当前文件已写出的字节数*/
+    private LongSupplier bytesWritten;
+    /**当前文件已接收的行数*/
+    private long rows = 0;
+    /**当前文件已接收记录中的脏数据数*/
+    private LongSupplier dirtyRows = () -> 0L;
+    /**切换文件时预读的记录*/
+    private Record pending;
+    /**当前文件是否已达到阈值*/
+    private boolean rolled = false;
+    /**上游是否已读完*/
+    private boolean exhausted = false;
+
+    /**
+     * 通过上游接收器、阈值构建滚动接收器
+     *
+     * @param delegate 上游接收器
+     * @param maxFileBytes 单个文件最大字节数
+     * @param maxFileRows 单个文件最大行数
+     */
+    public RollingRecordReceiver(RecordReceiver delegate, long maxFileBytes, long maxFileRows) {
+        this.delegate = delegate;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFileRows = maxFileRows;
+    }
+
+    /**
+     * 开始写入一个新文件
+     *
+     * @param channel 新文件的通道
+     */
+    public void startPart(FileChannel channel) {
+        this.startPart(channel, 0L);
+    }
+
+    /**
+     * 续写一个文件
+     *
+     * @param channel 文件的通道
+     * @param rows 文件已接收的行数
+     */
+    public void startPart(FileChannel channel, long rows) {
+        this.startPart(() -> {
+            try {
+                //已落盘的字节数，写入缓冲中的数据不计入
+                return channel.position();
+            } catch (IOException e) {
+                throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.Write_FILE_IO_ERROR, "获取文件写入位置失败", e);
+            }
+        }, rows);
+    }
+
+    /**
+     * 开始写入一个新文件
+     *
+     * @param bytesWritten 新文件已写出的字节数
+     */
+    public void startPart(LongSupplier bytesWritten) {
+        this.startPart(bytesWritten, 0L);
+    }
+
+    /**
+     * 续写一个文件：已接收的行数计入行数阈值
+     *
+     * @param bytesWritten 文件已写出的字节数
+     * @param rows 文件已接收的行数
+     */
+    public void startPart(LongSupplier bytesWritten, long rows) {
+        this.bytesWritten = bytesWritten;
+        this.rows = rows;
+        this.dirtyRows = () -> 0L;
+        this.rolled = false;
+    }
+
+    /**
+     * 设置当前文件的脏数据数：脏数据不计入行数阈值, 开始写入新文件时重置为0
+     *
+     * @param dirtyRows 当前文件已接收记录中的脏数据数
+     */
+    public void setDirtyRows(LongSupplier dirtyRows) {
+        this.dirtyRows = dirtyRows;
+    }
+
+    /**
+     * 当前文件已写出的字节数
+     *
+     * @return 字节数
+     */
+    public long getBytesWritten() {
+        return this.bytesWritten.getAsLong();
+    }
+
+    /**
+     * 当前文件已接收的行数：含脏数据, 即续写时需跳过的记录数
+     *
+     * @return 行数
+     */
+    public long getRows() {
+        return this.rows;
+    }
+
+    /**
+     * 当前文件结束后调用：判断是否还需要写入下一个文件
+     *
+     * @return 是否还有数据需要写入新文件
+     */
+    public boolean nextPart() {
+        if (!this.rolled || this.exhausted) {
+            return false;
+        }
+        //预读一条，避免上游恰好读完时产生空文件
+        Record next = this.delegate.getFromReader();
+        if (null == next) {
+            this.exhausted = true;
+            return false;
+        }
+        this.pending = next;
+        return true;
+    }
+
+    /**
+     * 一批记录写出后调用：该批中的脏数据使当前文件回落到行数阈值以下时, 继续向当前文件接收记录
+     *
+     * @return 是否继续写入当前文件
+     */
+    public boolean continuePart() {
+        if (!this.rolled || this.exhausted || this.reachedLimit()) {
+            return false;
+        }
+        this.rolled = false;
+        return true;
+    }
+
+    /**
+     * 获取一条记录：达到阈值时返回null
+     *
+     * @return 记录
+     */
+    @Override
+    public Record getFromReader() {
+        if (null != this.pending) {
+            Record record = this.pending;
+            this.pending = null;
+            this.rows++;
+            return record;
+        }
+        if (this.exhausted || this.rolled) {
+            return null;
+        }
+        if (this.reachedLimit()) {
+            this.rolled = true;
+            return null;
+        }
+        Record record = this.delegate.getFromReader();
+        if (null == record) {
+            this.exhausted = true;
+            return null;
+        }
+        this.rows++;
+        return record;
+    }
+
+    /**
+     * 当前文件是否达到阈值
+     *
+     * @return 是否达到阈值
+     */
+    private boolean reachedLimit() {
+        if (this.maxFileRows > 0 && this.rows - this.dirtyRows.getAsLong() >= this.maxFileRows) {
+            return true;
+        }
+        if (this.maxFileBytes > 0 && null != this.bytesWritten && this.rows % SIZE_CHECK_INTERVAL == 0) {
+            return this.bytesWritten.getAsLong() >= this.maxFileBytes;
+        }
+        return false;
+    }
+
+    /**
+     * shutdown
+     */
+    @Override
+    public void shutdown() {
+        this.delegate.shutdown();
+    }
+}
@@ -0,0 +1,353 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.util.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * 任务检查点：记录任务各分片文件已落盘的字节位置与已消费的记录数, 保存在隐藏的检查点文件(.fileName.checkpoint)中
+ * <p>
+ * writeMode为resume时, 任务据此跳过已写出的记录, 将未完成的分片截断到最后一个检查点后继续追加。
+ * 检查点仅在记录批次之间、压缩段结束后记录, 截断位置处的文件内容总是完整可解压的。
+ *
+ * @author langkye
+ */
+public class TaskCheckpoint {
+    private static final Logger logger = LoggerFactory.getLogger(TaskCheckpoint.class);
+
+    /**检查点·分片列表*/
+    private static final String CHECKPOINT_PARTS = "parts";
+    /**检查点·任务是否已完成*/
+    private static final String CHECKPOINT_FINISHED = "finished";
+    /**分片·文件名*/
+    private static final String PART_NAME = "name";
+    /**分片·已落盘的字节位置*/
+    private static final String PART_OFFSET = "offset";
+    /**分片·已消费的记录数（含脏数据）*/
+    private static final String PART_RECORDS = "records";
+    /**分片·已写出的行数（不含脏数据）*/
+    private static final String PART_ROWS = "rows";
+    /**分片·是否已完成*/
+    private static final String PART_COMPLETE = "complete";
+    /**分片·原子提交的封存元数据*/
+    private static final String PART_SEAL = "seal";
+
+    /**目录*/
+    private final File dir;
+    /**任务文件名*/
+    private final String fileName;
+    /**检查点间隔（毫秒）*/
+    private final long intervalMillis;
+    /**已完成的分片*/
+    private final List<Configuration> completedParts;
+    /**未完成的分片：上次运行最后一个检查点, 无则为null*/
+    private final Configuration pendingPart;
+    /**任务是否已完成*/
+    private boolean finished;
+
+    /**当前分片文件名*/
+    private String partName;
+    /**当前分片文件通道：用于落盘*/
+    private FileChannel channel;
+    /**当前分片的滚动接收器：提供已落盘的字节数与已消费的记录数*/
+    private RollingRecordReceiver receiver;
+    /**当前分片已写出的行数*/
+    private LongSupplier rows;
+    /**当前分片的分段压缩流, 不压缩时为null*/
+    private MemberCompressorOutputStream segment;
+    /**当前分片的内存映射输出流, 非内存映射输出时为null*/
+    private MappedFileOutputStream mappedStream;
+    /**下一次检查点时间*/
+    private long nextCheckpointMillis;
+
+    /**
+     * 通过已保存的检查点构建任务检查点
+     *
+     * @param dir 目录
+     * @param fileName 任务文件名
+     * @param intervalMillis 检查点间隔（毫秒）
+     * @param saved 已保存的检查点, 无则为null
+     */
+    private TaskCheckpoint(File dir, String fileName, long intervalMillis, Configuration saved) {
+        this.dir = dir;
+        this.fileName = fileName;
+        this.intervalMillis = intervalMillis;
+        this.completedParts = new ArrayList<>();
+        Configuration pending = null;
+        if (null != saved) {
+            for (Configuration part : saved.getListConfiguration(CHECKPOINT_PARTS)) {
+                if (part.getBool(PART_COMPLETE, false)) {
+                    this.completedParts.add(part);
+                } else {
+                    pending = part;
+                }
+            }
+            this.finished = saved.getBool(CHECKPOINT_FINISHED, false);
+        }
+        this.pendingPart = pending;
+    }
+
+    /**
+     * 检查点文件名
+     *
+     * @param fileName 任务文件名
+     * @return 检查点文件名
+     */
+    public static String checkpointFileName(String fileName) {
+        return Constant.HIDDEN_FILE_PREFIX + fileName + Constant.CHECKPOINT_FILE_SUFFIX;
+    }
+
+    /**
+     * 加载任务检查点：检查点文件不存在时从头开始
+     *
+     * @param dir 目录
+     * @param fileName 任务文件名
+     * @param intervalMillis 检查点间隔（毫秒）
+     * @return 任务检查点
+     */
+    public static TaskCheckpoint load(File dir, String fileName, long intervalMillis) {
+        File checkpointFile = new File(dir, TaskCheckpoint.checkpointFileName(fileName));
+        Configuration saved = checkpointFile.isFile() ? Configuration.from(checkpointFile) : null;
+        TaskCheckpoint checkpoint = new TaskCheckpoint(dir, fileName, intervalMillis, saved);
+        if (null != saved) {
+            logger.info(String.format("加载检查点[%s]: 已完成分片[%s], 已消费记录数[%s], 任务已完成[%s]", checkpointFile.getName(), checkpoint.completedParts.size(), checkpoint.getCommittedRecords(), checkpoint.finished));
+        }
+        return checkpoint;
+    }
+
+    /**
+     * 删除检查点文件
+     *
+     * @param dir 目录
+     * @param fileName 文件名前缀：删除该前缀的全部检查点文件
+     * @throws IOException ex
+     */
+    public static void clean(File dir, String fileName) throws IOException {
+        String prefix = Constant.HIDDEN_FILE_PREFIX + fileName;
+        for (String checkpointFile : PrefixFileScanner.delete(dir.toPath(), prefix, Constant.CHECKPOINT_FILE_SUFFIX)) {
+            logger.info(String.format("删除检查点文件： [%s].", checkpointFile));
+        }
+    }
+
+    /**
+     * 已完成的分片数
+     *
+     * @return 分片数
+     */
+    public int getCompletedPartCount() {
+        return this.completedParts.size();
+    }
+
+    /**
+     * 已完成分片的原子提交封存元数据
+     *
+     * @return 封存元数据
+     */
+    public List<Configuration> getSealedParts() {
+        List<Configuration> seals = new ArrayList<>();
+        for (Configuration part : this.completedParts) {
+            Configuration seal = part.getConfiguration(PART_SEAL);
+            if (null != seal) {
+                seals.add(seal);
+            }
+        }
+        return seals;
+    }
+
+    /**
+     * 未完成的分片
+     *
+     * @return 未完成的分片, 无则为null
+     */
+    public Configuration getPendingPart() {
+        return this.pendingPart;
+    }
+
+    /**
+     * 未完成分片的续写位置
+     *
+     * @return 字节位置, 无未完成分片时为0
+     */
+    public long getPendingOffset() {
+        return null == this.pendingPart ? 0L : this.pendingPart.getLong(PART_OFFSET, 0L);
+    }
+
+    /**
+     * 未完成分片已消费的记录数
+     *
+     * @return 记录数, 无未完成分片时为0
+     */
+    public long getPendingRecords() {
+        return null == this.pendingPart ? 0L : this.pendingPart.getLong(PART_RECORDS, 0L);
+    }
+
+    /**
+     * 未完成分片已写出的行数
+     *
+     * @return 行数, 无未完成分片时为0
+     */
+    public long getPendingRows() {
+        return null == this.pendingPart ? 0L : this.pendingPart.getLong(PART_ROWS, 0L);
+    }
+
+    /**
+     * 任务是否已完成
+     *
+     * @return 是否已完成
+     */
+    public boolean isFinished() {
+        return this.finished;
+    }
+
+    /**
+     * 检查点覆盖的记录数：续写前需跳过的记录数
+     *
+     * @return 记录数
+     */
+    public long getCommittedRecords() {
+        long records = this.getPendingRecords();
+        for (Configuration part : this.completedParts) {
+            records += part.getLong(PART_RECORDS, 0L);
+        }
+        return records;
+    }
+
+    /**
+     * 开始写入一个分片
+     *
+     * @param partName 分片文件名
+     * @param channel 分片文件通道
+     * @param receiver 滚动接收器
+     * @param rows 已写出的行数
+     */
+    public void startPart(String partName, FileChannel channel, RollingRecordReceiver receiver, LongSupplier rows) {
+        this.partName = partName;
+        this.channel = channel;
+        this.receiver = receiver;
+        this.rows = rows;
+        this.segment = null;
+        this.mappedStream = null;
+        this.nextCheckpointMillis = System.currentTimeMillis() + this.intervalMillis;
+    }
+
+    /**
+     * 绑定当前分片的分段压缩流：检查点时结束当前压缩段
+     *
+     * @param segment 分段压缩流
+     */
+    public void bindSegment(MemberCompressorOutputStream segment) {
+        this.segment = segment;
+    }
+
+    /**
+     * 绑定当前分片的内存映射输出流：检查点时写出映射窗口后再落盘
+     *
+     * @param mappedStream 内存映射输出流
+     */
+    public void bindMappedStream(MappedFileOutputStream mappedStream) {
+        this.mappedStream = mappedStream;
+    }
+
+    /**
+     * 是否到达检查点时间
+     *
+     * @return 是否需要记录检查点
+     */
+    public boolean isDue() {
+        return System.currentTimeMillis() >= this.nextCheckpointMillis;
+    }
+
+    /**
+     * 记录检查点：调用方须已将缓冲中的数据写出到输出流
+     *
+     * @throws IOException ex
+     */
+    public void checkpoint() throws IOException {
+        if (null != this.segment) {
+            this.segment.finishMember();
+        }
+        //内存映射输出：FileChannel.force不保证写出映射窗口中的修改
+        if (null != this.mappedStream) {
+            this.mappedStream.force();
+        } else {
+            this.channel.force(false);
+        }
+        Configuration part = Configuration.newDefault();
+        part.set(PART_NAME, this.partName);
+        part.set(PART_OFFSET, this.receiver.getBytesWritten());
+        part.set(PART_RECORDS, this.receiver.getRows());
+        part.set(PART_ROWS, this.rows.getAsLong());
+        part.set(PART_COMPLETE, false);
+        this.save(part);
+        this.nextCheckpointMillis = System.currentTimeMillis() + this.intervalMillis;
+        logger.info(String.format("记录检查点: 文件[%s], 位置[%s], 记录数[%s]", this.partName, part.getLong(PART_OFFSET), part.getLong(PART_RECORDS)));
+    }
+
+    /**
+     * 当前分片写完：分片文件已关闭
+     *
+     * @param file 分片文件
+     * @param seal 原子提交的封存元数据, 未开启原子提交时为null
+     * @throws IOException ex
+     */
+    public void finishPart(File file, Configuration seal) throws IOException {
+        //原子提交封存时已落盘
+        if (null == seal) {
+            try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                fileChannel.force(true);
+            }
+        }
+        Configuration part = Configuration.newDefault();
+        part.set(PART_NAME, this.partName);
+        part.set(PART_OFFSET, file.length());
+        part.set(PART_RECORDS, this.receiver.getRows());
+        part.set(PART_ROWS, this.rows.getAsLong());
+        part.set(PART_COMPLETE, true);
+        if (null != seal) {
+            part.set(PART_SEAL, seal.getInternal());
+        }
+        this.completedParts.add(part);
+        this.save(null);
+        this.channel = null;
+        this.segment = null;
+        this.mappedStream = null;
+    }
+
+    /**
+     * 任务写完：重新运行时不再写出任何分片
+     *
+     * @throws IOException ex
+     */
+    public void finish() throws IOException {
+        this.finished = true;
+        this.save(null);
+    }
+
+    /**
+     * 保存检查点文件
+     *
+     * @param pending 未完成的分片, 无则为null
+     * @throws IOException ex
+     */
+    private void save(Configuration pending) throws IOException {
+        List<Object> parts = new ArrayList<>(this.completedParts.size() + 1);
+        for (Configuration part : this.completedParts) {
+            parts.add(part.getInternal());
+        }
+        if (null != pending) {
+            parts.add(pending.getInternal());
+        }
+        Configuration checkpoint = Configuration.newDefault();
+        checkpoint.set(CHECKPOINT_PARTS, parts);
+        checkpoint.set(CHECKPOINT_FINISHED, this.finished);
+        FileCommitManager.writeAtomically(this.dir, TaskCheckpoint.checkpointFileName(this.fileName), checkpoint.toJSON());
+    }
+}
@@ -1,14 +1,13 @@
 package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
 
-import com.alibaba.datax.common.exception.DataXException;
-import com.csvreader.CsvWriter;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.StringUtils;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.plugin.TaskPluginCollector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.CharBuffer;
 import java.util.List;
 
 /**
@@ -26,14 +25,7 @@ public class TextCsvWriterManager {
      * @return UnstructuredWriter
      */
     public static UnstructuredWriter produceUnstructuredWriter(String fileFormat, char fieldDelimiter, Writer writer) {
-        //test文件格式
-        if (Constant.FILE_FORMAT_TEXT.equals(fileFormat)) {
-            return new TextWriterImpl(writer, fieldDelimiter);
-        }
-        //csv文件格式
-        else {
-            return new CsvWriterImpl(writer, fieldDelimiter);
-        }
+        return TextCsvWriterManager.produceUnstructuredWriter(fileFormat, String.valueOf(fieldDelimiter), writer);
     }
 
     /**
@@ -45,44 +37,73 @@ public class TextCsvWriterManager {
      * @return UnstructuredWriter
      */
     public static UnstructuredWriter produceUnstructuredWriter(String fileFormat, String fieldMultipleDelimiter, Writer writer) {
+        return TextCsvWriterManager.produceUnstructuredWriter(fileFormat, fieldMultipleDelimiter, null, null, writer);
+    }
+
+    /**
+     * 构建非结构化写入器: 多字符分割, text格式按需转义
+     *
+     * @param fileFormat 文件类型
+     * @param fieldMultipleDelimiter 字段分隔符
+     * @param escapeChar 转义符, 为null时不转义分隔符；仅text格式
+     * @param lineBreakReplacement 换行符的替换串, 为null时换行符按转义符转义；仅text格式
+     * @param writer Writer
+     * @return UnstructuredWriter
+     */
+    public static UnstructuredWriter produceUnstructuredWriter(String fileFormat, String fieldMultipleDelimiter, Character escapeChar, String lineBreakReplacement, Writer writer) {
         //test文件格式
         if (Constant.FILE_FORMAT_TEXT.equals(fileFormat)) {
-            return new TextWriterImpl(writer, fieldMultipleDelimiter);
+            return new TextWriterImpl(writer, fieldMultipleDelimiter, escapeChar, lineBreakReplacement);
         }
         //csv文件格式
         else {
-            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("字段多分割符仅支持[.txt]文件格式, 您配置的切分为 : [%s],当前配置的文件格式为:[%s]", fieldMultipleDelimiter, fileFormat));
+            return new CsvWriterImpl(writer, fieldMultipleDelimiter);
         }
     }
 }
 
 /**
- * 非结构化数据写入器--Csv实:
- * </span>csv 严格符合csv语法, 有标准的转义等处理</span>
+ * 非结构化数据写入器--按行缓冲的公共实现:
+ * <span>逐字段追加到可复用的行缓冲, 再整行（批量写入时为多行）写出, 避免每行构建中间字符串</span>
  */
-class CsvWriterImpl implements UnstructuredWriter {
-    private static final Logger logger = LoggerFactory.getLogger(CsvWriterImpl.class);
-
-    /**csv写入器*/
-    private final CsvWriter csvWriter;
+abstract class LineBufferedWriter implements UnstructuredWriter {
+    /**写出时使用的分块大小*/
+    private static final int CHUNK_SIZE = 8192;
+    /**批量写入时行缓冲的写出阈值（字符数）*/
+    private static final int BATCH_BUFFER_SIZE = 64 * 1024;
+    /**换行符*/
+    protected final String lineSeparator = System.lineSeparator();
+    /**行缓冲：跨行复用*/
+    protected final StringBuilder lineBuffer = new StringBuilder(256);
+    /**Writer*/
+    private final Writer textWriter;
+    /**写出缓冲：跨行复用*/
+    private final char[] chunk = new char[CHUNK_SIZE];
 
     /**
-     * 通过写入器对象、字段分隔符构建csv写入器对象
+     * 通过Writer构建写入器对象
      *
      * @param writer Writer
-     * @param fieldDelimiter 字段分隔符
      */
-    public CsvWriterImpl(Writer writer, char fieldDelimiter) {
-        //初始化csv写入器
-        this.csvWriter = new CsvWriter(writer, fieldDelimiter);
-        //设置文本限定符: "
-        this.csvWriter.setTextQualifier('"');
-        //使用文本限定符
-        this.csvWriter.setUseTextQualifier(true);
-        //换行符：linux[\n], windows[\r\n]
-        this.csvWriter.setRecordDelimiter(IOUtils.LINE_SEPARATOR.charAt(0));
+    protected LineBufferedWriter(Writer writer) {
+        this.textWriter = writer;
     }
 
+    /**
+     * 将一行（已分割的字段）追加到行缓冲
+     *
+     * @param splitedRows 分割的行
+     */
+    protected abstract void appendFields(List<String> splitedRows);
+
+    /**
+     * 将一条记录追加到行缓冲
+     *
+     * @param record 记录
+     * @param formatter 列格式化器
+     */
+    protected abstract void appendRecord(Record record, ColumnFormatter formatter);
+
     /**
      * 写入一行
      *
@@ -91,10 +112,74 @@ class CsvWriterImpl implements UnstructuredWriter {
      */
     @Override
     public void writeOneRecord(List<String> splitedRows) throws IOException {
-        if (splitedRows.isEmpty()) {
-            logger.info("Found one record line which is empty.");
+        this.lineBuffer.setLength(0);
+        this.appendFields(splitedRows);
+        this.writeLineBuffer();
+    }
+
+    /**
+     * 直接写入一条记录：列由格式化器追加到行缓冲，整行完成后才写出
+     *
+     * @param record 记录
+     * @param formatter 列格式化器
+     * @throws IOException ex
+     */
+    @Override
+    public void writeRecord(Record record, ColumnFormatter formatter) throws IOException {
+        this.lineBuffer.setLength(0);
+        this.appendRecord(record, formatter);
+        this.writeLineBuffer();
+    }
+
+    /**
+     * 批量写入记录：多行追加到同一个行缓冲, 缓冲达到阈值或批结束时才写出
+     * <span>格式化异常的记录回退到该行起始位置并作为脏数据收集, 写出异常直接抛出</span>
+     *
+     * @param records 记录数组
+     * @param count 记录数
+     * @param formatter 列格式化器
+     * @param taskPluginCollector 任务处理器
+     * @return 脏数据记录数
+     * @throws IOException ex
+     */
+    @Override
+    public int writeBatch(Record[] records, int count, ColumnFormatter formatter, TaskPluginCollector taskPluginCollector) throws IOException {
+        StringBuilder line = this.lineBuffer;
+        line.setLength(0);
+        int dirty = 0;
+        for (int i = 0; i < count; i++) {
+            int mark = line.length();
+            try {
+                this.appendRecord(records[i], formatter);
+            } catch (Exception e) {
+                // warn: dirty data
+                line.setLength(mark);
+                taskPluginCollector.collectDirtyRecord(records[i], e);
+                dirty++;
+                continue;
+            }
+            if (line.length() >= BATCH_BUFFER_SIZE) {
+                this.writeLineBuffer();
+                line.setLength(0);
+            }
+        }
+        this.writeLineBuffer();
+        return dirty;
+    }
+
+    /**
+     * 将行缓冲分块写出到Writer
+     *
+     * @throws IOException ex
+     */
+    private void writeLineBuffer() throws IOException {
+        StringBuilder line = this.lineBuffer;
+        int length = line.length();
+        for (int offset = 0; offset < length; offset += CHUNK_SIZE) {
+            int end = Math.min(length, offset + CHUNK_SIZE);
+            line.getChars(offset, end, this.chunk, 0);
+            this.textWriter.write(this.chunk, 0, end - offset);
         }
-        this.csvWriter.writeRecord(splitedRows.toArray(new String[0]));
     }
 
     /**
@@ -103,9 +188,8 @@ class CsvWriterImpl implements UnstructuredWriter {
      * @throws IOException ex
      */
     @Override
-    @SuppressWarnings(value = {""})
     public void flush() throws IOException {
-        this.csvWriter.flush();
+        this.textWriter.flush();
     }
 
     /**
@@ -115,23 +199,212 @@ class CsvWriterImpl implements UnstructuredWriter {
      */
     @Override
     public void close() throws IOException {
-        this.csvWriter.close();
+        this.textWriter.close();
+    }
+}
+
+/**
+ * 非结构化数据写入器--Csv实现:
+ * <span>csv 严格符合RFC 4180, 支持多字符分隔符: 字段包含分隔符、双引号、回车或换行时以双引号包围, 字段内的双引号写为两个双引号</span>
+ * <span>与javacsv保持一致：首列为空或以#开头时同样包围; 不包含任何列的记录不输出</span>
+ */
+class CsvWriterImpl extends LineBufferedWriter {
+    private static final Logger logger = LoggerFactory.getLogger(CsvWriterImpl.class);
+    /**文本限定符*/
+    private static final char QUOTE = '"';
+    /**注释符：首列以此开头时包围, 避免被按注释跳过*/
+    private static final char COMMENT = '#';
+
+    /**字段分隔符*/
+    private final char[] fieldDelimiter;
+    /**字段缓冲：跨列复用*/
+    private final StringBuilder fieldBuffer = new StringBuilder(64);
+    /**字段字符：跨列复用*/
+    private char[] fieldChars = new char[64];
+
+    /**
+     * 通过写入器对象、字段分隔符构建csv写入器对象
+     *
+     * @param writer Writer
+     * @param fieldDelimiter 字段分隔符
+     */
+    public CsvWriterImpl(Writer writer, char fieldDelimiter) {
+        this(writer, String.valueOf(fieldDelimiter));
+    }
+
+    /**
+     * 通过写入器对象、字段分隔符构建csv写入器对象
+     *
+     * @param writer Writer
+     * @param fieldMultipleDelimiter 字段分隔符, 可为多字符
+     */
+    public CsvWriterImpl(Writer writer, String fieldMultipleDelimiter) {
+        super(writer);
+        this.fieldDelimiter = fieldMultipleDelimiter.toCharArray();
     }
 
+    /**
+     * 将一行（已分割的字段）追加到行缓冲
+     *
+     * @param splitedRows 分割的行
+     */
+    @Override
+    protected void appendFields(List<String> splitedRows) {
+        int size = splitedRows.size();
+        if (0 == size) {
+            logger.info("Found one record line which is empty.");
+            return;
+        }
+        for (int i = 0; i < size; i++) {
+            if (i > 0) {
+                this.lineBuffer.append(this.fieldDelimiter);
+            }
+            this.fieldBuffer.setLength(0);
+            //与javacsv保持一致：null输出为空串
+            String field = splitedRows.get(i);
+            if (null != field) {
+                this.fieldBuffer.append(field);
+            }
+            this.appendFieldBuffer(0 == i);
+        }
+        this.lineBuffer.append(this.lineSeparator);
+    }
+
+    /**
+     * 将一条记录追加到行缓冲：先格式化到字段缓冲, 再按需转义追加
+     *
+     * @param record 记录
+     * @param formatter 列格式化器
+     */
+    @Override
+    protected void appendRecord(Record record, ColumnFormatter formatter) {
+        int recordLength = record.getColumnNumber();
+        if (0 == recordLength) {
+            logger.info("Found one record line which is empty.");
+            return;
+        }
+        for (int i = 0; i < recordLength; i++) {
+            if (i > 0) {
+                this.lineBuffer.append(this.fieldDelimiter);
+            }
+            this.fieldBuffer.setLength(0);
+            formatter.format(i, record.getColumn(i), this.fieldBuffer);
+            this.appendFieldBuffer(0 == i);
+        }
+        this.lineBuffer.append(this.lineSeparator);
+    }
+
+    /**
+     * 将字段缓冲追加到行缓冲：无需包围时整段追加, 否则一次扫描完成双引号转义
+     *
+     * @param firstColumn 是否首列
+     */
+    private void appendFieldBuffer(boolean firstColumn) {
+        int length = this.fieldBuffer.length();
+        if (length > this.fieldChars.length) {
+            this.fieldChars = new char[Math.max(length, this.fieldChars.length * 2)];
+        }
+        char[] chars = this.fieldChars;
+        this.fieldBuffer.getChars(0, length, chars, 0);
+        StringBuilder line = this.lineBuffer;
+        if (!this.needsQuote(chars, length, firstColumn)) {
+            line.append(chars, 0, length);
+            return;
+        }
+        line.append(QUOTE);
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            if (QUOTE == chars[i]) {
+                line.append(chars, start, i + 1 - start).append(QUOTE);
+                start = i + 1;
+            }
+        }
+        line.append(chars, start, length - start);
+        line.append(QUOTE);
+    }
+
+    /**
+     * 字段是否需要以双引号包围
+     *
+     * @param chars 字段字符
+     * @param length 字段长度
+     * @param firstColumn 是否首列
+     * @return 是否需要包围
+     */
+    private boolean needsQuote(char[] chars, int length, boolean firstColumn) {
+        //首列为空时包围, 避免单列空值被当作空行
+        if (0 == length) {
+            return firstColumn;
+        }
+        if (firstColumn && COMMENT == chars[0]) {
+            return true;
+        }
+        char[] delimiter = this.fieldDelimiter;
+        char delimiterStart = delimiter[0];
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+            //'\n' '\r' '"' 均不大于'"', 绝大多数字符只需一次比较
+            if (c <= QUOTE && (QUOTE == c || '\n' == c || '\r' == c)) {
+                return true;
+            }
+            if (c == delimiterStart && CsvWriterImpl.regionMatches(chars, i, length, delimiter, delimiter.length)) {
+                return true;
+            }
+        }
+        //多字符分隔符：字段结尾与分隔符开头拼接后可能被误识别为分隔符
+        for (int prefix = Math.min(delimiter.length - 1, length); prefix > 0; prefix--) {
+            if (CsvWriterImpl.regionMatches(chars, length - prefix, length, delimiter, prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * chars从offset开始是否以pattern的前patternLength个字符开头
+     *
+     * @param chars 字符
+     * @param offset 起始位置
+     * @param length 字符有效长度
+     * @param pattern 匹配串
+     * @param patternLength 匹配长度
+     * @return 是否匹配
+     */
+    private static boolean regionMatches(char[] chars, int offset, int length, char[] pattern, int patternLength) {
+        if (length - offset < patternLength) {
+            return false;
+        }
+        for (int i = 0; i < patternLength; i++) {
+            if (chars[offset + i] != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
 
 /**
  * 非结构化数据写入器--text实现:
- * <span>StringUtils的join方式, 简单的字符串拼接</span>
+ * <span>用列分隔符简单拼接, 默认不做转义</span>
+ * <span>配置转义符时, 字段中的转义符、分隔符（以及与其后分隔符拼接后可能被误识别的字段结尾）前加转义符, 换行符写为转义符+n、转义符+r;
+ * 配置换行符替换串时, 换行符（\r\n视为一个）写为替换串. 字段先直接格式化到行缓冲, 扫描无特殊字符时不再复制</span>
  */
-class TextWriterImpl implements UnstructuredWriter {
+class TextWriterImpl extends LineBufferedWriter {
     private static final Logger logger = LoggerFactory.getLogger(TextWriterImpl.class);
-    /**单段分隔符*/
-    private char fieldDelimiter;
-    /**多字段分隔符*/
-    private String fieldMultipleDelimiter;
-    /**Writer*/
-    private final Writer textWriter;
+    /**字段分隔符（单字符分隔符同样以字符串形式保存）*/
+    private final String fieldDelimiter;
+    /**字段分隔符字符*/
+    private final char[] delimiterChars;
+    /**是否转义分隔符与转义符*/
+    private final boolean escape;
+    /**转义符*/
+    private final char escapeChar;
+    /**换行符的替换串, 为null时换行符按转义符转义*/
+    private final String lineBreakReplacement;
+    /**特殊字符表（下标为字符）：字段中不含这些字符时无需转义；不转义时为null*/
+    private final boolean[] specialChars;
+    /**转义时的字段字符：跨列复用*/
+    private char[] fieldChars = new char[64];
 
     /**
      * 通过Writer、字段分隔符构建写入器对象
@@ -140,8 +413,7 @@ class TextWriterImpl implements UnstructuredWriter {
      * @param fieldDelimiter 单字段分隔符
      */
     public TextWriterImpl(Writer writer, char fieldDelimiter) {
-        this.fieldDelimiter = fieldDelimiter;
-        this.textWriter = writer;
+        this(writer, String.valueOf(fieldDelimiter));
     }
 
     /**
@@ -151,50 +423,210 @@ class TextWriterImpl implements UnstructuredWriter {
      * @param fieldMultipleDelimiter 多字段分隔符
      */
     public TextWriterImpl(Writer writer, String fieldMultipleDelimiter) {
-        this.fieldMultipleDelimiter = fieldMultipleDelimiter;
-        this.textWriter = writer;
+        this(writer, fieldMultipleDelimiter, null, null);
+    }
+
+    /**
+     * 通过Writer、字段分隔符、转义配置构建写入器对象
+     *
+     * @param writer Writer
+     * @param fieldMultipleDelimiter 多字段分隔符
+     * @param escapeChar 转义符, 为null时不转义分隔符
+     * @param lineBreakReplacement 换行符的替换串, 为null时换行符按转义符转义
+     */
+    public TextWriterImpl(Writer writer, String fieldMultipleDelimiter, Character escapeChar, String lineBreakReplacement) {
+        super(writer);
+        this.fieldDelimiter = fieldMultipleDelimiter;
+        this.delimiterChars = fieldMultipleDelimiter.toCharArray();
+        this.escape = null != escapeChar;
+        this.escapeChar = this.escape ? escapeChar : 0;
+        this.lineBreakReplacement = lineBreakReplacement;
+        if (!this.escape && null == lineBreakReplacement) {
+            this.specialChars = null;
+            return;
+        }
+        char max = '\r';
+        if (this.escape) {
+            max = (char) Math.max(max, this.escapeChar);
+            if (this.delimiterChars.length > 0) {
+                max = (char) Math.max(max, this.delimiterChars[0]);
+            }
+        }
+        this.specialChars = new boolean[max + 1];
+        this.specialChars['\n'] = true;
+        this.specialChars['\r'] = true;
+        if (this.escape) {
+            this.specialChars[this.escapeChar] = true;
+            if (this.delimiterChars.length > 0) {
+                this.specialChars[this.delimiterChars[0]] = true;
+            }
+        }
     }
 
     /**
      * 对每一行的处理
      *
      * @param splitedRows 分割的行
-     * @throws IOException ex
      */
     @Override
-    public void writeOneRecord(List<String> splitedRows) throws IOException {
+    protected void appendFields(List<String> splitedRows) {
         //空行
         if (splitedRows.isEmpty()) {
             logger.info("Found one record line which is empty.");
         }
-        //多字段分隔符处理
-        if (this.fieldMultipleDelimiter != null) {
-            this.textWriter.write(String.format("%s%s", StringUtils.join(splitedRows, this.fieldMultipleDelimiter), IOUtils.LINE_SEPARATOR));
-        }
-        //但字段分割符处理
-        else {
-            this.textWriter.write(String.format("%s%s", StringUtils.join(splitedRows, this.fieldDelimiter), IOUtils.LINE_SEPARATOR));
+        StringBuilder line = this.lineBuffer;
+        for (int i = 0, size = splitedRows.size(); i < size; i++) {
+            if (i > 0) {
+                line.append(this.fieldDelimiter);
+            }
+            //与StringUtils.join保持一致：null输出为空串
+            String field = splitedRows.get(i);
+            if (null != field) {
+                int start = line.length();
+                line.append(field);
+                if (null != this.specialChars) {
+                    this.escapeField(start, i == size - 1);
+                }
+            }
         }
+        line.append(this.lineSeparator);
     }
 
     /**
-     * flush
+     * 将一条记录追加到行缓冲（含换行符）
      *
-     * @throws IOException ex
+     * @param record 记录
+     * @param formatter 列格式化器
      */
     @Override
-    public void flush() throws IOException {
-        this.textWriter.flush();
+    protected void appendRecord(Record record, ColumnFormatter formatter) {
+        int recordLength = record.getColumnNumber();
+        //空行
+        if (0 == recordLength) {
+            logger.info("Found one record line which is empty.");
+        }
+        StringBuilder line = this.lineBuffer;
+        for (int i = 0; i < recordLength; i++) {
+            if (i > 0) {
+                line.append(this.fieldDelimiter);
+            }
+            int start = line.length();
+            formatter.format(i, record.getColumn(i), line);
+            if (null != this.specialChars) {
+                this.escapeField(start, i == recordLength - 1);
+            }
+        }
+        line.append(this.lineSeparator);
     }
 
     /**
-     * close
+     * 转义行缓冲中刚追加的字段：扫描到第一个需要转义的字符前不做任何复制
      *
-     * @throws IOException ex
+     * @param start 字段在行缓冲中的起始位置
+     * @param lastField 是否为行内最后一个字段（其后为换行符而非分隔符）
      */
-    @Override
-    public void close() throws IOException {
-        this.textWriter.close();
+    private void escapeField(int start, boolean lastField) {
+        StringBuilder line = this.lineBuffer;
+        boolean[] special = this.specialChars;
+        int end = line.length();
+        for (int i = start; i < end; i++) {
+            char c = line.charAt(i);
+            if (c < special.length && special[c] && this.needsEscape(line, i, end, lastField)) {
+                this.rewrite(i, end, lastField);
+                return;
+            }
+        }
     }
 
+    /**
+     * 字段中的字符是否需要转义或替换
+     *
+     * @param chars 字段所在字符序列
+     * @param i 字符位置
+     * @param end 字段结束位置
+     * @param lastField 是否为行内最后一个字段
+     * @return 是否需要转义
+     */
+    private boolean needsEscape(CharSequence chars, int i, int end, boolean lastField) {
+        char c = chars.charAt(i);
+        if ('\n' == c || '\r' == c) {
+            return true;
+        }
+        if (!this.escape) {
+            return false;
+        }
+        if (c == this.escapeChar) {
+            return true;
+        }
+        char[] delimiter = this.delimiterChars;
+        if (0 == delimiter.length || c != delimiter[0]) {
+            return false;
+        }
+        //完整的分隔符, 或字段结尾与其后的分隔符拼接后构成分隔符
+        if (end - i >= delimiter.length) {
+            return TextWriterImpl.regionMatches(chars, i, delimiter, delimiter.length);
+        }
+        return !lastField && TextWriterImpl.regionMatches(chars, i, delimiter, end - i);
+    }
+
+    /**
+     * 从第一个需要转义的字符开始重写字段
+     *
+     * @param from 第一个需要转义的字符在行缓冲中的位置
+     * @param end 字段结束位置
+     * @param lastField 是否为行内最后一个字段
+     */
+    private void rewrite(int from, int end, boolean lastField) {
+        StringBuilder line = this.lineBuffer;
+        int length = end - from;
+        if (length > this.fieldChars.length) {
+            this.fieldChars = new char[Math.max(length, this.fieldChars.length * 2)];
+        }
+        char[] chars = this.fieldChars;
+        line.getChars(from, end, chars, 0);
+        line.setLength(from);
+        CharSequence field = CharBuffer.wrap(chars, 0, length);
+        boolean[] special = this.specialChars;
+        int run = 0;
+        for (int i = 0; i < length; i++) {
+            char c = chars[i];
+            if (c >= special.length || !special[c] || !this.needsEscape(field, i, length, lastField)) {
+                continue;
+            }
+            line.append(chars, run, i - run);
+            if ('\n' == c || '\r' == c) {
+                if (null != this.lineBreakReplacement) {
+                    line.append(this.lineBreakReplacement);
+                    //\r\n视为一个换行
+                    if ('\r' == c && i + 1 < length && '\n' == chars[i + 1]) {
+                        i++;
+                    }
+                } else {
+                    line.append(this.escapeChar).append('\n' == c ? 'n' : 'r');
+                }
+            } else {
+                line.append(this.escapeChar).append(c);
+            }
+            run = i + 1;
+        }
+        line.append(chars, run, length - run);
+    }
+
+    /**
+     * chars从offset开始是否以pattern的前patternLength个字符开头（调用方保证长度足够）
+     *
+     * @param chars 字符序列
+     * @param offset 起始位置
+     * @param pattern 匹配串
+     * @param patternLength 匹配长度
+     * @return 是否匹配
+     */
+    private static boolean regionMatches(CharSequence chars, int offset, char[] pattern, int patternLength) {
+        for (int i = 0; i < patternLength; i++) {
+            if (chars.charAt(offset + i) != pattern[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
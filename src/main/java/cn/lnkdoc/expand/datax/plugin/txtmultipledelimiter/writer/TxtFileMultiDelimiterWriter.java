@@ -6,13 +6,18 @@ import com.alibaba.datax.common.spi.Writer;
 import com.alibaba.datax.common.util.Configuration;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.filefilter.PrefixFileFilter;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.text.SimpleDateFormat;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.LongSupplier;
 
 /**
  * 多分隔符文本文件读取器
@@ -29,6 +34,8 @@ public class TxtFileMultiDelimiterWriter extends Writer {
 
         /**插件配置信息*/
         private Configuration writerSliceConfig = null;
+        /**各任务的文件名：原子提交时据此查找任务元数据*/
+        private final List<String> taskFileNames = new ArrayList<String>();
 
         /**
          * 初始化读取器作业
@@ -50,7 +57,7 @@ public class TxtFileMultiDelimiterWriter extends Writer {
                 logger.warn("您使用format配置日期格式化, 这是不推荐的行为, 请优先使用dateFormat配置项, 两项同时存在则使用dateFormat.");
             }
 
-            //非结构化参数校验
+            //非结构化参数校验：含写出规格的解析, 编码、压缩格式、列定义等在作业初始化时暴露错误
             UnstructuredStorageWriterUtil.validateParameter(this.writerSliceConfig);
         }
 
@@ -117,14 +124,14 @@ public class TxtFileMultiDelimiterWriter extends Writer {
                 try {
                     if (dir.exists()) {
                         // warn:不要使用FileUtils.deleteQuietly(dir);
-                        FilenameFilter filter = new PrefixFileFilter(fileName);
-                        File[] filesWithFileNamePrefix = dir.listFiles(filter);
-                        //File[] filesWithFileNamePrefix = Optional.ofNullable(dir.listFiles(filter)).orElseGet(() -> new File[]{});
-                        for (File eachFile : filesWithFileNamePrefix) {
-                            logger.info(String.format("开始删除文件： [%s].", eachFile.getName()));
-                            FileUtils.forceDelete(eachFile);
+                        //流式扫描该前缀的文件并行删除：不在内存中构建整个目录的文件列表；分区写出时逐个清理分区目录
+                        for (File scanDir : this.scanDirs(dir)) {
+                            long deleted = PrefixFileScanner.deleteAll(scanDir.toPath(), fileName, "", Constant.DELETE_THREADS);
+                            logger.info(String.format("已删除 [%s] 下面以 [%s] 开头的文件[%s]个", scanDir, fileName, deleted));
                         }
                         // FileUtils.cleanDirectory(dir);
+                        //清理resume模式残留的检查点文件
+                        TaskCheckpoint.clean(dir, fileName);
                     }
                 } catch (NullPointerException npe) {
                     throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.Write_FILE_ERROR, String.format("您配置的目录清空时出现空指针异常 : [%s]", path), npe);
@@ -153,15 +160,15 @@ public class TxtFileMultiDelimiterWriter extends Writer {
                         if (dir.isFile()) {
                             throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的path: [%s] 不是一个合法的目录, 请您注意文件重名, 不合法目录名等情况.", path));
                         }
-                        //检查该文件名前缀的文件是否存在，存在则冲突
-                        FilenameFilter filter = new PrefixFileFilter(fileName);
-                        File[] filesWithFileNamePrefix = dir.listFiles(filter);
-                        if (filesWithFileNamePrefix != null && filesWithFileNamePrefix.length > 0) {
-                            List<String> allFiles = new ArrayList<String>();
-                            for (File eachFile : filesWithFileNamePrefix) {
-                                allFiles.add(eachFile.getName());
+                        //检查该文件名前缀的文件是否存在，存在则冲突：最多列出部分冲突文件
+                        List<String> conflictFiles = new ArrayList<String>();
+                        for (File scanDir : this.scanDirs(dir)) {
+                            if (conflictFiles.size() < Constant.MAX_CONFLICT_FILES_LOGGED) {
+                                conflictFiles.addAll(PrefixFileScanner.find(scanDir.toPath(), fileName, Constant.MAX_CONFLICT_FILES_LOGGED - conflictFiles.size()));
                             }
-                            logger.error(String.format("冲突文件列表为: [%s]", StringUtils.join(allFiles, ",")));
+                        }
+                        if (!conflictFiles.isEmpty()) {
+                            logger.error(String.format("冲突文件列表为(最多列出%s个): [%s]", Constant.MAX_CONFLICT_FILES_LOGGED, StringUtils.join(conflictFiles, ",")));
                             throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的path: [%s] 目录不为空, 下面存在其他文件或文件夹.", path));
                         }
                     }
@@ -175,12 +182,55 @@ public class TxtFileMultiDelimiterWriter extends Writer {
                     }
                 } catch (SecurityException se) {
                     throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.SECURITY_NOT_ENOUGH, String.format("您没有权限查看目录 : [%s]", path));
+                } catch (IOException e) {
+                    throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.Write_FILE_ERROR, String.format("无法查看目录 : [%s]", path), e);
                 }
             }
+            //--续写-模式
+            else if (Constant.WRITE_MODE_RESUME.equals(writeMode)) {
+                logger.info(String.format("由于您配置了writeMode resume, 写入前不做清理工作, [%s] 目录下以 [%s] 开头的文件将从检查点继续写入", path, fileName));
+            }
             //不支持的模式
             else {
-                throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.ILLEGAL_VALUE, String.format("仅支持 truncate, append, nonConflict 三种模式, 不支持您配置的 writeMode 模式 : [%s]", writeMode));
+                throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.ILLEGAL_VALUE, String.format("仅支持 truncate, append, nonConflict, resume 四种模式, 不支持您配置的 writeMode 模式 : [%s]", writeMode));
+            }
+
+            //原子提交：清理此前失败作业残留的暂存文件（续写模式保留）, 以及上次作业的_SUCCESS清单
+            if (this.writerSliceConfig.getBool(Key.ATOMIC_COMMIT, false)) {
+                File dir = new File(path);
+                try {
+                    if (!Constant.WRITE_MODE_RESUME.equals(writeMode)) {
+                        for (File scanDir : this.scanDirs(dir)) {
+                            FileCommitManager.cleanStaging(scanDir, fileName);
+                        }
+                    }
+                    if (this.writerSliceConfig.getBool(Key.SUCCESS_FILE, false)) {
+                        FileUtils.deleteQuietly(new File(dir, Constant.SUCCESS_FILE_NAME));
+                    }
+                } catch (IOException e) {
+                    throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.Write_FILE_ERROR, String.format("无法清理暂存文件 : [%s]", path), e);
+                }
+            }
+        }
+
+        /**
+         * 需要按文件名前缀清理、检查的目录：目录本身, 分区写出时还包括已有的各分区目录
+         *
+         * @param dir 目录
+         * @return 目录列表
+         * @throws IOException ex
+         */
+        private List<File> scanDirs(File dir) throws IOException {
+            List<File> dirs = new ArrayList<File>();
+            dirs.add(dir);
+            List<Integer> partitionBy = this.writerSliceConfig.getList(Key.PARTITION_BY, Integer.class);
+            if (null != partitionBy && !partitionBy.isEmpty() && dir.isDirectory()) {
+                PartitionPath partitionPath = PartitionPath.parse(this.writerSliceConfig.getString(Key.PARTITION_PATH), partitionBy);
+                for (Path partitionDir : PrefixFileScanner.directories(dir.toPath(), partitionPath.getDepth())) {
+                    dirs.add(partitionDir.toFile());
+                }
             }
+            return dirs;
         }
 
         /**
@@ -188,7 +238,23 @@ public class TxtFileMultiDelimiterWriter extends Writer {
          */
         @Override
         public void post() {
-
+            //原子提交：全部任务成功后统一重命名暂存文件
+            if (this.writerSliceConfig.getBool(Key.ATOMIC_COMMIT, false)) {
+                String path = this.writerSliceConfig.getString(Key.PATH);
+                boolean successFile = this.writerSliceConfig.getBool(Key.SUCCESS_FILE, false);
+                try {
+                    FileCommitManager.commit(new File(path), this.taskFileNames, successFile);
+                } catch (IOException e) {
+                    throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.Write_FILE_IO_ERROR, String.format("提交文件失败 : [%s]", path), e);
+                }
+            }
+            //续写模式：作业成功后删除检查点, 下次运行从头写入
+            if (Constant.WRITE_MODE_RESUME.equals(this.writerSliceConfig.getString(Key.WRITE_MODE))) {
+                String path = this.writerSliceConfig.getString(Key.PATH);
+                for (String taskFileName : this.taskFileNames) {
+                    FileUtils.deleteQuietly(new File(path, TaskCheckpoint.checkpointFileName(taskFileName)));
+                }
+            }
         }
 
         /**
@@ -213,35 +279,34 @@ public class TxtFileMultiDelimiterWriter extends Writer {
             //获取文件名（文件名前缀）
             String filePrefix = this.writerSliceConfig.getString(Key.FILE_NAME);
 
-            //文件列表
+            //本次拆分已使用的文件名：目录中已存在的文件按候选文件名逐个检查, 不加载整个目录
             Set<String> allFiles = new HashSet<String>();
             //文件目录
-            String path = null;
-            try {
-                //获取文件目录
-                path = this.writerSliceConfig.getString(Key.PATH);
-                //获取目录对象
-                File dir = new File(path);
-                //获取目录下文件列表
-                String[] list = dir.list();
-                //添加该目录下的文件到文件列表
-                allFiles.addAll(Arrays.asList(list));
-            } catch (NullPointerException ex) {
+            String path = this.writerSliceConfig.getString(Key.PATH);
+            File dir = new File(path);
+            if (!dir.isDirectory()) {
                 throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.NULL_POINTER_ERROR, String.format("处理目录: [%s]时发生了异常，该目录不合法。", path));
-            } catch (SecurityException ex) {
-                throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.SECURITY_NOT_ENOUGH, String.format("您没有权限查看目录 : [%s]", path));
-            } catch (Exception ex) {
-                throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.UNKNOWN_ERROR, String.format("您没有权限查看目录 : [%s]", path));
             }
 
+            //文件后缀
+            String suffix = this.writerSliceConfig.getString(Key.SUFFIX, Constant.DEFAULT_SUFFIX);
+            //文件名模板：确定的文件名
+            String fileNameTemplate = this.writerSliceConfig.getString(Key.FILE_NAME_TEMPLATE);
+            if (null != fileNameTemplate) {
+                return this.splitByTemplate(mandatoryNumber, dir, filePrefix, fileNameTemplate, suffix);
+            }
+
+            //续写模式：文件名须在多次运行间保持不变, 以便找到各任务的检查点
+            boolean resume = Constant.WRITE_MODE_RESUME.equals(this.writerSliceConfig.getString(Key.WRITE_MODE));
+
             for (int i = 0; i < mandatoryNumber; i++) {
                 /*处理同名文件*/
                 //获取配置信息
                 Configuration splitedTaskConfig = this.writerSliceConfig.clone();
-                //文件名
-                String fullFileName = filePrefix;
-                //文件列表中是否包含同名文件，如果包含则以uuid进行拼接，组成新的文件名
-                while (allFiles.contains(fullFileName)) {
+                //文件名：续写模式按任务序号命名
+                String fullFileName = resume && i > 0 ? String.format("%s__%04d", filePrefix, i) : filePrefix;
+                //本次拆分或目录中是否包含同名文件，如果包含则以uuid进行拼接，组成新的文件名
+                while (!resume && (allFiles.contains(fullFileName) || this.exists(dir, fullFileName + suffix))) {
                     //获取uuid字符串
                     String uuid = UUID.randomUUID().toString().replace('-', '_');
                     fullFileName = String.format("%s__%s", filePrefix, uuid);
@@ -249,6 +314,7 @@ public class TxtFileMultiDelimiterWriter extends Writer {
                 }
                 //将新的文件名添加到文件列表
                 allFiles.add(fullFileName);
+                this.taskFileNames.add(fullFileName);
 
                 //更新文件名
                 splitedTaskConfig.set(Key.FILE_NAME, fullFileName);
@@ -261,6 +327,80 @@ public class TxtFileMultiDelimiterWriter extends Writer {
             return writerSplitConfigs;
         }
 
+        /**
+         * 按文件名模板拆分：文件名由模板确定, 重新运行时覆盖同名文件；append模式下一次前缀扫描检查冲突
+         *
+         * @param mandatoryNumber 拆分数
+         * @param dir 目录
+         * @param filePrefix 文件名前缀
+         * @param fileNameTemplate 文件名模板
+         * @param suffix 文件后缀
+         * @return 配置信息
+         */
+        private List<Configuration> splitByTemplate(int mandatoryNumber, File dir, String filePrefix, String fileNameTemplate, String suffix) {
+            if (mandatoryNumber > 1 && !fileNameTemplate.contains(FileNameTemplate.VAR_TASK_ID)) {
+                throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.ILLEGAL_VALUE, String.format("任务数为[%s], fileNameTemplate [%s]须包含%s.", mandatoryNumber, fileNameTemplate, FileNameTemplate.VAR_TASK_ID));
+            }
+            //作业标识：未配置时使用拆分时间, 此时重新运行的文件名不同
+            String jobId = this.writerSliceConfig.getString(Key.JOB_ID);
+            if (StringUtils.isBlank(jobId)) {
+                //续写模式须按相同的文件名找到检查点
+                if (fileNameTemplate.contains(FileNameTemplate.VAR_JOB_ID) && Constant.WRITE_MODE_RESUME.equals(this.writerSliceConfig.getString(Key.WRITE_MODE))) {
+                    throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.REQUIRED_VALUE, String.format("writeMode为resume且fileNameTemplate包含%s时, 须配置jobId.", FileNameTemplate.VAR_JOB_ID));
+                }
+                jobId = new SimpleDateFormat("yyyyMMddHHmmss").format(new Date());
+                if (fileNameTemplate.contains(FileNameTemplate.VAR_JOB_ID)) {
+                    logger.warn(String.format("您没有配置jobId, 文件名模板中的%s使用[%s]", FileNameTemplate.VAR_JOB_ID, jobId));
+                }
+            }
+
+            List<Configuration> writerSplitConfigs = new ArrayList<Configuration>();
+            //各任务的首个文件名
+            Set<String> firstFileNames = new LinkedHashSet<String>();
+            for (int i = 0; i < mandatoryNumber; i++) {
+                String taskTemplate = FileNameTemplate.resolveTask(fileNameTemplate, filePrefix, jobId, i, suffix);
+                String fullFileName = FileNameTemplate.resolvePart(taskTemplate, 0);
+                firstFileNames.add(fullFileName);
+                this.taskFileNames.add(fullFileName);
+
+                Configuration splitedTaskConfig = this.writerSliceConfig.clone();
+                splitedTaskConfig.set(Key.FILE_NAME, fullFileName);
+                splitedTaskConfig.set(Key.FILE_NAME_TEMPLATE, taskTemplate);
+                writerSplitConfigs.add(splitedTaskConfig);
+            }
+            logger.info(String.format("拆分写入文件名:[%s]至[%s], 共[%s]个任务", this.taskFileNames.get(0), this.taskFileNames.get(this.taskFileNames.size() - 1), mandatoryNumber));
+
+            //append模式不覆盖已有文件
+            if ("append".equals(this.writerSliceConfig.getString(Key.WRITE_MODE))) {
+                String commonPrefix = FileNameTemplate.commonPrefix(fileNameTemplate, filePrefix, jobId, suffix);
+                try {
+                    Set<String> existing = PrefixFileScanner.findExisting(dir.toPath(), commonPrefix, firstFileNames);
+                    if (!existing.isEmpty()) {
+                        throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.ILLEGAL_VALUE, String.format("writeMode为append, 但文件[%s]已存在, 请在fileNameTemplate中使用%s并为每次运行配置不同的jobId.", StringUtils.join(existing, ","), FileNameTemplate.VAR_JOB_ID));
+                    }
+                } catch (IOException e) {
+                    throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.Write_FILE_ERROR, String.format("无法查看目录 : [%s]", dir), e);
+                }
+            }
+            logger.info("<###拆分[TxtFileMultiDelimiterWriter.Job]任务·完毕###>");
+            return writerSplitConfigs;
+        }
+
+        /**
+         * 目录中是否存在同名文件
+         *
+         * @param dir 目录
+         * @param fileName 文件名
+         * @return 是否存在
+         */
+        private boolean exists(File dir, String fileName) {
+            try {
+                return new File(dir, fileName).exists();
+            } catch (SecurityException ex) {
+                throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.SECURITY_NOT_ENOUGH, String.format("您没有权限查看目录 : [%s]", dir));
+            }
+        }
+
     }
 
     /**
@@ -275,6 +415,36 @@ public class TxtFileMultiDelimiterWriter extends Writer {
         private String path;
         /**文件名*/
         private String fileName;
+        /**任务文件名模板：仅剩${part}未解析, 未配置时为null*/
+        private String fileNameTemplate;
+        /**文件后缀*/
+        private String suffix;
+        /**单个文件最大字节数，0表示不滚动*/
+        private long maxFileBytes;
+        /**单个文件最大行数，0表示不滚动*/
+        private long maxFileRows;
+        /**文件输出方式*/
+        private String outputMode;
+        /**内存映射窗口大小（字节）*/
+        private int mmapWindowBytes;
+        /**是否原子提交*/
+        private boolean atomicCommit;
+        /**是否写出_SUCCESS清单：需要计算校验和*/
+        private boolean successFile;
+        /**已封存的分片元数据*/
+        private final List<Configuration> sealedParts = new ArrayList<Configuration>();
+        /**任务检查点：仅续写模式*/
+        private TaskCheckpoint checkpoint;
+        /**分区路径：未配置partitionBy时为null*/
+        private PartitionPath partitionPath;
+        /**写出规格：任务初始化时解析一次, 各文件共用*/
+        private WriterSpec spec;
+        /**直接内存缓冲池租约：开始写入时租用, 销毁时归还；未使用缓冲池时为null*/
+        private DirectBufferPool.Lease bufferLease;
+        /**任务指标*/
+        private WriterMetrics metrics;
+        /**指标上报器*/
+        private List<MetricsReporter> metricsReporters;
 
         /**
          * 初始化读取器任务
@@ -284,6 +454,30 @@ public class TxtFileMultiDelimiterWriter extends Writer {
             this.writerSliceConfig = this.getPluginJobConf();
             this.path = this.writerSliceConfig.getString(Key.PATH);
             this.fileName = this.writerSliceConfig.getString(Key.FILE_NAME);
+            this.fileNameTemplate = this.writerSliceConfig.getString(Key.FILE_NAME_TEMPLATE);
+            this.suffix = this.writerSliceConfig.getString(Key.SUFFIX, Constant.DEFAULT_SUFFIX);
+            //maxFileSize单位为MB
+            this.maxFileBytes = this.writerSliceConfig.getLong(Key.MAX_FILE_SIZE, 0L) * 1024L * 1024L;
+            this.maxFileRows = this.writerSliceConfig.getLong(Key.MAX_FILE_ROWS, 0L);
+            this.outputMode = this.writerSliceConfig.getString(Key.OUTPUT_MODE, Constant.OUTPUT_MODE_CHANNEL);
+            //mmapWindowSize单位为MB
+            this.mmapWindowBytes = this.writerSliceConfig.getInt(Key.MMAP_WINDOW_SIZE, Constant.DEFAULT_MMAP_WINDOW_SIZE) * 1024 * 1024;
+            this.atomicCommit = this.writerSliceConfig.getBool(Key.ATOMIC_COMMIT, false);
+            this.successFile = this.atomicCommit && this.writerSliceConfig.getBool(Key.SUCCESS_FILE, false);
+            //续写模式：加载上次运行的检查点
+            if (Constant.WRITE_MODE_RESUME.equals(this.writerSliceConfig.getString(Key.WRITE_MODE))) {
+                long checkpointIntervalMillis = this.writerSliceConfig.getInt(Key.CHECKPOINT_INTERVAL, Constant.DEFAULT_CHECKPOINT_INTERVAL) * 1000L;
+                this.checkpoint = TaskCheckpoint.load(new File(this.path), this.fileName, checkpointIntervalMillis);
+            }
+            this.spec = WriterSpec.of(this.writerSliceConfig);
+            //分区写出
+            List<Integer> partitionBy = this.writerSliceConfig.getList(Key.PARTITION_BY, Integer.class);
+            if (null != partitionBy && !partitionBy.isEmpty()) {
+                this.partitionPath = PartitionPath.parse(this.writerSliceConfig.getString(Key.PARTITION_PATH), partitionBy);
+            }
+            //任务指标及上报器
+            this.metrics = new WriterMetrics(this.writerSliceConfig.getBool(Key.METRICS_TIMING, true));
+            this.metricsReporters = MetricsReporterManager.produceMetricsReporters(this.writerSliceConfig, this.metrics, this.getTaskGroupId(), this.getTaskId());
         }
 
         /**
@@ -301,8 +495,136 @@ public class TxtFileMultiDelimiterWriter extends Writer {
         @Override
         public void startWrite(RecordReceiver lineReceiver) {
             logger.info("<###[TxtFileMultiDelimiterWriter.Task]写任务·开始###>");
-            //获取文件绝对路径
-            String fileFullPath = this.buildFilePath();
+            //文件滚动：达到maxFileSize或maxFileRows时切换到下一个分片文件
+            RollingRecordReceiver rollingReceiver = new RollingRecordReceiver(lineReceiver, this.maxFileBytes, this.maxFileRows);
+            //周期上报指标
+            ScheduledExecutorService metricsScheduler = MetricsReporterManager.schedule(this.writerSliceConfig, this.metricsReporters, this.metrics, String.format("txt-writer-metrics-%d-%d", this.getTaskGroupId(), this.getTaskId()));
+            try {
+                //分区写出：按分区路径路由到各分区目录下的文件
+                if (null != this.partitionPath) {
+                    this.writePartitions(lineReceiver);
+                    return;
+                }
+                this.leaseBuffers();
+                int part = 0;
+                if (null != this.checkpoint) {
+                    //跳过检查点已覆盖的记录：要求读取端每次运行按相同顺序读出相同的记录
+                    this.skipCommittedRecords(lineReceiver);
+                    this.sealedParts.addAll(this.checkpoint.getSealedParts());
+                    if (this.checkpoint.isFinished()) {
+                        logger.info(String.format("任务文件[%s]已在上次运行中写完, 跳过写入", this.fileName));
+                        return;
+                    }
+                    part = this.checkpoint.getCompletedPartCount();
+                }
+                //未完成分片的续写位置、已消费记录数、已写出行数
+                long resumeOffset = null == this.checkpoint ? 0L : this.checkpoint.getPendingOffset();
+                long resumeRecords = null == this.checkpoint ? 0L : this.checkpoint.getPendingRecords();
+                long resumeRows = null == this.checkpoint ? 0L : this.checkpoint.getPendingRows();
+                do {
+                    this.writeFile(rollingReceiver, this.partFileName(part), resumeOffset, resumeRecords, resumeRows);
+                    resumeOffset = 0L;
+                    resumeRecords = 0L;
+                    resumeRows = 0L;
+                    part++;
+                } while (rollingReceiver.nextPart());
+                if (null != this.checkpoint) {
+                    this.checkpoint.finish();
+                }
+            } catch (IOException e) {
+                throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.Write_FILE_IO_ERROR, String.format("无法写出检查点 : [%s]", this.fileName), e);
+            } finally {
+                if (null != metricsScheduler) {
+                    metricsScheduler.shutdownNow();
+                }
+                //任务结束（含失败）时上报最终指标
+                MetricsReporterManager.report(this.metricsReporters, this.metrics, true);
+            }
+            logger.info("<###[TxtFileMultiDelimiterWriter.Task]写任务·结束###>");
+        }
+
+        /**
+         * 从直接内存缓冲池租用输出缓冲：仅不压缩、以文件通道写出时使用, 各分片文件依次复用
+         */
+        private void leaseBuffers() {
+            //bufferPoolSize单位为MB
+            long poolBytes = this.writerSliceConfig.getLong(Key.BUFFER_POOL_SIZE, 0L) * 1024L * 1024L;
+            if (poolBytes <= 0 || this.spec.isColumnar() || null != this.spec.getCodec() || !Constant.OUTPUT_MODE_CHANNEL.equals(this.outputMode)) {
+                return;
+            }
+            //异步写出：IO线程的缓冲; 单线程序列化：字节输出写入器的缓冲; 并行序列化直接写出数据块, 不需要缓冲
+            int count = this.spec.isAsyncWrite() ? this.spec.getAsyncQueueSize() : this.spec.getSerializeThreads() > 1 ? 0 : 1;
+            if (0 == count) {
+                return;
+            }
+            try {
+                this.bufferLease = DirectBufferPool.shared(poolBytes).lease(count, this.spec.getBufferSize());
+            } catch (InterruptedIOException e) {
+                throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.Write_FILE_IO_ERROR, String.format("等待直接内存缓冲时被中断 : [%s]", this.fileName), e);
+            }
+        }
+
+        /**
+         * 分区写出：每个分区目录下的文件按分片序号命名
+         *
+         * @param lineReceiver 接收器
+         */
+        private void writePartitions(RecordReceiver lineReceiver) {
+            PartitionWriterPool pool = new PartitionWriterPool(new File(this.path), this.writerSliceConfig, this.spec, this.partitionPath, this::partFileName, this.getTaskPluginCollector(), this.metrics);
+            try {
+                pool.write(lineReceiver);
+                this.sealedParts.addAll(pool.getSealedParts());
+            } catch (SecurityException se) {
+                throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.SECURITY_NOT_ENOUGH, String.format("您没有权限创建文件  : [%s]", this.path));
+            } catch (IOException ioe) {
+                throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.Write_FILE_IO_ERROR, String.format("分区写出失败 : [%s]", this.fileName), ioe);
+            } finally {
+                pool.abort();
+            }
+        }
+
+        /**
+         * 分片文件名：配置了文件名模板时按模板解析${part}, 否则首个文件沿用原文件名，后续分片追加序号
+         *
+         * @param part 分片序号
+         * @return 分片文件名
+         */
+        private String partFileName(int part) {
+            if (null != this.fileNameTemplate) {
+                return FileNameTemplate.resolvePart(this.fileNameTemplate, part);
+            }
+            return (0 == part ? this.fileName : String.format("%s__part%04d", this.fileName, part)) + this.suffix;
+        }
+
+        /**
+         * 跳过检查点已覆盖的记录
+         *
+         * @param lineReceiver 接收器
+         */
+        private void skipCommittedRecords(RecordReceiver lineReceiver) {
+            long committedRecords = this.checkpoint.getCommittedRecords();
+            long skipped = 0;
+            while (skipped < committedRecords && null != lineReceiver.getFromReader()) {
+                skipped++;
+            }
+            if (skipped < committedRecords) {
+                logger.warn(String.format("读取端仅读出[%s]条记录, 少于检查点已写出的[%s]条, 请确认读取端每次运行的数据一致", skipped, committedRecords));
+            }
+            logger.info(String.format("从检查点续写文件[%s], 跳过已写出的记录[%s]条", this.fileName, skipped));
+        }
+
+        /**
+         * 写入一个文件：每个文件拥有独立的压缩流与表头
+         *
+         * @param rollingReceiver 滚动接收器
+         * @param partFileName 文件名
+         * @param resumeOffset 续写位置, 0表示新文件
+         * @param resumeRecords 续写文件已消费的记录数
+         * @param resumeRows 续写文件已写出的行数
+         */
+        private void writeFile(RollingRecordReceiver rollingReceiver, String partFileName, long resumeOffset, long resumeRecords, long resumeRows) {
+            //获取文件绝对路径：原子提交时写入暂存文件
+            String fileFullPath = this.buildFilePath(this.atomicCommit ? FileCommitManager.stagingFileName(partFileName) : partFileName);
             logger.info(String.format("###即将写入的文件 : [%s]", fileFullPath));
 
             //输出流
@@ -310,29 +632,84 @@ public class TxtFileMultiDelimiterWriter extends Writer {
             try {
                 //创建文件对象
                 File newFile = new File(fileFullPath);
-                final boolean createNewFile = newFile.createNewFile();
-                logger.info("###文件[{}]创建结果: [{}].", fileFullPath, createNewFile);
+                //续写：文件须包含检查点之前的全部内容
+                if (resumeOffset > 0) {
+                    if (newFile.length() < resumeOffset) {
+                        throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.Write_FILE_ERROR, String.format("文件[%s]长度[%s]小于检查点位置[%s], 无法续写, 请使用truncate模式重新写入.", fileFullPath, newFile.length(), resumeOffset));
+                    }
+                    logger.info(String.format("###从位置[%s]续写文件 : [%s]", resumeOffset, fileFullPath));
+                } else {
+                    //append模式不覆盖已有文件：滚动出的分片名在拆分时无法全部预知, 写入前逐个检查
+                    if ("append".equals(this.writerSliceConfig.getString(Key.WRITE_MODE)) && new File(this.path, partFileName).exists()) {
+                        throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.Write_FILE_ERROR, String.format("writeMode为append, 但文件[%s]已存在.", this.buildFilePath(partFileName)));
+                    }
+                    final boolean createNewFile = newFile.createNewFile();
+                    logger.info("###文件[{}]创建结果: [{}].", fileFullPath, createNewFile);
+                }
 
-                //获取新文件输出流
-                outputStream = new FileOutputStream(newFile);
-                //开始写入
-                UnstructuredStorageWriterUtil.writeToStream(lineReceiver, outputStream, this.writerSliceConfig, this.fileName, this.getTaskPluginCollector());
+                //获取新文件输出流：内存映射需以读写方式打开
+                FileChannel channel;
+                MappedFileOutputStream mappedStream = null;
+                if (Constant.OUTPUT_MODE_MMAP.equals(this.outputMode)) {
+                    channel = new RandomAccessFile(newFile, "rw").getChannel();
+                    mappedStream = new MappedFileOutputStream(channel, this.mmapWindowBytes, this.metrics, resumeOffset);
+                    outputStream = mappedStream;
+                    rollingReceiver.startPart(mappedStream::getBytesWritten, resumeRecords);
+                } else {
+                    //续写：截断到检查点位置后追加
+                    if (resumeOffset > 0) {
+                        try (FileChannel truncateChannel = FileChannel.open(newFile.toPath(), StandardOpenOption.WRITE)) {
+                            truncateChannel.truncate(resumeOffset);
+                        }
+                    }
+                    FileOutputStream fileStream = new FileOutputStream(newFile, resumeOffset > 0);
+                    outputStream = fileStream;
+                    channel = fileStream.getChannel();
+                    rollingReceiver.startPart(channel, resumeRecords);
+                }
+                //续写时不再写出表头
+                WriterSpec partSpec = resumeOffset > 0 ? this.spec.withoutHeader() : this.spec;
+                //开始写入：行数含续写文件已写出的行数
+                final long rowsBefore = this.metrics.getRecords() - this.metrics.getDirtyRecords() - resumeRows;
+                LongSupplier rows = () -> this.metrics.getRecords() - this.metrics.getDirtyRecords() - rowsBefore;
+                //行数阈值不计脏数据：含续写文件已消费记录中的脏数据
+                final long dirtyBefore = this.metrics.getDirtyRecords() - (resumeRecords - resumeRows);
+                rollingReceiver.setDirtyRows(() -> this.metrics.getDirtyRecords() - dirtyBefore);
+                if (null != this.checkpoint) {
+                    this.checkpoint.startPart(partFileName, channel, rollingReceiver, rows);
+                    if (null != mappedStream) {
+                        this.checkpoint.bindMappedStream(mappedStream);
+                    }
+                }
+                UnstructuredStorageWriterUtil.writeToStream(rollingReceiver, outputStream, partSpec, partFileName, this.getTaskPluginCollector(), this.metrics, this.checkpoint, this.bufferLease);
+                //原子提交：关闭后落盘, 记录分片元数据
+                Configuration seal = null;
+                if (this.atomicCommit) {
+                    outputStream.close();
+                    seal = FileCommitManager.seal(newFile, partFileName, rows.getAsLong(), this.successFile);
+                    this.sealedParts.add(seal);
+                }
+                //续写模式：记录分片已完成
+                if (null != this.checkpoint) {
+                    outputStream.close();
+                    this.checkpoint.finishPart(newFile, seal);
+                }
             } catch (SecurityException se) {
-                throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.SECURITY_NOT_ENOUGH, String.format("您没有权限创建文件  : [%s]", this.fileName));
+                throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.SECURITY_NOT_ENOUGH, String.format("您没有权限创建文件  : [%s]", partFileName));
             } catch (IOException ioe) {
-                throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.Write_FILE_IO_ERROR, String.format("无法创建待写文件 : [%s]", this.fileName), ioe);
+                throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.Write_FILE_IO_ERROR, String.format("无法创建待写文件 : [%s]", partFileName), ioe);
             } finally {
                 IOUtils.closeQuietly(outputStream);
             }
-            logger.info("<###[TxtFileMultiDelimiterWriter.Task]写任务·结束###>");
         }
 
         /**
          * 构建文件绝对路径
          *
+         * @param fileName 文件名
          * @return 文件绝对路径
          */
-        private String buildFilePath() {
+        private String buildFilePath(String fileName) {
             //文件系统分隔符
             boolean isEndWithSeparator = false;
             switch (IOUtils.DIR_SEPARATOR) {
@@ -354,7 +731,7 @@ public class TxtFileMultiDelimiterWriter extends Writer {
                 this.path = this.path + IOUtils.DIR_SEPARATOR;
             }
             //将合法文件路径+文件名进行拼接
-            return String.format("%s%s", this.path, this.fileName);
+            return String.format("%s%s", this.path, fileName);
         }
 
         /**
@@ -362,7 +739,14 @@ public class TxtFileMultiDelimiterWriter extends Writer {
          */
         @Override
         public void post() {
-
+            //原子提交：写出任务元数据, 由作业后置处理统一提交
+            if (this.atomicCommit) {
+                try {
+                    FileCommitManager.writeTaskMeta(new File(this.path), this.fileName, this.sealedParts);
+                } catch (IOException e) {
+                    throw DataXException.asDataXException(TxtFileMultiDelimiterWriterErrorCode.Write_FILE_IO_ERROR, String.format("无法写出任务元数据 : [%s]", this.fileName), e);
+                }
+            }
         }
 
         /**
@@ -370,7 +754,14 @@ public class TxtFileMultiDelimiterWriter extends Writer {
          */
         @Override
         public void destroy() {
-
+            if (null != this.metricsReporters) {
+                MetricsReporterManager.close(this.metricsReporters);
+            }
+            //归还直接内存缓冲
+            if (null != this.bufferLease) {
+                this.bufferLease.close();
+                this.bufferLease = null;
+            }
         }
     }
 }
@@ -1,16 +1,11 @@
 package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
 
-import com.alibaba.datax.common.element.Column;
-import com.alibaba.datax.common.element.DateColumn;
 import com.alibaba.datax.common.element.Record;
 import com.alibaba.datax.common.exception.DataXException;
 import com.alibaba.datax.common.plugin.RecordReceiver;
 import com.alibaba.datax.common.plugin.TaskPluginCollector;
 import com.alibaba.datax.common.util.Configuration;
 import com.google.common.collect.Sets;
-import org.apache.commons.compress.compressors.CompressorOutputStream;
-import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
-import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 import org.apache.commons.io.Charsets;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -18,8 +13,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.text.DateFormat;
-import java.text.SimpleDateFormat;
 import java.util.*;
 
 /**
@@ -31,6 +27,9 @@ public class UnstructuredStorageWriterUtil {
     private static final Logger logger = LoggerFactory.getLogger(UnstructuredStorageWriterUtil.class);
     public static final String GZIP = "gzip";
     public static final String BZIP2 = "bzip2";
+    public static final String ZSTD = "zstd";
+    public static final String LZ4 = "lz4";
+    public static final String SNAPPY = "snappy";
 
     private UnstructuredStorageWriterUtil() {}
 
@@ -44,11 +43,11 @@ public class UnstructuredStorageWriterUtil {
         String writeMode = writerConfiguration.getNecessaryValue(Key.WRITE_MODE, UnstructuredStorageWriterErrorCode.REQUIRED_VALUE);
         writeMode = writeMode.trim();
         //支持的处理模式
-        Set<String> supportedWriteModes = Sets.newHashSet("truncate", "append", "nonConflict");
+        Set<String> supportedWriteModes = Sets.newHashSet("truncate", "append", "nonConflict", Constant.WRITE_MODE_RESUME);
 
         /*校验处理模式*/
         if (!supportedWriteModes.contains(writeMode)) {
-            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("仅支持 truncate, append, nonConflict 三种模式, 不支持您配置的 writeMode 模式 : [%s]", writeMode));
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("仅支持 truncate, append, nonConflict, resume 四种模式, 不支持您配置的 writeMode 模式 : [%s]", writeMode));
         }
 
         //更新处理模式
@@ -79,14 +78,33 @@ public class UnstructuredStorageWriterUtil {
         if (StringUtils.isBlank(compress)) {
             writerConfiguration.set(Key.COMPRESS, null);
         }
+        //列式文件格式：压缩格式由文件格式决定
+        else if (ColumnarWriterManager.isColumnar(writerConfiguration.getString(Key.FILE_FORMAT))) {
+            String fileFormat = writerConfiguration.getString(Key.FILE_FORMAT);
+            Set<String> supportedCompress = ColumnarWriterManager.getSupportedCompress(fileFormat);
+            if (!supportedCompress.contains(compress)) {
+                String message = String.format("%s格式仅支持 [%s] 压缩格式 , 不支持您配置的文件压缩格式: [%s]", fileFormat, StringUtils.join(supportedCompress, ","), compress);
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, message);
+            }
+        }
         //已经配置压缩参数
         else {
-            //当前支持的雅俗格式
-            Set<String> supportedCompress = Sets.newHashSet("gzip", "bzip2");
+            //当前支持的压缩格式：由压缩编解码器注册表决定
+            CompressCodec codec = CompressCodecRegistry.getCodec(compress);
             //输入了不支持的压缩格式
-            if (!supportedCompress.contains(compress.toLowerCase().trim())) {
-                String message = String.format("仅支持 [%s] 文件压缩格式 , 不支持您配置的文件压缩格式: [%s]", StringUtils.join(supportedCompress, ","), compress);
-                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format(message, compress));
+            if (null == codec) {
+                String message = String.format("仅支持 [%s] 文件压缩格式 , 不支持您配置的文件压缩格式: [%s]", StringUtils.join(CompressCodecRegistry.getSupportedNames(), ","), compress);
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, message);
+            }
+            //压缩级别
+            Integer compressLevel = writerConfiguration.getInt(Key.COMPRESS_LEVEL);
+            if (null != compressLevel && !codec.isValidLevel(compressLevel)) {
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("压缩格式[%s]不支持您配置的compressLevel: [%s]", compress, compressLevel));
+            }
+            //编解码器内部线程数
+            Integer compressWorkers = writerConfiguration.getInt(Key.COMPRESS_WORKERS);
+            if (null != compressWorkers && compressWorkers < 0) {
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的compressWorkers [%s]错误, 不能为负数.", compressWorkers));
             }
         }
 
@@ -107,9 +125,169 @@ public class UnstructuredStorageWriterUtil {
         //构建支持的文件类型
         String fileFormat = writerConfiguration.getString(Key.FILE_FORMAT, Constant.FILE_FORMAT_TEXT);
         //未配置或配置的文件类型暂不支持
-        if (!Constant.FILE_FORMAT_CSV.equals(fileFormat) && !Constant.FILE_FORMAT_TEXT.equals(fileFormat)) {
-            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的fileFormat [%s]错误, 支持csv, text两种.", fileFormat));
+        if (!Constant.FILE_FORMAT_CSV.equals(fileFormat) && !Constant.FILE_FORMAT_TEXT.equals(fileFormat) && !ColumnarWriterManager.isColumnar(fileFormat)) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的fileFormat [%s]错误, 支持csv, text, parquet, orc四种.", fileFormat));
+        }
+        //列式文件格式：必须配置列定义
+        if (ColumnarWriterManager.isColumnar(fileFormat)) {
+            if (ColumnSpec.parse(writerConfiguration).isEmpty()) {
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.REQUIRED_VALUE, String.format("fileFormat为[%s]时必须配置column.", fileFormat));
+            }
+            Integer rowGroupSize = writerConfiguration.getInt(Key.ROW_GROUP_SIZE);
+            if (null != rowGroupSize && rowGroupSize < 1) {
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的rowGroupSize [%s]错误, 必须为正整数(单位MB).", rowGroupSize));
+            }
+            if (null != writerConfiguration.getList(Key.HEADER)) {
+                logger.warn(String.format("%s格式的列名由column定义, 忽略header配置", fileFormat));
+            }
+        }
+        //csv分隔符不能为空, 也不能包含文本限定符或换行符
+        String fieldDelimiter = writerConfiguration.getString(Key.FIELD_DELIMITER);
+        if (Constant.FILE_FORMAT_CSV.equals(fileFormat) && (fieldDelimiter.isEmpty() || StringUtils.containsAny(fieldDelimiter, '"', '\r', '\n'))) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的fieldDelimiter [%s]错误, csv格式的分隔符不能为空, 也不能包含双引号、回车或换行符.", fieldDelimiter));
+        }
+        //text转义：转义符为单个字符, 且不能与分隔符、换行符冲突
+        String escapeChar = writerConfiguration.getString(Key.ESCAPE_CHAR);
+        String lineBreakReplacement = writerConfiguration.getString(Key.LINE_BREAK_REPLACEMENT);
+        if (null != escapeChar || null != lineBreakReplacement) {
+            if (!Constant.FILE_FORMAT_TEXT.equals(fileFormat)) {
+                logger.warn(String.format("escapeChar、lineBreakReplacement仅text格式有效, fileFormat为[%s]时将被忽略", fileFormat));
+            } else {
+                if (StringUtils.containsAny(fieldDelimiter, '\r', '\n')) {
+                    throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, "配置了escapeChar或lineBreakReplacement时, fieldDelimiter不能包含回车或换行符.");
+                }
+                if (null != escapeChar && (1 != escapeChar.length() || StringUtils.containsAny(escapeChar, '\r', '\n') || fieldDelimiter.contains(escapeChar))) {
+                    throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的escapeChar [%s]错误, 须为单个字符, 且不能为回车、换行符或分隔符中的字符.", escapeChar));
+                }
+                if (null != lineBreakReplacement && (StringUtils.containsAny(lineBreakReplacement, '\r', '\n')
+                        || (!fieldDelimiter.isEmpty() && lineBreakReplacement.contains(fieldDelimiter))
+                        || (null != escapeChar && lineBreakReplacement.contains(escapeChar)))) {
+                    throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的lineBreakReplacement [%s]错误, 不能包含回车、换行符、分隔符或转义符.", lineBreakReplacement));
+                }
+            }
+        }
+
+        /*并行压缩参数校验*/
+        Integer compressThreads = writerConfiguration.getInt(Key.COMPRESS_THREADS);
+        if (null != compressThreads && compressThreads < 1) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的compressThreads [%s]错误, 必须为正整数.", compressThreads));
+        }
+        Integer compressBlockSize = writerConfiguration.getInt(Key.COMPRESS_BLOCK_SIZE);
+        if (null != compressBlockSize && compressBlockSize < 64) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的compressBlockSize [%s]错误, 至少为64(单位KB).", compressBlockSize));
+        }
+        if (null != compressBlockSize && compressBlockSize > Constant.MAX_COMPRESS_BLOCK_SIZE) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的compressBlockSize [%s]错误, 至多为%s(单位KB).", compressBlockSize, Constant.MAX_COMPRESS_BLOCK_SIZE));
+        }
+
+        /*并行序列化参数校验*/
+        Integer serializeThreads = writerConfiguration.getInt(Key.SERIALIZE_THREADS);
+        if (null != serializeThreads && serializeThreads < 1) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的serializeThreads [%s]错误, 必须为正整数.", serializeThreads));
+        }
+        Integer serializeBatchSize = writerConfiguration.getInt(Key.SERIALIZE_BATCH_SIZE);
+        if (null != serializeBatchSize && serializeBatchSize < 1) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的serializeBatchSize [%s]错误, 必须为正整数.", serializeBatchSize));
+        }
+
+        /*异步写出队列校验*/
+        Integer asyncQueueSize = writerConfiguration.getInt(Key.ASYNC_QUEUE_SIZE);
+        if (null != asyncQueueSize && asyncQueueSize < 2) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的asyncQueueSize [%s]错误, 至少为2.", asyncQueueSize));
+        }
+
+        /*文件滚动阈值校验*/
+        Long maxFileSize = writerConfiguration.getLong(Key.MAX_FILE_SIZE);
+        if (null != maxFileSize && maxFileSize <= 0) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的maxFileSize [%s]错误, 必须为正整数(单位MB).", maxFileSize));
+        }
+        Long maxFileRows = writerConfiguration.getLong(Key.MAX_FILE_ROWS);
+        if (null != maxFileRows && maxFileRows <= 0) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的maxFileRows [%s]错误, 必须为正整数.", maxFileRows));
+        }
+
+        /*文件输出方式校验*/
+        String outputMode = writerConfiguration.getString(Key.OUTPUT_MODE, Constant.OUTPUT_MODE_CHANNEL);
+        if (!Constant.OUTPUT_MODE_CHANNEL.equals(outputMode) && !Constant.OUTPUT_MODE_MMAP.equals(outputMode)) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的outputMode [%s]错误, 支持channel, mmap两种.", outputMode));
+        }
+        Integer bufferSize = writerConfiguration.getInt(Key.BUFFER_SIZE);
+        if (null != bufferSize && (bufferSize < 4 || bufferSize > 64 * 1024)) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的bufferSize [%s]错误, 取值范围为4~65536(单位KB).", bufferSize));
+        }
+        Integer mmapWindowSize = writerConfiguration.getInt(Key.MMAP_WINDOW_SIZE);
+        if (null != mmapWindowSize && (mmapWindowSize < 1 || mmapWindowSize > 1024)) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的mmapWindowSize [%s]错误, 取值范围为1~1024(单位MB).", mmapWindowSize));
         }
+        //直接内存缓冲池：单个任务一次租用的缓冲不能超过上限, 否则永远无法满足
+        Long bufferPoolSize = writerConfiguration.getLong(Key.BUFFER_POOL_SIZE);
+        if (null != bufferPoolSize && bufferPoolSize < 0) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的bufferPoolSize [%s]错误, 不能为负数(单位MB).", bufferPoolSize));
+        }
+        if (null != bufferPoolSize && bufferPoolSize > 0) {
+            long bufferBytes = null == bufferSize ? Constant.DEFAULT_BUFFER_SIZE : bufferSize * 1024L;
+            int bufferCount = writerConfiguration.getBool(Key.ASYNC_WRITE, false) ? writerConfiguration.getInt(Key.ASYNC_QUEUE_SIZE, Constant.DEFAULT_ASYNC_QUEUE_SIZE) : 1;
+            if (bufferBytes * bufferCount > bufferPoolSize * 1024L * 1024L) {
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的bufferPoolSize [%s]MB错误, 不能小于单个任务的输出缓冲总量[%s]KB(bufferSize × 缓冲数量).", bufferPoolSize, bufferBytes * bufferCount / 1024));
+            }
+        }
+
+        /*文件名校验*/
+        String suffix = writerConfiguration.getString(Key.SUFFIX);
+        if (null != suffix) {
+            suffix = suffix.trim();
+            if (StringUtils.containsAny(suffix, '/', '\\')) {
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的suffix [%s]错误, 不能包含路径分隔符.", suffix));
+            }
+            writerConfiguration.set(Key.SUFFIX, suffix);
+        }
+        List<Integer> partitionBy = writerConfiguration.getList(Key.PARTITION_BY, Integer.class);
+        boolean partitioned = null != partitionBy && !partitionBy.isEmpty();
+        String fileNameTemplate = writerConfiguration.getString(Key.FILE_NAME_TEMPLATE);
+        if (null != fileNameTemplate) {
+            //分区文件关闭后重新打开时写入新的分片, 同样需要${part}
+            boolean rolling = partitioned || writerConfiguration.getLong(Key.MAX_FILE_SIZE, 0L) > 0 || writerConfiguration.getLong(Key.MAX_FILE_ROWS, 0L) > 0;
+            FileNameTemplate.validate(fileNameTemplate, rolling);
+        }
+        //作业标识写入文件名
+        String jobId = writerConfiguration.getString(Key.JOB_ID);
+        if (StringUtils.isNotBlank(jobId)) {
+            FileNameTemplate.validateJobId(jobId);
+        }
+
+        /*分区写出校验*/
+        if (partitioned) {
+            PartitionPath.parse(writerConfiguration.getString(Key.PARTITION_PATH), partitionBy);
+            Integer maxOpenFiles = writerConfiguration.getInt(Key.MAX_OPEN_FILES);
+            if (null != maxOpenFiles && maxOpenFiles < 1) {
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的maxOpenFiles [%s]错误, 必须为正整数.", maxOpenFiles));
+            }
+            if (Constant.WRITE_MODE_RESUME.equals(writeMode)) {
+                throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, "分区写出不支持writeMode resume.");
+            }
+            if (writerConfiguration.getBool(Key.ASYNC_WRITE, false) || writerConfiguration.getInt(Key.SERIALIZE_THREADS, 1) > 1 || writerConfiguration.getInt(Key.COMPRESS_THREADS, 1) > 1 || Constant.OUTPUT_MODE_MMAP.equals(outputMode)) {
+                logger.warn("分区写出时每个分区文件使用单线程序列化、压缩与同步写出, asyncWrite、serializeThreads、compressThreads与outputMode mmap将被忽略");
+            }
+        } else if (null != writerConfiguration.getString(Key.PARTITION_PATH)) {
+            logger.warn("您配置了partitionPath, 但未配置partitionBy, 将不会分区写出");
+        }
+
+        /*检查点校验*/
+        Integer checkpointInterval = writerConfiguration.getInt(Key.CHECKPOINT_INTERVAL);
+        if (null != checkpointInterval && checkpointInterval < 1) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("您配置的checkpointInterval [%s]错误, 必须为正整数(单位秒).", checkpointInterval));
+        }
+
+        /*原子提交校验*/
+        if (writerConfiguration.getBool(Key.SUCCESS_FILE, false) && !writerConfiguration.getBool(Key.ATOMIC_COMMIT, false)) {
+            logger.warn(String.format("您配置了successFile, 但未开启atomicCommit, 将不会写出[%s]清单", Constant.SUCCESS_FILE_NAME));
+        }
+
+        /*指标上报校验*/
+        MetricsReporterManager.validateParameter(writerConfiguration);
+
+        /*写出规格校验：编码、压缩格式及文本格式的列格式项（scale、dateFormat、bytesFormat）仅在此编译一次*/
+        WriterSpec.of(writerConfiguration);
     }
 
     /**
@@ -119,7 +297,9 @@ public class UnstructuredStorageWriterUtil {
      * @param originAllFileExists 目录中的文件列表
      * @param mandatoryNumber 处理次数
      * @return 处理过的配置信息
+     * @deprecated 随机的uuid文件名无法排序, 重新运行也无法覆盖, 请使用fileNameTemplate
      */
+    @Deprecated
     @SuppressWarnings(value = {"unused"})
     public static List<Configuration> handlerFileNames(Configuration writerSliceConfig, Set<String> originAllFileExists, int mandatoryNumber) {
         logger.info("<###分割·开始###>");
@@ -205,167 +385,416 @@ public class UnstructuredStorageWriterUtil {
      * @param taskPluginCollector 任务处理器
      */
     public static void writeToStream(RecordReceiver lineReceiver, OutputStream outputStream, Configuration config, String context, TaskPluginCollector taskPluginCollector) {
-        //获取编码参数
-        String encoding = config.getString(Key.ENCODING, Constant.DEFAULT_ENCODING);
-        //编码格式解析
-        if (StringUtils.isBlank(encoding)) {
-            logger.warn(String.format("您配置的encoding为[%s], 使用默认值[%s]", encoding, Constant.DEFAULT_ENCODING));
-            encoding = Constant.DEFAULT_ENCODING;
+        UnstructuredStorageWriterUtil.writeToStream(lineReceiver, outputStream, config, context, taskPluginCollector, new WriterMetrics());
+    }
+
+    /**
+     * 内容写入流预处理
+     *
+     * @param lineReceiver 接收的行
+     * @param outputStream 输出流
+     * @param config 配置信息
+     * @param context ctx：配置文件
+     * @param taskPluginCollector 任务处理器
+     * @param metrics 任务指标
+     */
+    public static void writeToStream(RecordReceiver lineReceiver, OutputStream outputStream, Configuration config, String context, TaskPluginCollector taskPluginCollector, WriterMetrics metrics) {
+        UnstructuredStorageWriterUtil.writeToStream(lineReceiver, outputStream, config, context, taskPluginCollector, metrics, null);
+    }
+
+    /**
+     * 内容写入流预处理
+     *
+     * @param lineReceiver 接收的行
+     * @param outputStream 输出流
+     * @param config 配置信息
+     * @param context ctx：配置文件
+     * @param taskPluginCollector 任务处理器
+     * @param metrics 任务指标
+     * @param checkpoint 任务检查点：按间隔在记录批次之间记录检查点, 为null时不记录
+     */
+    public static void writeToStream(RecordReceiver lineReceiver, OutputStream outputStream, Configuration config, String context, TaskPluginCollector taskPluginCollector, WriterMetrics metrics, TaskCheckpoint checkpoint) {
+        UnstructuredStorageWriterUtil.writeToStream(lineReceiver, outputStream, WriterSpec.of(config), context, taskPluginCollector, metrics, checkpoint);
+    }
+
+    /**
+     * 内容写入流预处理：使用预先解析的写出规格
+     *
+     * @param lineReceiver 接收的行
+     * @param outputStream 输出流
+     * @param spec 写出规格
+     * @param context ctx：配置文件
+     * @param taskPluginCollector 任务处理器
+     * @param metrics 任务指标
+     * @param checkpoint 任务检查点：按间隔在记录批次之间记录检查点, 为null时不记录
+     */
+    public static void writeToStream(RecordReceiver lineReceiver, OutputStream outputStream, WriterSpec spec, String context, TaskPluginCollector taskPluginCollector, WriterMetrics metrics, TaskCheckpoint checkpoint) {
+        UnstructuredStorageWriterUtil.writeToStream(lineReceiver, outputStream, spec, context, taskPluginCollector, metrics, checkpoint, null);
+    }
+
+    /**
+     * 内容写入流预处理：使用预先解析的写出规格与缓冲池租用的直接内存缓冲
+     *
+     * @param lineReceiver 接收的行
+     * @param outputStream 输出流
+     * @param spec 写出规格
+     * @param context ctx：配置文件
+     * @param taskPluginCollector 任务处理器
+     * @param metrics 任务指标
+     * @param checkpoint 任务检查点：按间隔在记录批次之间记录检查点, 为null时不记录
+     * @param bufferLease 缓冲池租约：不压缩且输出流为文件时使用租用的缓冲, 为null时新建缓冲
+     */
+    public static void writeToStream(RecordReceiver lineReceiver, OutputStream outputStream, WriterSpec spec, String context, TaskPluginCollector taskPluginCollector, WriterMetrics metrics, TaskCheckpoint checkpoint, DirectBufferPool.Lease bufferLease) {
+        metrics.recordFile();
+        //列式文件格式：按列类型写出, 不经过字符编码与流压缩
+        if (spec.isColumnar()) {
+            UnstructuredStorageWriterUtil.writeColumnarToStream(lineReceiver, outputStream, spec, context, taskPluginCollector, metrics);
+            return;
         }
+        Charset charset = spec.getCharset();
+        CompressCodec codec = spec.getCodec();
+        boolean parallelSerialize = spec.getSerializeThreads() > 1;
+        //并行序列化时由序列化线程压缩的编解码器
+        CompressCodec chunkCodec = null;
 
-        //获取压缩参数
-        String compress = config.getString(Key.COMPRESS);
+        //文件内检查点：仅支持单线程序列化、单线程压缩与无状态编码, 否则仅在文件切换时记录
+        if (null != checkpoint && (parallelSerialize || (null != codec && spec.getCompressThreads() > 1) || !ParallelRecordSerializer.isSupported(charset))) {
+            logger.warn(String.format("并行序列化、并行压缩或编码[%s]不支持文件内检查点, 将仅在文件切换时记录检查点", charset.name()));
+            checkpoint = null;
+        }
 
-        BufferedWriter writer = null;
+        //租用的直接内存缓冲：仅直接写入文件通道时使用
+        List<ByteBuffer> leasedBuffers = null != bufferLease && null == codec && outputStream instanceof FileOutputStream ? bufferLease.getBuffers() : null;
+
+        //数据输出流：不压缩时即为文件流
+        OutputStream dataStream = outputStream;
+        Writer writer = null;
         //压缩处理逻辑
         try {
-            //不压缩
-            if (null == compress) {
-                writer = new BufferedWriter(new OutputStreamWriter(outputStream, encoding));
-            }
             //压缩处理
-            else {
-                //gzip
-                if (GZIP.equalsIgnoreCase(compress)) {
-                    CompressorOutputStream compressorOutputStream = new GzipCompressorOutputStream(outputStream);
-                    writer = new BufferedWriter(new OutputStreamWriter(compressorOutputStream, encoding));
+            if (null != codec) {
+                //压缩后写盘的字节数与耗时
+                OutputStream meteredStream = UnstructuredStorageWriterUtil.meteredStream(outputStream, spec, metrics);
+                //并行序列化：每个数据块在序列化线程上压缩为独立的压缩流, 仅支持可串联的压缩格式
+                if (parallelSerialize && codec.isConcatenable()) {
+                    chunkCodec = codec;
                 }
-                //bzip2
-                else if (BZIP2.equalsIgnoreCase(compress)) {
-                    CompressorOutputStream compressorOutputStream = new BZip2CompressorOutputStream(outputStream);
-                    writer = new BufferedWriter(new OutputStreamWriter(compressorOutputStream, encoding));
+                //并行块压缩：仅支持可串联的压缩格式
+                else if (spec.getCompressThreads() > 1 && codec.isConcatenable()) {
+                    dataStream = new ParallelCompressorOutputStream(meteredStream, codec, spec.getCompressLevel(), spec.getCompressThreads(), spec.getCompressBlockSize());
                 }
-                //不支持的文件压缩格式
-                else {
-                    throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("仅支持 gzip, bzip2 文件压缩格式 , 不支持您配置的文件压缩格式: [%s]",compress));
+                //文件内检查点：检查点时结束当前压缩段
+                else if (null != checkpoint) {
+                    MemberCompressorOutputStream memberStream = new MemberCompressorOutputStream(meteredStream, codec, spec.getCompressLevel(), spec.getCompressWorkers());
+                    checkpoint.bindSegment(memberStream);
+                    dataStream = memberStream;
+                } else {
+                    if (spec.getCompressThreads() > 1) {
+                        logger.warn(String.format("压缩格式[%s]不支持并行块压缩, 将使用单线程压缩", spec.getCompress()));
+                    }
+                    dataStream = codec.createOutputStream(meteredStream, spec.getCompressLevel(), spec.getCompressWorkers());
                 }
             }
-            //执行写处理
-            UnstructuredStorageWriterUtil.doWriteToStream(lineReceiver, writer, context, config, taskPluginCollector);
-        } catch (UnsupportedEncodingException uee) {
-            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.Write_FILE_WITH_CHARSET_ERROR, String.format("不支持的编码格式 : [%s]", encoding), uee);
+            //异步写出：压缩与写盘交给独立的IO线程
+            if (spec.isAsyncWrite()) {
+                String ioThreadName = String.format("txt-writer-io-%s", context);
+                dataStream = null != leasedBuffers
+                        ? new AsyncOutputStream(dataStream, leasedBuffers, ioThreadName, metrics)
+                        : new AsyncOutputStream(dataStream, spec.getBufferSize(), spec.getAsyncQueueSize(), ioThreadName, metrics);
+            }
+            if (parallelSerialize) {
+                ParallelRecordSerializer serializer = new ParallelRecordSerializer(spec, chunkCodec, metrics);
+                serializer.write(lineReceiver, dataStream, taskPluginCollector);
+                //显式关闭, 使最后一次写出的异常能够抛出
+                dataStream.close();
+            } else {
+                writer = null != leasedBuffers && !spec.isAsyncWrite()
+                        ? new ByteSinkWriter((FileOutputStream) dataStream, charset, leasedBuffers.get(0), metrics)
+                        : new ByteSinkWriter(dataStream, charset, spec.getBufferSize(), metrics);
+                //执行写处理
+                UnstructuredStorageWriterUtil.doWriteToStream(lineReceiver, writer, context, spec, taskPluginCollector, metrics, checkpoint);
+                //显式关闭, 使最后一次写出的异常能够抛出
+                writer.close();
+            }
         } catch (NullPointerException e) {
             throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.RUNTIME_EXCEPTION, "运行时错误, 请联系我们", e);
         } catch (IOException e) {
             throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.Write_FILE_IO_ERROR, String.format("流写入错误 : [%s]", context), e);
         } finally {
             IOUtils.closeQuietly(writer);
+            //写入器未能创建（或并行序列化）时，关闭已创建的压缩流、异步输出流
+            if (null == writer) {
+                IOUtils.closeQuietly(dataStream);
+            }
         }
     }
 
+    /**
+     * 创建写出到输出流的非结构化写入器并写出表头：由调用方逐条推送记录, 如分区写出
+     * <span>仅使用单线程压缩与同步写出, 关闭写入器时一并关闭输出流</span>
+     *
+     * @param outputStream 输出流
+     * @param spec 写出规格
+     * @param context ctx：文件名
+     * @param metrics 任务指标
+     * @return 非结构化写入器
+     * @throws IOException ex
+     */
+    static UnstructuredWriter openUnstructuredWriter(OutputStream outputStream, WriterSpec spec, String context, WriterMetrics metrics) throws IOException {
+        //列式文件格式：写入器直接写出到文件流
+        if (spec.isColumnar()) {
+            return ColumnarWriterManager.produceUnstructuredWriter(spec, UnstructuredStorageWriterUtil.meteredStream(outputStream, spec, metrics), context);
+        }
+        //数据输出流：不压缩时即为文件流
+        OutputStream dataStream = outputStream;
+        UnstructuredWriter unstructuredWriter = null;
+        try {
+            if (null != spec.getCodec()) {
+                dataStream = spec.getCodec().createOutputStream(UnstructuredStorageWriterUtil.meteredStream(outputStream, spec, metrics), spec.getCompressLevel(), spec.getCompressWorkers());
+            }
+            unstructuredWriter = UnstructuredStorageWriterUtil.produceUnstructuredWriter(spec, new ByteSinkWriter(dataStream, spec.getCharset(), spec.getBufferSize(), metrics));
+            UnstructuredStorageWriterUtil.writeHeader(unstructuredWriter, spec);
+            return unstructuredWriter;
+        } finally {
+            //创建失败时关闭已创建的流
+            if (null == unstructuredWriter) {
+                IOUtils.closeQuietly(dataStream);
+            }
+        }
+    }
+
+    /**
+     * 计量写盘字节数与耗时的文件流：其上加一层输出缓冲, 逐字节写出的压缩格式（如bzip2）与列式格式按缓冲整块计量、写盘
+     * <span>内存映射输出流在滑动窗口与关闭时自行统计写盘字节数, 不再计量, 避免重复统计</span>
+     *
+     * @param outputStream 文件输出流
+     * @param spec 写出规格
+     * @param metrics 任务指标
+     * @return 带缓冲的计量输出流, 关闭时一并关闭文件输出流
+     */
+    private static OutputStream meteredStream(OutputStream outputStream, WriterSpec spec, WriterMetrics metrics) {
+        OutputStream target = outputStream instanceof MappedFileOutputStream ? outputStream : new MeteredOutputStream(outputStream, metrics);
+        return new BufferedOutputStream(target, spec.getBufferSize());
+    }
+
+    /**
+     * 写出表头
+     *
+     * @param unstructuredWriter 非结构化写入器
+     * @param spec 写出规格
+     * @throws IOException ex
+     */
+    private static void writeHeader(UnstructuredWriter unstructuredWriter, WriterSpec spec) throws IOException {
+        if (!spec.getHeaders().isEmpty()) {
+            unstructuredWriter.writeOneRecord(spec.getHeaders());
+        }
+    }
+
+    /**
+     * 解析编码
+     *
+     * @param config 配置信息
+     * @return 编码
+     */
+    static Charset resolveCharset(Configuration config) {
+        //获取编码参数
+        String encoding = config.getString(Key.ENCODING, Constant.DEFAULT_ENCODING);
+        //编码格式解析
+        if (StringUtils.isBlank(encoding)) {
+            logger.warn(String.format("您配置的encoding为[%s], 使用默认值[%s]", encoding, Constant.DEFAULT_ENCODING));
+            encoding = Constant.DEFAULT_ENCODING;
+        }
+        try {
+            return Charsets.toCharset(encoding);
+        } catch (IllegalArgumentException iae) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.Write_FILE_WITH_CHARSET_ERROR, String.format("不支持的编码格式 : [%s]", encoding), iae);
+        }
+    }
+
+    /**
+     * 获取压缩编解码器
+     *
+     * @param compress 压缩格式
+     * @return 编解码器
+     */
+    static CompressCodec resolveCodec(String compress) {
+        CompressCodec codec = CompressCodecRegistry.getCodec(compress);
+        //不支持的文件压缩格式
+        if (null == codec) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, String.format("仅支持 [%s] 文件压缩格式 , 不支持您配置的文件压缩格式: [%s]", StringUtils.join(CompressCodecRegistry.getSupportedNames(), ","), compress));
+        }
+        return codec;
+    }
+
     /**
      * 实际[将内容写入流]写入处理
      *
      * @param lineReceiver 接收的行
      * @param writer 写操作缓冲对象
      * @param context ctx：配置文件
-     * @param config 配置信息
+     * @param spec 写出规格
      * @param taskPluginCollector 任务处理器
+     * @param metrics 任务指标
+     * @param checkpoint 任务检查点, 可为null
      * @throws IOException ex
      */
-    private static void doWriteToStream(RecordReceiver lineReceiver, BufferedWriter writer, String context, Configuration config, TaskPluginCollector taskPluginCollector) throws IOException {
-        //获取空处理格式参数
-        String nullFormat = config.getString(Key.NULL_FORMAT);
+    private static void doWriteToStream(RecordReceiver lineReceiver, Writer writer, String context, WriterSpec spec, TaskPluginCollector taskPluginCollector, WriterMetrics metrics, TaskCheckpoint checkpoint) throws IOException {
+        UnstructuredWriter unstructuredWriter = UnstructuredStorageWriterUtil.produceUnstructuredWriter(spec, writer);
 
-        // 获取日期格式：兼容format & dataFormat
-        String dateFormat = config.getString(Key.DATE_FORMAT);
-        // 获取旧的日期格式，warn: 可能不兼容
-        DateFormat dateParse = null;
-        if (StringUtils.isNotBlank(dateFormat)) {
-            dateParse = new SimpleDateFormat(dateFormat);
-        }
+        //是否跳过首行
+        UnstructuredStorageWriterUtil.writeHeader(unstructuredWriter, spec);
 
-        //获取文件格式
-        String fileFormat = config.getString(Key.FILE_FORMAT, Constant.FILE_FORMAT_TEXT);
+        //列格式化器：整个任务复用
+        UnstructuredStorageWriterUtil.transportRecords(lineReceiver, unstructuredWriter, spec.getColumnFormatter(), spec.getSerializeBatchSize(), taskPluginCollector, metrics, checkpoint);
 
-        //获取"字段分隔符"
-        String fieldMultipleDelimiter = config.getString(Key.FIELD_DELIMITER, Constant.DEFAULT_FIELD_DELIMITER + "");
+        // warn:由调用方控制流的关闭（框架）
+        // IOUtils.closeQuietly(unstructuredWriter);
+    }
 
-        //根据字段分隔符，选择写入模式：单分隔符使用csv处理；多字段分隔符使用自定义流处理
-        UnstructuredWriter unstructuredWriter;
-        //单字段分隔符
-        if (fieldMultipleDelimiter.length() == 1) {
-            char fieldDelimiter = config.getChar(Key.FIELD_DELIMITER, Constant.DEFAULT_FIELD_DELIMITER);
-            unstructuredWriter = TextCsvWriterManager.produceUnstructuredWriter(fileFormat, fieldDelimiter, writer);
-        }
-        //多字段分隔符
-        else {
-            unstructuredWriter = TextCsvWriterManager.produceUnstructuredWriter(fileFormat, fieldMultipleDelimiter, writer);
+    /**
+     * 列式文件写入：写入器直接写出到文件流
+     *
+     * @param lineReceiver 接收的行
+     * @param outputStream 输出流
+     * @param spec 写出规格
+     * @param context ctx：文件名
+     * @param taskPluginCollector 任务处理器
+     * @param metrics 任务指标
+     */
+    private static void writeColumnarToStream(RecordReceiver lineReceiver, OutputStream outputStream, WriterSpec spec, String context, TaskPluginCollector taskPluginCollector, WriterMetrics metrics) {
+        UnstructuredWriter unstructuredWriter = null;
+        try {
+            unstructuredWriter = ColumnarWriterManager.produceUnstructuredWriter(spec, UnstructuredStorageWriterUtil.meteredStream(outputStream, spec, metrics), context);
+            UnstructuredStorageWriterUtil.transportRecords(lineReceiver, unstructuredWriter, null, spec.getSerializeBatchSize(), taskPluginCollector, metrics, null);
+            //显式关闭, 使写出文件尾的异常能够抛出
+            unstructuredWriter.close();
+        } catch (IOException e) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.Write_FILE_IO_ERROR, String.format("流写入错误 : [%s]", context), e);
+        } finally {
+            IOUtils.closeQuietly(unstructuredWriter);
         }
+    }
 
-        //是否跳过首行
-        List<String> headers = config.getList(Key.HEADER, String.class);
-        if (null != headers && !headers.isEmpty()) {
-            unstructuredWriter.writeOneRecord(headers);
-        }
+    /**
+     * 按批读取记录并写出
+     *
+     * @param lineReceiver 接收的行
+     * @param unstructuredWriter 非结构化写入器
+     * @param columnFormatter 列格式化器
+     * @param batchSize 每批处理记录数
+     * @param taskPluginCollector 任务处理器
+     * @param metrics 任务指标
+     * @param checkpoint 任务检查点, 可为null
+     * @throws IOException ex
+     */
+    private static void transportRecords(RecordReceiver lineReceiver, UnstructuredWriter unstructuredWriter, ColumnFormatter columnFormatter, int batchSize, TaskPluginCollector taskPluginCollector, WriterMetrics metrics, TaskCheckpoint checkpoint) throws IOException {
+        //读取一批"记录"到复用的批数组,再整批处理：分别统计等待读取与处理的耗时
+        Record[] batch = new Record[batchSize];
+        int count;
+        do {
+            long readStart = metrics.nanoTime();
+            count = UnstructuredStorageWriterUtil.drain(lineReceiver, batch);
+            long transportStart = metrics.nanoTime();
+            metrics.recordRead(transportStart - readStart);
+            if (count > 0) {
+                int dirty = unstructuredWriter.writeBatch(batch, count, columnFormatter, taskPluginCollector);
+                metrics.recordTransport(count, dirty, metrics.nanoTime() - transportStart);
+                //释放记录引用
+                Arrays.fill(batch, 0, count, null);
+            }
+            //检查点：批次之间写出全部缓冲后记录
+            if (null != checkpoint && count == batchSize && checkpoint.isDue()) {
+                unstructuredWriter.flush();
+                checkpoint.checkpoint();
+            }
+        } while (count == batchSize || count > 0 && lineReceiver instanceof RollingRecordReceiver && ((RollingRecordReceiver) lineReceiver).continuePart());
+    }
 
-        //读取一条"记录",对每一条记录进行处理
+    /**
+     * 从接收器读取记录填充批数组, 直到数组填满或没有更多记录
+     *
+     * @param lineReceiver 接收的行
+     * @param batch 批数组
+     * @return 读取的记录数, 小于数组长度表示没有更多记录
+     */
+    static int drain(RecordReceiver lineReceiver, Record[] batch) {
+        int count = 0;
         Record record;
-        while ((record = lineReceiver.getFromReader()) != null) {
-            //对当前读取到的"记录"进行处理
-            UnstructuredStorageWriterUtil.transportOneRecord(record, nullFormat, dateParse, taskPluginCollector, unstructuredWriter);
+        while (count < batch.length && (record = lineReceiver.getFromReader()) != null) {
+            batch[count++] = record;
         }
+        return count;
+    }
 
-        // warn:由调用方控制流的关闭（框架）
-        // IOUtils.closeQuietly(unstructuredWriter);
+    /**
+     * 按写出规格创建非结构化写入器
+     *
+     * @param spec 写出规格
+     * @param writer 写操作缓冲对象
+     * @return 非结构化写入器
+     */
+    static UnstructuredWriter produceUnstructuredWriter(WriterSpec spec, Writer writer) {
+        return TextCsvWriterManager.produceUnstructuredWriter(spec.getFileFormat(), spec.getFieldDelimiter(), spec.getEscapeChar(), spec.getLineBreakReplacement(), writer);
     }
 
     /**
-     * 异常表示脏数据
+     * 按配置创建列格式化器：无可变状态, 可在线程间共享
+     *
+     * @param config 配置信息
+     * @return 列格式化器
+     */
+    static ColumnFormatter produceColumnFormatter(Configuration config) {
+        //获取空处理格式参数
+        String nullFormat = config.getString(Key.NULL_FORMAT);
+
+        // 获取日期格式：兼容format & dataFormat
+        String dateFormat = config.getString(Key.DATE_FORMAT);
+        // 获取旧的日期格式，warn: 可能不兼容
+        CachedDateFormatter dateFormatter = null;
+        if (StringUtils.isNotBlank(dateFormat)) {
+            dateFormatter = CachedDateFormatter.of(dateFormat);
+        }
+        //字节列输出格式
+        String bytesFormat = config.getString(Key.BYTES_FORMAT);
+        BytesFormat bytes = StringUtils.isBlank(bytesFormat) ? null : BytesFormat.of(bytesFormat);
+        //txt/csv配置了column时按列编译格式项
+        return ColumnFormatPlan.compile(config, new DefaultColumnFormatter(nullFormat, dateFormatter, bytes, resolveCharset(config)));
+    }
+
+    /**
+     * 格式化异常表示脏数据, 写出异常（IOException）使任务失败
      *
      * @param record 记录
-     * @param nullFormat 空处理格式
-     * @param dateParse 日期格式化对象
+     * @param columnFormatter 列格式化器
      * @param taskPluginCollector 任务处理器
      * @param unstructuredWriter 非结构化写入器
+     * @return 是否写出成功, false表示脏数据
      */
-    public static void transportOneRecord(Record record, String nullFormat, DateFormat dateParse, TaskPluginCollector taskPluginCollector, UnstructuredWriter unstructuredWriter) {
-        //默认空处理为"null"
-        if (null == nullFormat) {
-            nullFormat = "null";
-        }
-        //处理一行的列
+    public static boolean transportOneRecord(Record record, ColumnFormatter columnFormatter, TaskPluginCollector taskPluginCollector, UnstructuredWriter unstructuredWriter) {
         try {
-            //所有列
-            List<String> splitedRows = new ArrayList<>();
-            //获取列的数量
-            int recordLength = record.getColumnNumber();
-            if (0 != recordLength) {
-                Column column;
-                //遍历处理每一列
-                for (int i = 0; i < recordLength; i++) {
-                    column = record.getColumn(i);
-                    //当前列不为空
-                    if (null != column.getRawData()) {
-                        //检测是否是日期格式
-                        boolean isDateColumn = column instanceof DateColumn;
-                        //非日期格式
-                        if (!isDateColumn) {
-                            splitedRows.add(column.asString());
-                        }
-                        //日期格式处理
-                        else {
-                            //格式化为日期
-                            if (null != dateParse) {
-                                splitedRows.add(dateParse.format(column.asDate()));
-                            }
-                            //转为字符串
-                            else {
-                                splitedRows.add(column.asString());
-                            }
-                        }
-                    }
-                    //数据为空处理
-                    else {
-                        // warn: it's all ok if nullFormat is null
-                        splitedRows.add(nullFormat);
-                    }
-                }
-            }
-            unstructuredWriter.writeOneRecord(splitedRows);
+            unstructuredWriter.writeRecord(record, columnFormatter);
+            return true;
+        } catch (IOException e) {
+            throw DataXException.asDataXException(UnstructuredStorageWriterErrorCode.Write_FILE_IO_ERROR, "流写入错误", e);
         } catch (Exception e) {
             // warn: dirty data
             taskPluginCollector.collectDirtyRecord(record, e);
+            return false;
         }
     }
+
+    /**
+     * 异常表示脏数据
+     *
+     * @param record 记录
+     * @param nullFormat 空处理格式
+     * @param dateParse 日期格式化对象
+     * @param taskPluginCollector 任务处理器
+     * @param unstructuredWriter 非结构化写入器
+     * @deprecated 每次调用都会创建列格式化器, 请复用WriterSpec中的列格式化器
+     */
+    @Deprecated
+    public static void transportOneRecord(Record record, String nullFormat, DateFormat dateParse, TaskPluginCollector taskPluginCollector, UnstructuredWriter unstructuredWriter) {
+        UnstructuredStorageWriterUtil.transportOneRecord(record, new DefaultColumnFormatter(nullFormat, dateParse), taskPluginCollector, unstructuredWriter);
+    }
 }
@@ -1,7 +1,11 @@
 package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
 
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.plugin.TaskPluginCollector;
+
 import java.io.Closeable;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -19,6 +23,53 @@ public interface UnstructuredWriter extends Closeable {
      */
     public void writeOneRecord(List<String> splitedRows) throws IOException;
 
+    /**
+     * 直接写入一条记录：列由格式化器追加到输出缓冲，不构建中间List
+     * <span>默认实现退化为writeOneRecord, 实现类应覆盖该方法</span>
+     *
+     * @param record 记录
+     * @param formatter 列格式化器
+     * @throws IOException ex
+     */
+    public default void writeRecord(Record record, ColumnFormatter formatter) throws IOException {
+        int recordLength = record.getColumnNumber();
+        List<String> splitedRows = new ArrayList<>(recordLength);
+        StringBuilder field = new StringBuilder();
+        for (int i = 0; i < recordLength; i++) {
+            field.setLength(0);
+            formatter.format(i, record.getColumn(i), field);
+            splitedRows.add(field.toString());
+        }
+        this.writeOneRecord(splitedRows);
+    }
+
+    /**
+     * 批量写入记录：格式化、转换异常的记录作为脏数据收集, 不影响同批其他记录；写出异常（IOException）直接抛出
+     * <span>默认实现逐条调用writeRecord, 实现类可覆盖以减少每条记录的开销</span>
+     *
+     * @param records 记录数组
+     * @param count 记录数
+     * @param formatter 列格式化器
+     * @param taskPluginCollector 任务处理器
+     * @return 脏数据记录数
+     * @throws IOException ex
+     */
+    public default int writeBatch(Record[] records, int count, ColumnFormatter formatter, TaskPluginCollector taskPluginCollector) throws IOException {
+        int dirty = 0;
+        for (int i = 0; i < count; i++) {
+            try {
+                this.writeRecord(records[i], formatter);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                // warn: dirty data
+                taskPluginCollector.collectDirtyRecord(records[i], e);
+                dirty++;
+            }
+        }
+        return dirty;
+    }
+
     /**
      * flush
      *
@@ -0,0 +1,288 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 写任务指标：任务线程、IO线程写入, 上报线程读取
+ * <span>记录循环计时：getFromReader阻塞时间、记录处理（writeBatch）时间; 其中缓冲写出时间（同步时含压缩与写盘）单独统计,
+ * 序列化时间 = 记录处理时间 - 缓冲写出时间; 并行序列化时为各序列化线程的处理时间之和</span>
+ *
+ * @author langkye
+ */
+public class WriterMetrics implements WriterMetricsMXBean {
+    /**直方图桶数：第i个桶上界为2^i微秒, 最后一个桶为溢出桶*/
+    public static final int HISTOGRAM_BUCKETS = 22;
+
+    /**开始时间*/
+    private final long startNanos = System.nanoTime();
+    /**是否计时：关闭后不再按批次、缓冲写出计时, 记录数、字节数照常统计*/
+    private final boolean timing;
+    /**记录数*/
+    private final LongAdder records = new LongAdder();
+    /**脏数据记录数*/
+    private final LongAdder dirtyRecords = new LongAdder();
+    /**文件数*/
+    private final LongAdder files = new LongAdder();
+    /**压缩前字节数*/
+    private final LongAdder rawBytes = new LongAdder();
+    /**写入文件系统的字节数*/
+    private final LongAdder writtenBytes = new LongAdder();
+    /**getFromReader阻塞时间*/
+    private final LongAdder readNanos = new LongAdder();
+    /**记录处理时间*/
+    private final LongAdder transportNanos = new LongAdder();
+    /**并行序列化时间：各序列化线程之和*/
+    private final LongAdder batchNanos = new LongAdder();
+    /**缓冲写出时间*/
+    private final LongAdder writeNanos = new LongAdder();
+    /**文件系统写入时间*/
+    private final LongAdder diskNanos = new LongAdder();
+    /**缓冲写出耗时直方图*/
+    private final AtomicLongArray flushLatency = new AtomicLongArray(HISTOGRAM_BUCKETS);
+
+    /**
+     * 构建任务指标：统计耗时
+     */
+    public WriterMetrics() {
+        this(true);
+    }
+
+    /**
+     * 构建任务指标
+     *
+     * @param timing 是否计时
+     */
+    public WriterMetrics(boolean timing) {
+        this.timing = timing;
+    }
+
+    /**
+     * 是否计时
+     *
+     * @return 是否计时
+     */
+    public boolean isTiming() {
+        return this.timing;
+    }
+
+    /**
+     * 计时用的当前时间：关闭计时时返回0, 不调用System.nanoTime
+     *
+     * @return 当前时间（纳秒）
+     */
+    public long nanoTime() {
+        return this.timing ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * 记录一次getFromReader
+     *
+     * @param nanos 阻塞时间
+     */
+    public void recordRead(long nanos) {
+        this.readNanos.add(nanos);
+    }
+
+    /**
+     * 记录一条记录的处理
+     *
+     * @param nanos 处理时间
+     * @param dirty 是否脏数据
+     */
+    public void recordTransport(long nanos, boolean dirty) {
+        this.records.increment();
+        this.transportNanos.add(nanos);
+        if (dirty) {
+            this.dirtyRecords.increment();
+        }
+    }
+
+    /**
+     * 记录一批记录的处理
+     *
+     * @param count 记录数
+     * @param dirty 脏数据记录数
+     * @param nanos 处理时间
+     */
+    public void recordTransport(int count, int dirty, long nanos) {
+        this.records.add(count);
+        this.transportNanos.add(nanos);
+        this.dirtyRecords.add(dirty);
+    }
+
+    /**
+     * 记录一批记录的并行序列化
+     *
+     * @param count 记录数
+     * @param dirty 脏数据记录数
+     * @param nanos 序列化线程上的处理时间
+     */
+    public void recordBatch(int count, int dirty, long nanos) {
+        this.records.add(count);
+        this.dirtyRecords.add(dirty);
+        this.batchNanos.add(nanos);
+    }
+
+    /**
+     * 记录一次缓冲写出
+     *
+     * @param bytes 字节数（压缩前）
+     * @param nanos 耗时
+     */
+    public void recordFlush(long bytes, long nanos) {
+        this.rawBytes.add(bytes);
+        if (!this.timing) {
+            return;
+        }
+        this.writeNanos.add(nanos);
+        long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        int bucket = 0 == micros ? 0 : 64 - Long.numberOfLeadingZeros(micros);
+        this.flushLatency.incrementAndGet(Math.min(bucket, HISTOGRAM_BUCKETS - 1));
+    }
+
+    /**
+     * 记录一次文件系统写入
+     *
+     * @param bytes 字节数
+     * @param nanos 耗时
+     */
+    public void recordDiskWrite(long bytes, long nanos) {
+        this.writtenBytes.add(bytes);
+        this.diskNanos.add(nanos);
+    }
+
+    /**
+     * 记录新文件
+     */
+    public void recordFile() {
+        this.files.increment();
+    }
+
+    /**
+     * 直方图桶上界
+     *
+     * @param bucket 桶下标
+     * @return 上界（秒）, 溢出桶为正无穷
+     */
+    public static double bucketUpperBoundSeconds(int bucket) {
+        if (bucket >= HISTOGRAM_BUCKETS - 1) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return (1L << bucket) / 1000000D;
+    }
+
+    /**
+     * 缓冲写出耗时分位数：取所在桶的上界
+     *
+     * @param quantile 分位（0~1）
+     * @return 耗时上界（秒）, 无数据时为0
+     */
+    public double flushLatencyQuantileSeconds(double quantile) {
+        long[] histogram = this.getFlushLatencyHistogram();
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        if (0 == total) {
+            return 0D;
+        }
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            seen += histogram[i];
+            if (seen >= rank) {
+                return bucketUpperBoundSeconds(i);
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public long getRecords() {
+        return this.records.sum();
+    }
+
+    @Override
+    public long getDirtyRecords() {
+        return this.dirtyRecords.sum();
+    }
+
+    @Override
+    public long getFiles() {
+        return this.files.sum();
+    }
+
+    @Override
+    public long getRawBytes() {
+        return this.rawBytes.sum();
+    }
+
+    @Override
+    public long getWrittenBytes() {
+        return this.writtenBytes.sum();
+    }
+
+    @Override
+    public long getReadNanos() {
+        return this.readNanos.sum();
+    }
+
+    @Override
+    public long getSerializeNanos() {
+        //关闭时的最后一次写出不在记录循环内, 可能使差值为负; 并行序列化时写出不在序列化线程上, 直接累加
+        return Math.max(0L, this.transportNanos.sum() - this.writeNanos.sum()) + this.batchNanos.sum();
+    }
+
+    @Override
+    public long getWriteNanos() {
+        return this.writeNanos.sum();
+    }
+
+    @Override
+    public long getDiskNanos() {
+        return this.diskNanos.sum();
+    }
+
+    @Override
+    public long getElapsedNanos() {
+        return System.nanoTime() - this.startNanos;
+    }
+
+    @Override
+    public double getRecordsPerSecond() {
+        return perSecond(this.getRecords(), this.getElapsedNanos());
+    }
+
+    @Override
+    public double getWrittenBytesPerSecond() {
+        return perSecond(this.getWrittenBytes(), this.getElapsedNanos());
+    }
+
+    @Override
+    public double getCompressionRatio() {
+        long written = this.getWrittenBytes();
+        return 0 == written ? 0D : (double) this.getRawBytes() / written;
+    }
+
+    @Override
+    public long[] getFlushLatencyHistogram() {
+        long[] histogram = new long[HISTOGRAM_BUCKETS];
+        for (int i = 0; i < HISTOGRAM_BUCKETS; i++) {
+            histogram[i] = this.flushLatency.get(i);
+        }
+        return histogram;
+    }
+
+    /**
+     * 计算每秒数量
+     *
+     * @param count 数量
+     * @param nanos 时间
+     * @return 数量/秒
+     */
+    private static double perSecond(long count, long nanos) {
+        return nanos <= 0 ? 0D : count * 1000000000D / nanos;
+    }
+}
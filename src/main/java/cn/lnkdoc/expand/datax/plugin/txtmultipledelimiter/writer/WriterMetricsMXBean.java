@@ -0,0 +1,106 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+/**
+ * 写任务指标：JMX视图
+ *
+ * @author langkye
+ */
+public interface WriterMetricsMXBean {
+    /**
+     * 已处理记录数（含脏数据）
+     *
+     * @return 记录数
+     */
+    long getRecords();
+
+    /**
+     * 脏数据记录数
+     *
+     * @return 脏数据记录数
+     */
+    long getDirtyRecords();
+
+    /**
+     * 已写出的文件数
+     *
+     * @return 文件数
+     */
+    long getFiles();
+
+    /**
+     * 编码后、压缩前的字节数
+     *
+     * @return 字节数
+     */
+    long getRawBytes();
+
+    /**
+     * 写入文件系统的字节数（压缩后）
+     *
+     * @return 字节数
+     */
+    long getWrittenBytes();
+
+    /**
+     * 阻塞在getFromReader上的时间
+     *
+     * @return 纳秒
+     */
+    long getReadNanos();
+
+    /**
+     * 序列化、编码的时间：并行序列化时为各线程之和（含并行压缩）
+     *
+     * @return 纳秒
+     */
+    long getSerializeNanos();
+
+    /**
+     * 写出缓冲的时间：同步时包含压缩与写盘, 异步时为等待空闲缓冲的时间
+     *
+     * @return 纳秒
+     */
+    long getWriteNanos();
+
+    /**
+     * 文件系统写入时间（任意线程）
+     *
+     * @return 纳秒
+     */
+    long getDiskNanos();
+
+    /**
+     * 任务已运行的时间
+     *
+     * @return 纳秒
+     */
+    long getElapsedNanos();
+
+    /**
+     * 平均每秒记录数
+     *
+     * @return 记录数/秒
+     */
+    double getRecordsPerSecond();
+
+    /**
+     * 平均每秒写入文件系统的字节数
+     *
+     * @return 字节/秒
+     */
+    double getWrittenBytesPerSecond();
+
+    /**
+     * 压缩比：压缩前字节数/压缩后字节数
+     *
+     * @return 压缩比, 未写出时为0
+     */
+    double getCompressionRatio();
+
+    /**
+     * 缓冲写出耗时直方图：第i个桶统计耗时小于2^i微秒（且不小于前一个桶上界）的次数, 最后一个桶为溢出桶
+     *
+     * @return 各桶次数
+     */
+    long[] getFlushLatencyHistogram();
+}
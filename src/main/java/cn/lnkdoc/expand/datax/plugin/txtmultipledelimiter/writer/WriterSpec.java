@@ -0,0 +1,354 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.util.Configuration;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 写出规格：由已校验的配置一次性解析出的编码、压缩编解码器、分隔符、列格式化器与表头等, 创建后不可变
+ * <p>
+ * 作业初始化时构建一次以尽早暴露配置错误；任务初始化时从任务配置构建, 此后每个文件（分片、分区文件）
+ * 直接使用, 不再按键查找配置、匹配编解码器或创建格式化器。
+ *
+ * @author langkye
+ */
+public final class WriterSpec {
+    private static final Logger logger = LoggerFactory.getLogger(WriterSpec.class);
+
+    /**文件格式*/
+    private final String fileFormat;
+    /**是否为列式文件格式*/
+    private final boolean columnar;
+    /**编码*/
+    private final Charset charset;
+    /**字段分隔符*/
+    private final String fieldDelimiter;
+    /**text格式的转义符, 为null时不转义分隔符*/
+    private final Character escapeChar;
+    /**text格式换行符的替换串, 为null时换行符按转义符转义*/
+    private final String lineBreakReplacement;
+    /**表头, 未配置时为空列表*/
+    private final List<String> headers;
+    /**列格式化器：无可变状态, 可在线程间共享；列式文件格式为null*/
+    private final ColumnFormatter columnFormatter;
+    /**压缩格式, 不压缩时为null*/
+    private final String compress;
+    /**文本压缩编解码器, 不压缩或列式文件格式时为null*/
+    private final CompressCodec codec;
+    /**压缩级别*/
+    private final int compressLevel;
+    /**编解码器内部线程数*/
+    private final int compressWorkers;
+    /**并行块压缩线程数*/
+    private final int compressThreads;
+    /**并行压缩块大小（字节）*/
+    private final int compressBlockSize;
+    /**输出缓冲大小（字节）*/
+    private final int bufferSize;
+    /**是否异步写出*/
+    private final boolean asyncWrite;
+    /**异步写出缓冲数量*/
+    private final int asyncQueueSize;
+    /**序列化线程数：编码不支持并行序列化时为1*/
+    private final int serializeThreads;
+    /**每批处理记录数*/
+    private final int serializeBatchSize;
+    /**列定义：列式文件格式*/
+    private final List<ColumnSpec> columns;
+    /**列式文件的行组/条带大小（字节）*/
+    private final long rowGroupSize;
+    /**列式文件是否启用字典编码*/
+    private final boolean dictionaryEncoding;
+
+    /**
+     * 通过配置构建写出规格
+     *
+     * @param config 已校验的配置信息
+     */
+    private WriterSpec(Configuration config) {
+        this.fileFormat = config.getString(Key.FILE_FORMAT, Constant.FILE_FORMAT_TEXT);
+        this.columnar = ColumnarWriterManager.isColumnar(this.fileFormat);
+        this.charset = UnstructuredStorageWriterUtil.resolveCharset(config);
+        this.fieldDelimiter = config.getString(Key.FIELD_DELIMITER, String.valueOf(Constant.DEFAULT_FIELD_DELIMITER));
+        String escape = Constant.FILE_FORMAT_TEXT.equals(this.fileFormat) ? config.getString(Key.ESCAPE_CHAR) : null;
+        this.escapeChar = StringUtils.isEmpty(escape) ? null : escape.charAt(0);
+        this.lineBreakReplacement = Constant.FILE_FORMAT_TEXT.equals(this.fileFormat) ? config.getString(Key.LINE_BREAK_REPLACEMENT) : null;
+        List<String> headerList = this.columnar ? null : config.getList(Key.HEADER, String.class);
+        this.headers = null == headerList ? Collections.<String>emptyList() : Collections.unmodifiableList(headerList);
+        this.columnFormatter = this.columnar ? null : UnstructuredStorageWriterUtil.produceColumnFormatter(config);
+        this.compress = this.columnar ? config.getString(Key.COMPRESS, Constant.DEFAULT_COLUMNAR_COMPRESS) : config.getString(Key.COMPRESS);
+        this.codec = this.columnar || null == this.compress ? null : UnstructuredStorageWriterUtil.resolveCodec(this.compress);
+        this.compressLevel = config.getInt(Key.COMPRESS_LEVEL, CompressCodec.DEFAULT_LEVEL);
+        this.compressWorkers = config.getInt(Key.COMPRESS_WORKERS, 0);
+        this.compressThreads = config.getInt(Key.COMPRESS_THREADS, 1);
+        this.compressBlockSize = config.getInt(Key.COMPRESS_BLOCK_SIZE, Constant.DEFAULT_COMPRESS_BLOCK_SIZE) * 1024;
+        Integer bufferSizeInKb = config.getInt(Key.BUFFER_SIZE);
+        this.bufferSize = null == bufferSizeInKb ? Constant.DEFAULT_BUFFER_SIZE : bufferSizeInKb * 1024;
+        this.asyncWrite = config.getBool(Key.ASYNC_WRITE, false);
+        this.asyncQueueSize = config.getInt(Key.ASYNC_QUEUE_SIZE, Constant.DEFAULT_ASYNC_QUEUE_SIZE);
+        //并行序列化：仅支持无状态编码
+        int threads = config.getInt(Key.SERIALIZE_THREADS, 1);
+        if (threads > 1 && !ParallelRecordSerializer.isSupported(this.charset)) {
+            logger.warn(String.format("编码[%s]不支持并行序列化, 将使用单线程序列化", this.charset.name()));
+            threads = 1;
+        }
+        this.serializeThreads = threads;
+        this.serializeBatchSize = config.getInt(Key.SERIALIZE_BATCH_SIZE, Constant.DEFAULT_SERIALIZE_BATCH_SIZE);
+        this.columns = this.columnar ? Collections.unmodifiableList(ColumnSpec.parse(config)) : Collections.<ColumnSpec>emptyList();
+        this.rowGroupSize = config.getLong(Key.ROW_GROUP_SIZE, Constant.DEFAULT_ROW_GROUP_SIZE) * 1024 * 1024;
+        this.dictionaryEncoding = config.getBool(Key.DICTIONARY_ENCODING, true);
+    }
+
+    /**
+     * 复制写出规格并替换表头
+     *
+     * @param source 源写出规格
+     * @param headers 表头
+     */
+    private WriterSpec(WriterSpec source, List<String> headers) {
+        this.fileFormat = source.fileFormat;
+        this.columnar = source.columnar;
+        this.charset = source.charset;
+        this.fieldDelimiter = source.fieldDelimiter;
+        this.escapeChar = source.escapeChar;
+        this.lineBreakReplacement = source.lineBreakReplacement;
+        this.headers = headers;
+        this.columnFormatter = source.columnFormatter;
+        this.compress = source.compress;
+        this.codec = source.codec;
+        this.compressLevel = source.compressLevel;
+        this.compressWorkers = source.compressWorkers;
+        this.compressThreads = source.compressThreads;
+        this.compressBlockSize = source.compressBlockSize;
+        this.bufferSize = source.bufferSize;
+        this.asyncWrite = source.asyncWrite;
+        this.asyncQueueSize = source.asyncQueueSize;
+        this.serializeThreads = source.serializeThreads;
+        this.serializeBatchSize = source.serializeBatchSize;
+        this.columns = source.columns;
+        this.rowGroupSize = source.rowGroupSize;
+        this.dictionaryEncoding = source.dictionaryEncoding;
+    }
+
+    /**
+     * 通过配置构建写出规格：配置须已经过UnstructuredStorageWriterUtil.validateParameter校验
+     *
+     * @param config 配置信息
+     * @return 写出规格
+     */
+    public static WriterSpec of(Configuration config) {
+        return new WriterSpec(config);
+    }
+
+    /**
+     * 不写出表头的写出规格：续写文件时使用
+     *
+     * @return 写出规格
+     */
+    public WriterSpec withoutHeader() {
+        return this.headers.isEmpty() ? this : new WriterSpec(this, Collections.<String>emptyList());
+    }
+
+    /**
+     * 文件格式
+     *
+     * @return 文件格式
+     */
+    public String getFileFormat() {
+        return this.fileFormat;
+    }
+
+    /**
+     * 是否为列式文件格式
+     *
+     * @return 是否列式
+     */
+    public boolean isColumnar() {
+        return this.columnar;
+    }
+
+    /**
+     * 编码
+     *
+     * @return 编码
+     */
+    public Charset getCharset() {
+        return this.charset;
+    }
+
+    /**
+     * 字段分隔符
+     *
+     * @return 分隔符
+     */
+    public String getFieldDelimiter() {
+        return this.fieldDelimiter;
+    }
+
+    /**
+     * text格式的转义符
+     *
+     * @return 转义符, 为null时不转义分隔符
+     */
+    public Character getEscapeChar() {
+        return this.escapeChar;
+    }
+
+    /**
+     * text格式换行符的替换串
+     *
+     * @return 替换串, 为null时换行符按转义符转义
+     */
+    public String getLineBreakReplacement() {
+        return this.lineBreakReplacement;
+    }
+
+    /**
+     * 表头
+     *
+     * @return 表头, 未配置时为空列表
+     */
+    public List<String> getHeaders() {
+        return this.headers;
+    }
+
+    /**
+     * 列格式化器
+     *
+     * @return 列格式化器, 列式文件格式为null
+     */
+    public ColumnFormatter getColumnFormatter() {
+        return this.columnFormatter;
+    }
+
+    /**
+     * 压缩格式
+     *
+     * @return 压缩格式, 不压缩时为null
+     */
+    public String getCompress() {
+        return this.compress;
+    }
+
+    /**
+     * 文本压缩编解码器
+     *
+     * @return 编解码器, 不压缩或列式文件格式时为null
+     */
+    public CompressCodec getCodec() {
+        return this.codec;
+    }
+
+    /**
+     * 压缩级别
+     *
+     * @return 压缩级别
+     */
+    public int getCompressLevel() {
+        return this.compressLevel;
+    }
+
+    /**
+     * 编解码器内部线程数
+     *
+     * @return 线程数
+     */
+    public int getCompressWorkers() {
+        return this.compressWorkers;
+    }
+
+    /**
+     * 并行块压缩线程数
+     *
+     * @return 线程数
+     */
+    public int getCompressThreads() {
+        return this.compressThreads;
+    }
+
+    /**
+     * 并行压缩块大小（字节）
+     *
+     * @return 块大小
+     */
+    public int getCompressBlockSize() {
+        return this.compressBlockSize;
+    }
+
+    /**
+     * 输出缓冲大小（字节）
+     *
+     * @return 缓冲大小
+     */
+    public int getBufferSize() {
+        return this.bufferSize;
+    }
+
+    /**
+     * 是否异步写出
+     *
+     * @return 是否异步
+     */
+    public boolean isAsyncWrite() {
+        return this.asyncWrite;
+    }
+
+    /**
+     * 异步写出缓冲数量
+     *
+     * @return 缓冲数量
+     */
+    public int getAsyncQueueSize() {
+        return this.asyncQueueSize;
+    }
+
+    /**
+     * 序列化线程数
+     *
+     * @return 线程数
+     */
+    public int getSerializeThreads() {
+        return this.serializeThreads;
+    }
+
+    /**
+     * 每批处理记录数
+     *
+     * @return 记录数
+     */
+    public int getSerializeBatchSize() {
+        return this.serializeBatchSize;
+    }
+
+    /**
+     * 列定义
+     *
+     * @return 列定义, 非列式文件格式为空列表
+     */
+    public List<ColumnSpec> getColumns() {
+        return this.columns;
+    }
+
+    /**
+     * 列式文件的行组/条带大小（字节）
+     *
+     * @return 行组大小
+     */
+    public long getRowGroupSize() {
+        return this.rowGroupSize;
+    }
+
+    /**
+     * 列式文件是否启用字典编码
+     *
+     * @return 是否启用
+     */
+    public boolean isDictionaryEncoding() {
+        return this.dictionaryEncoding;
+    }
+}
@@ -0,0 +1,222 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.util.Configuration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 异步输出流测试：输出与同步写出逐字节一致, IO线程出错时任务线程不会永久阻塞
+ *
+ * @author langkye
+ */
+class AsyncOutputStreamTest {
+    /**IO线程名称*/
+    private static final String IO_THREAD = "async-output-test";
+
+    /**目录*/
+    @TempDir
+    File dir;
+
+    /**
+     * 随机长度的写入（单字节、跨缓冲的大块）与随机位置的flush：输出与直接写出一致
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void matchesDirectWrites() throws IOException {
+        Random random = new Random(5);
+        ByteArrayOutputStream direct = new ByteArrayOutputStream();
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+        try (AsyncOutputStream async = new AsyncOutputStream(target, 16, 2, IO_THREAD)) {
+            for (int i = 0; i < 5000; i++) {
+                if (random.nextInt(10) == 0) {
+                    int b = random.nextInt(256);
+                    direct.write(b);
+                    async.write(b);
+                } else {
+                    byte[] chunk = new byte[random.nextInt(100)];
+                    random.nextBytes(chunk);
+                    direct.write(chunk);
+                    async.write(chunk);
+                }
+                if (random.nextInt(50) == 0) {
+                    async.flush();
+                    assertArrayEquals(direct.toByteArray(), target.toByteArray());
+                }
+            }
+        }
+        assertArrayEquals(direct.toByteArray(), target.toByteArray());
+    }
+
+    /**
+     * asyncWrite开启与关闭时作业输出的文件逐字节一致：不压缩（直接内存缓冲写入文件通道）与压缩格式
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void jobOutputIsByteIdentical() throws IOException {
+        List<List<Record>> taskRecords = Arrays.asList(TestRecord.random(new Random(6), 20000), TestRecord.random(new Random(7), 3));
+        for (String compress : new String[]{null, "gzip", "bzip2"}) {
+            File sync = new File(this.dir, "sync-" + compress);
+            File async = new File(this.dir, "async-" + compress);
+            assertTrue(sync.mkdir() && async.mkdir());
+            WriterTestSupport.runJob(jobConfig(sync, compress, false), taskRecords);
+            WriterTestSupport.runJob(jobConfig(async, compress, true), taskRecords);
+            assertSameFiles(sync, async);
+        }
+    }
+
+    /**
+     * 目标写出失败：任务线程在后续写入或flush时得到IOException, 不会在等待空闲缓冲时阻塞
+     */
+    @Test
+    void failsFastWhenTargetFails() {
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            AsyncOutputStream async = new AsyncOutputStream(new FailingOutputStream(), 16, 2, IO_THREAD);
+            IOException e = assertThrows(IOException.class, () -> {
+                byte[] chunk = new byte[64];
+                for (int i = 0; i < 1000; i++) {
+                    async.write(chunk);
+                }
+                async.flush();
+            });
+            assertEquals("disk full", e.getMessage());
+            assertThrows(IOException.class, async::close);
+        });
+        assertFalse(ioThreadAlive());
+    }
+
+    /**
+     * 任务线程被中断时close仍等待IO线程结束再关闭目标, 并保留中断状态
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void joinsIoThreadOnInterruptedClose() throws IOException {
+        SlowOutputStream target = new SlowOutputStream();
+        AsyncOutputStream async = new AsyncOutputStream(target, 16, 2, IO_THREAD);
+        async.write(new byte[40]);
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(InterruptedIOException.class, async::close);
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+        assertFalse(ioThreadAlive());
+        assertTrue(target.closed);
+    }
+
+    /**
+     * 作业配置：每个任务单个文件
+     *
+     * @param path 目录
+     * @param compress 压缩格式
+     * @param asyncWrite 是否异步写出
+     * @return 作业配置
+     */
+    private static Configuration jobConfig(File path, String compress, boolean asyncWrite) {
+        List<Object> options = new ArrayList<>(Arrays.asList(Key.PATH, path.getAbsolutePath(), Key.FILE_NAME, "f", Key.WRITE_MODE, "truncate",
+                Key.FILE_NAME_TEMPLATE, "${fileName}-${taskId}-${part}", Key.HEADER, Collections.singletonList("h"), Key.ASYNC_WRITE, asyncWrite));
+        if (null != compress) {
+            options.addAll(Arrays.asList(Key.COMPRESS, compress));
+        }
+        return WriterTestSupport.config(options.toArray());
+    }
+
+    /**
+     * 断言两个目录下的数据文件同名且逐字节一致
+     *
+     * @param expected 参照目录
+     * @param actual 目录
+     * @throws IOException ex
+     */
+    static void assertSameFiles(File expected, File actual) throws IOException {
+        List<File> expectedFiles = WriterTestSupport.dataFiles(expected);
+        List<File> actualFiles = WriterTestSupport.dataFiles(actual);
+        assertEquals(expectedFiles.size(), actualFiles.size(), actual.getName());
+        assertFalse(expectedFiles.isEmpty());
+        for (int i = 0; i < expectedFiles.size(); i++) {
+            assertEquals(expectedFiles.get(i).getName(), actualFiles.get(i).getName());
+            assertArrayEquals(Files.readAllBytes(expectedFiles.get(i).toPath()), Files.readAllBytes(actualFiles.get(i).toPath()), actual.getName() + "/" + actualFiles.get(i).getName());
+        }
+    }
+
+    /**
+     * 是否仍有存活的测试IO线程
+     *
+     * @return 是否存活
+     */
+    private static boolean ioThreadAlive() {
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (IO_THREAD.equals(thread.getName()) && thread.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 写出即失败的目标
+     */
+    private static class FailingOutputStream extends OutputStream {
+        @Override
+        public void write(int b) throws IOException {
+            throw new IOException("disk full");
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            throw new IOException("disk full");
+        }
+    }
+
+    /**
+     * 写出缓慢的目标：可被中断
+     */
+    private static class SlowOutputStream extends OutputStream {
+        /**是否已关闭*/
+        private volatile boolean closed;
+
+        @Override
+        public void write(int b) throws IOException {
+            this.write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                Thread.sleep(200L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            }
+        }
+
+        @Override
+        public void close() {
+            this.closed = true;
+        }
+    }
+}
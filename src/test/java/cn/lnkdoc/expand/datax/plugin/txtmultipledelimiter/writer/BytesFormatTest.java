@@ -0,0 +1,151 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.exception.DataXException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 字节列输出格式测试：与独立的十六进制、java.util.Base64及new String(bytes, charset)的结果一致
+ *
+ * @author langkye
+ */
+class BytesFormatTest {
+    /**已有内容：追加时保留*/
+    private static final String PREFIX = "p|";
+
+    /**
+     * hex：小写, 每字节两个字符
+     */
+    @Test
+    void hexMatchesPerByteFormatting() {
+        Random random = new Random(23);
+        for (int length = 0; length < 300; length++) {
+            byte[] bytes = randomBytes(random, length);
+            StringBuilder expected = new StringBuilder(PREFIX);
+            for (byte b : bytes) {
+                expected.append(String.format("%02x", b & 0xFF));
+            }
+            assertEquals(expected.toString(), append(BytesFormat.HEX, bytes, StandardCharsets.UTF_8), "length " + length);
+        }
+    }
+
+    /**
+     * base64：覆盖各种余数长度
+     */
+    @Test
+    void base64MatchesJavaUtilEncoder() {
+        Random random = new Random(64);
+        for (int length = 0; length < 300; length++) {
+            byte[] bytes = randomBytes(random, length);
+            assertEquals(PREFIX + Base64.getEncoder().encodeToString(bytes), append(BytesFormat.BASE64, bytes, StandardCharsets.UTF_8), "length " + length);
+        }
+    }
+
+    /**
+     * raw：任意字节（含非法字节序列）与new String(bytes, charset)一致, 长度超过解码分块
+     */
+    @Test
+    void rawMatchesStringDecoding() {
+        Random random = new Random(8);
+        for (String charsetName : new String[]{"UTF-8", "GBK", "ISO-8859-1", "US-ASCII", "UTF-16"}) {
+            Charset charset = Charset.forName(charsetName);
+            for (int length : new int[]{0, 1, 2, 3, 7, 100, 1023, 1024, 1025, 5000}) {
+                byte[] bytes = randomBytes(random, length);
+                assertEquals(PREFIX + new String(bytes, charset), append(BytesFormat.RAW, bytes, charset), charsetName + " length " + length);
+                byte[] valid = ("ascii前缀中文" + new String(bytes, charset)).getBytes(charset);
+                assertEquals(PREFIX + new String(valid, charset), append(BytesFormat.RAW, valid, charset), charsetName + " valid length " + length);
+            }
+        }
+    }
+
+    /**
+     * raw写出到文件：编码下合法的字节序列原样写出, ISO-8859-1时任意字节原样写出
+     */
+    @Test
+    void rawWritesOriginalBytes() {
+        byte[] utf8 = "中文,é😀x".getBytes(StandardCharsets.UTF_8);
+        assertArrayEquals(line(utf8), write("UTF-8", utf8));
+        byte[] any = new byte[256];
+        for (int i = 0; i < any.length; i++) {
+            //跳过换行符、回车符及分隔符使用的字符, 便于比较
+            any[i] = (byte) (i == '\n' || i == '\r' || i == '|' ? 'x' : i);
+        }
+        assertArrayEquals(line(any), write("ISO-8859-1", any));
+    }
+
+    /**
+     * 格式名不区分大小写, 其他格式名抛出异常
+     */
+    @Test
+    void parsesFormatNames() {
+        assertEquals(BytesFormat.HEX, BytesFormat.of("hex"));
+        assertEquals(BytesFormat.BASE64, BytesFormat.of(" Base64 "));
+        assertEquals(BytesFormat.RAW, BytesFormat.of("RAW"));
+        for (String format : new String[]{null, "", "base32", "utf8"}) {
+            assertThrows(DataXException.class, () -> BytesFormat.of(format));
+        }
+    }
+
+    /**
+     * 追加到已有内容的输出缓冲
+     *
+     * @param format 字节列输出格式
+     * @param bytes 字节
+     * @param charset 编码
+     * @return 输出缓冲内容
+     */
+    private static String append(BytesFormat format, byte[] bytes, Charset charset) {
+        StringBuilder out = new StringBuilder(PREFIX);
+        format.append(bytes, charset, out);
+        return out.toString();
+    }
+
+    /**
+     * 按编码以raw格式写出一条只含字节列的记录
+     *
+     * @param encoding 编码
+     * @param bytes 字节
+     * @return 写出的字节
+     */
+    private static byte[] write(String encoding, byte[] bytes) {
+        Record record = TestRecord.of((Object) bytes);
+        return WriterTestSupport.write(WriterTestSupport.config(Key.ENCODING, encoding, Key.BYTES_FORMAT, "raw"), Collections.singletonList(record));
+    }
+
+    /**
+     * 字节后追加换行符
+     *
+     * @param bytes 字节
+     * @return 一行
+     */
+    private static byte[] line(byte[] bytes) {
+        byte[] lineSeparator = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+        byte[] line = Arrays.copyOf(bytes, bytes.length + lineSeparator.length);
+        System.arraycopy(lineSeparator, 0, line, bytes.length, lineSeparator.length);
+        return line;
+    }
+
+    /**
+     * 随机字节
+     *
+     * @param random 随机数
+     * @param length 长度
+     * @return 字节
+     */
+    private static byte[] randomBytes(Random random, int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,183 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import org.junit.jupiter.api.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 日期格式化器测试：预编译格式、按秒缓存与退化路径的输出与SimpleDateFormat一致
+ *
+ * @author langkye
+ */
+class CachedDateFormatterTest {
+    /**格式：年份各宽度、毫秒各宽度、引号字面量与不预编译的格式*/
+    private static final String[] PATTERNS = {"yyyy", "yy", "y", "yyy", "yyyyy", "S", "SS", "SSS", "MM/dd HH:mm:ss", "M/d H:m:s",
+            "yyyy-MM-dd HH:mm:ss", "yyyyMMddHHmmssSSS", "yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", "''yyyy'''' 'at' HH'h'", "dd.MM.yy", "yyyy-MM-dd EEE", "yyyy-MMM-dd hh a"};
+    /**时区：含夏令时、半小时偏移、1901年之前的地方平时*/
+    private static final String[] TIME_ZONES = {"UTC", "America/New_York", "Europe/London", "Australia/Lord_Howe", "Asia/Kolkata", "Asia/Shanghai"};
+    /**格列高利历切换时间点：1582-10-15T00:00:00Z*/
+    private static final long GREGORIAN_CUTOVER = -12219292800000L;
+    /**一小时的毫秒数*/
+    private static final long HOUR = 3600000L;
+
+    /**
+     * 随机时间：1970年前后（含负时间戳）与9999年之后的年份
+     */
+    @Test
+    void matchesSimpleDateFormatOnRandomInstants() {
+        Random random = new Random(8);
+        long[] instants = new long[20000];
+        for (int i = 0; i < instants.length; i++) {
+            instants[i] = GREGORIAN_CUTOVER + (long) (random.nextDouble() * (300000000000000L - GREGORIAN_CUTOVER));
+        }
+        assertMatchesInAllZones(instants);
+    }
+
+    /**
+     * 夏令时切换前后：逐秒（含同一秒内多次）格式化, 校验按秒缓存不会跨越偏移变化
+     */
+    @Test
+    void matchesSimpleDateFormatAcrossDstTransitions() {
+        //纽约：2021-03-14T07:00:00Z进入夏令时, 2021-11-07T06:00:00Z退出; 伦敦：2021-03-28T01:00:00Z、2021-10-31T01:00:00Z; 豪勋爵岛：30分钟夏令时
+        long[] transitions = {1615705200000L, 1636264800000L, 1616893200000L, 1635642000000L, 1617465600000L, 1633190400000L};
+        List<Long> instants = new ArrayList<>();
+        Random random = new Random(9);
+        for (long transition : transitions) {
+            for (long millis = transition - HOUR; millis <= transition + HOUR; millis += 250 + random.nextInt(1000)) {
+                instants.add(millis);
+                instants.add(millis + random.nextInt(3));
+            }
+        }
+        assertMatchesInAllZones(instants.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    /**
+     * 1970年之前与整秒边界：负时间戳的毫秒、秒按floor取整
+     */
+    @Test
+    void matchesSimpleDateFormatBeforeEpoch() {
+        List<Long> instants = new ArrayList<>();
+        for (long base : new long[]{0L, -HOUR * 24, -2208988800000L, -1325491557000L, -5000000000000L}) {
+            for (long delta = -2001; delta <= 2001; delta += 7) {
+                instants.add(base + delta);
+            }
+        }
+        assertMatchesInAllZones(instants.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    /**
+     * 格列高利历切换之前：退化为SimpleDateFormat, 按儒略历输出
+     */
+    @Test
+    void fallsBackBeforeGregorianCutover() {
+        TimeZone defaultZone = TimeZone.getDefault();
+        try {
+            TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+            CachedDateFormatter formatter = CachedDateFormatter.of("yyyy-MM-dd HH:mm:ss");
+            //切换前一天为儒略历1582-10-04, 预推格列高利历为1582-10-14
+            assertEquals("1582-10-04 23:59:59", formatter.format(new Date(GREGORIAN_CUTOVER - 1000L)));
+            assertEquals("1582-10-15 00:00:00", formatter.format(new Date(GREGORIAN_CUTOVER)));
+            assertEquals("0001-01-01 00:00:00", formatter.format(new Date(-62135769600000L)));
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+        long[] instants = new long[2000];
+        Random random = new Random(10);
+        for (int i = 0; i < instants.length; i++) {
+            //公元前至切换后两天, 覆盖切换点附近的时区偏移
+            instants[i] = GREGORIAN_CUTOVER + 2 * 24 * HOUR - (long) (random.nextDouble() * 100000000000000L);
+        }
+        assertMatchesInAllZones(instants);
+    }
+
+    /**
+     * 包装已有的SimpleDateFormat：使用其时区
+     */
+    @Test
+    void wrapsDateFormatWithItsTimeZone() {
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        dateFormat.setTimeZone(TimeZone.getTimeZone("America/New_York"));
+        CachedDateFormatter formatter = new CachedDateFormatter(dateFormat);
+        assertEquals("yyyy-MM-dd HH:mm:ss.SSS", formatter.getPattern());
+        Random random = new Random(11);
+        for (int i = 0; i < 2000; i++) {
+            Date date = new Date(random.nextLong() % 10000000000000L);
+            assertEquals(dateFormat.format(date), formatter.format(date));
+        }
+    }
+
+    /**
+     * 多线程共享同一格式化器：按秒缓存与退化路径的输出与SimpleDateFormat一致
+     *
+     * @throws Exception ex
+     */
+    @Test
+    void isThreadSafe() throws Exception {
+        Random random = new Random(12);
+        long[] instants = new long[50000];
+        for (int i = 0; i < instants.length; i++) {
+            //少量不同的秒, 使缓存频繁命中与替换
+            instants[i] = 1600000000000L + random.nextInt(20) * 1000L + random.nextInt(1000);
+        }
+        for (String pattern : new String[]{"yyyy-MM-dd HH:mm:ss", "yyyy-MM-dd HH:mm:ss.SSS", "yyyy-MM-dd EEE HH:mm:ss"}) {
+            CachedDateFormatter formatter = CachedDateFormatter.of(pattern);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    futures.add(executor.submit(() -> {
+                        SimpleDateFormat expected = new SimpleDateFormat(pattern);
+                        StringBuilder out = new StringBuilder();
+                        for (long instant : instants) {
+                            out.setLength(0);
+                            formatter.format(instant, out);
+                            assertEquals(expected.format(new Date(instant)), out.toString(), pattern);
+                        }
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * 在各时区下按各格式比较：日期格式化器与SimpleDateFormat均使用构建时的默认时区
+     *
+     * @param instants 毫秒时间戳
+     */
+    private static void assertMatchesInAllZones(long[] instants) {
+        TimeZone defaultZone = TimeZone.getDefault();
+        try {
+            for (String zone : TIME_ZONES) {
+                TimeZone.setDefault(TimeZone.getTimeZone(zone));
+                for (String pattern : PATTERNS) {
+                    CachedDateFormatter formatter = CachedDateFormatter.of(pattern);
+                    SimpleDateFormat expected = new SimpleDateFormat(pattern);
+                    StringBuilder out = new StringBuilder();
+                    for (long instant : instants) {
+                        out.setLength(0);
+                        out.append('>');
+                        formatter.format(instant, out);
+                        assertEquals('>' + expected.format(new Date(instant)), out.toString(), zone + " " + pattern + " " + instant);
+                    }
+                }
+            }
+        } finally {
+            TimeZone.setDefault(defaultZone);
+        }
+    }
+}
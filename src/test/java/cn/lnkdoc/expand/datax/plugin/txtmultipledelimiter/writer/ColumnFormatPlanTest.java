@@ -0,0 +1,116 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.DoubleColumn;
+import com.alibaba.datax.common.element.StringColumn;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.util.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * 列格式测试：按scale输出的小数与BigDecimal.setScale(HALF_UP)逐字符一致
+ *
+ * @author langkye
+ */
+class ColumnFormatPlanTest {
+    /**列格式化器：全局默认*/
+    private static final ColumnFormatter FALLBACK = new DefaultColumnFormatter("\\N", CachedDateFormatter.of("yyyy-MM-dd"));
+
+    /**
+     * 进位、符号、前导0、省略整数或小数部分、科学计数法等边界值
+     */
+    @Test
+    void roundsEdgeCasesHalfUp() {
+        String[] values = {"0", "0.5", "-0.5", "0.45", "0.4999", "9.995", "-9.995", "999.9995", "99999", ".5", "-.5", "5.", "-0.004", "-0.005",
+                "00012.345", "000", "+1.005", "-0", "-0.000", "1e3", "-1.5E-2", "1.23456789012345678901234567890", "12345678901234567890.5"};
+        for (String value : values) {
+            for (int scale = 0; scale <= 4; scale++) {
+                assertScaled(value, scale);
+            }
+        }
+    }
+
+    /**
+     * 随机十进制文本：偏向5、9、0以覆盖进位链
+     */
+    @Test
+    void matchesBigDecimalOnRandomDecimals() {
+        Random random = new Random(22);
+        String digits = "0123455599990";
+        for (int n = 0; n < 200000; n++) {
+            StringBuilder text = new StringBuilder();
+            int sign = random.nextInt(4);
+            if (0 == sign) {
+                text.append('-');
+            } else if (1 == sign) {
+                text.append('+');
+            }
+            int intLength = random.nextInt(6) == 0 ? 0 : 1 + random.nextInt(22);
+            for (int i = 0; i < intLength; i++) {
+                text.append(digits.charAt(random.nextInt(digits.length())));
+            }
+            int fractionLength = random.nextInt(22);
+            if (0 == intLength || random.nextInt(4) > 0) {
+                text.append('.');
+                if (0 == intLength && 0 == fractionLength) {
+                    fractionLength = 1;
+                }
+                for (int i = 0; i < fractionLength; i++) {
+                    text.append(digits.charAt(random.nextInt(digits.length())));
+                }
+            }
+            assertScaled(text.toString(), random.nextInt(10));
+        }
+    }
+
+    /**
+     * 编译后的列格式：小数、整数、字符串列均按scale输出, 未配置scale的列原样输出
+     */
+    @Test
+    void scalesEachColumnType() {
+        Configuration config = WriterTestSupport.config(Key.COLUMN, Arrays.asList(Collections.singletonMap(Key.COLUMN_SCALE, 2), Collections.singletonMap(Key.COLUMN_SCALE, 2),
+                Collections.singletonMap(Key.COLUMN_SCALE, 3), Collections.singletonMap(Key.COLUMN_SCALE, 1), Collections.singletonMap(Key.COLUMN_SCALE, 0),
+                Collections.emptyMap()));
+        byte[] bytes = WriterTestSupport.write(config,
+                Collections.singletonList(TestRecord.of(new BigDecimal("2.675"), 7, "1.0005", new DoubleColumn(1e20), new DoubleColumn("NaN"), "1.25")));
+        assertEquals("2.68|@|7.00|@|1.001|@|100000000000000000000.0|@|NaN|@|1.25" + System.lineSeparator(), new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 配置了scale的字符串列不是数字时抛出异常（记为脏数据）, scale不能为负数
+     */
+    @Test
+    void rejectsNonNumericValuesAndNegativeScale() {
+        Configuration config = Configuration.newDefault();
+        config.set(Key.COLUMN, Collections.singletonList(Collections.singletonMap(Key.COLUMN_SCALE, 2)));
+        ColumnFormatter formatter = ColumnFormatPlan.compile(config, FALLBACK);
+        StringBuilder out = new StringBuilder();
+        formatter.format(0, new DoubleColumn(new BigDecimal("-1.005")), out);
+        assertEquals("-1.01", out.toString());
+        assertThrows(DataXException.class, () -> formatter.format(0, new StringColumn("abc"), new StringBuilder()));
+
+        config.set(Key.COLUMN, Collections.singletonList(Collections.singletonMap(Key.COLUMN_SCALE, -1)));
+        assertThrows(DataXException.class, () -> ColumnFormatPlan.compile(config, FALLBACK));
+    }
+
+    /**
+     * 断言按scale输出的文本与BigDecimal.setScale(HALF_UP).toPlainString()一致
+     *
+     * @param value 十进制数字文本
+     * @param scale 小数位数
+     */
+    private static void assertScaled(String value, int scale) {
+        StringBuilder out = new StringBuilder();
+        ColumnFormatPlan.appendScaled(value, scale, out);
+        assertEquals(new BigDecimal(value).setScale(scale, RoundingMode.HALF_UP).toPlainString(), out.toString(), value + " scale " + scale);
+    }
+}
@@ -0,0 +1,439 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.BoolColumn;
+import com.alibaba.datax.common.element.BytesColumn;
+import com.alibaba.datax.common.element.DateColumn;
+import com.alibaba.datax.common.element.DoubleColumn;
+import com.alibaba.datax.common.element.LongColumn;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.element.StringColumn;
+import com.alibaba.datax.common.util.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.hive.ql.exec.vector.BytesColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.ColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.DoubleColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.LongColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.TimestampColumnVector;
+import org.apache.hadoop.hive.ql.exec.vector.VectorizedRowBatch;
+import org.apache.orc.CompressionKind;
+import org.apache.orc.OrcFile;
+import org.apache.orc.Reader;
+import org.apache.orc.RecordReader;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.ParquetReader;
+import org.apache.parquet.hadoop.example.GroupReadSupport;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.hadoop.metadata.ParquetMetadata;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.schema.MessageTypeParser;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 列式文件测试：经插件写出的parquet、orc文件由parquet、orc的读取器读回, schema、值、空值与column定义及记录一致
+ * <span>orc经内部类PhysicalFsWriter写出到已打开的输出流, 由多条带、多文件与各压缩格式的读回固定其行为</span>
+ *
+ * @author langkye
+ */
+class ColumnarWriterManagerTest {
+    /**列定义：名称与类型*/
+    private static final String[][] COLUMNS = {{"i", "int"}, {"l", "long"}, {"f", "float"}, {"d", "double"}, {"b", "boolean"},
+            {"s", "string"}, {"dt", "date"}, {"ts", "timestamp"}, {"by", "bytes"}};
+    /**parquet schema*/
+    private static final String PARQUET_SCHEMA = "message datax { optional int32 i; optional int64 l; optional float f; optional double d; optional boolean b;"
+            + " optional binary s (STRING); optional int32 dt (DATE); optional int64 ts (TIMESTAMP(MILLIS,true)); optional binary by; }";
+    /**orc schema*/
+    private static final String ORC_SCHEMA = "struct<i:int,l:bigint,f:float,d:double,b:boolean,s:string,dt:date,ts:timestamp,by:binary>";
+
+    /**目录*/
+    @TempDir
+    File dir;
+
+    /**
+     * parquet：各压缩格式读回一致, 压缩格式记录在文件中
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void parquetRoundTrips() throws IOException {
+        List<Record> records = records(new Random(15), 5000);
+        for (String compress : ColumnarWriterManager.getSupportedCompress(Constant.FILE_FORMAT_PARQUET)) {
+            File path = this.runJob(compress, Constant.FILE_FORMAT_PARQUET, compress, records);
+            List<File> files = WriterTestSupport.dataFiles(path);
+            assertEquals(1, files.size());
+            ParquetMetadata footer = parquetFooter(files.get(0));
+            assertEquals(MessageTypeParser.parseMessageType(PARQUET_SCHEMA), footer.getFileMetaData().getSchema());
+            CompressionCodecName codec = "none".equals(compress) ? CompressionCodecName.UNCOMPRESSED : CompressionCodecName.valueOf(compress.toUpperCase(Locale.ROOT));
+            assertEquals(codec, footer.getBlocks().get(0).getColumns().get(0).getCodec(), compress);
+            assertEquals(expectedRows(records), readParquet(files.get(0)), compress);
+        }
+    }
+
+    /**
+     * orc：各压缩格式读回一致, 压缩格式记录在文件中
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void orcRoundTrips() throws IOException {
+        List<Record> records = records(new Random(15), 5000);
+        for (String compress : ColumnarWriterManager.getSupportedCompress(Constant.FILE_FORMAT_ORC)) {
+            File path = this.runJob(compress, Constant.FILE_FORMAT_ORC, compress, records);
+            List<File> files = WriterTestSupport.dataFiles(path);
+            assertEquals(1, files.size());
+            try (Reader reader = orcReader(files.get(0))) {
+                assertEquals(ORC_SCHEMA, reader.getSchema().toString());
+                CompressionKind kind = "none".equals(compress) ? CompressionKind.NONE : CompressionKind.valueOf(compress.toUpperCase(Locale.ROOT));
+                assertEquals(kind, reader.getCompressionKind(), compress);
+            }
+            assertEquals(expectedRows(records), readOrc(files.get(0)), compress);
+        }
+    }
+
+    /**
+     * 超过行组、条带大小：parquet写出多个行组, orc写出多个条带, 读回一致
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void writesMultipleRowGroupsAndStripes() throws IOException {
+        List<Record> records = records(new Random(16), 60000);
+        File parquet = WriterTestSupport.dataFiles(this.runJob("parquet", Constant.FILE_FORMAT_PARQUET, "none", records, Key.ROW_GROUP_SIZE, 1)).get(0);
+        List<BlockMetaData> blocks = parquetFooter(parquet).getBlocks();
+        assertTrue(blocks.size() > 1, String.valueOf(blocks.size()));
+        assertEquals(expectedRows(records), readParquet(parquet));
+
+        File orc = WriterTestSupport.dataFiles(this.runJob("orc", Constant.FILE_FORMAT_ORC, "none", records, Key.ROW_GROUP_SIZE, 1)).get(0);
+        try (Reader reader = orcReader(orc)) {
+            assertTrue(reader.getStripes().size() > 1, String.valueOf(reader.getStripes().size()));
+            assertEquals(expectedRows(records).size(), reader.getNumberOfRows());
+        }
+        assertEquals(expectedRows(records), readOrc(orc));
+    }
+
+    /**
+     * 类型转换失败与列数不一致的记录作为脏数据收集, 不写出半行
+     */
+    @Test
+    void collectsDirtyRecords() {
+        List<Record> records = records(new Random(17), 2000);
+        List<Record> expectedDirty = new ArrayList<>();
+        for (int i = 0; i < records.size(); i++) {
+            if (isDirty(i)) {
+                expectedDirty.add(records.get(i));
+            }
+        }
+        for (String fileFormat : new String[]{Constant.FILE_FORMAT_PARQUET, Constant.FILE_FORMAT_ORC}) {
+            File path = new File(this.dir, "dirty-" + fileFormat);
+            assertTrue(path.mkdir());
+            List<Record> dirty = WriterTestSupport.runJob(jobConfig(path, fileFormat, null), Collections.singletonList(records)).get(0).getDirtyRecords();
+            assertEquals(expectedDirty.size(), dirty.size(), fileFormat);
+            for (int i = 0; i < dirty.size(); i++) {
+                assertSame(expectedDirty.get(i), dirty.get(i), fileFormat);
+            }
+        }
+    }
+
+    /**
+     * 按maxFileRows滚动：每个文件为完整的列式文件, 行数不计脏数据, 依次读回与全部记录一致
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void rollsAtMaxFileRows() throws IOException {
+        List<Record> records = records(new Random(18), 5500);
+        List<List<Object>> expected = expectedRows(records);
+        for (String fileFormat : new String[]{Constant.FILE_FORMAT_PARQUET, Constant.FILE_FORMAT_ORC}) {
+            List<File> files = WriterTestSupport.dataFiles(this.runJob("rolling-" + fileFormat, fileFormat, null, records, Key.MAX_FILE_ROWS, 1000));
+            assertEquals((expected.size() + 999) / 1000, files.size(), fileFormat);
+            List<List<Object>> rows = new ArrayList<>();
+            for (int i = 0; i < files.size(); i++) {
+                List<List<Object>> part = Constant.FILE_FORMAT_PARQUET.equals(fileFormat) ? readParquet(files.get(i)) : readOrc(files.get(i));
+                assertEquals(i < files.size() - 1 ? 1000 : expected.size() - 1000 * i, part.size(), files.get(i).getName());
+                rows.addAll(part);
+            }
+            assertEquals(expected, rows, fileFormat);
+        }
+    }
+
+    /**
+     * 运行单任务作业
+     *
+     * @param name 子目录名
+     * @param fileFormat 文件格式
+     * @param compress 压缩格式
+     * @param records 记录
+     * @param keyValues 额外的配置
+     * @return 输出目录
+     */
+    private File runJob(String name, String fileFormat, String compress, List<Record> records, Object... keyValues) {
+        File path = new File(this.dir, name + "-" + fileFormat);
+        assertTrue(path.mkdir());
+        WriterTestSupport.runJob(jobConfig(path, fileFormat, compress, keyValues), Collections.singletonList(records));
+        return path;
+    }
+
+    /**
+     * 作业配置
+     *
+     * @param path 目录
+     * @param fileFormat 文件格式
+     * @param compress 压缩格式, 为null时使用默认压缩格式
+     * @param keyValues 额外的配置
+     * @return 作业配置
+     */
+    private static Configuration jobConfig(File path, String fileFormat, String compress, Object... keyValues) {
+        List<Map<String, String>> columns = new ArrayList<>();
+        for (String[] column : COLUMNS) {
+            Map<String, String> spec = new LinkedHashMap<>();
+            spec.put(Key.COLUMN_NAME, column[0]);
+            spec.put(Key.COLUMN_TYPE, column[1]);
+            columns.add(spec);
+        }
+        List<Object> options = new ArrayList<>(Arrays.asList(Key.PATH, path.getAbsolutePath(), Key.FILE_NAME, "f", Key.WRITE_MODE, "truncate",
+                Key.FILE_NAME_TEMPLATE, "${fileName}-${part}", Key.FILE_FORMAT, fileFormat, Key.COLUMN, columns));
+        if (null != compress) {
+            options.addAll(Arrays.asList(Key.COMPRESS, compress));
+        }
+        options.addAll(Arrays.asList(keyValues));
+        return WriterTestSupport.config(options.toArray());
+    }
+
+    /**
+     * 随机记录：各列均有空值, 日期含1970年之前; 部分记录int越界、long不是数字或缺少一列（脏数据）
+     *
+     * @param random 随机数
+     * @param count 条数
+     * @return 记录
+     */
+    private static List<Record> records(Random random, int count) {
+        List<Record> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TestRecord record = new TestRecord();
+            record.addColumn(new LongColumn(i % 17 == 5 ? (Long) Long.MAX_VALUE : nullable(random, (long) random.nextInt())));
+            record.addColumn(i % 23 == 7 ? new StringColumn("abc") : new LongColumn(nullable(random, random.nextLong())));
+            record.addColumn(new DoubleColumn(nullable(random, random.nextDouble() * 1e4)));
+            record.addColumn(new DoubleColumn(nullable(random, random.nextGaussian() * 1e9)));
+            record.addColumn(new BoolColumn(nullable(random, random.nextBoolean())));
+            record.addColumn(new StringColumn(nullable(random, "s" + random.nextInt(1000) + (random.nextBoolean() ? "中文,\n" : ""))));
+            record.addColumn(new DateColumn(nullable(random, (random.nextLong() % 4000000000000L))));
+            record.addColumn(new DateColumn(nullable(random, 1600000000000L + random.nextInt(Integer.MAX_VALUE) * 1000L + random.nextInt(1000))));
+            byte[] bytes = new byte[random.nextInt(40)];
+            random.nextBytes(bytes);
+            record.addColumn(new BytesColumn(nullable(random, bytes)));
+            if (i % 29 == 11) {
+                records.add(withoutLastColumn(record));
+            } else {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    /**
+     * 是否为脏数据
+     *
+     * @param index 记录序号
+     * @return 是否为脏数据
+     */
+    private static boolean isDirty(int index) {
+        return index % 17 == 5 || index % 23 == 7 || index % 29 == 11;
+    }
+
+    /**
+     * 去掉最后一列的记录
+     *
+     * @param record 记录
+     * @return 记录
+     */
+    private static Record withoutLastColumn(Record record) {
+        TestRecord copy = new TestRecord();
+        for (int i = 0; i < record.getColumnNumber() - 1; i++) {
+            copy.addColumn(record.getColumn(i));
+        }
+        return copy;
+    }
+
+    /**
+     * 约十分之一为null
+     *
+     * @param random 随机数
+     * @param value 值
+     * @param <T> 值类型
+     * @return 值或null
+     */
+    private static <T> T nullable(Random random, T value) {
+        return random.nextInt(10) == 0 ? null : value;
+    }
+
+    /**
+     * 由记录独立计算读回的行：跳过脏数据, 日期为本地时区的纪元日, 字节数组以ByteBuffer比较
+     *
+     * @param records 记录
+     * @return 行
+     */
+    private static List<List<Object>> expectedRows(List<Record> records) {
+        List<List<Object>> rows = new ArrayList<>();
+        for (int i = 0; i < records.size(); i++) {
+            if (isDirty(i)) {
+                continue;
+            }
+            Record record = records.get(i);
+            List<Object> row = new ArrayList<>();
+            Object[] raw = new Object[COLUMNS.length];
+            for (int c = 0; c < COLUMNS.length; c++) {
+                raw[c] = record.getColumn(c).getRawData();
+            }
+            row.add(null == raw[0] ? null : (int) record.getColumn(0).asLong().longValue());
+            row.add(null == raw[1] ? null : record.getColumn(1).asLong());
+            row.add(null == raw[2] ? null : (float) record.getColumn(2).asDouble().doubleValue());
+            row.add(null == raw[3] ? null : record.getColumn(3).asDouble());
+            row.add(null == raw[4] ? null : record.getColumn(4).asBoolean());
+            row.add(raw[5]);
+            row.add(null == raw[6] ? null : Instant.ofEpochMilli((Long) raw[6]).atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay());
+            row.add(raw[7]);
+            row.add(null == raw[8] ? null : ByteBuffer.wrap((byte[]) raw[8]));
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * 读取parquet文件尾
+     *
+     * @param file 文件
+     * @return 文件尾
+     * @throws IOException ex
+     */
+    private static ParquetMetadata parquetFooter(File file) throws IOException {
+        try (ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromPath(new Path(file.toURI()), new org.apache.hadoop.conf.Configuration(false)))) {
+            return reader.getFooter();
+        }
+    }
+
+    /**
+     * 由parquet读取器读回全部行
+     *
+     * @param file 文件
+     * @return 行
+     * @throws IOException ex
+     */
+    private static List<List<Object>> readParquet(File file) throws IOException {
+        List<List<Object>> rows = new ArrayList<>();
+        try (ParquetReader<Group> reader = ParquetReader.builder(new GroupReadSupport(), new Path(file.toURI())).withConf(new org.apache.hadoop.conf.Configuration(false)).build()) {
+            for (Group group = reader.read(); null != group; group = reader.read()) {
+                List<Object> row = new ArrayList<>();
+                row.add(0 == group.getFieldRepetitionCount(0) ? null : group.getInteger(0, 0));
+                row.add(0 == group.getFieldRepetitionCount(1) ? null : group.getLong(1, 0));
+                row.add(0 == group.getFieldRepetitionCount(2) ? null : group.getFloat(2, 0));
+                row.add(0 == group.getFieldRepetitionCount(3) ? null : group.getDouble(3, 0));
+                row.add(0 == group.getFieldRepetitionCount(4) ? null : group.getBoolean(4, 0));
+                row.add(0 == group.getFieldRepetitionCount(5) ? null : group.getString(5, 0));
+                row.add(0 == group.getFieldRepetitionCount(6) ? null : (long) group.getInteger(6, 0));
+                row.add(0 == group.getFieldRepetitionCount(7) ? null : group.getLong(7, 0));
+                row.add(0 == group.getFieldRepetitionCount(8) ? null : ByteBuffer.wrap(group.getBinary(8, 0).getBytes()));
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * 打开orc读取器
+     *
+     * @param file 文件
+     * @return 读取器
+     * @throws IOException ex
+     */
+    private static Reader orcReader(File file) throws IOException {
+        return OrcFile.createReader(new Path(file.toURI()), OrcFile.readerOptions(new org.apache.hadoop.conf.Configuration(false)));
+    }
+
+    /**
+     * 由orc读取器读回全部行
+     *
+     * @param file 文件
+     * @return 行
+     * @throws IOException ex
+     */
+    private static List<List<Object>> readOrc(File file) throws IOException {
+        List<List<Object>> rows = new ArrayList<>();
+        try (Reader reader = orcReader(file); RecordReader recordReader = reader.rows()) {
+            VectorizedRowBatch batch = reader.getSchema().createRowBatch();
+            while (recordReader.nextBatch(batch)) {
+                for (int r = 0; r < batch.size; r++) {
+                    int[] at = new int[batch.cols.length];
+                    for (int c = 0; c < at.length; c++) {
+                        at[c] = batch.cols[c].isRepeating ? 0 : r;
+                    }
+                    List<Object> row = new ArrayList<>();
+                    row.add(isNull(batch.cols[0], at[0]) ? null : (int) ((LongColumnVector) batch.cols[0]).vector[at[0]]);
+                    row.add(isNull(batch.cols[1], at[1]) ? null : ((LongColumnVector) batch.cols[1]).vector[at[1]]);
+                    row.add(isNull(batch.cols[2], at[2]) ? null : (float) ((DoubleColumnVector) batch.cols[2]).vector[at[2]]);
+                    row.add(isNull(batch.cols[3], at[3]) ? null : ((DoubleColumnVector) batch.cols[3]).vector[at[3]]);
+                    row.add(isNull(batch.cols[4], at[4]) ? null : 1L == ((LongColumnVector) batch.cols[4]).vector[at[4]]);
+                    row.add(isNull(batch.cols[5], at[5]) ? null : string((BytesColumnVector) batch.cols[5], at[5]));
+                    row.add(isNull(batch.cols[6], at[6]) ? null : ((LongColumnVector) batch.cols[6]).vector[at[6]]);
+                    row.add(isNull(batch.cols[7], at[7]) ? null : ((TimestampColumnVector) batch.cols[7]).getTime(at[7]));
+                    row.add(isNull(batch.cols[8], at[8]) ? null : ByteBuffer.wrap(bytes((BytesColumnVector) batch.cols[8], at[8])));
+                    rows.add(row);
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * 列向量中的值是否为null
+     *
+     * @param vector 列向量
+     * @param index 值的位置
+     * @return 是否为null
+     */
+    private static boolean isNull(ColumnVector vector, int index) {
+        return !vector.noNulls && vector.isNull[index];
+    }
+
+    /**
+     * 字节列向量中的值
+     *
+     * @param vector 列向量
+     * @param index 值的位置
+     * @return 值
+     */
+    private static byte[] bytes(BytesColumnVector vector, int index) {
+        return Arrays.copyOfRange(vector.vector[index], vector.start[index], vector.start[index] + vector.length[index]);
+    }
+
+    /**
+     * 字节列向量中的UTF-8字符串
+     *
+     * @param vector 列向量
+     * @param index 值的位置
+     * @return 值
+     */
+    private static String string(BytesColumnVector vector, int index) {
+        return new String(bytes(vector, index), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,132 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.util.Configuration;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.apache.commons.compress.compressors.lz4.FramedLZ4CompressorInputStream;
+import org.apache.commons.compress.compressors.snappy.FramedSnappyCompressorInputStream;
+import org.apache.commons.compress.compressors.zstandard.ZstdCompressorInputStream;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 压缩格式测试：各压缩格式在单流、并行块压缩、异步写出及并行序列化下的输出, 经独立的解码器解压后与不压缩的输出一致
+ * <span>lz4、snappy由commons-compress的帧格式解码器解压, 与写出使用的lz4-java、snappy-java相互独立; gzip由JDK解压</span>
+ *
+ * @author langkye
+ */
+class CompressCodecTest {
+    /**记录：约1MB, 并行块压缩时切分为多个块*/
+    private static List<Record> records;
+    /**不压缩的输出*/
+    private static byte[] plain;
+
+    /**
+     * 生成记录与不压缩的输出
+     */
+    @BeforeAll
+    static void writePlain() {
+        records = TestRecord.random(new Random(7), 12000);
+        plain = WriterTestSupport.write(WriterTestSupport.config(), records);
+    }
+
+    /**
+     * 单流压缩
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void decodesSingleStream() throws IOException {
+        for (String compress : CompressCodecRegistry.getSupportedNames()) {
+            this.assertDecodes(compress, WriterTestSupport.config(Key.COMPRESS, compress));
+        }
+    }
+
+    /**
+     * 并行块压缩：串联的gzip member / bzip2流 / zstd frame / lz4 frame / snappy流
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void decodesParallelBlocks() throws IOException {
+        for (String compress : CompressCodecRegistry.getSupportedNames()) {
+            this.assertDecodes(compress, WriterTestSupport.config(Key.COMPRESS, compress, Key.COMPRESS_THREADS, 3, Key.COMPRESS_BLOCK_SIZE, 64));
+        }
+    }
+
+    /**
+     * 异步写出：IO线程压缩
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void decodesAsyncWrite() throws IOException {
+        for (String compress : CompressCodecRegistry.getSupportedNames()) {
+            this.assertDecodes(compress, WriterTestSupport.config(Key.COMPRESS, compress, Key.ASYNC_WRITE, true, Key.ASYNC_QUEUE_SIZE, 2));
+        }
+    }
+
+    /**
+     * 并行序列化：序列化线程按批压缩
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void decodesParallelSerialize() throws IOException {
+        for (String compress : CompressCodecRegistry.getSupportedNames()) {
+            this.assertDecodes(compress, WriterTestSupport.config(Key.COMPRESS, compress, Key.SERIALIZE_THREADS, 3, Key.SERIALIZE_BATCH_SIZE, 500));
+        }
+    }
+
+    /**
+     * 写出并解压, 与不压缩的输出比较
+     *
+     * @param compress 压缩格式
+     * @param config 配置信息
+     * @throws IOException ex
+     */
+    private void assertDecodes(String compress, Configuration config) throws IOException {
+        byte[] compressed = WriterTestSupport.write(config, records);
+        try (InputStream in = decoder(compress, new ByteArrayInputStream(compressed))) {
+            byte[] decoded = IOUtils.toByteArray(in);
+            assertEquals(plain.length, decoded.length, compress + " " + config.toJSON());
+            assertArrayEquals(plain, decoded, compress + " " + config.toJSON());
+        }
+    }
+
+    /**
+     * 独立的解码器：均按串联流解压
+     *
+     * @param compress 压缩格式
+     * @param in 压缩数据
+     * @return 解压流
+     * @throws IOException ex
+     */
+    static InputStream decoder(String compress, InputStream in) throws IOException {
+        switch (compress) {
+            case "gzip":
+                return new GZIPInputStream(in);
+            case "bzip2":
+                return new BZip2CompressorInputStream(in, true);
+            case "zstd":
+                return new ZstdCompressorInputStream(in);
+            case "lz4":
+                return new FramedLZ4CompressorInputStream(in, true);
+            case "snappy":
+                return new FramedSnappyCompressorInputStream(in);
+            default:
+                throw new IllegalArgumentException(compress);
+        }
+    }
+}
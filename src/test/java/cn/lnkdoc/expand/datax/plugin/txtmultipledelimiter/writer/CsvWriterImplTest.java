@@ -0,0 +1,239 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.util.Configuration;
+import com.csvreader.CsvReader;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * csv写入器测试：按RFC 4180包围、转义, 并用独立的解析器读回
+ *
+ * @author langkye
+ */
+class CsvWriterImplTest {
+    /**换行符*/
+    private static final String LS = System.lineSeparator();
+    /**列格式化器*/
+    private static final ColumnFormatter FORMATTER = new DefaultColumnFormatter("", CachedDateFormatter.of("yyyy-MM-dd"));
+
+    /**
+     * 包含分隔符、双引号、换行的字段以双引号包围, 双引号写为两个双引号, 首尾空白保留
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void quotesOnlyFieldsThatNeedIt() throws IOException {
+        String csv = write(",", TestRecord.of("a,b", "say \"hi\"", "l1\nl2", "cr\r", " padded ", "plain"));
+        assertEquals("\"a,b\",\"say \"\"hi\"\"\",\"l1\nl2\",\"cr\r\", padded ,plain" + LS, csv);
+    }
+
+    /**
+     * 与javacsv保持一致：首列为空或以#开头时包围, 不包含任何列的记录不输出
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void keepsJavacsvFirstColumnRules() throws IOException {
+        assertEquals("\"\",x" + LS, write(",", TestRecord.of("", "x")));
+        assertEquals("\"#c\",#d" + LS, write(",", TestRecord.of("#c", "#d")));
+        assertEquals("", write(",", TestRecord.of()));
+    }
+
+    /**
+     * 单字符分隔符：随机字段经javacsv读回与写出一致
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void roundTripsThroughJavacsv() throws IOException {
+        for (char delimiter : new char[]{',', '|', '\t', ';'}) {
+            List<List<String>> rows = randomRows(new Random(delimiter), String.valueOf(delimiter), 2000);
+            String csv = write(String.valueOf(delimiter), toRecords(rows));
+
+            CsvReader reader = new CsvReader(new StringReader(csv), delimiter);
+            reader.setTrimWhitespace(false);
+            reader.setSafetySwitch(false);
+            List<List<String>> parsed = new ArrayList<>();
+            while (reader.readRecord()) {
+                parsed.add(Arrays.asList(reader.getValues()));
+            }
+            reader.close();
+            assertEquals(rows, parsed, "delimiter " + delimiter);
+        }
+    }
+
+    /**
+     * 多字符分隔符（含自重叠的分隔符）：随机字段经最左匹配的RFC 4180解析器读回与写出一致
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void roundTripsMultiCharDelimiters() throws IOException {
+        for (String delimiter : new String[]{"|@|", "||", "aa", "aba", ",;", "\t\t"}) {
+            List<List<String>> rows = randomRows(new Random(delimiter.hashCode()), delimiter, 3000);
+            String csv = write(delimiter, toRecords(rows));
+            assertEquals(rows, parse(csv, delimiter), "delimiter " + delimiter);
+        }
+    }
+
+    /**
+     * 字段以分隔符的真前缀结尾时包围：否则最左匹配会在错误的位置切分
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void quotesFieldEndingWithDelimiterPrefix() throws IOException {
+        assertEquals("\"xab\"aba1" + LS, write("aba", TestRecord.of("xab", "1")));
+        assertEquals("\"x|\"||y" + LS, write("||", TestRecord.of("x|", "y")));
+    }
+
+    /**
+     * csv分隔符不能为空, 也不能包含双引号、回车或换行符
+     */
+    @Test
+    void rejectsIllegalCsvDelimiter() {
+        for (String delimiter : new String[]{"", "\"", "a\"", "\n", "\r"}) {
+            Configuration config = Configuration.newDefault();
+            config.set(Key.PATH, "/tmp");
+            config.set(Key.FILE_NAME, "f");
+            config.set(Key.WRITE_MODE, "truncate");
+            config.set(Key.FILE_FORMAT, Constant.FILE_FORMAT_CSV);
+            config.set(Key.FIELD_DELIMITER, delimiter);
+            DataXException e = assertThrows(DataXException.class, () -> UnstructuredStorageWriterUtil.validateParameter(config));
+            assertTrue(e.getMessage().contains("fieldDelimiter"), e.getMessage());
+        }
+    }
+
+    /**
+     * 写出记录
+     *
+     * @param delimiter 字段分隔符
+     * @param records 记录
+     * @return csv文本
+     * @throws IOException ex
+     */
+    private static String write(String delimiter, Record... records) throws IOException {
+        return write(delimiter, Arrays.asList(records));
+    }
+
+    /**
+     * 写出记录
+     *
+     * @param delimiter 字段分隔符
+     * @param records 记录
+     * @return csv文本
+     * @throws IOException ex
+     */
+    private static String write(String delimiter, List<Record> records) throws IOException {
+        StringWriter out = new StringWriter();
+        UnstructuredWriter writer = TextCsvWriterManager.produceUnstructuredWriter(Constant.FILE_FORMAT_CSV, delimiter, out);
+        for (Record record : records) {
+            writer.writeRecord(record, FORMATTER);
+        }
+        writer.flush();
+        return out.toString();
+    }
+
+    /**
+     * 随机生成字段：字符取自分隔符、双引号、回车、换行、空白、#及普通字符
+     *
+     * @param random 随机数
+     * @param delimiter 字段分隔符
+     * @param count 行数
+     * @return 行
+     */
+    static List<List<String>> randomRows(Random random, String delimiter, int count) {
+        String alphabet = delimiter + "\"\r\n #x中";
+        List<List<String>> rows = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int columns = 1 + random.nextInt(5);
+            List<String> row = new ArrayList<>(columns);
+            for (int j = 0; j < columns; j++) {
+                int length = random.nextInt(7);
+                StringBuilder field = new StringBuilder(length);
+                for (int k = 0; k < length; k++) {
+                    field.append(alphabet.charAt(random.nextInt(alphabet.length())));
+                }
+                row.add(field.toString());
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * 字段转换为字符串列的记录
+     *
+     * @param rows 行
+     * @return 记录
+     */
+    static List<Record> toRecords(List<List<String>> rows) {
+        List<Record> records = new ArrayList<>(rows.size());
+        for (List<String> row : rows) {
+            records.add(TestRecord.of(row.toArray()));
+        }
+        return records;
+    }
+
+    /**
+     * RFC 4180解析：分隔符、换行符按最左匹配, 双引号包围的字段内两个双引号表示一个双引号
+     *
+     * @param csv csv文本
+     * @param delimiter 字段分隔符
+     * @return 行
+     */
+    private static List<List<String>> parse(String csv, String delimiter) {
+        List<List<String>> rows = new ArrayList<>();
+        List<String> row = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean fieldStart = true;
+        int i = 0;
+        while (i < csv.length()) {
+            if (fieldStart && '"' == csv.charAt(i)) {
+                i++;
+                while (true) {
+                    char c = csv.charAt(i++);
+                    if ('"' != c) {
+                        field.append(c);
+                    } else if (i < csv.length() && '"' == csv.charAt(i)) {
+                        field.append('"');
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                fieldStart = false;
+                assertTrue(csv.startsWith(delimiter, i) || csv.startsWith(LS, i), "包围的字段之后须为分隔符或换行符, 位置" + i);
+            } else if (csv.startsWith(delimiter, i)) {
+                row.add(field.toString());
+                field.setLength(0);
+                fieldStart = true;
+                i += delimiter.length();
+            } else if (csv.startsWith(LS, i)) {
+                row.add(field.toString());
+                field.setLength(0);
+                rows.add(row);
+                row = new ArrayList<>();
+                fieldStart = true;
+                i += LS.length();
+            } else {
+                field.append(csv.charAt(i++));
+                fieldStart = false;
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,347 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.util.Configuration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 直接内存缓冲池测试：达到上限时阻塞且按等待顺序获取, 归还后复用, 重复归还无副作用, 任务销毁时归还租约
+ *
+ * @author langkye
+ */
+class DirectBufferPoolTest {
+    /**缓冲大小*/
+    private static final int SIZE = 64 * 1024;
+    /**阻塞判定时间（毫秒）*/
+    private static final long BLOCKED_MILLIS = 300L;
+
+    /**目录*/
+    @TempDir
+    File dir;
+
+    /**
+     * 租用的缓冲已清空、大小一致, 归还后由同一线程或其他线程（其他分段）再次租用时复用, 不新建缓冲
+     *
+     * @throws Exception ex
+     */
+    @Test
+    void reusesReleasedBuffers() throws Exception {
+        DirectBufferPool pool = new DirectBufferPool(4L * SIZE);
+        DirectBufferPool.Lease lease = pool.lease(2, SIZE);
+        List<ByteBuffer> first = lease.getBuffers();
+        assertEquals(2, first.size());
+        assertNotSame(first.get(0), first.get(1));
+        for (ByteBuffer buffer : first) {
+            assertTrue(buffer.isDirect());
+            assertEquals(SIZE, buffer.capacity());
+            buffer.put(new byte[100]).flip();
+        }
+        assertEquals(2L * SIZE, pool.getLeasedBytes());
+        lease.close();
+        assertEquals(0L, pool.getLeasedBytes());
+        assertThrows(IllegalStateException.class, lease::getBuffers);
+
+        try (DirectBufferPool.Lease again = pool.lease(2, SIZE)) {
+            assertSameBuffers(first, again.getBuffers());
+            for (ByteBuffer buffer : again.getBuffers()) {
+                assertEquals(0, buffer.position());
+                assertEquals(SIZE, buffer.limit());
+            }
+        }
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            List<ByteBuffer> other = executor.submit(() -> {
+                try (DirectBufferPool.Lease again = pool.lease(2, SIZE)) {
+                    return again.getBuffers();
+                }
+            }).get();
+            assertSameBuffers(first, other);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(2L * SIZE, pool.getAllocatedBytes());
+        assertEquals(0L, pool.getLeasedBytes());
+    }
+
+    /**
+     * 重复归还无副作用：许可不会多于上限, 同一缓冲不会被两个租约同时持有
+     *
+     * @throws Exception ex
+     */
+    @Test
+    void ignoresDoubleRelease() throws Exception {
+        DirectBufferPool pool = new DirectBufferPool(4L * SIZE);
+        DirectBufferPool.Lease lease = pool.lease(2, SIZE);
+        lease.close();
+        lease.close();
+        assertEquals(0L, pool.getLeasedBytes());
+
+        DirectBufferPool.Lease all = pool.lease(4, SIZE);
+        //重复归还的缓冲若被两次放回空闲列表, 将在此出现重复实例
+        assertEquals(4, identitySet(all.getBuffers()).size());
+        assertEquals(4L * SIZE, pool.getLeasedBytes());
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            //许可未因重复归还而增加：上限已全部租出, 再租用1字节也须等待
+            Future<DirectBufferPool.Lease> blocked = executor.submit(() -> pool.lease(1, 1));
+            assertThrows(TimeoutException.class, () -> blocked.get(BLOCKED_MILLIS, TimeUnit.MILLISECONDS));
+            all.close();
+            blocked.get(10, TimeUnit.SECONDS).close();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0L, pool.getLeasedBytes());
+        assertTrue(pool.getAllocatedBytes() <= pool.getCapacity());
+    }
+
+    /**
+     * 达到上限时阻塞, 归还后按等待顺序获取：等待中的大租约之后, 即使剩余许可足够, 小租约也须等待
+     *
+     * @throws Exception ex
+     */
+    @Test
+    void blocksOverCapacityInArrivalOrder() throws Exception {
+        DirectBufferPool pool = new DirectBufferPool(4L * SIZE);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            DirectBufferPool.Lease held = pool.lease(3, SIZE);
+            Future<DirectBufferPool.Lease> large = executor.submit(() -> pool.lease(2, SIZE));
+            assertThrows(TimeoutException.class, () -> large.get(BLOCKED_MILLIS, TimeUnit.MILLISECONDS));
+            //剩余一个缓冲的许可, 但先等待的大租约优先
+            Future<DirectBufferPool.Lease> small = executor.submit(() -> pool.lease(1, SIZE));
+            assertThrows(TimeoutException.class, () -> small.get(BLOCKED_MILLIS, TimeUnit.MILLISECONDS));
+            assertEquals(3L * SIZE, pool.getLeasedBytes());
+
+            held.close();
+            DirectBufferPool.Lease largeLease = large.get(10, TimeUnit.SECONDS);
+            DirectBufferPool.Lease smallLease = small.get(10, TimeUnit.SECONDS);
+            assertEquals(3L * SIZE, pool.getLeasedBytes());
+            largeLease.close();
+            smallLease.close();
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(0L, pool.getLeasedBytes());
+        assertTrue(pool.getAllocatedBytes() <= pool.getCapacity());
+    }
+
+    /**
+     * 等待时被中断抛出InterruptedIOException, 不占用许可；超过上限的租用直接拒绝
+     *
+     * @throws Exception ex
+     */
+    @Test
+    void rejectsInterruptedAndOversizedLeases() throws Exception {
+        DirectBufferPool pool = new DirectBufferPool(2L * SIZE);
+        assertThrows(IllegalArgumentException.class, () -> pool.lease(3, SIZE));
+        assertThrows(IllegalArgumentException.class, () -> pool.lease(1, 2 * SIZE + 1));
+        assertEquals(0L, pool.getLeasedBytes());
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (DirectBufferPool.Lease held = pool.lease(2, SIZE)) {
+            Future<DirectBufferPool.Lease> waiting = executor.submit(() -> pool.lease(1, SIZE));
+            assertThrows(TimeoutException.class, () -> waiting.get(BLOCKED_MILLIS, TimeUnit.MILLISECONDS));
+            executor.shutdownNow();
+            ExecutionException e = assertThrows(ExecutionException.class, () -> waiting.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(InterruptedIOException.class, e.getCause());
+            assertEquals(2L * SIZE, pool.getLeasedBytes());
+            assertEquals(2, held.getBuffers().size());
+        }
+        assertEquals(0L, pool.getLeasedBytes());
+    }
+
+    /**
+     * 不同大小的缓冲交替租用：新建前释放其他大小的空闲缓冲, 缓冲总量不超过上限；大小按KB向上取整计入许可
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void evictsOtherSizesToStayWithinCapacity() throws IOException {
+        DirectBufferPool pool = new DirectBufferPool(4L * SIZE);
+        for (int size : new int[]{SIZE, 2 * SIZE, SIZE / 2, 4 * SIZE, 1000, SIZE}) {
+            int count = (int) Math.min(4L * SIZE / size, 8);
+            try (DirectBufferPool.Lease lease = pool.lease(count, size)) {
+                assertEquals(count, identitySet(lease.getBuffers()).size());
+                assertEquals((long) count * ((size + 1023) / 1024) * 1024, pool.getLeasedBytes(), String.valueOf(size));
+                assertTrue(pool.getAllocatedBytes() <= pool.getCapacity(), String.valueOf(size));
+            }
+        }
+        assertEquals(0L, pool.getLeasedBytes());
+    }
+
+    /**
+     * 多线程反复租用、归还：已租出总量不超过上限, 同一缓冲不会同时出现在两个租约中, 结束后全部许可归还
+     *
+     * @throws Exception ex
+     */
+    @Test
+    void neverOverLeasesUnderContention() throws Exception {
+        DirectBufferPool pool = new DirectBufferPool(8L * SIZE);
+        Set<ByteBuffer> inUse = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+        AtomicLong maxLeased = new AtomicLong();
+        ExecutorService executor = Executors.newFixedThreadPool(6);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 6; t++) {
+                Random random = new Random(t);
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        try (DirectBufferPool.Lease lease = pool.lease(1 + random.nextInt(4), SIZE)) {
+                            maxLeased.accumulateAndGet(pool.getLeasedBytes(), Math::max);
+                            for (ByteBuffer buffer : lease.getBuffers()) {
+                                assertTrue(inUse.add(buffer), "缓冲被两个租约同时持有");
+                            }
+                            for (ByteBuffer buffer : lease.getBuffers()) {
+                                inUse.remove(buffer);
+                            }
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTrue(maxLeased.get() <= pool.getCapacity(), String.valueOf(maxLeased.get()));
+        assertEquals(0L, pool.getLeasedBytes());
+        assertTrue(pool.getAllocatedBytes() <= pool.getCapacity());
+    }
+
+    /**
+     * 任务写入期间持有租约, 销毁时归还（含写入失败的任务）；使用缓冲池的输出与不使用时一致
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void tasksReturnLeasesOnDestroy() throws IOException {
+        DirectBufferPool pool = DirectBufferPool.shared(1024L * 1024L);
+        long before = pool.getLeasedBytes();
+        List<List<Record>> taskRecords = Arrays.asList(TestRecord.random(new Random(25), 3000), TestRecord.random(new Random(26), 3000));
+        File expected = new File(this.dir, "expected");
+        File pooled = new File(this.dir, "pooled");
+        WriterTestSupport.runJob(jobConfig(expected), taskRecords);
+
+        Configuration config = jobConfig(pooled, Key.BUFFER_POOL_SIZE, 1);
+        TxtFileMultiDelimiterWriter.Job job = new TxtFileMultiDelimiterWriter.Job();
+        job.setPluginJobConf(config);
+        job.init();
+        job.prepare();
+        List<Configuration> taskConfigs = job.split(taskRecords.size());
+        for (int i = 0; i < taskConfigs.size(); i++) {
+            long[] leased = new long[1];
+            TxtFileMultiDelimiterWriter.Task task = new TxtFileMultiDelimiterWriter.Task();
+            task.setPluginJobConf(taskConfigs.get(i));
+            task.setTaskPluginCollector(new TestTaskPluginCollector());
+            task.setTaskId(i);
+            task.init();
+            task.prepare();
+            task.startWrite(new TestRecordReceiver(taskRecords.get(i)) {
+                @Override
+                public Record getFromReader() {
+                    leased[0] = Math.max(leased[0], pool.getLeasedBytes());
+                    return super.getFromReader();
+                }
+            });
+            task.post();
+            //异步写出：asyncQueueSize个bufferSize大小的缓冲
+            assertEquals(before + 4L * SIZE, leased[0]);
+            assertEquals(before + 4L * SIZE, pool.getLeasedBytes());
+            task.destroy();
+            assertEquals(before, pool.getLeasedBytes());
+            task.destroy();
+            assertEquals(before, pool.getLeasedBytes());
+        }
+        job.post();
+        job.destroy();
+        AsyncOutputStreamTest.assertSameFiles(expected, pooled);
+
+        //写入失败的任务同样在销毁时归还
+        TxtFileMultiDelimiterWriter.Task task = new TxtFileMultiDelimiterWriter.Task();
+        task.setPluginJobConf(taskConfigs.get(0));
+        task.setTaskPluginCollector(new TestTaskPluginCollector());
+        task.setTaskId(0);
+        task.init();
+        task.prepare();
+        assertThrows(IllegalStateException.class, () -> task.startWrite(new TestRecordReceiver(taskRecords.get(0)) {
+            @Override
+            public Record getFromReader() {
+                throw new IllegalStateException("读取端失败");
+            }
+        }));
+        assertEquals(before + 4L * SIZE, pool.getLeasedBytes());
+        task.destroy();
+        assertEquals(before, pool.getLeasedBytes());
+        assertFalse(pool.getAllocatedBytes() > pool.getCapacity());
+    }
+
+    /**
+     * 断言两组缓冲为相同的实例（不计顺序）
+     *
+     * @param expected 缓冲
+     * @param actual 缓冲
+     */
+    private static void assertSameBuffers(List<ByteBuffer> expected, List<ByteBuffer> actual) {
+        assertEquals(expected.size(), actual.size());
+        Set<ByteBuffer> set = identitySet(expected);
+        for (ByteBuffer buffer : actual) {
+            assertTrue(set.remove(buffer), "缓冲未被复用");
+        }
+    }
+
+    /**
+     * 按实例去重的缓冲集合：ByteBuffer按内容比较相等
+     *
+     * @param buffers 缓冲
+     * @return 集合
+     */
+    private static Set<ByteBuffer> identitySet(List<ByteBuffer> buffers) {
+        Set<ByteBuffer> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        set.addAll(buffers);
+        return set;
+    }
+
+    /**
+     * 作业配置：异步写出4个64KB缓冲, 每个任务单个文件
+     *
+     * @param path 目录
+     * @param keyValues 额外的配置
+     * @return 作业配置
+     */
+    private static Configuration jobConfig(File path, Object... keyValues) {
+        List<Object> options = new ArrayList<>(Arrays.asList(Key.PATH, path.getAbsolutePath(), Key.FILE_NAME, "f", Key.WRITE_MODE, "truncate",
+                Key.FILE_NAME_TEMPLATE, "${fileName}-${taskId}-${part}", Key.HEADER, Collections.singletonList("h"),
+                Key.ASYNC_WRITE, true, Key.ASYNC_QUEUE_SIZE, 4, Key.BUFFER_SIZE, SIZE / 1024));
+        options.addAll(Arrays.asList(keyValues));
+        return WriterTestSupport.config(options.toArray());
+    }
+}
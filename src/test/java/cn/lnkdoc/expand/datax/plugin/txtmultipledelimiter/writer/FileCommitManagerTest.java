@@ -0,0 +1,210 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.util.Configuration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 原子提交测试：任务写入隐藏的暂存文件, 作业后置处理统一重命名并写出_SUCCESS清单
+ *
+ * @author langkye
+ */
+class FileCommitManagerTest {
+    /**目录*/
+    @TempDir
+    File dir;
+
+    /**
+     * 作业后置处理之前正式文件不可见；提交后文件内容与不使用原子提交时一致, 且不残留暂存文件与元数据文件
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void stagedFilesBecomeVisibleOnlyOnCommit() throws IOException {
+        File direct = new File(this.dir, "direct");
+        File atomic = new File(this.dir, "atomic");
+        assertTrue(direct.mkdir() && atomic.mkdir());
+        List<List<Record>> taskRecords = taskRecords();
+        WriterTestSupport.runJob(this.jobConfig(direct), taskRecords);
+
+        TxtFileMultiDelimiterWriter.Job job = this.runTasks(this.jobConfig(atomic, Key.ATOMIC_COMMIT, true, Key.SUCCESS_FILE, true), taskRecords, -1);
+        assertTrue(WriterTestSupport.dataFiles(atomic).isEmpty());
+        assertFalse(new File(atomic, Constant.SUCCESS_FILE_NAME).exists());
+        assertTrue(atomic.list((d, name) -> name.endsWith(Constant.STAGING_FILE_SUFFIX)).length > 0);
+
+        job.post();
+        job.destroy();
+        List<File> expectedFiles = WriterTestSupport.dataFiles(direct);
+        List<File> committedFiles = WriterTestSupport.dataFiles(atomic);
+        assertEquals(names(expectedFiles), names(committedFiles));
+        for (int i = 0; i < expectedFiles.size(); i++) {
+            assertArrayEquals(Files.readAllBytes(expectedFiles.get(i).toPath()), Files.readAllBytes(committedFiles.get(i).toPath()), committedFiles.get(i).getName());
+        }
+        assertEquals(0, atomic.list((d, name) -> name.startsWith(Constant.HIDDEN_FILE_PREFIX)).length);
+    }
+
+    /**
+     * _SUCCESS清单：文件数、每个文件的行数（不含脏数据与表头）、字节数、CRC32与磁盘上的文件一致, 总计为各文件之和
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void successManifestDescribesCommittedFiles() throws IOException {
+        List<Record> records = new ArrayList<>();
+        for (int i = 1; i <= 5000; i++) {
+            //scale列的非数字字符串为脏数据
+            records.add(TestRecord.of(i % 11 == 0 ? "x" : String.valueOf(i), "v" + i));
+        }
+        Configuration config = this.jobConfig(this.dir, Key.ATOMIC_COMMIT, true, Key.SUCCESS_FILE, true,
+                Key.COLUMN, Arrays.asList(Collections.singletonMap("scale", 2), Collections.emptyMap()));
+        List<TestTaskPluginCollector> collectors = WriterTestSupport.runJob(config, Arrays.asList(records, records));
+        int dirty = collectors.get(0).getDirtyRecords().size() + collectors.get(1).getDirtyRecords().size();
+        assertEquals(2 * (5000 / 11), dirty);
+
+        Configuration manifest = Configuration.from(new File(this.dir, Constant.SUCCESS_FILE_NAME));
+        List<Configuration> parts = manifest.getListConfiguration("files");
+        List<File> files = WriterTestSupport.dataFiles(this.dir);
+        assertEquals(files.size(), parts.size());
+        long rows = 0;
+        long bytes = 0;
+        for (Configuration part : parts) {
+            File file = new File(this.dir, part.getString("name"));
+            assertTrue(files.contains(file), file.getName());
+            byte[] content = Files.readAllBytes(file.toPath());
+            long lines = new String(content, StandardCharsets.UTF_8).split(System.lineSeparator(), -1).length - 2;
+            CRC32 crc32 = new CRC32();
+            crc32.update(content);
+            assertEquals(lines, part.getLong("rows").longValue(), file.getName());
+            assertEquals(content.length, part.getLong("bytes").longValue(), file.getName());
+            assertEquals(String.format("%08x", crc32.getValue()), part.getString("crc32"), file.getName());
+            rows += lines;
+            bytes += content.length;
+        }
+        assertEquals(2 * 5000 - dirty, rows);
+        assertEquals(rows, manifest.getLong("rows").longValue());
+        assertEquals(bytes, manifest.getLong("bytes").longValue());
+    }
+
+    /**
+     * 未开启successFile时不写出_SUCCESS
+     */
+    @Test
+    void skipsManifestUnlessConfigured() {
+        WriterTestSupport.runJob(this.jobConfig(this.dir, Key.ATOMIC_COMMIT, true), taskRecords());
+        assertFalse(WriterTestSupport.dataFiles(this.dir).isEmpty());
+        assertFalse(new File(this.dir, Constant.SUCCESS_FILE_NAME).exists());
+    }
+
+    /**
+     * 任务失败时正式文件与_SUCCESS均不可见, 残留的暂存文件由下次作业的prepare清理
+     */
+    @Test
+    void failedJobLeavesNoVisibleFiles() {
+        Configuration config = this.jobConfig(this.dir, Key.ATOMIC_COMMIT, true, Key.SUCCESS_FILE, true);
+        List<List<Record>> taskRecords = taskRecords();
+        WriterTestSupport.runJob(config, taskRecords);
+        assertTrue(new File(this.dir, Constant.SUCCESS_FILE_NAME).isFile());
+
+        //任务1失败, 作业不执行后置处理
+        this.runTasks(config, taskRecords, 1);
+        assertTrue(WriterTestSupport.dataFiles(this.dir).isEmpty());
+        assertFalse(new File(this.dir, Constant.SUCCESS_FILE_NAME).exists());
+        assertTrue(this.dir.list((d, name) -> name.endsWith(Constant.STAGING_FILE_SUFFIX)).length > 0);
+
+        WriterTestSupport.runJob(config, taskRecords);
+        assertTrue(new File(this.dir, Constant.SUCCESS_FILE_NAME).isFile());
+        assertEquals(0, this.dir.list((d, name) -> name.startsWith(Constant.HIDDEN_FILE_PREFIX)).length);
+    }
+
+    /**
+     * 按DataX调用顺序运行作业的初始化与各任务, 不执行作业后置处理
+     *
+     * @param config 作业配置
+     * @param taskRecords 各任务的记录
+     * @param failingTask 读取端失败的任务序号, -1表示全部成功
+     * @return 作业
+     */
+    private TxtFileMultiDelimiterWriter.Job runTasks(Configuration config, List<List<Record>> taskRecords, int failingTask) {
+        TxtFileMultiDelimiterWriter.Job job = new TxtFileMultiDelimiterWriter.Job();
+        job.setPluginJobConf(config);
+        job.init();
+        job.prepare();
+        List<Configuration> taskConfigs = job.split(taskRecords.size());
+        for (int i = 0; i < taskConfigs.size(); i++) {
+            TxtFileMultiDelimiterWriter.Task task = new TxtFileMultiDelimiterWriter.Task();
+            task.setPluginJobConf(taskConfigs.get(i));
+            task.setTaskPluginCollector(new TestTaskPluginCollector());
+            task.setTaskId(i);
+            task.init();
+            task.prepare();
+            if (i == failingTask) {
+                assertThrows(IllegalStateException.class, () -> task.startWrite(new TestRecordReceiver(taskRecords.get(failingTask)) {
+                    @Override
+                    public Record getFromReader() {
+                        throw new IllegalStateException("读取端失败");
+                    }
+                }));
+            } else {
+                task.startWrite(new TestRecordReceiver(taskRecords.get(i)));
+                task.post();
+            }
+            task.destroy();
+        }
+        return job;
+    }
+
+    /**
+     * 两个任务的随机记录
+     *
+     * @return 各任务的记录
+     */
+    private static List<List<Record>> taskRecords() {
+        return Arrays.asList(TestRecord.random(new Random(3), 5000), TestRecord.random(new Random(4), 5000));
+    }
+
+    /**
+     * 作业配置：按模板命名, 每2000行切换分片
+     *
+     * @param path 目录
+     * @param keyValues 额外的配置
+     * @return 作业配置
+     */
+    private Configuration jobConfig(File path, Object... keyValues) {
+        List<Object> options = new ArrayList<>(Arrays.asList(Key.PATH, path.getAbsolutePath(), Key.FILE_NAME, "f", Key.WRITE_MODE, "truncate",
+                Key.FILE_NAME_TEMPLATE, "${fileName}-${taskId}-${part}", Key.HEADER, Arrays.asList("a", "b"), Key.MAX_FILE_ROWS, 2000));
+        options.addAll(Arrays.asList(keyValues));
+        return WriterTestSupport.config(options.toArray());
+    }
+
+    /**
+     * 文件名
+     *
+     * @param files 文件
+     * @return 文件名
+     */
+    private static List<String> names(List<File> files) {
+        List<String> names = new ArrayList<>(files.size());
+        for (File file : files) {
+            names.add(file.getName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,208 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.util.Configuration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 文件名模板测试：变量解析、公共前缀、模板与作业标识的各项校验, 以及拆分时对${taskId}、${jobId}的要求
+ *
+ * @author langkye
+ */
+class FileNameTemplateTest {
+    /**目录*/
+    @TempDir
+    File dir;
+
+    /**
+     * 解析变量：任务序号、分片序号按4位补零, 超过4位时不截断, 重复出现的变量全部替换
+     */
+    @Test
+    void expandsPlaceholders() {
+        String taskTemplate = FileNameTemplate.resolveTask("${fileName}_${jobId}_${taskId}_${part}${suffix}", "f", "j1", 3, ".txt");
+        assertEquals("f_j1_0003_${part}.txt", taskTemplate);
+        assertEquals("f_j1_0003_0000.txt", FileNameTemplate.resolvePart(taskTemplate, 0));
+        assertEquals("f_j1_0003_0012.txt", FileNameTemplate.resolvePart(taskTemplate, 12));
+        assertEquals("f_j1_0003_12345.txt", FileNameTemplate.resolvePart(taskTemplate, 12345));
+        assertEquals("f-12345-${part}", FileNameTemplate.resolveTask("${fileName}-${taskId}-${part}", "f", "j1", 12345, ""));
+        assertEquals("f-0001-0001", FileNameTemplate.resolvePart(FileNameTemplate.resolveTask("${fileName}-${part}-${part}", "f", "j1", 0, ""), 1));
+        assertEquals("f.dat", FileNameTemplate.resolvePart(FileNameTemplate.resolveTask("${fileName}.dat", "f", "j1", 7, ""), 9));
+    }
+
+    /**
+     * 公共前缀：截止到第一个随任务、分片变化的变量
+     */
+    @Test
+    void resolvesCommonPrefix() {
+        assertEquals("f_j1_", FileNameTemplate.commonPrefix("${fileName}_${jobId}_${taskId}_${part}${suffix}", "f", "j1", ".txt"));
+        assertEquals("f-", FileNameTemplate.commonPrefix("${fileName}-${part}-${taskId}", "f", "j1", ".txt"));
+        assertEquals("f.txt-j1", FileNameTemplate.commonPrefix("${fileName}${suffix}-${jobId}", "f", "j1", ".txt"));
+        assertEquals("f", FileNameTemplate.commonPrefix("${fileName}${taskId}", "f", "j1", ""));
+    }
+
+    /**
+     * 合法的模板：不配置滚动时可不含${part}
+     */
+    @Test
+    void acceptsValidTemplates() {
+        FileNameTemplate.validate("${fileName}", false);
+        FileNameTemplate.validate("${fileName}_${jobId}_${taskId}${suffix}", false);
+        FileNameTemplate.validate("${fileName}-${part}", true);
+        FileNameTemplate.validate("${fileName}_${jobId}_${taskId}_${part}${suffix}", true);
+        FileNameTemplate.validate("${fileName}.{x}$-[1]", false);
+    }
+
+    /**
+     * 非法的模板：为空、含路径分隔符、不以${fileName}开头、不支持的变量、滚动时缺少${part}
+     */
+    @Test
+    void rejectsIllegalTemplates() {
+        Object[][] cases = {{null, false, "不能为空"}, {"", false, "不能为空"}, {"  ", false, "不能为空"},
+                {"${fileName}/x", false, "路径分隔符"}, {"${fileName}\\x", false, "路径分隔符"},
+                {"x-${fileName}", false, "开头"}, {"${part}-${fileName}", true, "开头"},
+                {"${fileName}-${foo}", false, "${foo}"}, {"${fileName}-${}", false, "${}"}, {"${fileName}-${taskid}", false, "${taskid}"},
+                {"${fileName}-${taskId}", true, "${part}"}, {"${fileName}${suffix}", true, "${part}"}};
+        for (Object[] c : cases) {
+            String template = (String) c[0];
+            DataXException e = assertThrows(DataXException.class, () -> FileNameTemplate.validate(template, (Boolean) c[1]), template);
+            assertEquals(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, e.getErrorCode(), template);
+            assertTrue(e.getMessage().contains((String) c[2]), e.getMessage());
+        }
+    }
+
+    /**
+     * 作业标识：不能包含路径分隔符、".."及通配符
+     */
+    @Test
+    void validatesJobId() {
+        for (String jobId : new String[]{"20261018-run.1", "a.b", "job_1", "x-}"}) {
+            FileNameTemplate.validateJobId(jobId);
+        }
+        for (String jobId : new String[]{"a/b", "a\\b", "..", "a..b", "*", "a?", "[1]", "{x}"}) {
+            DataXException e = assertThrows(DataXException.class, () -> FileNameTemplate.validateJobId(jobId), jobId);
+            assertEquals(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, e.getErrorCode(), jobId);
+        }
+    }
+
+    /**
+     * 参数校验：分区写出、maxFileSize、maxFileRows均视为滚动, 须包含${part}；配置的作业标识同样校验
+     */
+    @Test
+    void validateParameterChecksTemplateAndJobId() {
+        UnstructuredStorageWriterUtil.validateParameter(this.jobConfig("truncate", "${fileName}-${taskId}"));
+        UnstructuredStorageWriterUtil.validateParameter(this.jobConfig("truncate", "${fileName}-${taskId}-${part}", Key.MAX_FILE_ROWS, 10));
+        Configuration[] configs = {this.jobConfig("truncate", "${fileName}-${taskId}", Key.MAX_FILE_ROWS, 10),
+                this.jobConfig("truncate", "${fileName}-${taskId}", Key.MAX_FILE_SIZE, 10),
+                this.jobConfig("truncate", "${fileName}-${taskId}", Key.PARTITION_BY, Collections.singletonList(0)),
+                this.jobConfig("truncate", "${fileName}-${jobId}", Key.JOB_ID, "../x")};
+        for (Configuration config : configs) {
+            DataXException e = assertThrows(DataXException.class, () -> UnstructuredStorageWriterUtil.validateParameter(config), config.toJSON());
+            assertEquals(UnstructuredStorageWriterErrorCode.ILLEGAL_VALUE, e.getErrorCode(), config.toJSON());
+        }
+    }
+
+    /**
+     * 多个任务时模板须包含${taskId}, 单个任务时可省略
+     */
+    @Test
+    void requiresTaskIdForMultipleTasks() {
+        DataXException e = assertThrows(DataXException.class, () -> this.split(this.jobConfig("truncate", "${fileName}-${part}"), 2));
+        assertEquals(TxtFileMultiDelimiterWriterErrorCode.ILLEGAL_VALUE, e.getErrorCode());
+        assertTrue(e.getMessage().contains(FileNameTemplate.VAR_TASK_ID), e.getMessage());
+
+        List<Configuration> single = this.split(this.jobConfig("truncate", "${fileName}-${part}${suffix}", Key.SUFFIX, ".txt"), 1);
+        assertEquals(Collections.singletonList("f-0000.txt"), fileNames(single));
+        assertEquals("f-${part}.txt", single.get(0).getString(Key.FILE_NAME_TEMPLATE));
+        assertEquals(Arrays.asList("f-0000-0000", "f-0001-0000", "f-0002-0000"), fileNames(this.split(this.jobConfig("truncate", "${fileName}-${taskId}-${part}"), 3)));
+    }
+
+    /**
+     * resume模式下模板包含${jobId}时须配置jobId, 否则重新运行时找不到检查点；其他模式未配置时使用拆分时间
+     */
+    @Test
+    void requiresJobIdForResume() {
+        String template = "${fileName}-${jobId}-${taskId}-${part}";
+        DataXException e = assertThrows(DataXException.class, () -> this.split(this.jobConfig(Constant.WRITE_MODE_RESUME, template), 2));
+        assertEquals(TxtFileMultiDelimiterWriterErrorCode.REQUIRED_VALUE, e.getErrorCode());
+        assertTrue(e.getMessage().contains(FileNameTemplate.VAR_JOB_ID), e.getMessage());
+        assertThrows(DataXException.class, () -> this.split(this.jobConfig(Constant.WRITE_MODE_RESUME, template, Key.JOB_ID, " "), 2));
+
+        assertEquals(Arrays.asList("f-run1-0000-0000", "f-run1-0001-0000"), fileNames(this.split(this.jobConfig(Constant.WRITE_MODE_RESUME, template, Key.JOB_ID, "run1"), 2)));
+        assertEquals(Arrays.asList("f-0000-0000", "f-0001-0000"), fileNames(this.split(this.jobConfig(Constant.WRITE_MODE_RESUME, "${fileName}-${taskId}-${part}"), 2)));
+        for (String fileName : fileNames(this.split(this.jobConfig("truncate", template), 2))) {
+            assertTrue(fileName.matches("f-\\d{14}-000[01]-0000"), fileName);
+        }
+    }
+
+    /**
+     * append模式下任务首个文件已存在时拒绝, 换用新的jobId后通过
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void rejectsExistingFilesInAppendMode() throws IOException {
+        String template = "${fileName}-${jobId}-${taskId}-${part}";
+        assertTrue(new File(this.dir, "f-run1-0001-0000").createNewFile());
+        assertTrue(new File(this.dir, "f-run1-0002-0000").createNewFile());
+        DataXException e = assertThrows(DataXException.class, () -> this.split(this.jobConfig("append", template, Key.JOB_ID, "run1"), 2));
+        assertEquals(TxtFileMultiDelimiterWriterErrorCode.ILLEGAL_VALUE, e.getErrorCode());
+        assertTrue(e.getMessage().contains("f-run1-0001-0000") && !e.getMessage().contains("f-run1-0002-0000"), e.getMessage());
+
+        assertEquals(Arrays.asList("f-run2-0000-0000", "f-run2-0001-0000"), fileNames(this.split(this.jobConfig("append", template, Key.JOB_ID, "run2"), 2)));
+    }
+
+    /**
+     * 作业初始化、准备并拆分
+     *
+     * @param config 作业配置
+     * @param mandatoryNumber 任务数
+     * @return 任务配置
+     */
+    private List<Configuration> split(Configuration config, int mandatoryNumber) {
+        TxtFileMultiDelimiterWriter.Job job = new TxtFileMultiDelimiterWriter.Job();
+        job.setPluginJobConf(config);
+        job.init();
+        job.prepare();
+        return job.split(mandatoryNumber);
+    }
+
+    /**
+     * 作业配置
+     *
+     * @param writeMode 写入模式
+     * @param template 文件名模板
+     * @param keyValues 额外的配置
+     * @return 作业配置
+     */
+    private Configuration jobConfig(String writeMode, String template, Object... keyValues) {
+        List<Object> options = new ArrayList<>(Arrays.asList(Key.PATH, this.dir.getAbsolutePath(), Key.FILE_NAME, "f", Key.WRITE_MODE, writeMode, Key.FILE_NAME_TEMPLATE, template));
+        options.addAll(Arrays.asList(keyValues));
+        return WriterTestSupport.config(options.toArray());
+    }
+
+    /**
+     * 各任务的首个文件名
+     *
+     * @param taskConfigs 任务配置
+     * @return 文件名
+     */
+    private static List<String> fileNames(List<Configuration> taskConfigs) {
+        List<String> fileNames = new ArrayList<>(taskConfigs.size());
+        for (Configuration taskConfig : taskConfigs) {
+            fileNames.add(taskConfig.getString(Key.FILE_NAME));
+        }
+        return fileNames;
+    }
+}
@@ -0,0 +1,108 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.util.Configuration;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 内存映射输出测试：输出与写出到内存一致, 写盘字节数与文件大小一致（压缩流、列式格式之下不重复统计）
+ *
+ * @author langkye
+ */
+class MappedFileOutputStreamTest {
+    /**映射窗口：小于输出, 使窗口多次滑动*/
+    private static final int WINDOW_SIZE = 64 * 1024;
+    /**记录*/
+    private static final List<Record> RECORDS = TestRecord.random(new Random(11), 20000);
+
+    /**目录*/
+    @TempDir
+    File dir;
+
+    /**
+     * 不压缩：直接编码到映射窗口
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void countsDiskBytesOnceWithoutCompression() throws IOException {
+        this.assertWritesOnce("plain", null, WriterTestSupport.config());
+        this.assertWritesOnce("async", null, WriterTestSupport.config(Key.ASYNC_WRITE, true));
+        this.assertWritesOnce("parallel", null, WriterTestSupport.config(Key.SERIALIZE_THREADS, 3));
+    }
+
+    /**
+     * 压缩：压缩流经输出缓冲写入映射窗口, 写盘字节数即压缩后的文件大小
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void countsDiskBytesOnceWithCompression() throws IOException {
+        for (String compress : new String[]{"gzip", "bzip2", "zstd"}) {
+            this.assertWritesOnce(compress, compress, WriterTestSupport.config(Key.COMPRESS, compress));
+            this.assertWritesOnce(compress + "-async", compress, WriterTestSupport.config(Key.COMPRESS, compress, Key.ASYNC_WRITE, true));
+            this.assertWritesOnce(compress + "-blocks", compress, WriterTestSupport.config(Key.COMPRESS, compress, Key.COMPRESS_THREADS, 3));
+        }
+    }
+
+    /**
+     * 列式格式：parquet、orc经输出缓冲写入映射窗口
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void countsDiskBytesOnceForColumnarFormats() throws IOException {
+        List<Map<String, String>> columns = new ArrayList<>();
+        String[][] types = {{"id", "long"}, {"s", "string"}, {"d", "double"}, {"b", "boolean"}, {"t", "timestamp"}, {"n", "long"}};
+        for (String[] type : types) {
+            Map<String, String> column = new LinkedHashMap<>();
+            column.put(Key.COLUMN_NAME, type[0]);
+            column.put(Key.COLUMN_TYPE, type[1]);
+            columns.add(column);
+        }
+        for (String fileFormat : new String[]{Constant.FILE_FORMAT_PARQUET, Constant.FILE_FORMAT_ORC}) {
+            this.assertWritesOnce(fileFormat, null, WriterTestSupport.config(Key.FILE_FORMAT, fileFormat, Key.COLUMN, columns));
+        }
+    }
+
+    /**
+     * 写出到内存映射文件, 断言内容与写出到内存一致, 写盘字节数等于文件大小
+     *
+     * @param name 文件名
+     * @param compress 压缩格式, 为null时直接比较文件
+     * @param config 配置信息
+     * @throws IOException ex
+     */
+    private void assertWritesOnce(String name, String compress, Configuration config) throws IOException {
+        File file = new File(this.dir, name);
+        WriterMetrics metrics = new WriterMetrics();
+        MappedFileOutputStream out = new MappedFileOutputStream(new RandomAccessFile(file, "rw").getChannel(), WINDOW_SIZE, metrics);
+        UnstructuredStorageWriterUtil.writeToStream(new TestRecordReceiver(RECORDS), out, WriterSpec.of(config), name, new TestTaskPluginCollector(), metrics, null);
+        out.close();
+
+        assertEquals(file.length(), metrics.getWrittenBytes(), name);
+        if (null == compress) {
+            assertArrayEquals(WriterTestSupport.write(config, RECORDS), Files.readAllBytes(file.toPath()), name);
+        } else {
+            try (InputStream in = CompressCodecTest.decoder(compress, Files.newInputStream(file.toPath()))) {
+                assertArrayEquals(WriterTestSupport.write(WriterTestSupport.config(), RECORDS), IOUtils.toByteArray(in), name);
+            }
+        }
+    }
+}
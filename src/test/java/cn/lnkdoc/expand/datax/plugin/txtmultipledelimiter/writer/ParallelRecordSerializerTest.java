@@ -0,0 +1,159 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.element.StringColumn;
+import com.alibaba.datax.common.util.Configuration;
+import org.apache.commons.io.IOUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 并行序列化测试：serializeThreads大于1时输出、分片与脏数据均与单线程一致
+ *
+ * @author langkye
+ */
+class ParallelRecordSerializerTest {
+    /**并行序列化线程数*/
+    private static final int THREADS = 4;
+
+    /**目录*/
+    @TempDir
+    File dir;
+
+    /**
+     * 不压缩：文件逐字节一致, 脏数据按相同顺序收集；覆盖text、csv、GBK及按行数滚动
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void plainOutputIsByteIdentical() throws IOException {
+        this.assertSameAsSerial("text", null);
+        this.assertSameAsSerial("csv", null, Key.FILE_FORMAT, Constant.FILE_FORMAT_CSV, Key.FIELD_DELIMITER, ",");
+        this.assertSameAsSerial("gbk", null, Key.ENCODING, "GBK");
+        this.assertSameAsSerial("rolling", null, Key.MAX_FILE_ROWS, 3000);
+    }
+
+    /**
+     * 可串联的压缩格式：各批次在工作线程中压缩为独立的member, 解压后与单线程一致
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void compressedOutputDecodesIdentically() throws IOException {
+        for (String compress : new String[]{"gzip", "bzip2", "zstd"}) {
+            this.assertSameAsSerial(compress, compress, Key.COMPRESS, compress);
+        }
+    }
+
+    /**
+     * UTF-16等非ASCII兼容编码退回单线程：输出逐字节一致
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void fallsBackToSerialForUtf16() throws IOException {
+        this.assertSameAsSerial("utf16", null, Key.ENCODING, "UTF-16");
+    }
+
+    /**
+     * 以单线程与并行序列化分别运行作业并比较
+     *
+     * @param name 子目录名
+     * @param compress 压缩格式, 为null时直接比较文件
+     * @param keyValues 额外的配置
+     * @throws IOException ex
+     */
+    private void assertSameAsSerial(String name, String compress, Object... keyValues) throws IOException {
+        File serial = new File(this.dir, name + "-serial");
+        File parallel = new File(this.dir, name + "-parallel");
+        assertTrue(serial.mkdir() && parallel.mkdir());
+        List<List<Record>> taskRecords = Arrays.asList(records(new Random(12), 20000), records(new Random(13), 7));
+        List<TestTaskPluginCollector> serialDirty = WriterTestSupport.runJob(jobConfig(serial, 1, keyValues), taskRecords);
+        List<TestTaskPluginCollector> parallelDirty = WriterTestSupport.runJob(jobConfig(parallel, THREADS, keyValues), taskRecords);
+
+        for (int i = 0; i < taskRecords.size(); i++) {
+            List<Record> expected = serialDirty.get(i).getDirtyRecords();
+            List<Record> actual = parallelDirty.get(i).getDirtyRecords();
+            assertEquals(expected.size(), actual.size(), name);
+            for (int j = 0; j < expected.size(); j++) {
+                assertSame(expected.get(j), actual.get(j), name);
+            }
+        }
+        assertFalse(serialDirty.get(0).getDirtyRecords().isEmpty());
+
+        List<File> expectedFiles = WriterTestSupport.dataFiles(serial);
+        List<File> actualFiles = WriterTestSupport.dataFiles(parallel);
+        assertEquals(expectedFiles.size(), actualFiles.size(), name);
+        for (int i = 0; i < expectedFiles.size(); i++) {
+            assertEquals(expectedFiles.get(i).getName(), actualFiles.get(i).getName());
+            assertArrayEquals(read(expectedFiles.get(i), compress), read(actualFiles.get(i), compress), name + "/" + actualFiles.get(i).getName());
+        }
+    }
+
+    /**
+     * 读取文件, 按压缩格式解压
+     *
+     * @param file 文件
+     * @param compress 压缩格式
+     * @return 内容
+     * @throws IOException ex
+     */
+    private static byte[] read(File file, String compress) throws IOException {
+        if (null == compress) {
+            return Files.readAllBytes(file.toPath());
+        }
+        try (InputStream in = CompressCodecTest.decoder(compress, Files.newInputStream(file.toPath()))) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    /**
+     * 随机记录, 末尾追加一列按scale输出的数字文本, 其中部分不是数字（脏数据）
+     *
+     * @param random 随机数
+     * @param count 条数
+     * @return 记录
+     */
+    private static List<Record> records(Random random, int count) {
+        List<Record> records = TestRecord.random(random, count);
+        for (int i = 0; i < count; i++) {
+            records.get(i).addColumn(new StringColumn(i % 13 == 0 ? "x" : String.valueOf(random.nextDouble())));
+        }
+        return records;
+    }
+
+    /**
+     * 作业配置：小批次以产生大量批次, 第6列（从0开始）保留2位小数
+     *
+     * @param path 目录
+     * @param threads 序列化线程数
+     * @param keyValues 额外的配置
+     * @return 作业配置
+     */
+    private static Configuration jobConfig(File path, int threads, Object... keyValues) {
+        List<Map<String, Object>> columns = new ArrayList<>(Collections.nCopies(6, Collections.emptyMap()));
+        columns.add(Collections.singletonMap(Key.COLUMN_SCALE, 2));
+        List<Object> options = new ArrayList<>(Arrays.asList(Key.PATH, path.getAbsolutePath(), Key.FILE_NAME, "f", Key.WRITE_MODE, "truncate",
+                Key.FILE_NAME_TEMPLATE, "${fileName}-${taskId}-${part}", Key.HEADER, Arrays.asList("a", "b", "c", "d", "e", "f", "g"),
+                Key.SERIALIZE_THREADS, threads, Key.SERIALIZE_BATCH_SIZE, 97, Key.COLUMN, columns));
+        options.addAll(Arrays.asList(keyValues));
+        return WriterTestSupport.config(options.toArray());
+    }
+}
@@ -0,0 +1,230 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.util.Configuration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 分区写出测试：记录按分区列写入转义后的分区目录, 打开文件数达到上限时文本文件追加续写
+ *
+ * @author langkye
+ */
+class PartitionWriterPoolTest {
+    /**目录*/
+    @TempDir
+    File dir;
+
+    /**
+     * 分区值按Hive的规则转义, 空值写入__HIVE_DEFAULT_PARTITION__；每个分区文件与该分区的记录单独写出的结果一致
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void routesRecordsToEscapedPartitionDirectories() throws IOException {
+        String[] values = {"a/b", null, "", "x=y", ".", "..", "50%", "plain"};
+        List<Record> records = new ArrayList<>();
+        for (int i = 0; i < 900; i++) {
+            records.add(TestRecord.of(i, values[i % values.length], "v" + i));
+        }
+        WriterTestSupport.runJob(this.jobConfig(Key.PARTITION_BY, Collections.singletonList(1), Key.PARTITION_PATH, "p=${col1}"), Collections.singletonList(records));
+
+        Map<String, List<Record>> expected = this.groupBy(records, 1, "p=");
+        List<String> dirs = new ArrayList<>(Arrays.asList(this.dir.list()));
+        dirs.sort(null);
+        List<String> expectedDirs = Arrays.asList("p=%2E", "p=%2E%2E", "p=50%25", "p=__HIVE_DEFAULT_PARTITION__", "p=a%2Fb", "p=plain", "p=x%3Dy");
+        assertEquals(expectedDirs, dirs);
+        this.assertPartitionFiles(expected);
+    }
+
+    /**
+     * 未配置分区路径模板时按partitionBy顺序生成多级Hive风格目录
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void nestsDirectoriesInPartitionByOrder() throws IOException {
+        List<Record> records = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            records.add(TestRecord.of(i, "t" + i % 2, "d" + i % 3));
+        }
+        WriterTestSupport.runJob(this.jobConfig(Key.PARTITION_BY, Arrays.asList(2, 1)), Collections.singletonList(records));
+        for (int d = 0; d < 3; d++) {
+            for (int t = 0; t < 2; t++) {
+                List<File> files = WriterTestSupport.dataFiles(new File(this.dir, "col2=d" + d + "/col1=t" + t));
+                assertEquals(Collections.singletonList("f-0000"), names(files));
+            }
+        }
+    }
+
+    /**
+     * 打开文件数达到上限：不压缩的文本文件再次出现时追加写入同一文件, 每个分区只有一个文件、一个表头
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void appendsToEvictedTextPartition() throws IOException {
+        List<Record> records = this.interleaved(20, 5000);
+        WriterTestSupport.runJob(this.jobConfig(Key.PARTITION_BY, Collections.singletonList(0), Key.MAX_OPEN_FILES, 3), Collections.singletonList(records));
+        Map<String, List<Record>> expected = this.groupBy(records, 0, "col0=");
+        assertEquals(20, expected.size());
+        this.assertPartitionFiles(expected);
+    }
+
+    /**
+     * 打开文件数达到上限：压缩文件无法追加, 再次出现时写入新的分片, 各分片解压后依次拼接不丢失、不重复记录
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void startsNewPartForEvictedCompressedPartition() throws IOException {
+        List<Record> records = this.interleaved(20, 5000);
+        WriterTestSupport.runJob(this.jobConfig(Key.PARTITION_BY, Collections.singletonList(0), Key.MAX_OPEN_FILES, 3, Key.COMPRESS, "gzip", Key.HEADER, null),
+                Collections.singletonList(records));
+        Map<String, List<Record>> expected = this.groupBy(records, 0, "col0=");
+        int files = 0;
+        for (Map.Entry<String, List<Record>> entry : expected.entrySet()) {
+            List<File> partFiles = WriterTestSupport.dataFiles(new File(this.dir, entry.getKey()));
+            files += partFiles.size();
+            ByteArrayOutputStream joined = new ByteArrayOutputStream();
+            for (File partFile : partFiles) {
+                try (InputStream in = new GZIPInputStream(Files.newInputStream(partFile.toPath()))) {
+                    byte[] buffer = new byte[8192];
+                    int n;
+                    while ((n = in.read(buffer)) > 0) {
+                        joined.write(buffer, 0, n);
+                    }
+                }
+            }
+            byte[] standalone = WriterTestSupport.write(WriterTestSupport.config(), entry.getValue());
+            assertArrayEquals(standalone, joined.toByteArray(), entry.getKey());
+        }
+        assertTrue(files > expected.size(), "files " + files);
+    }
+
+    /**
+     * 写出文件时的IO异常使任务失败, 不计为脏数据
+     */
+    @Test
+    void failsTaskOnFileIoError() {
+        //文件名超过文件系统的长度上限, 打开分区文件时抛出IOException
+        StringBuilder fileName = new StringBuilder();
+        while (fileName.length() < 300) {
+            fileName.append('f');
+        }
+        List<Record> records = Arrays.asList(TestRecord.of("a", "1"), TestRecord.of("b", "2"), TestRecord.of("a", "3"));
+        Configuration config = this.jobConfig(Key.PARTITION_BY, Collections.singletonList(0), Key.FILE_NAME, fileName.toString());
+        TestTaskPluginCollector collector = new TestTaskPluginCollector();
+        DataXException e = assertThrows(DataXException.class, () -> {
+            TxtFileMultiDelimiterWriter.Job job = new TxtFileMultiDelimiterWriter.Job();
+            job.setPluginJobConf(config);
+            job.init();
+            job.prepare();
+            TxtFileMultiDelimiterWriter.Task task = new TxtFileMultiDelimiterWriter.Task();
+            task.setPluginJobConf(job.split(1).get(0));
+            task.setTaskPluginCollector(collector);
+            task.setTaskId(0);
+            task.init();
+            task.prepare();
+            task.startWrite(new TestRecordReceiver(records));
+        });
+        assertEquals(TxtFileMultiDelimiterWriterErrorCode.Write_FILE_IO_ERROR, e.getErrorCode());
+        assertTrue(collector.getDirtyRecords().isEmpty());
+    }
+
+    /**
+     * 断言每个分区目录只有一个文件, 内容与该分区的记录单独写出的结果一致
+     *
+     * @param expected 各分区目录的记录
+     * @throws IOException ex
+     */
+    private void assertPartitionFiles(Map<String, List<Record>> expected) throws IOException {
+        for (Map.Entry<String, List<Record>> entry : expected.entrySet()) {
+            List<File> files = WriterTestSupport.dataFiles(new File(this.dir, entry.getKey()));
+            assertEquals(Collections.singletonList("f-0000"), names(files), entry.getKey());
+            byte[] standalone = WriterTestSupport.write(WriterTestSupport.config(Key.HEADER, Arrays.asList("a", "b", "c")), entry.getValue());
+            assertArrayEquals(standalone, Files.readAllBytes(files.get(0).toPath()), entry.getKey());
+        }
+    }
+
+    /**
+     * 按转义后的分区目录分组, 保持记录顺序
+     *
+     * @param records 记录
+     * @param column 列序号
+     * @param prefix 分区目录前缀
+     * @return 各分区目录的记录
+     */
+    private Map<String, List<Record>> groupBy(List<Record> records, int column, String prefix) {
+        Map<String, List<Record>> groups = new LinkedHashMap<>();
+        for (Record record : records) {
+            StringBuilder partition = new StringBuilder(prefix);
+            PartitionPath.escape(record.getColumn(column).asString(), partition);
+            groups.computeIfAbsent(partition.toString(), key -> new ArrayList<>()).add(record);
+        }
+        return groups;
+    }
+
+    /**
+     * 分区值随机交错的记录
+     *
+     * @param partitions 分区数
+     * @param count 记录数
+     * @return 记录
+     */
+    private List<Record> interleaved(int partitions, int count) {
+        Random random = new Random(partitions);
+        List<Record> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(TestRecord.of("k" + random.nextInt(partitions), i, "v" + random.nextInt()));
+        }
+        return records;
+    }
+
+    /**
+     * 作业配置：按模板命名分片, 三列表头
+     *
+     * @param keyValues 键值对
+     * @return 作业配置
+     */
+    private Configuration jobConfig(Object... keyValues) {
+        List<Object> options = new ArrayList<>(Arrays.asList(Key.PATH, this.dir.getAbsolutePath(), Key.FILE_NAME, "f", Key.WRITE_MODE, "truncate",
+                Key.FILE_NAME_TEMPLATE, "${fileName}-${part}", Key.HEADER, Arrays.asList("a", "b", "c")));
+        options.addAll(Arrays.asList(keyValues));
+        return WriterTestSupport.config(options.toArray());
+    }
+
+    /**
+     * 文件名
+     *
+     * @param files 文件
+     * @return 文件名
+     */
+    private static List<String> names(List<File> files) {
+        List<String> names = new ArrayList<>(files.size());
+        for (File file : files) {
+            names.add(file.getName());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,175 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 按前缀扫描测试：前缀、后缀中的glob元字符按原文匹配, 并行删除只删除匹配的文件
+ *
+ * @author langkye
+ */
+class PrefixFileScannerTest {
+    /**前缀与不转义时会被误匹配的文件名*/
+    private static final String[][] PREFIXES = {{"a[1]", "a1z"}, {"b*", "bzz"}, {"c{x,y}", "cx1"}, {"d\\e", "de1"}, {"f?", "fz"}};
+
+    /**目录*/
+    @TempDir
+    Path dir;
+
+    /**
+     * find、findExisting只返回以原文前缀开头的文件
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void findsOnlyLiteralPrefix() throws IOException {
+        for (String[] prefix : PREFIXES) {
+            Path sub = Files.createDirectory(this.dir.resolve("find-" + prefix[1]));
+            List<String> expected = createFiles(sub, prefix[0] + "1", prefix[0] + "-x.txt", prefix[0]);
+            createFiles(sub, prefix[1], "z" + prefix[0]);
+
+            assertEquals(expected, sorted(PrefixFileScanner.find(sub, prefix[0], Integer.MAX_VALUE)), prefix[0]);
+            assertEquals(2, PrefixFileScanner.find(sub, prefix[0], 2).size());
+            Set<String> candidates = new HashSet<>(Arrays.asList(prefix[0] + "1", prefix[0] + "2", prefix[1]));
+            assertEquals(Collections.singleton(prefix[0] + "1"), PrefixFileScanner.findExisting(sub, prefix[0], candidates), prefix[0]);
+        }
+        Path missing = this.dir.resolve("missing");
+        assertTrue(PrefixFileScanner.find(missing, "a", 10).isEmpty());
+        assertTrue(PrefixFileScanner.findExisting(missing, "a", Collections.singleton("a")).isEmpty());
+    }
+
+    /**
+     * delete、deleteAll只删除以原文前缀开头、以原文后缀结尾的文件
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void deletesOnlyLiteralPrefixAndSuffix() throws IOException {
+        for (String[] prefix : PREFIXES) {
+            Path sub = Files.createDirectory(this.dir.resolve("delete-" + prefix[1]));
+            List<String> matching = createFiles(sub, prefix[0] + "1.[tmp]", prefix[0] + "2.[tmp]");
+            List<String> kept = createFiles(sub, prefix[1] + ".[tmp]", prefix[0] + "3.t", prefix[0] + "4.[tmp]x");
+            assertEquals(matching, sorted(PrefixFileScanner.delete(sub, prefix[0], ".[tmp]")), prefix[0]);
+            assertEquals(kept, list(sub), prefix[0]);
+
+            assertEquals(2L, PrefixFileScanner.deleteAll(sub, prefix[0], "", 2), prefix[0]);
+            assertEquals(Collections.singletonList(prefix[1] + ".[tmp]"), list(sub), prefix[0]);
+        }
+        assertEquals(0L, PrefixFileScanner.deleteAll(this.dir.resolve("missing"), "a", "", 2));
+        assertTrue(PrefixFileScanner.delete(this.dir.resolve("missing"), "a", "").isEmpty());
+    }
+
+    /**
+     * 并行删除：匹配数量超过等待队列时由扫描线程参与删除, 匹配的目录连同内容删除, 每个文件恰好计数一次
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void deletesInParallel() throws IOException {
+        List<String> kept = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            Files.createFile(this.dir.resolve("f*-" + i));
+        }
+        for (int i = 0; i < 10; i++) {
+            Path nested = Files.createDirectories(this.dir.resolve("f*-dir-" + i).resolve("nested"));
+            Files.createFile(nested.resolve("f*-inner"));
+        }
+        for (int i = 0; i < 100; i++) {
+            kept.add("f-" + i);
+            Files.createFile(this.dir.resolve("f-" + i));
+        }
+        assertEquals(5010L, PrefixFileScanner.deleteAll(this.dir, "f*", "", 4));
+        assertEquals(sorted(kept), list(this.dir));
+    }
+
+    /**
+     * 列出指定层数的子目录：不含文件、目录自身与其他层的目录
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void listsDirectoriesAtDepth() throws IOException {
+        Files.createDirectories(this.dir.resolve("dt=1").resolve("t=a").resolve("x"));
+        Files.createDirectories(this.dir.resolve("dt=1").resolve("t=b"));
+        Files.createDirectories(this.dir.resolve("dt=2").resolve("t=a"));
+        Files.createDirectories(this.dir.resolve("dt=3"));
+        Files.createFile(this.dir.resolve("dt=2").resolve("file"));
+        Files.createFile(this.dir.resolve("top"));
+
+        assertEquals(Arrays.asList("dt=1", "dt=2", "dt=3"), relative(PrefixFileScanner.directories(this.dir, 1)));
+        assertEquals(Arrays.asList("dt=1/t=a", "dt=1/t=b", "dt=2/t=a"), relative(PrefixFileScanner.directories(this.dir, 2)));
+        assertEquals(Collections.singletonList("dt=1/t=a/x"), relative(PrefixFileScanner.directories(this.dir, 3)));
+        assertTrue(PrefixFileScanner.directories(this.dir, 4).isEmpty());
+        assertTrue(PrefixFileScanner.directories(this.dir.resolve("missing"), 1).isEmpty());
+    }
+
+    /**
+     * 创建文件
+     *
+     * @param dir 目录
+     * @param names 文件名
+     * @return 排序后的文件名
+     * @throws IOException ex
+     */
+    private static List<String> createFiles(Path dir, String... names) throws IOException {
+        for (String name : names) {
+            Files.createFile(dir.resolve(name));
+        }
+        return sorted(Arrays.asList(names));
+    }
+
+    /**
+     * 目录下的文件名
+     *
+     * @param dir 目录
+     * @return 排序后的文件名
+     * @throws IOException ex
+     */
+    private static List<String> list(Path dir) throws IOException {
+        try (Stream<Path> stream = Files.list(dir)) {
+            return sorted(stream.map(path -> path.getFileName().toString()).collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * 相对于测试目录的路径
+     *
+     * @param paths 路径
+     * @return 排序后的相对路径
+     */
+    private List<String> relative(List<Path> paths) {
+        List<String> names = new ArrayList<>();
+        for (Path path : paths) {
+            names.add(this.dir.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/"));
+        }
+        return sorted(names);
+    }
+
+    /**
+     * 排序
+     *
+     * @param names 名称
+     * @return 排序后的名称
+     */
+    private static List<String> sorted(Iterable<String> names) {
+        Set<String> set = new TreeSet<>();
+        names.forEach(set::add);
+        return new ArrayList<>(set);
+    }
+}
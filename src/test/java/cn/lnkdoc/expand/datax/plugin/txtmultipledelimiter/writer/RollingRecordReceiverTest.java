@@ -0,0 +1,119 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.util.Configuration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 文件滚动测试：maxFileRows按写出的行数（不含脏数据）切分, maxFileSize按落盘字节数切分
+ *
+ * @author langkye
+ */
+class RollingRecordReceiverTest {
+    /**目录*/
+    @TempDir
+    File dir;
+
+    /**
+     * 达到行数阈值时返回null, 预读下一条后开始新文件; 上游恰好读完时不再开始新文件
+     */
+    @Test
+    void rollsAtRowLimitWithoutEmptyTrailingPart() {
+        RollingRecordReceiver receiver = new RollingRecordReceiver(new TestRecordReceiver(TestRecord.random(new Random(1), 6)), 0L, 3L);
+        receiver.startPart(() -> 0L);
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(receiver.getFromReader());
+        }
+        assertNull(receiver.getFromReader());
+        assertTrue(receiver.nextPart());
+
+        receiver.startPart(() -> 0L);
+        for (int i = 0; i < 3; i++) {
+            assertNotNull(receiver.getFromReader());
+        }
+        assertNull(receiver.getFromReader());
+        assertFalse(receiver.nextPart());
+    }
+
+    /**
+     * 脏数据不计入行数：每个分片文件恰好写出maxFileRows行
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void excludesDirtyRecordsFromRowLimit() throws IOException {
+        List<Record> records = new ArrayList<>();
+        for (int i = 1; i <= 1000; i++) {
+            //scale列的非数字字符串为脏数据
+            records.add(TestRecord.of(i % 7 == 0 ? "x" : String.valueOf(i)));
+        }
+        Configuration config = this.jobConfig(Key.MAX_FILE_ROWS, 100, Key.COLUMN, Collections.singletonList(Collections.singletonMap("scale", 2)));
+        List<TestTaskPluginCollector> collectors = WriterTestSupport.runJob(config, Collections.singletonList(records));
+
+        assertEquals(142, collectors.get(0).getDirtyRecords().size());
+        List<File> files = WriterTestSupport.dataFiles(this.dir);
+        assertEquals(9, files.size());
+        for (int i = 0; i < files.size(); i++) {
+            List<String> lines = Files.readAllLines(files.get(i).toPath(), StandardCharsets.UTF_8);
+            assertEquals(i < 8 ? 101 : 59, lines.size(), files.get(i).getName());
+            assertEquals("v", lines.get(0));
+        }
+    }
+
+    /**
+     * 按大小切分：除最后一个分片外均达到阈值, 超出量不超过写入缓冲与1024行; 拼接后与不滚动的输出一致
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void rollsBySizeWithinDocumentedOvershoot() throws IOException {
+        List<Record> records = TestRecord.random(new Random(2), 60000);
+        WriterTestSupport.runJob(this.jobConfig(Key.MAX_FILE_SIZE, 1, Key.HEADER, null), Collections.singletonList(records));
+        List<File> files = WriterTestSupport.dataFiles(this.dir);
+        assertTrue(files.size() > 2, "files " + files.size());
+
+        long limit = 1024L * 1024L;
+        long overshoot = Constant.DEFAULT_BUFFER_SIZE + 1024L * 256L;
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < files.size(); i++) {
+            long length = files.get(i).length();
+            if (i < files.size() - 1) {
+                assertTrue(length >= limit, files.get(i).getName() + " " + length);
+            }
+            assertTrue(length < limit + overshoot, files.get(i).getName() + " " + length);
+            joined.append(new String(Files.readAllBytes(files.get(i).toPath()), StandardCharsets.UTF_8));
+        }
+        byte[] unrolled = WriterTestSupport.write(WriterTestSupport.config(), records);
+        assertEquals(new String(unrolled, StandardCharsets.UTF_8), joined.toString());
+    }
+
+    /**
+     * 作业配置：按模板命名分片, 可按字典序排序
+     *
+     * @param keyValues 键值对
+     * @return 作业配置
+     */
+    private Configuration jobConfig(Object... keyValues) {
+        List<Object> options = new ArrayList<>(Arrays.asList(Key.PATH, this.dir.getAbsolutePath(), Key.FILE_NAME, "f", Key.WRITE_MODE, "truncate",
+                Key.FILE_NAME_TEMPLATE, "${fileName}-${part}", Key.HEADER, Collections.singletonList("v")));
+        options.addAll(Arrays.asList(keyValues));
+        return WriterTestSupport.config(options.toArray());
+    }
+}
@@ -0,0 +1,214 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.util.Configuration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 检查点续写测试：任务在写入中途失败后以resume模式重新运行, 输出与一次写完的输出逐字节一致
+ *
+ * @author langkye
+ */
+class TaskCheckpointTest {
+    /**每个任务的记录数*/
+    private static final int ROWS = 20000;
+    /**失败前读取的记录数：位于检查点之后、分片中部*/
+    private static final int CRASH_AT = 7000;
+
+    /**目录*/
+    @TempDir
+    File dir;
+
+    /**
+     * 不压缩
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void resumesPlainOutput() throws IOException {
+        this.assertResumes();
+    }
+
+    /**
+     * gzip：检查点结束当前member, 截断后续写新的member
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void resumesGzipOutput() throws IOException {
+        this.assertResumes(Key.COMPRESS, "gzip");
+    }
+
+    /**
+     * 内存映射输出
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void resumesMappedOutput() throws IOException {
+        this.assertResumes(Key.OUTPUT_MODE, Constant.OUTPUT_MODE_MMAP);
+    }
+
+    /**
+     * 内存映射输出的检查点：先写出映射窗口再保存位置, 保存的位置不超过已写出的字节数
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void checkpointForcesMappedWindow() throws IOException {
+        File file = new File(this.dir, "f");
+        FileChannel channel = new RandomAccessFile(file, "rw").getChannel();
+        List<Long> forced = new ArrayList<>();
+        MappedFileOutputStream out = new MappedFileOutputStream(channel, 1024, null) {
+            @Override
+            public void force() throws IOException {
+                super.force();
+                forced.add(this.getBytesWritten());
+            }
+        };
+        try {
+            RollingRecordReceiver receiver = new RollingRecordReceiver(new TestRecordReceiver(new ArrayList<>()), 0L, 0L);
+            receiver.startPart(out::getBytesWritten);
+            TaskCheckpoint checkpoint = TaskCheckpoint.load(this.dir, "f", 1000L);
+            checkpoint.startPart("f", channel, receiver, () -> 0L);
+            checkpoint.bindMappedStream(out);
+            out.write(new byte[2500]);
+            checkpoint.checkpoint();
+            out.write(new byte[100]);
+            checkpoint.checkpoint();
+            assertEquals(Arrays.asList(2500L, 2600L), forced);
+            assertEquals(2600L, TaskCheckpoint.load(this.dir, "f", 1000L).getPendingOffset());
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * 一次写完的输出作为参照, 再失败一次并续写, 比较两者
+     *
+     * @param keyValues 额外的配置
+     * @throws IOException ex
+     */
+    private void assertResumes(Object... keyValues) throws IOException {
+        File expected = new File(this.dir, "expected");
+        File resumed = new File(this.dir, "resumed");
+        assertTrue(expected.mkdir() && resumed.mkdir());
+        List<List<Record>> taskRecords = Arrays.asList(TestRecord.random(new Random(0), ROWS), TestRecord.random(new Random(1), ROWS));
+
+        WriterTestSupport.runJob(this.jobConfig(expected, "truncate", keyValues), taskRecords);
+
+        //第一次运行：任务0在读取第CRASH_AT条记录时失败, 任务1写完
+        Configuration config = this.jobConfig(resumed, Constant.WRITE_MODE_RESUME, keyValues);
+        TxtFileMultiDelimiterWriter.Job job = new TxtFileMultiDelimiterWriter.Job();
+        job.setPluginJobConf(config);
+        job.init();
+        job.prepare();
+        List<Configuration> taskConfigs = job.split(taskRecords.size());
+        for (int i = 0; i < taskConfigs.size(); i++) {
+            TxtFileMultiDelimiterWriter.Task task = new TxtFileMultiDelimiterWriter.Task();
+            task.setPluginJobConf(taskConfigs.get(i));
+            task.setTaskPluginCollector(new TestTaskPluginCollector());
+            task.setTaskId(i);
+            task.init();
+            task.prepare();
+            if (0 == i) {
+                assertThrows(IllegalStateException.class, () -> task.startWrite(new FailingReceiver(taskRecords.get(0))));
+            } else {
+                task.startWrite(new TestRecordReceiver(taskRecords.get(i)));
+                task.post();
+            }
+            task.destroy();
+        }
+        assertTrue(resumed.list((d, name) -> name.endsWith(".checkpoint")).length > 0);
+
+        //第二次运行：读取端按相同顺序读出相同的记录
+        WriterTestSupport.runJob(config, taskRecords);
+
+        List<File> expectedFiles = WriterTestSupport.dataFiles(expected);
+        List<File> resumedFiles = WriterTestSupport.dataFiles(resumed);
+        assertEquals(names(expectedFiles), names(resumedFiles));
+        for (int i = 0; i < expectedFiles.size(); i++) {
+            assertArrayEquals(Files.readAllBytes(expectedFiles.get(i).toPath()), Files.readAllBytes(resumedFiles.get(i).toPath()), resumedFiles.get(i).getName());
+        }
+        assertEquals(0, resumed.list((d, name) -> name.endsWith(".checkpoint")).length);
+    }
+
+    /**
+     * 作业配置：文件名不含随机部分, 每1秒记录检查点, 每3000行切换分片
+     *
+     * @param path 目录
+     * @param writeMode 写入模式
+     * @param keyValues 额外的配置
+     * @return 作业配置
+     */
+    private Configuration jobConfig(File path, String writeMode, Object... keyValues) {
+        List<Object> options = new ArrayList<>(Arrays.asList(Key.PATH, path.getAbsolutePath(), Key.FILE_NAME, "f", Key.WRITE_MODE, writeMode,
+                Key.FILE_NAME_TEMPLATE, "${fileName}-${taskId}-${part}",
+                Key.HEADER, Arrays.asList("a", "b"), Key.CHECKPOINT_INTERVAL, 1, Key.SERIALIZE_BATCH_SIZE, 500, Key.MAX_FILE_ROWS, 3000));
+        options.addAll(Arrays.asList(keyValues));
+        return WriterTestSupport.config(options.toArray());
+    }
+
+    /**
+     * 文件名
+     *
+     * @param files 文件
+     * @return 文件名
+     */
+    private static List<String> names(List<File> files) {
+        List<String> names = new ArrayList<>(files.size());
+        for (File file : files) {
+            names.add(file.getName());
+        }
+        return names;
+    }
+
+    /**
+     * 读取中途失败的接收器：在检查点间隔之后暂停一次, 保证失败前已记录文件内检查点
+     */
+    private static class FailingReceiver extends TestRecordReceiver {
+        /**已读取的记录数*/
+        private int read;
+
+        /**
+         * 通过记录构建接收器
+         *
+         * @param records 记录
+         */
+        FailingReceiver(List<Record> records) {
+            super(records);
+        }
+
+        @Override
+        public Record getFromReader() {
+            this.read++;
+            if (this.read == CRASH_AT - 1000) {
+                try {
+                    Thread.sleep(1100L);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (this.read == CRASH_AT) {
+                throw new IllegalStateException("读取端失败");
+            }
+            return super.getFromReader();
+        }
+    }
+}
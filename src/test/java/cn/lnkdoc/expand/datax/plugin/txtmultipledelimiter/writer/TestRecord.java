@@ -0,0 +1,135 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.BoolColumn;
+import com.alibaba.datax.common.element.BytesColumn;
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.DateColumn;
+import com.alibaba.datax.common.element.DoubleColumn;
+import com.alibaba.datax.common.element.LongColumn;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.element.StringColumn;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 测试用记录：不依赖DataX引擎
+ *
+ * @author langkye
+ */
+public class TestRecord implements Record {
+    /**列*/
+    private final List<Column> columns = new ArrayList<>();
+
+    /**
+     * 按值构建记录：null为字符串类型的空值, 其余按值的类型选择列类型
+     *
+     * @param values 列值
+     * @return 记录
+     */
+    public static TestRecord of(Object... values) {
+        TestRecord record = new TestRecord();
+        for (Object value : values) {
+            record.addColumn(TestRecord.toColumn(value));
+        }
+        return record;
+    }
+
+    /**
+     * 随机生成记录：字符串、整数、小数、布尔、日期及空值混合, 字符串含多字节字符、分隔符与换行
+     *
+     * @param random 随机数
+     * @param count 条数
+     * @return 记录
+     */
+    public static List<Record> random(Random random, int count) {
+        List<Record> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            TestRecord record = new TestRecord();
+            record.addColumn(new LongColumn((long) i));
+            record.addColumn(new StringColumn(random.nextInt(10) == 0 ? null : "s" + random.nextInt(100000) + (random.nextInt(8) == 0 ? ",中文|@|\n\"q\"" : "")));
+            record.addColumn(new DoubleColumn(random.nextDouble() * 1e6));
+            record.addColumn(new BoolColumn(random.nextBoolean()));
+            record.addColumn(new DateColumn(1600000000000L + random.nextInt(Integer.MAX_VALUE) * 1000L));
+            record.addColumn(new LongColumn(random.nextInt(3) == 0 ? null : (Long) random.nextLong()));
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * 按值的类型构建列
+     *
+     * @param value 列值
+     * @return 列
+     */
+    private static Column toColumn(Object value) {
+        if (null == value || value instanceof String) {
+            return new StringColumn((String) value);
+        }
+        if (value instanceof Column) {
+            return (Column) value;
+        }
+        if (value instanceof Integer || value instanceof Long) {
+            return new LongColumn(((Number) value).longValue());
+        }
+        if (value instanceof BigDecimal) {
+            return new DoubleColumn((BigDecimal) value);
+        }
+        if (value instanceof Double) {
+            return new DoubleColumn((Double) value);
+        }
+        if (value instanceof Boolean) {
+            return new BoolColumn((Boolean) value);
+        }
+        if (value instanceof Date) {
+            return new DateColumn((Date) value);
+        }
+        if (value instanceof byte[]) {
+            return new BytesColumn((byte[]) value);
+        }
+        throw new IllegalArgumentException("不支持的列值类型: " + value.getClass());
+    }
+
+    @Override
+    public void addColumn(Column column) {
+        this.columns.add(column);
+    }
+
+    @Override
+    public void setColumn(int i, Column column) {
+        this.columns.set(i, column);
+    }
+
+    @Override
+    public Column getColumn(int i) {
+        return this.columns.get(i);
+    }
+
+    @Override
+    public int getColumnNumber() {
+        return this.columns.size();
+    }
+
+    @Override
+    public int getByteSize() {
+        int byteSize = 0;
+        for (Column column : this.columns) {
+            byteSize += column.getByteSize();
+        }
+        return byteSize;
+    }
+
+    @Override
+    public int getMemorySize() {
+        return this.getByteSize();
+    }
+
+    @Override
+    public String toString() {
+        return this.columns.toString();
+    }
+}
@@ -0,0 +1,39 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.plugin.RecordReceiver;
+
+import java.util.List;
+
+/**
+ * 测试用记录接收器：依次返回给定的记录, 读完后始终返回null
+ *
+ * @author langkye
+ */
+public class TestRecordReceiver implements RecordReceiver {
+    /**记录*/
+    private final List<? extends Record> records;
+    /**已返回的记录条数*/
+    private int position;
+
+    /**
+     * 通过记录构建接收器
+     *
+     * @param records 记录
+     */
+    public TestRecordReceiver(List<? extends Record> records) {
+        this.records = records;
+    }
+
+    @Override
+    public Record getFromReader() {
+        if (this.position >= this.records.size()) {
+            return null;
+        }
+        return this.records.get(this.position++);
+    }
+
+    @Override
+    public void shutdown() {
+    }
+}
@@ -0,0 +1,35 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.plugin.TaskPluginCollector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 测试用脏数据收集器：保留收集到的脏数据
+ *
+ * @author langkye
+ */
+public class TestTaskPluginCollector extends TaskPluginCollector {
+    /**脏数据*/
+    private final List<Record> dirtyRecords = new ArrayList<>();
+
+    @Override
+    public void collectDirtyRecord(Record dirtyRecord, Throwable t, String errorMessage) {
+        this.dirtyRecords.add(dirtyRecord);
+    }
+
+    @Override
+    public void collectMessage(String key, String value) {
+    }
+
+    /**
+     * 获取收集到的脏数据
+     *
+     * @return 脏数据
+     */
+    public List<Record> getDirtyRecords() {
+        return this.dirtyRecords;
+    }
+}
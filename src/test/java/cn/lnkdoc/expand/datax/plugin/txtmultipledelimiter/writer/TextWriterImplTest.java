@@ -0,0 +1,198 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.exception.DataXException;
+import com.alibaba.datax.common.util.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * text写入器测试：转义模式经独立的反转义解析器读回与写出一致, 换行符替换
+ *
+ * @author langkye
+ */
+class TextWriterImplTest {
+    /**换行符*/
+    private static final String LS = System.lineSeparator();
+    /**列格式化器*/
+    private static final ColumnFormatter FORMATTER = new DefaultColumnFormatter("", CachedDateFormatter.of("yyyy-MM-dd"));
+
+    /**
+     * 未配置转义时原样输出
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void writesVerbatimByDefault() throws IOException {
+        assertEquals("a|@|b\\c|@|l1\nl2" + LS, write("|@|", null, null, "a|@|b\\c", "l1\nl2"));
+    }
+
+    /**
+     * 转义符、分隔符、回车、换行前加转义符；字段结尾与其后的分隔符拼接后构成分隔符时同样转义
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void escapesSpecialCharacters() throws IOException {
+        assertEquals("a\\|@|b|@|c\\\\d|@|l1\\nl2\\r" + LS, write("|@|", '\\', null, "a|@|b", "c\\d", "l1\nl2\r"));
+        assertEquals("x\\ababay" + LS, write("aba", '\\', null, "xab", "y"));
+        //最后一个字段之后为换行符, 结尾的分隔符前缀无需转义
+        assertEquals("yabaxab" + LS, write("aba", '\\', null, "y", "xab"));
+    }
+
+    /**
+     * 单字符与多字符（含自重叠）分隔符：随机字段经反转义解析器读回与写出一致
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void roundTripsThroughUnescapeParser() throws IOException {
+        for (String delimiter : new String[]{",", "\t", "|@|", "||", "aa", "aba", "\\n", ",;"}) {
+            char escapeChar = delimiter.indexOf('\\') >= 0 ? '#' : '\\';
+            Random random = new Random(delimiter.hashCode());
+            String alphabet = delimiter + escapeChar + "nr\r\n xa中";
+            List<List<String>> rows = new ArrayList<>();
+            for (int i = 0; i < 3000; i++) {
+                rows.add(randomRow(random, alphabet));
+            }
+            StringWriter out = new StringWriter();
+            UnstructuredWriter writer = TextCsvWriterManager.produceUnstructuredWriter(Constant.FILE_FORMAT_TEXT, delimiter, escapeChar, null, out);
+            for (List<String> row : rows) {
+                writer.writeRecord(TestRecord.of(row.toArray()), FORMATTER);
+            }
+            writer.flush();
+            assertEquals(rows, parse(out.toString(), delimiter, escapeChar), "delimiter " + delimiter);
+        }
+    }
+
+    /**
+     * 换行符替换：\r\n、\r、\n均写为替换串, 可单独使用, 也可与转义符同时使用
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void replacesLineBreaks() throws IOException {
+        assertEquals("a b c d|@|x|y" + LS, write("|@|", null, " ", "a\r\nb\rc\nd", "x|y"));
+        assertEquals("ab|@|\\|@|" + LS, write("|@|", '\\', "", "a\r\n\nb", "|@|"));
+
+        Random random = new Random(24);
+        String alphabet = "|@\\\r\n xy";
+        for (int i = 0; i < 3000; i++) {
+            List<String> row = randomRow(random, alphabet);
+            List<String> expected = new ArrayList<>(row.size());
+            for (String field : row) {
+                expected.add(field.replace("\r\n", "<br>").replace("\r", "<br>").replace("\n", "<br>"));
+            }
+            String line = write("|@|", '\\', "<br>", row.toArray());
+            assertEquals(Collections.singletonList(expected), parse(line, "|@|", '\\'));
+        }
+    }
+
+    /**
+     * 通过配置启用：转义符须为单个字符且不属于分隔符, 替换串不能包含换行符、分隔符或转义符
+     */
+    @Test
+    void wiresAndValidatesConfiguration() {
+        Record record = TestRecord.of("a|@|b", "l1\nl2");
+        byte[] bytes = WriterTestSupport.write(WriterTestSupport.config(Key.FILE_FORMAT, Constant.FILE_FORMAT_TEXT, Key.ESCAPE_CHAR, "\\"), Collections.singletonList(record));
+        assertEquals("a\\|@|b|@|l1\\nl2" + LS, new String(bytes, StandardCharsets.UTF_8));
+        bytes = WriterTestSupport.write(WriterTestSupport.config(Key.FILE_FORMAT, Constant.FILE_FORMAT_TEXT, Key.LINE_BREAK_REPLACEMENT, " "), Collections.singletonList(record));
+        assertEquals("a|@|b|@|l1 l2" + LS, new String(bytes, StandardCharsets.UTF_8));
+
+        Object[][] invalid = {{Key.ESCAPE_CHAR, "\\\\"}, {Key.ESCAPE_CHAR, "@"}, {Key.ESCAPE_CHAR, "\n"},
+                {Key.LINE_BREAK_REPLACEMENT, "\r"}, {Key.LINE_BREAK_REPLACEMENT, "a|@|b"}, {Key.ESCAPE_CHAR, "\\", Key.LINE_BREAK_REPLACEMENT, "\\n"}};
+        for (Object[] keyValues : invalid) {
+            List<Object> options = new ArrayList<>(Arrays.asList(Key.PATH, "/tmp", Key.FILE_NAME, "f", Key.WRITE_MODE, "truncate", Key.FILE_FORMAT, Constant.FILE_FORMAT_TEXT));
+            options.addAll(Arrays.asList(keyValues));
+            Configuration config = WriterTestSupport.config(options.toArray());
+            assertThrows(DataXException.class, () -> UnstructuredStorageWriterUtil.validateParameter(config), Arrays.toString(keyValues));
+        }
+    }
+
+    /**
+     * 写出一行
+     *
+     * @param delimiter 字段分隔符
+     * @param escapeChar 转义符
+     * @param lineBreakReplacement 换行符的替换串
+     * @param fields 字段
+     * @return 文本
+     * @throws IOException ex
+     */
+    private static String write(String delimiter, Character escapeChar, String lineBreakReplacement, Object... fields) throws IOException {
+        StringWriter out = new StringWriter();
+        UnstructuredWriter writer = TextCsvWriterManager.produceUnstructuredWriter(Constant.FILE_FORMAT_TEXT, delimiter, escapeChar, lineBreakReplacement, out);
+        writer.writeRecord(TestRecord.of(fields), FORMATTER);
+        writer.flush();
+        return out.toString();
+    }
+
+    /**
+     * 随机生成一行字段
+     *
+     * @param random 随机数
+     * @param alphabet 字符
+     * @return 字段
+     */
+    private static List<String> randomRow(Random random, String alphabet) {
+        int columns = 1 + random.nextInt(5);
+        List<String> row = new ArrayList<>(columns);
+        for (int j = 0; j < columns; j++) {
+            int length = random.nextInt(8);
+            StringBuilder field = new StringBuilder(length);
+            for (int k = 0; k < length; k++) {
+                field.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            row.add(field.toString());
+        }
+        return row;
+    }
+
+    /**
+     * 反转义解析：转义符后的字符为普通字符（n、r还原为换行符、回车符）, 分隔符、换行符按最左匹配
+     *
+     * @param text 文本
+     * @param delimiter 字段分隔符
+     * @param escapeChar 转义符
+     * @return 行
+     */
+    private static List<List<String>> parse(String text, String delimiter, char escapeChar) {
+        List<List<String>> rows = new ArrayList<>();
+        List<String> row = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (escapeChar == c) {
+                char escaped = text.charAt(i + 1);
+                field.append('n' == escaped ? '\n' : 'r' == escaped ? '\r' : escaped);
+                i += 2;
+            } else if (text.startsWith(delimiter, i)) {
+                row.add(field.toString());
+                field.setLength(0);
+                i += delimiter.length();
+            } else if (text.startsWith(LS, i)) {
+                row.add(field.toString());
+                field.setLength(0);
+                rows.add(row);
+                row = new ArrayList<>();
+                i += LS.length();
+            } else {
+                field.append(c);
+                i++;
+            }
+        }
+        return rows;
+    }
+}
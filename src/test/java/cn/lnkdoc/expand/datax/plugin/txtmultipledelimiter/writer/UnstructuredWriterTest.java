@@ -0,0 +1,201 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Column;
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.element.StringColumn;
+import com.alibaba.datax.common.util.Configuration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * 批量写入测试：writeBatch的输出与脏数据与逐条writeRecord、接口默认实现一致
+ *
+ * @author langkye
+ */
+class UnstructuredWriterTest {
+    /**格式化失败的值*/
+    private static final String BOOM = "boom";
+    /**列格式化器：值为boom的列追加部分内容后抛出异常, 校验脏数据回退到行起始位置*/
+    private static final ColumnFormatter FORMATTER = new ColumnFormatter() {
+        private final ColumnFormatter delegate = new DefaultColumnFormatter("\\N", CachedDateFormatter.of("yyyy-MM-dd HH:mm:ss"));
+
+        @Override
+        public void format(int index, Column column, StringBuilder out) {
+            this.delegate.format(index, column, out);
+            if (BOOM.equals(column.getRawData())) {
+                throw new IllegalArgumentException("无法格式化");
+            }
+        }
+    };
+
+    /**目录*/
+    @TempDir
+    File dir;
+
+    /**
+     * text、转义的text与csv：任意批大小（含超过行缓冲写出阈值的批）与逐条写入、接口默认实现一致
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void writeBatchMatchesPerRecordWrites() throws IOException {
+        List<Record> records = records(new Random(13), 20000);
+        List<Function<StringWriter, UnstructuredWriter>> factories = Arrays.asList(
+                out -> TextCsvWriterManager.produceUnstructuredWriter(Constant.FILE_FORMAT_TEXT, "|@|", out),
+                out -> TextCsvWriterManager.produceUnstructuredWriter(Constant.FILE_FORMAT_TEXT, "|@|", '\\', null, out),
+                out -> TextCsvWriterManager.produceUnstructuredWriter(Constant.FILE_FORMAT_CSV, ",", out));
+        for (Function<StringWriter, UnstructuredWriter> factory : factories) {
+            TestTaskPluginCollector expectedDirty = new TestTaskPluginCollector();
+            StringWriter expected = new StringWriter();
+            UnstructuredWriter perRecord = factory.apply(expected);
+            for (Record record : records) {
+                try {
+                    perRecord.writeRecord(record, FORMATTER);
+                } catch (IllegalArgumentException e) {
+                    expectedDirty.collectDirtyRecord(record, e);
+                }
+            }
+            perRecord.flush();
+            assertTrue(expectedDirty.getDirtyRecords().size() > 0);
+
+            for (int batchSize : new int[]{1, 7, 4096, records.size()}) {
+                StringWriter out = new StringWriter();
+                assertBatches(expected.toString(), expectedDirty, records, batchSize, factory.apply(out), out);
+                //接口默认实现：逐条调用writeRecord
+                out = new StringWriter();
+                assertBatches(expected.toString(), expectedDirty, records, batchSize, new DefaultBatchWriter(factory.apply(out)), out);
+            }
+        }
+    }
+
+    /**
+     * 作业输出与serializeBatchSize无关：不压缩、gzip及按行数滚动时逐字节一致
+     *
+     * @throws IOException ex
+     */
+    @Test
+    void jobOutputIsIndependentOfBatchSize() throws IOException {
+        List<List<Record>> taskRecords = Collections.singletonList(TestRecord.random(new Random(14), 20000));
+        Object[][] cases = {{}, {Key.COMPRESS, "gzip"}, {Key.MAX_FILE_ROWS, 3000}};
+        for (int i = 0; i < cases.length; i++) {
+            File single = new File(this.dir, i + "-1");
+            File batched = new File(this.dir, i + "-4096");
+            assertTrue(single.mkdir() && batched.mkdir());
+            WriterTestSupport.runJob(jobConfig(single, 1, cases[i]), taskRecords);
+            WriterTestSupport.runJob(jobConfig(batched, 4096, cases[i]), taskRecords);
+            AsyncOutputStreamTest.assertSameFiles(single, batched);
+        }
+    }
+
+    /**
+     * 按批写入并断言输出与脏数据
+     *
+     * @param expected 逐条写入的输出
+     * @param expectedDirty 逐条写入的脏数据
+     * @param records 记录
+     * @param batchSize 批大小
+     * @param writer 写入器
+     * @param out 写入器的输出
+     * @throws IOException ex
+     */
+    private static void assertBatches(String expected, TestTaskPluginCollector expectedDirty, List<Record> records, int batchSize, UnstructuredWriter writer, StringWriter out) throws IOException {
+        TestTaskPluginCollector dirty = new TestTaskPluginCollector();
+        Record[] batch = new Record[batchSize];
+        int dirtyCount = 0;
+        for (int start = 0; start < records.size(); start += batchSize) {
+            int count = Math.min(batchSize, records.size() - start);
+            for (int i = 0; i < count; i++) {
+                batch[i] = records.get(start + i);
+            }
+            dirtyCount += writer.writeBatch(batch, count, FORMATTER, dirty);
+        }
+        writer.flush();
+        assertEquals(expected, out.toString(), "batchSize " + batchSize);
+        assertEquals(expectedDirty.getDirtyRecords().size(), dirtyCount);
+        assertEquals(expectedDirty.getDirtyRecords().size(), dirty.getDirtyRecords().size());
+        for (int i = 0; i < dirtyCount; i++) {
+            assertSame(expectedDirty.getDirtyRecords().get(i), dirty.getDirtyRecords().get(i));
+        }
+    }
+
+    /**
+     * 随机记录, 末尾追加一列, 其中部分值格式化失败
+     *
+     * @param random 随机数
+     * @param count 条数
+     * @return 记录
+     */
+    private static List<Record> records(Random random, int count) {
+        List<Record> records = TestRecord.random(random, count);
+        for (Record record : records) {
+            record.addColumn(new StringColumn(random.nextInt(17) == 0 ? BOOM : "ok"));
+        }
+        return records;
+    }
+
+    /**
+     * 作业配置
+     *
+     * @param path 目录
+     * @param batchSize 每批记录数
+     * @param keyValues 额外的配置
+     * @return 作业配置
+     */
+    private static Configuration jobConfig(File path, int batchSize, Object... keyValues) {
+        List<Object> options = new ArrayList<>(Arrays.asList(Key.PATH, path.getAbsolutePath(), Key.FILE_NAME, "f", Key.WRITE_MODE, "truncate",
+                Key.FILE_NAME_TEMPLATE, "${fileName}-${part}", Key.HEADER, Collections.singletonList("h"), Key.SERIALIZE_BATCH_SIZE, batchSize));
+        options.addAll(Arrays.asList(keyValues));
+        return WriterTestSupport.config(options.toArray());
+    }
+
+    /**
+     * 只转发单条写入的写入器：writeBatch使用接口默认实现
+     */
+    private static class DefaultBatchWriter implements UnstructuredWriter {
+        /**被代理的写入器*/
+        private final UnstructuredWriter delegate;
+
+        /**
+         * 通过被代理的写入器构建
+         *
+         * @param delegate 被代理的写入器
+         */
+        DefaultBatchWriter(UnstructuredWriter delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void writeOneRecord(List<String> splitedRows) throws IOException {
+            this.delegate.writeOneRecord(splitedRows);
+        }
+
+        @Override
+        public void writeRecord(Record record, ColumnFormatter formatter) throws IOException {
+            this.delegate.writeRecord(record, formatter);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            this.delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.delegate.close();
+        }
+    }
+}
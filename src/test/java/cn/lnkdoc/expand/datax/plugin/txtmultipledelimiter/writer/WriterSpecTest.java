@@ -0,0 +1,138 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.util.Configuration;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * 写出规格测试：通过WriterSpec写出与通过Configuration写出逐字节一致, 同一规格可跨文件、跨线程复用
+ *
+ * @author langkye
+ */
+class WriterSpecTest {
+    /**记录*/
+    private static final List<Record> RECORDS = TestRecord.random(new Random(21), 5000);
+
+    /**
+     * 各种配置下WriterSpec入口与Configuration入口的输出一致
+     */
+    @Test
+    void specPathMatchesConfigurationPath() {
+        for (Configuration config : configs()) {
+            assertArrayEquals(WriterTestSupport.write(config, RECORDS), write(WriterSpec.of(config), RECORDS), config.toJSON());
+        }
+    }
+
+    /**
+     * withoutHeader与不配置表头的输出一致, 其余规格不变；未配置表头时返回自身
+     */
+    @Test
+    void withoutHeaderMatchesConfigurationWithoutHeader() {
+        for (Configuration config : configs()) {
+            Configuration noHeader = config.clone();
+            noHeader.remove(Key.HEADER);
+            WriterSpec spec = WriterSpec.of(config).withoutHeader();
+            assertEquals(Collections.emptyList(), spec.getHeaders());
+            assertArrayEquals(WriterTestSupport.write(noHeader, RECORDS), write(spec, RECORDS), config.toJSON());
+        }
+        WriterSpec noHeader = WriterSpec.of(WriterTestSupport.config());
+        assertSame(noHeader, noHeader.withoutHeader());
+    }
+
+    /**
+     * 同一规格（共享的列格式化器）在多个线程中同时写出不同文件, 输出与单独写出一致
+     *
+     * @throws Exception ex
+     */
+    @Test
+    void specIsSharedAcrossThreads() throws Exception {
+        for (Configuration config : configs()) {
+            WriterSpec spec = WriterSpec.of(config);
+            byte[] expected = write(spec, RECORDS);
+            ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                List<Future<byte[]>> futures = new ArrayList<>();
+                for (int i = 0; i < 8; i++) {
+                    futures.add(executor.submit(() -> write(spec, RECORDS)));
+                }
+                for (Future<byte[]> future : futures) {
+                    assertArrayEquals(expected, future.get(), config.toJSON());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * 已废弃的transportOneRecord(nullFormat, DateFormat)与复用列格式化器的重载输出一致
+     *
+     * @throws IOException ex
+     */
+    @Test
+    @SuppressWarnings("deprecation")
+    void deprecatedTransportMatchesFormatterOverload() throws IOException {
+        ColumnFormatter formatter = new DefaultColumnFormatter("\\N", CachedDateFormatter.of("yyyy-MM-dd HH:mm:ss"));
+        StringWriter expected = new StringWriter();
+        StringWriter actual = new StringWriter();
+        UnstructuredWriter expectedWriter = TextCsvWriterManager.produceUnstructuredWriter(Constant.FILE_FORMAT_TEXT, "|@|", expected);
+        UnstructuredWriter actualWriter = TextCsvWriterManager.produceUnstructuredWriter(Constant.FILE_FORMAT_TEXT, "|@|", actual);
+        TestTaskPluginCollector collector = new TestTaskPluginCollector();
+        for (Record record : RECORDS) {
+            UnstructuredStorageWriterUtil.transportOneRecord(record, formatter, collector, expectedWriter);
+            UnstructuredStorageWriterUtil.transportOneRecord(record, "\\N", new SimpleDateFormat("yyyy-MM-dd HH:mm:ss"), collector, actualWriter);
+        }
+        expectedWriter.flush();
+        actualWriter.flush();
+        assertEquals(expected.toString(), actual.toString());
+    }
+
+    /**
+     * 覆盖文件格式、编码、压缩、转义、列格式与并行序列化的配置
+     *
+     * @return 配置
+     */
+    private static List<Configuration> configs() {
+        List<String> header = Arrays.asList("a", "b", "c", "d", "e", "f");
+        return Arrays.asList(
+                WriterTestSupport.config(Key.HEADER, header),
+                WriterTestSupport.config(Key.HEADER, header, Key.FILE_FORMAT, Constant.FILE_FORMAT_CSV, Key.FIELD_DELIMITER, ","),
+                WriterTestSupport.config(Key.HEADER, header, Key.ENCODING, "GBK", Key.COMPRESS, "gzip"),
+                WriterTestSupport.config(Key.HEADER, header, Key.ENCODING, "UTF-16"),
+                WriterTestSupport.config(Key.HEADER, header, Key.ESCAPE_CHAR, "\\", Key.LINE_BREAK_REPLACEMENT, " "),
+                WriterTestSupport.config(Key.HEADER, header, Key.COLUMN, Arrays.asList(Collections.singletonMap(Key.COLUMN_NULL_FORMAT, "NULL"),
+                        Collections.singletonMap(Key.COLUMN_NULL_FORMAT, ""), Collections.singletonMap(Key.COLUMN_SCALE, 2),
+                        Collections.singletonMap(Key.COLUMN_TRUE_VALUE, "Y"), Collections.singletonMap(Key.COLUMN_DATE_FORMAT, "yyyyMMdd"))),
+                WriterTestSupport.config(Key.HEADER, header, Key.SERIALIZE_THREADS, 3, Key.SERIALIZE_BATCH_SIZE, 100, Key.COMPRESS, "zstd"));
+    }
+
+    /**
+     * 按写出规格将记录写出到内存
+     *
+     * @param spec 写出规格
+     * @param records 记录
+     * @return 写出的字节
+     */
+    private static byte[] write(WriterSpec spec, List<Record> records) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        UnstructuredStorageWriterUtil.writeToStream(new TestRecordReceiver(records), out, spec, "test", new TestTaskPluginCollector(), new WriterMetrics(), null);
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,95 @@
+package cn.lnkdoc.expand.datax.plugin.txtmultipledelimiter.writer;
+
+import com.alibaba.datax.common.element.Record;
+import com.alibaba.datax.common.util.Configuration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 测试公共方法：构建写出配置, 写出到内存
+ *
+ * @author langkye
+ */
+final class WriterTestSupport {
+
+    private WriterTestSupport() {}
+
+    /**
+     * 构建写出配置：多字符分隔符、空值\N、秒级日期格式, 再按键值对覆盖
+     *
+     * @param keyValues 键值对
+     * @return 配置信息
+     */
+    static Configuration config(Object... keyValues) {
+        Configuration config = Configuration.newDefault();
+        config.set(Key.FIELD_DELIMITER, "|@|");
+        config.set(Key.NULL_FORMAT, "\\N");
+        config.set(Key.DATE_FORMAT, "yyyy-MM-dd HH:mm:ss");
+        for (int i = 0; i < keyValues.length; i += 2) {
+            config.set((String) keyValues[i], keyValues[i + 1]);
+        }
+        return config;
+    }
+
+    /**
+     * 按DataX调用顺序运行作业：作业初始化、拆分, 各任务依次写入, 最后作业后置处理
+     *
+     * @param config 作业配置
+     * @param taskRecords 各任务的记录
+     * @return 各任务的脏数据收集器
+     */
+    static List<TestTaskPluginCollector> runJob(Configuration config, List<List<Record>> taskRecords) {
+        TxtFileMultiDelimiterWriter.Job job = new TxtFileMultiDelimiterWriter.Job();
+        job.setPluginJobConf(config);
+        job.init();
+        job.prepare();
+        List<Configuration> taskConfigs = job.split(taskRecords.size());
+        List<TestTaskPluginCollector> collectors = new ArrayList<>(taskConfigs.size());
+        for (int i = 0; i < taskConfigs.size(); i++) {
+            TestTaskPluginCollector collector = new TestTaskPluginCollector();
+            TxtFileMultiDelimiterWriter.Task task = new TxtFileMultiDelimiterWriter.Task();
+            task.setPluginJobConf(taskConfigs.get(i));
+            task.setTaskPluginCollector(collector);
+            task.setTaskId(i);
+            task.init();
+            task.prepare();
+            task.startWrite(new TestRecordReceiver(taskRecords.get(i)));
+            task.post();
+            task.destroy();
+            collectors.add(collector);
+        }
+        job.post();
+        job.destroy();
+        return collectors;
+    }
+
+    /**
+     * 目录下的数据文件：不含隐藏文件、_SUCCESS与子目录, 按文件名排序
+     *
+     * @param dir 目录
+     * @return 数据文件
+     */
+    static List<File> dataFiles(File dir) {
+        File[] files = dir.listFiles(file -> file.isFile() && !file.getName().startsWith(Constant.HIDDEN_FILE_PREFIX) && !Constant.SUCCESS_FILE_NAME.equals(file.getName()));
+        List<File> dataFiles = new ArrayList<>(Arrays.asList(null == files ? new File[0] : files));
+        dataFiles.sort(null);
+        return dataFiles;
+    }
+
+    /**
+     * 按配置将记录写出到内存
+     *
+     * @param config 配置信息
+     * @param records 记录
+     * @return 写出的字节
+     */
+    static byte[] write(Configuration config, List<Record> records) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        UnstructuredStorageWriterUtil.writeToStream(new TestRecordReceiver(records), out, config, "test", new TestTaskPluginCollector(), new WriterMetrics());
+        return out.toByteArray();
+    }
+}